@@ -63,7 +63,9 @@ CREATE TABLE `sys_allocation_config`  (
   `social_weight` int NULL DEFAULT 15 COMMENT '社交维度权重（社交偏好、访客、电话等）',
   `study_weight` int NULL DEFAULT 10 COMMENT '学习维度权重',
   `entertainment_weight` int NULL DEFAULT 10 COMMENT '娱乐维度权重（电脑、游戏、音乐等）',
-  `algorithm_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT 'kmeans' COMMENT '算法类型：greedy-贪心算法 kmeans-聚类算法 annealing-模拟退火',
+  `algorithm_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT 'kmeans' COMMENT '算法类型：greedy-贪心算法 kmeans-聚类算法 annealing-模拟退火 parallel_annealing-并行回火 optimal-最优分配 genetic-岛屿遗传',
+  `time_limit_seconds` int NULL DEFAULT NULL COMMENT '算法时间预算（秒），为空不限制；到期后返回当前最优解',
+  `post_optimize` tinyint NULL DEFAULT 0 COMMENT '局部搜索后优化：1-启用 0-禁用',
   `same_dept_bonus` int NULL DEFAULT 5 COMMENT '同院系加分',
   `same_major_bonus` int NULL DEFAULT 10 COMMENT '同专业加分',
   `same_class_bonus` int NULL DEFAULT 15 COMMENT '同班级加分',
@@ -83,9 +85,9 @@ CREATE TABLE `sys_allocation_config`  (
 -- ----------------------------
 -- Records of sys_allocation_config
 -- ----------------------------
-INSERT INTO `sys_allocation_config` VALUES (1, '默认配置模板', 1, 1, 0, 30, 20, 15, 15, 10, 10, 'kmeans', 5, 10, 15, 60, 1, '系统默认配置，可作为创建新配置的模板', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', 1, 0);
-INSERT INTO `sys_allocation_config` VALUES (2, '严格匹配配置', 1, 1, 1, 35, 25, 15, 10, 10, 5, 'annealing', 5, 10, 15, 70, 1, '启用作息硬约束，追求更高匹配度', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', NULL, 0);
-INSERT INTO `sys_allocation_config` VALUES (3, '快速分配配置', 1, 1, 0, 25, 20, 15, 15, 15, 10, 'greedy', 5, 10, 15, 50, 1, '使用贪心算法，适合时间紧迫场景', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', NULL, 0);
+INSERT INTO `sys_allocation_config` VALUES (1, '默认配置模板', 1, 1, 0, 30, 20, 15, 15, 10, 10, 'kmeans', NULL, 0, 5, 10, 15, 60, 1, '系统默认配置，可作为创建新配置的模板', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', 1, 0);
+INSERT INTO `sys_allocation_config` VALUES (2, '严格匹配配置', 1, 1, 1, 35, 25, 15, 10, 10, 5, 'annealing', NULL, 0, 5, 10, 15, 70, 1, '启用作息硬约束，追求更高匹配度', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', NULL, 0);
+INSERT INTO `sys_allocation_config` VALUES (3, '快速分配配置', 1, 1, 0, 25, 20, 15, 15, 15, 10, 'greedy', NULL, 0, 5, 10, 15, 50, 1, '使用贪心算法，适合时间紧迫场景', '2026-02-02 22:49:37', NULL, '2026-02-02 22:49:37', NULL, 0);
 
 -- ----------------------------
 -- Table structure for sys_allocation_result
@@ -117,6 +119,7 @@ CREATE TABLE `sys_allocation_result`  (
   `adjust_reason` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '调整原因',
   `confirm_time` datetime NULL DEFAULT NULL COMMENT '确认时间',
   `confirm_by` bigint NULL DEFAULT NULL COMMENT '确认人ID',
+  `apply_time` datetime NULL DEFAULT NULL COMMENT '入住时间（已确认结果写入学生/床位的时间，为空表示尚未入住）',
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`) USING BTREE,
@@ -133,6 +136,36 @@ CREATE TABLE `sys_allocation_result`  (
 -- Records of sys_allocation_result
 -- ----------------------------
 
+-- ----------------------------
+-- Table structure for sys_allocation_run_stat
+-- ----------------------------
+DROP TABLE IF EXISTS `sys_allocation_run_stat`;
+CREATE TABLE `sys_allocation_run_stat`  (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `task_id` bigint NOT NULL COMMENT '任务ID',
+  `algorithm_type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '算法类型（增量分配为 incremental）',
+  `tier` tinyint NULL DEFAULT NULL COMMENT '使用的层级：1-直接优化 2-分片并行 3-向量索引',
+  `student_count` int NOT NULL DEFAULT 0 COMMENT '学生数',
+  `room_count` int NOT NULL DEFAULT 0 COMMENT '房间数',
+  `bed_count` int NOT NULL DEFAULT 0 COMMENT '床位数',
+  `core_count` int NOT NULL DEFAULT 1 COMMENT '分配计算池并行度',
+  `load_ms` bigint NOT NULL DEFAULT 0 COMMENT '数据加载耗时（毫秒）',
+  `algorithm_ms` bigint NOT NULL DEFAULT 0 COMMENT '算法耗时（毫秒）',
+  `optimize_ms` bigint NOT NULL DEFAULT 0 COMMENT '后优化耗时（毫秒，未启用为0）',
+  `save_ms` bigint NOT NULL DEFAULT 0 COMMENT '结果写库耗时（毫秒）',
+  `total_ms` bigint NOT NULL DEFAULT 0 COMMENT '总耗时（毫秒）',
+  `avg_match_score` decimal(5, 2) NULL DEFAULT NULL COMMENT '平均匹配分',
+  `budget_expired` tinyint NOT NULL DEFAULT 0 COMMENT '是否因时间预算提前结束：1-是 0-否',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_algorithm_type`(`algorithm_type` ASC) USING BTREE,
+  INDEX `idx_task_id`(`task_id` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '分配运行统计表（耗时模型校准）' ROW_FORMAT = DYNAMIC;
+
+-- ----------------------------
+-- Records of sys_allocation_run_stat
+-- ----------------------------
+
 -- ----------------------------
 -- Table structure for sys_allocation_task
 -- ----------------------------
@@ -142,6 +175,7 @@ CREATE TABLE `sys_allocation_task`  (
   `task_name` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '任务名称',
   `task_type` tinyint NOT NULL COMMENT '任务类型：1-批量分配 2-单个推荐 3-调宿优化',
   `config_id` bigint NOT NULL COMMENT '使用的配置ID',
+  `base_task_id` bigint NULL DEFAULT NULL COMMENT '增量分配的基准任务ID（为空为全量分配）',
   `target_enrollment_year` int NULL DEFAULT NULL COMMENT '目标入学年份',
   `target_gender` varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '目标性别：male/female/不限则为空',
   `target_campus_code` varchar(50) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '目标校区编码',
@@ -162,6 +196,7 @@ CREATE TABLE `sys_allocation_task`  (
   `start_time` datetime NULL DEFAULT NULL COMMENT '开始执行时间',
   `end_time` datetime NULL DEFAULT NULL COMMENT '执行完成时间',
   `execute_duration` int NULL DEFAULT NULL COMMENT '执行耗时（秒）',
+  `apply_lock_time` datetime NULL DEFAULT NULL COMMENT '入住锁定时间（非空表示正在入住，入住过程中每块刷新）',
   `remark` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL COMMENT '备注',
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `create_by` bigint NULL DEFAULT NULL COMMENT '创建人ID',
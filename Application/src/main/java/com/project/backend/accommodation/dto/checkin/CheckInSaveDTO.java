@@ -70,4 +70,7 @@ public class CheckInSaveDTO {
 
     @Schema(description = "备注")
     private String remark;
+
+    @Schema(description = "目标床位已被占用时是否改分配同房间的其他空床位（管理员直接分配时使用，默认否）")
+    private Boolean allowAlternativeBed;
 }
@@ -3,6 +3,7 @@ package com.project.backend.accommodation.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.project.backend.accommodation.dto.checkin.CheckInQueryDTO;
@@ -24,7 +25,10 @@ import com.project.backend.approval.service.ApprovalService;
 import com.project.backend.approval.mapper.ApprovalInstanceMapper;
 import com.project.backend.approval.mapper.ApprovalRecordMapper;
 import com.project.backend.approval.entity.ApprovalRecord;
+import com.project.backend.allocation.service.RoomOccupancyService;
+import com.project.backend.room.entity.Bed;
 import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.room.service.BedClaimService;
 import com.project.backend.util.DictUtils;
 import com.project.core.context.UserContext;
 import com.project.core.util.EntityUtils;
@@ -60,6 +64,8 @@ public class CheckInServiceImpl extends ServiceImpl<CheckInMapper, CheckIn> impl
     private final ApprovalRecordMapper approvalRecordMapper;
     private final BedMapper bedMapper;
     private final ApprovalProgressBuilder approvalProgressBuilder;
+    private final RoomOccupancyService roomOccupancyService;
+    private final BedClaimService bedClaimService;
 
     @Override
     @Transactional(readOnly = true)
@@ -335,32 +341,47 @@ public class CheckInServiceImpl extends ServiceImpl<CheckInMapper, CheckIn> impl
             throw new BusinessException("该学生已分配床位，请先退宿后再分配");
         }
 
-        // 检查床位是否存在并可用
-        com.project.backend.room.entity.Bed bed = EntityUtils.requireNonNull(bedMapper.selectById(bedId), "床位");
-        if (bed.getStudentId() != null) {
-            throw new BusinessException("该床位已被占用");
+        // 原子占用床位（条件更新，并发分配同一床位只有一个成功），允许时冲突后改占同房间其他空床位
+        Long claimedBedId;
+        if (Boolean.TRUE.equals(saveDTO.getAllowAlternativeBed())) {
+            claimedBedId = bedClaimService.claimOrAlternative(bedId, studentId, student.getStudentName());
+            if (claimedBedId == null) {
+                EntityUtils.requireNonNull(bedMapper.selectById(bedId), "床位");
+                throw new BusinessException("该床位已被占用，且同房间没有其他空床位");
+            }
+        } else {
+            if (!bedClaimService.claim(bedId, studentId, student.getStudentName())) {
+                EntityUtils.requireNonNull(bedMapper.selectById(bedId), "床位");
+                throw new BusinessException("该床位已被占用或不可用");
+            }
+            claimedBedId = bedId;
+        }
+        Bed bed = bedMapper.selectById(claimedBedId);
+
+        // 更新学生的床位ID（条件更新：学生同时被分配到其他床位时失败，事务回滚释放床位）
+        LambdaUpdateWrapper<Student> studentWrapper = new LambdaUpdateWrapper<>();
+        studentWrapper.set(Student::getBedId, claimedBedId)
+                .eq(Student::getId, studentId)
+                .isNull(Student::getBedId);
+        if (studentMapper.update(null, studentWrapper) == 0) {
+            throw new BusinessException("该学生已分配床位，请先退宿后再分配");
         }
 
         // 创建入住记录
         CheckIn checkIn = new CheckIn();
         BeanUtil.copyProperties(saveDTO, checkIn);
+        checkIn.setBedId(claimedBedId);
+        checkIn.setBedCode(bed.getBedCode());
         checkIn.setStudentName(student.getStudentName());
         checkIn.setStudentNo(student.getStudentNo());
         checkIn.setStatus(2); // 状态设为"已通过"（跳过审批）
         checkIn.setRemark("管理员直接分配");
         save(checkIn);
 
-        // 更新学生的床位ID
-        student.setBedId(bedId);
-        studentMapper.updateById(student);
-
-        // 更新床位的学生信息
-        bed.setStudentId(studentId);
-        bed.setStudentName(student.getStudentName());
-        bed.setBedStatus(2); // 状态改为"已入住"
-        bedMapper.updateById(bed);
+        // 提交后刷新床位推荐的房间入住索引
+        roomOccupancyService.refreshRooms(List.of(bed.getRoomId()));
 
-        log.info("管理员直接分配床位成功，学生ID：{}，床位ID：{}", studentId, bedId);
+        log.info("管理员直接分配床位成功，学生ID：{}，床位ID：{}", studentId, claimedBedId);
         return true;
     }
 }
@@ -7,11 +7,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.stream.Collectors;
 
 /**
  * 分配算法工厂
- * 提供算法查询和获取功能
+ * 提供算法查询和获取功能；预计耗时和算法推荐优先使用按实测耗时校准的 {@link AllocationCostModel}
  *
  * @author 陈鸿昇
  * @since 2026-02-02
@@ -21,7 +23,11 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AlgorithmFactory {
 
+    /** 不限时时推荐算法使用的默认时间预算：预计耗时超过该值的算法不参与推荐，避免为少量匹配分选中耗时过长的算法 */
+    private static final long DEFAULT_RECOMMEND_BUDGET_MS = 10 * 60_000L;
+
     private final List<AllocationAlgorithm> algorithms;
+    private final AllocationCostModel costModel;
 
     /**
      * 根据类型获取算法
@@ -49,7 +55,7 @@ public class AlgorithmFactory {
                         .description(a.getDescription())
                         .advantages(a.getAdvantages())
                         .disadvantages(a.getDisadvantages())
-                        .estimatedTime(a.getEstimatedTime(10000)) // 以1万人为例
+                        .estimatedTime(getEstimatedTime(a, 10000)) // 以1万人为例
                         .recommended(a.isRecommended())
                         .build())
                 .collect(Collectors.toList());
@@ -75,7 +81,38 @@ public class AlgorithmFactory {
      * @return 预估时间
      */
     public String getEstimatedTime(String type, int studentCount) {
-        AllocationAlgorithm algorithm = getAlgorithm(type);
-        return algorithm.getEstimatedTime(studentCount);
+        return getEstimatedTime(getAlgorithm(type), studentCount);
+    }
+
+    /**
+     * 按规模和时间预算推荐算法
+     * 在已校准的算法中选预计耗时不超过时间预算、历史平均匹配分最高的；没有可用的校准数据时返回默认推荐算法
+     *
+     * @param studentCount     学生数量
+     * @param timeLimitSeconds 时间预算（秒），为空或不大于 0 表示不限时，此时按默认时间预算（10分钟）筛选
+     * @return 推荐的算法
+     */
+    public AllocationAlgorithm recommendAlgorithm(int studentCount, Integer timeLimitSeconds) {
+        long limitMs = timeLimitSeconds != null && timeLimitSeconds > 0
+                ? timeLimitSeconds * 1000L : DEFAULT_RECOMMEND_BUDGET_MS;
+        AllocationAlgorithm best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (AllocationAlgorithm algorithm : algorithms) {
+            Optional<AllocationCostModel.Estimate> estimate = costModel.estimate(
+                    algorithm.getAlgorithmType(), studentCount, false);
+            OptionalDouble score = costModel.averageScore(algorithm.getAlgorithmType());
+            if (estimate.isEmpty() || score.isEmpty() || estimate.get().totalMs() > limitMs) continue;
+            if (score.getAsDouble() > bestScore) {
+                bestScore = score.getAsDouble();
+                best = algorithm;
+            }
+        }
+        return best != null ? best : getRecommendedAlgorithm();
+    }
+
+    private String getEstimatedTime(AllocationAlgorithm algorithm, int studentCount) {
+        return costModel.estimate(algorithm.getAlgorithmType(), studentCount, false)
+                .map(e -> AllocationCostModel.describe(e.totalMs()))
+                .orElseGet(() -> algorithm.getEstimatedTime(studentCount));
     }
 }
@@ -9,11 +9,12 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * 分配算法公共工具类
- * 提供三个算法共用的 DTO 构建、性别分桶、数据分片等功能
+ * 提供各算法共用的 DTO 构建、数据分片等功能（性别分桶见 {@link CandidateRoomIndex}）
  *
  * @author 陈鸿昇
  * @since 2026-02-08
@@ -64,67 +65,6 @@ public final class AlgorithmHelper {
                 .build();
     }
 
-    // ==================== Gender Pre-Bucketing ====================
-
-    /**
-     * 按性别将房间分桶
-     * 规则：已有学生的房间按学生性别分桶，空房间放入"通用"桶
-     *
-     * @return gender -> roomId Set 的映射（null key 表示通用/空房间）
-     */
-    public static Map<Integer, Set<Long>> bucketRoomsByGender(
-            Map<Long, List<Bed>> roomBedMap,
-            Map<Long, List<Student>> roomStudentMap) {
-
-        Map<Integer, Set<Long>> buckets = new HashMap<>();
-        // null key = 通用（空房间）
-        buckets.put(null, new HashSet<>());
-        buckets.put(1, new HashSet<>());   // 男
-        buckets.put(2, new HashSet<>());   // 女
-
-        for (Long roomId : roomBedMap.keySet()) {
-            List<Student> existing = roomStudentMap.getOrDefault(roomId, List.of());
-            if (existing.isEmpty()) {
-                // 空房间，任意性别可分配
-                buckets.get(null).add(roomId);
-            } else {
-                // 按第一个学生的性别分桶
-                Integer gender = existing.get(0).getGender();
-                buckets.computeIfAbsent(gender, k -> new HashSet<>()).add(roomId);
-            }
-        }
-
-        return buckets;
-    }
-
-    /**
-     * 获取学生可用的房间 ID 集合（同性别 + 空房间）
-     */
-    public static Set<Long> getCandidateRoomIds(Integer studentGender, Map<Integer, Set<Long>> genderBuckets) {
-        Set<Long> candidates = new HashSet<>();
-        // 同性别房间
-        Set<Long> sameGender = genderBuckets.get(studentGender);
-        if (sameGender != null) {
-            candidates.addAll(sameGender);
-        }
-        // 空房间（通用）
-        Set<Long> universal = genderBuckets.get(null);
-        if (universal != null) {
-            candidates.addAll(universal);
-        }
-        return candidates;
-    }
-
-    /**
-     * 当学生被分配到空房间后，将该房间从通用桶移到对应性别桶
-     */
-    public static void updateGenderBucket(Long roomId, Integer studentGender, Map<Integer, Set<Long>> genderBuckets) {
-        Set<Long> universal = genderBuckets.get(null);
-        if (universal != null && universal.remove(roomId)) {
-            genderBuckets.computeIfAbsent(studentGender, k -> new HashSet<>()).add(roomId);
-        }
-    }
-
     // ==================== Partition (Tier 2/3) ====================
 
     /**
@@ -260,12 +200,36 @@ public final class AlgorithmHelper {
     public static final int TIER2_MAX = 200_000;
     /** 超过 TIER2_MAX 则使用 Tier 3：向量索引批量模式 */
 
+    /** 按算法校准的层级阈值 {Tier 1 上限, Tier 2 上限}（由 {@link AllocationCostModel} 根据实测耗时写入） */
+    private static final Map<String, int[]> CALIBRATED_TIERS = new ConcurrentHashMap<>();
+
     /**
-     * 判断应使用的层级
+     * 判断应使用的层级（默认阈值）
      */
     public static int determineTier(int studentCount) {
-        if (studentCount <= TIER1_MAX) return 1;
-        if (studentCount <= TIER2_MAX) return 2;
+        return determineTier(studentCount, TIER1_MAX, TIER2_MAX);
+    }
+
+    /**
+     * 判断指定算法应使用的层级：已校准时使用按本机实测耗时调整后的阈值，否则使用默认阈值
+     */
+    public static int determineTier(String algorithmType, int studentCount) {
+        int[] thresholds = CALIBRATED_TIERS.get(algorithmType);
+        return thresholds != null
+                ? determineTier(studentCount, thresholds[0], thresholds[1])
+                : determineTier(studentCount);
+    }
+
+    /**
+     * 设置算法的校准层级阈值
+     */
+    public static void calibrateTiers(String algorithmType, int tier1Max, int tier2Max) {
+        CALIBRATED_TIERS.put(algorithmType, new int[]{tier1Max, Math.max(tier1Max, tier2Max)});
+    }
+
+    private static int determineTier(int studentCount, int tier1Max, int tier2Max) {
+        if (studentCount <= tier1Max) return 1;
+        if (studentCount <= tier2Max) return 2;
         return 3;
     }
 
@@ -68,11 +68,33 @@ public interface AllocationAlgorithm {
      * @param progressCallback 进度回调（可选）
      * @return 分配结果列表
      */
+    default List<AllocationResultDTO> allocate(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            Consumer<AllocationProgress> progressCallback) {
+        return allocate(students, roomBedMap, roomStudentMap, config, AllocationBudget.unlimited(), progressCallback);
+    }
+
+    /**
+     * 在运行预算内执行分配算法
+     * 预算被取消或到期时尽快返回：已处理的学生保留结果，迭代型算法返回当前最优解
+     *
+     * @param students         待分配学生列表
+     * @param roomBedMap       可用床位映射（房间ID -> 该房间的可用床位列表）
+     * @param roomStudentMap   房间现有学生映射（房间ID -> 该房间现有学生列表）
+     * @param config           分配配置
+     * @param budget           运行预算（取消令牌 + 时间预算）
+     * @param progressCallback 进度回调（可选）
+     * @return 分配结果列表
+     */
     List<AllocationResultDTO> allocate(
             List<Student> students,
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
             Consumer<AllocationProgress> progressCallback
     );
 
@@ -0,0 +1,70 @@
+package com.project.backend.allocation.algorithm;
+
+/**
+ * 分配运行预算：协作式取消令牌 + 可选的时间预算
+ * 算法在主循环中轮询 {@link #isExhausted()}，被取消或到期后尽快结束：
+ * 构造型算法（贪心、聚类）把尚未处理的学生标记为失败，迭代型算法（退火、回火、最优分配）返回已找到的最优解。
+ * {@link #cancel()} 可由其他线程调用（例如取消任务的请求线程）。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public final class AllocationBudget {
+
+    private final long deadlineNanos;
+    private final boolean timeLimited;
+    private volatile boolean cancelled;
+
+    private AllocationBudget(long deadlineNanos, boolean timeLimited) {
+        this.deadlineNanos = deadlineNanos;
+        this.timeLimited = timeLimited;
+    }
+
+    /**
+     * 不限时（仍可取消）
+     */
+    public static AllocationBudget unlimited() {
+        return new AllocationBudget(0, false);
+    }
+
+    /**
+     * 从现在开始计时的时间预算
+     *
+     * @param seconds 秒数，为空或不大于 0 表示不限时
+     */
+    public static AllocationBudget ofSeconds(Integer seconds) {
+        if (seconds == null || seconds <= 0) {
+            return unlimited();
+        }
+        return new AllocationBudget(System.nanoTime() + seconds * 1_000_000_000L, true);
+    }
+
+    /**
+     * 请求取消
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return timeLimited && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * 是否应当停止（已取消或已到期）
+     */
+    public boolean isExhausted() {
+        return cancelled || isExpired();
+    }
+
+    /**
+     * 停止原因（用于失败原因和进度提示）
+     */
+    public String stopReason() {
+        return cancelled ? "任务已取消" : "分配时间预算已用完";
+    }
+}
@@ -0,0 +1,317 @@
+package com.project.backend.allocation.algorithm;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.project.backend.allocation.entity.AllocationRunStat;
+import com.project.backend.allocation.mapper.AllocationRunStatMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 分配耗时模型（按实测耗时校准）
+ * 每次执行完成的任务记录一条运行统计（规模、并行度、各阶段耗时），按算法拟合幂律模型
+ * algorithmMs = a · n^b（对数空间最小二乘），数据加载和结果写库按每个学生的平均耗时估算。
+ * 拟合结果用于：
+ * <ul>
+ *     <li>预览时的预计耗时（未校准的算法退回 {@link AllocationAlgorithm#getEstimatedTime(int)} 的固定描述）</li>
+ *     <li>按时间预算和历史平均匹配分推荐算法</li>
+ *     <li>按本机实测耗时调整各算法的 Tier 1/Tier 2 阈值（{@link AlgorithmHelper#calibrateTiers}）</li>
+ * </ul>
+ * 优先使用与当前并行度相同的记录，记录不足时使用全部记录；因时间预算提前结束的记录不参与拟合。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AllocationCostModel {
+
+    private final AllocationRunStatMapper runStatMapper;
+    private final AllocationExecutor allocationExecutor;
+
+    /** 启动时加载的历史记录条数 */
+    private static final int HISTORY_LIMIT = 500;
+    /** 每个算法保留的最近记录条数 */
+    private static final int SAMPLES_PER_ALGORITHM = 100;
+    /** 拟合所需的最少记录数 */
+    private static final int MIN_SAMPLES = 3;
+    /** 拟合所需的最小规模跨度（最大学生数 / 最小学生数），跨度太小时只拟合常数系数 */
+    private static final double MIN_SIZE_SPAN = 2.0;
+    /** 幂律指数的合理范围（防止少量噪声记录拟合出离谱外推） */
+    private static final double MIN_EXPONENT = 0.5;
+    private static final double MAX_EXPONENT = 2.5;
+    /** 直接优化模式（Tier 1）的目标耗时：预计超过该耗时的规模改用分片模式 */
+    private static final long DIRECT_MODE_TARGET_MS = 60_000L;
+    /** 校准后 Tier 1 上限相对默认值的调整范围 */
+    private static final double TIER_SCALE_MIN = 0.25;
+    private static final double TIER_SCALE_MAX = 4.0;
+
+    /** 算法类型 -> 最近的有效记录（新记录在后） */
+    private final Map<String, Deque<AllocationRunStat>> samples = new ConcurrentHashMap<>();
+    /** 算法类型 -> 拟合结果 */
+    private final Map<String, Fit> fits = new ConcurrentHashMap<>();
+    /** 加载失败后重试的最小间隔（毫秒），每次失败翻倍，直到上限 */
+    private static final long RETRY_INITIAL_MS = 30_000L;
+    private static final long RETRY_MAX_MS = 10 * 60_000L;
+
+    private volatile boolean loaded;
+    /** 加载失败后下次允许重试的时间（毫秒） */
+    private volatile long nextRetryAt;
+    private long retryDelayMs = RETRY_INITIAL_MS;
+
+    /**
+     * 启动时加载历史记录，保证首个任务判断层级（{@link AlgorithmHelper#determineTier(String, int)}）前校准阈值已就绪
+     */
+    @PostConstruct
+    public void init() {
+        ensureLoaded();
+    }
+
+    // ==================== 记录 ====================
+
+    /**
+     * 记录一次执行的运行统计并重新拟合该算法（写库失败不影响任务）
+     */
+    public void record(AllocationRunStat stat) {
+        if (stat.getCoreCount() == null) {
+            stat.setCoreCount(allocationExecutor.getParallelism());
+        }
+        try {
+            runStatMapper.insert(stat);
+        } catch (Exception e) {
+            log.warn("保存分配运行统计失败，任务ID：{}", stat.getTaskId(), e);
+        }
+        boolean wasLoaded = loaded;
+        ensureLoaded();
+        // 本次调用才完成加载时，加载的历史记录已包含刚写入的这条
+        if ((wasLoaded || !loaded) && addSample(stat)) {
+            refit(stat.getAlgorithmType());
+        }
+    }
+
+    // ==================== 估算 ====================
+
+    /**
+     * 预计耗时（未校准时返回 empty）
+     *
+     * @param algorithmType 算法类型
+     * @param studentCount  学生数
+     * @param postOptimize  是否启用局部搜索后优化
+     */
+    public Optional<Estimate> estimate(String algorithmType, int studentCount, boolean postOptimize) {
+        ensureLoaded();
+        Fit fit = fits.get(algorithmType);
+        if (fit == null || studentCount <= 0) {
+            return Optional.empty();
+        }
+        int tier = AlgorithmHelper.determineTier(algorithmType, studentCount);
+        PowerLaw model = fit.byTier.getOrDefault(tier, fit.overall);
+        long algorithmMs = model.predict(studentCount);
+        long optimizeMs = postOptimize ? Math.round(fit.optimizeMsPerStudent * studentCount) : 0L;
+        long loadMs = Math.round(fit.loadMsPerStudent * studentCount);
+        long saveMs = Math.round(fit.saveMsPerStudent * studentCount);
+        return Optional.of(new Estimate(loadMs, algorithmMs, optimizeMs, saveMs, fit.sampleCount));
+    }
+
+    /**
+     * 算法的历史平均匹配分（无有效记录时返回 empty）
+     */
+    public OptionalDouble averageScore(String algorithmType) {
+        ensureLoaded();
+        Fit fit = fits.get(algorithmType);
+        return fit == null || Double.isNaN(fit.avgScore) ? OptionalDouble.empty() : OptionalDouble.of(fit.avgScore);
+    }
+
+    /**
+     * 耗时描述（与算法固定描述的格式一致）
+     */
+    public static String describe(long millis) {
+        long seconds = Math.max(1, (millis + 999) / 1000);
+        if (seconds < 60) return "约" + seconds + "秒";
+        if (seconds < 3600) return "约" + ((seconds + 59) / 60) + "分钟";
+        return String.format("约%.1f小时", seconds / 3600.0);
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 加载最近的历史记录并拟合全部算法（启动时调用）
+     * 只有加载成功才标记为已加载；失败时记录错误并按退避间隔在后续调用中重试，期间使用算法默认预计耗时和默认层级阈值
+     */
+    private void ensureLoaded() {
+        if (loaded || System.currentTimeMillis() < nextRetryAt) return;
+        synchronized (this) {
+            if (loaded || System.currentTimeMillis() < nextRetryAt) return;
+            try {
+                LambdaQueryWrapper<AllocationRunStat> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(AllocationRunStat::getBudgetExpired, 0)
+                        .orderByDesc(AllocationRunStat::getId)
+                        .last("LIMIT " + HISTORY_LIMIT);
+                List<AllocationRunStat> history = runStatMapper.selectList(wrapper);
+                Collections.reverse(history);
+                // 加载失败期间记录的运行统计已写库，以库中记录为准重新建立
+                samples.clear();
+                fits.clear();
+                history.forEach(this::addSample);
+                samples.keySet().forEach(this::refit);
+                loaded = true;
+                log.info("分配耗时模型加载完成，历史记录：{} 条，已校准算法：{}", history.size(), fits.keySet());
+            } catch (Exception e) {
+                nextRetryAt = System.currentTimeMillis() + retryDelayMs;
+                log.error("加载分配运行统计失败，暂用算法默认预计耗时和层级阈值，{} 秒后重试", retryDelayMs / 1000, e);
+                retryDelayMs = Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+            }
+        }
+    }
+
+    private boolean addSample(AllocationRunStat stat) {
+        if (Integer.valueOf(1).equals(stat.getBudgetExpired())
+                || stat.getAlgorithmType() == null
+                || stat.getStudentCount() == null || stat.getStudentCount() <= 0
+                || stat.getAlgorithmMs() == null) {
+            return false;
+        }
+        Deque<AllocationRunStat> deque = samples.computeIfAbsent(stat.getAlgorithmType(), k -> new ArrayDeque<>());
+        synchronized (deque) {
+            deque.addLast(stat);
+            while (deque.size() > SAMPLES_PER_ALGORITHM) {
+                deque.removeFirst();
+            }
+        }
+        return true;
+    }
+
+    private void refit(String algorithmType) {
+        Deque<AllocationRunStat> deque = samples.get(algorithmType);
+        if (deque == null) return;
+        List<AllocationRunStat> all;
+        synchronized (deque) {
+            all = new ArrayList<>(deque);
+        }
+
+        // 优先使用当前并行度下的记录
+        int cores = allocationExecutor.getParallelism();
+        List<AllocationRunStat> local = all.stream()
+                .filter(s -> Integer.valueOf(cores).equals(s.getCoreCount()))
+                .toList();
+        List<AllocationRunStat> used = local.size() >= MIN_SAMPLES ? local : all;
+        if (used.size() < MIN_SAMPLES) {
+            fits.remove(algorithmType);
+            return;
+        }
+
+        Map<Integer, PowerLaw> byTier = new HashMap<>();
+        for (int tier = 1; tier <= 3; tier++) {
+            int t = tier;
+            List<AllocationRunStat> tierSamples = used.stream()
+                    .filter(s -> s.getTier() != null && s.getTier() == t)
+                    .toList();
+            if (tierSamples.size() >= MIN_SAMPLES) {
+                byTier.put(tier, PowerLaw.fit(tierSamples));
+            }
+        }
+        Fit fit = new Fit(PowerLaw.fit(used), byTier,
+                perStudent(used, AllocationRunStat::getLoadMs),
+                perStudent(used, AllocationRunStat::getSaveMs),
+                perStudent(used.stream().filter(s -> s.getOptimizeMs() != null && s.getOptimizeMs() > 0).toList(),
+                        AllocationRunStat::getOptimizeMs),
+                used.stream().filter(s -> s.getAvgMatchScore() != null)
+                        .mapToDouble(s -> s.getAvgMatchScore().doubleValue()).average().orElse(Double.NaN),
+                used.size());
+        fits.put(algorithmType, fit);
+
+        // 直接优化模式实测足够快（或过慢）时按比例调整该算法的层级阈值
+        PowerLaw direct = byTier.get(1);
+        if (direct != null && direct.calibrated) {
+            double scale = direct.sizeFor(DIRECT_MODE_TARGET_MS) / AlgorithmHelper.TIER1_MAX;
+            scale = Math.max(TIER_SCALE_MIN, Math.min(TIER_SCALE_MAX, scale));
+            int tier1Max = (int) (AlgorithmHelper.TIER1_MAX * scale);
+            int tier2Max = (int) (AlgorithmHelper.TIER2_MAX * scale);
+            AlgorithmHelper.calibrateTiers(algorithmType, tier1Max, tier2Max);
+            log.info("算法 {} 层级阈值已校准：Tier 1 ≤ {}，Tier 2 ≤ {}", algorithmType, tier1Max, tier2Max);
+        }
+    }
+
+    private static double perStudent(List<AllocationRunStat> stats,
+                                     Function<AllocationRunStat, Long> phase) {
+        long ms = 0;
+        long students = 0;
+        for (AllocationRunStat s : stats) {
+            Long value = phase.apply(s);
+            if (value == null) continue;
+            ms += value;
+            students += s.getStudentCount();
+        }
+        return students > 0 ? (double) ms / students : 0.0;
+    }
+
+    // ==================== 模型 ====================
+
+    /**
+     * 预计耗时（毫秒）
+     */
+    public record Estimate(long loadMs, long algorithmMs, long optimizeMs, long saveMs, int sampleCount) {
+
+        public long totalMs() {
+            return loadMs + algorithmMs + optimizeMs + saveMs;
+        }
+    }
+
+    private record Fit(PowerLaw overall, Map<Integer, PowerLaw> byTier,
+                       double loadMsPerStudent, double saveMsPerStudent, double optimizeMsPerStudent,
+                       double avgScore, int sampleCount) {
+    }
+
+    /**
+     * 幂律模型 ms = a · n^b
+     * calibrated 为 false 时规模跨度不足，指数取 1（按线性外推）
+     */
+    private record PowerLaw(double logA, double b, boolean calibrated) {
+
+        static PowerLaw fit(List<AllocationRunStat> stats) {
+            int m = stats.size();
+            double[] x = new double[m];
+            double[] y = new double[m];
+            double minN = Double.MAX_VALUE;
+            double maxN = 0;
+            for (int i = 0; i < m; i++) {
+                AllocationRunStat s = stats.get(i);
+                x[i] = Math.log(s.getStudentCount());
+                y[i] = Math.log(Math.max(1L, s.getAlgorithmMs()));
+                minN = Math.min(minN, s.getStudentCount());
+                maxN = Math.max(maxN, s.getStudentCount());
+            }
+            double meanX = Arrays.stream(x).average().orElse(0);
+            double meanY = Arrays.stream(y).average().orElse(0);
+
+            if (maxN / minN < MIN_SIZE_SPAN) {
+                return new PowerLaw(meanY - meanX, 1.0, false);
+            }
+            double sxy = 0;
+            double sxx = 0;
+            for (int i = 0; i < m; i++) {
+                sxy += (x[i] - meanX) * (y[i] - meanY);
+                sxx += (x[i] - meanX) * (x[i] - meanX);
+            }
+            double b = Math.max(MIN_EXPONENT, Math.min(MAX_EXPONENT, sxy / sxx));
+            return new PowerLaw(meanY - b * meanX, b, true);
+        }
+
+        long predict(int n) {
+            return Math.round(Math.exp(logA + b * Math.log(n)));
+        }
+
+        /**
+         * 预计耗时等于 targetMs 的规模
+         */
+        double sizeFor(long targetMs) {
+            return Math.exp((Math.log(targetMs) - logA) / b);
+        }
+    }
+}
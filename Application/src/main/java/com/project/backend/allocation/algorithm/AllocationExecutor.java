@@ -0,0 +1,168 @@
+package com.project.backend.allocation.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 分配计算调度器
+ * 所有分配算法共用一个固定并行度的 ForkJoinPool（工作窃取），不再每次运行各建一个线程池：
+ * 多个管理员同时执行 Tier 2/3 任务时分片在同一池中排队、共享核心，而不是按任务数超额创建线程。
+ * 每个分片提交为一个独立任务，空闲线程从其他分片窃取子任务（分片内部的并行流、聚类也在本池中执行）。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+public class AllocationExecutor implements DisposableBean {
+
+    private final ForkJoinPool pool;
+
+    /** 已提交未开始的分片数 */
+    private final AtomicInteger pendingPartitions = new AtomicInteger();
+    /** 正在执行的分片数 */
+    private final AtomicInteger activePartitions = new AtomicInteger();
+    /** 累计完成的分片数 */
+    private final AtomicInteger completedPartitions = new AtomicInteger();
+
+    /**
+     * @param parallelism 并行度，不大于 0 时取 CPU 核数
+     */
+    public AllocationExecutor(@Value("${allocation.compute.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.pool = new ForkJoinPool(size, p -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("allocation-compute-" + threadIndex.incrementAndGet());
+            return thread;
+        }, null, false);
+        log.info("分配计算调度器初始化，并行度：{}", size);
+    }
+
+    /**
+     * 并行执行各分片，结果按分片顺序拼接
+     * 须在池外线程调用（任务执行线程），分片内部可以继续使用并行流。
+     *
+     * @param partitions 分片
+     * @param work       单个分片的计算
+     * @return 所有分片的结果
+     */
+    public <P, R> List<R> invokePartitions(List<P> partitions, Function<P, List<R>> work)
+            throws InterruptedException, ExecutionException {
+        List<ForkJoinTask<List<R>>> tasks = new ArrayList<>(partitions.size());
+        List<AtomicBoolean> claims = new ArrayList<>(partitions.size());
+        for (P partition : partitions) {
+            // 分片开始执行或被撤销时认领，保证待执行计数只减一次
+            AtomicBoolean claim = new AtomicBoolean();
+            claims.add(claim);
+            pendingPartitions.incrementAndGet();
+            tasks.add(pool.submit(() -> {
+                if (!claim.compareAndSet(false, true)) return List.<R>of();
+                pendingPartitions.decrementAndGet();
+                activePartitions.incrementAndGet();
+                try {
+                    return work.apply(partition);
+                } finally {
+                    activePartitions.decrementAndGet();
+                    completedPartitions.incrementAndGet();
+                }
+            }));
+        }
+
+        List<R> results = new ArrayList<>();
+        try {
+            for (ForkJoinTask<List<R>> task : tasks) {
+                results.addAll(task.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            // 尚未开始的分片不再执行
+            for (AtomicBoolean claim : claims) {
+                if (claim.compareAndSet(false, true)) pendingPartitions.decrementAndGet();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * 在池中执行一段计算并等待结果（计算内部的并行流使用本池，而不是公共池）
+     * 已在本池线程中（例如分片内部）时直接执行。
+     */
+    public <T> T compute(Callable<T> work) {
+        try {
+            if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool) {
+                return work.call();
+            }
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("分配计算被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException("分配计算失败", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("分配计算失败", e);
+        }
+    }
+
+    /**
+     * 在池中执行一段计算并等待完成
+     */
+    public void invoke(Runnable work) {
+        compute(Executors.callable(work));
+    }
+
+    // ==================== 监控指标 ====================
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getPendingPartitions() {
+        return pendingPartitions.get();
+    }
+
+    public int getActivePartitions() {
+        return activePartitions.get();
+    }
+
+    public int getCompletedPartitions() {
+        return completedPartitions.get();
+    }
+
+    /**
+     * 正在执行计算的线程数（估计值）
+     */
+    public int getActiveThreads() {
+        return pool.getActiveThreadCount();
+    }
+
+    /**
+     * 池中排队的子任务数（估计值，含分片内部拆分的子任务）
+     */
+    public long getQueuedTasks() {
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.RoomAssignmentState;
+
+import java.util.SplittableRandom;
+
+/**
+ * 单条退火链
+ * 持有独立的增量评分状态与随机数生成器，在给定温度下执行 Metropolis 步（交换两个学生 / 移动到空床位），
+ * 并记录本链见过的最优解。链之间不共享可变状态，可安全地在不同线程上并行推进。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+final class AnnealingChain {
+
+    /** 有空床位时，每 MOVE_RATIO 次尝试中有 1 次为"移动到空床位"而非交换 */
+    static final int MOVE_RATIO = 5;
+
+    private final RoomAssignmentState state;
+    private final int[] assigned;
+    private final int assignedCount;
+    private final boolean allowMoves;
+    private final SplittableRandom random;
+
+    /** 当前温度（并行回火中由交换步骤改写） */
+    double temperature;
+
+    private double bestScore;
+    private final int[] bestRoomOf;
+
+    AnnealingChain(AnnealingProblem problem, SplittableRandom random, double temperature) {
+        this.state = problem.initialState.copy();
+        this.assigned = problem.assigned;
+        this.assignedCount = problem.assignedCount;
+        this.allowMoves = problem.hasFreeSlots();
+        this.random = random;
+        this.temperature = temperature;
+        this.bestScore = state.totalScore();
+        this.bestRoomOf = state.snapshotAssignment();
+    }
+
+    /**
+     * 在当前温度下执行 steps 次尝试，结束时如当前解更优则记录为最优解
+     */
+    void run(int steps) {
+        if (assignedCount < 2) return;
+        int roomCount = state.roomCount();
+        for (int i = 0; i < steps; i++) {
+            int student1 = assigned[random.nextInt(assignedCount)];
+            double delta;
+            if (allowMoves && random.nextInt(MOVE_RATIO) == 0) {
+                delta = state.evaluateMove(student1, random.nextInt(roomCount));
+            } else {
+                delta = state.evaluateSwap(student1, assigned[random.nextInt(assignedCount)]);
+            }
+
+            // Metropolis 接受准则
+            if (delta > 0 || random.nextDouble() < Math.exp(delta / temperature)) {
+                state.applyPending();
+            }
+        }
+
+        if (state.totalScore() > bestScore) {
+            bestScore = state.totalScore();
+            state.copyAssignment(bestRoomOf);
+        }
+    }
+
+    double currentScore() {
+        return state.totalScore();
+    }
+
+    double bestScore() {
+        return bestScore;
+    }
+
+    int[] bestAssignment() {
+        return bestRoomOf;
+    }
+
+    SplittableRandom random() {
+        return random;
+    }
+}
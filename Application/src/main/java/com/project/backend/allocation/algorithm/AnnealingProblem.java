@@ -0,0 +1,341 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.RoomAssignmentState;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.kernel.StudentProfile;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.algorithm.model.RoomMatchResult;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 退火类算法与最优分配算法共用的稠密问题模型
+ * 将学生/房间映射为稠密序号，构建带初始解（贪心）的 {@link RoomAssignmentState}，
+ * 并负责把"学生序号 -> 房间序号"的解展开为床位分配结果。
+ * 构建完成后只读，多条退火链可各自 {@link RoomAssignmentState#copy()} 后并行搜索。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+@Slf4j
+final class AnnealingProblem {
+
+    final List<Student> students;
+    final List<Long> roomIds;
+    final Map<Long, List<Bed>> roomBedMap;
+    final Map<Long, List<Student>> roomStudentMap;
+    final int totalBeds;
+
+    /** 只含房间现有学生的状态（待分配学生均未放置） */
+    final RoomAssignmentState baseState;
+    /** 初始解状态 */
+    final RoomAssignmentState initialState;
+    /** 初始解中已分配的待分配学生序号 */
+    final int[] assigned;
+    final int assignedCount;
+
+    private AnnealingProblem(List<Student> students, List<Long> roomIds,
+                             Map<Long, List<Bed>> roomBedMap, Map<Long, List<Student>> roomStudentMap,
+                             int totalBeds, RoomAssignmentState baseState, RoomAssignmentState initialState,
+                             int[] assigned, int assignedCount) {
+        this.students = students;
+        this.roomIds = roomIds;
+        this.roomBedMap = roomBedMap;
+        this.roomStudentMap = roomStudentMap;
+        this.totalBeds = totalBeds;
+        this.baseState = baseState;
+        this.initialState = initialState;
+        this.assigned = assigned;
+        this.assignedCount = assignedCount;
+    }
+
+    /**
+     * 构建稠密模型并生成初始解：待分配学生 [0, n)，房间现有学生 [n, n + f)
+     */
+    static AnnealingProblem build(List<Student> students,
+                                  Map<Long, List<Bed>> roomBedMap,
+                                  Map<Long, List<Student>> roomStudentMap,
+                                  ScoringKernel kernel) {
+        return build(students, roomBedMap, roomStudentMap, kernel, false);
+    }
+
+    /**
+     * 构建稠密模型并生成初始解
+     *
+     * @param useIndex 初始解是否用室友候选索引生成候选房间（Tier 3 分片）
+     */
+    static AnnealingProblem build(List<Student> students,
+                                  Map<Long, List<Bed>> roomBedMap,
+                                  Map<Long, List<Student>> roomStudentMap,
+                                  ScoringKernel kernel,
+                                  boolean useIndex) {
+        AnnealingProblem base = base(students, roomBedMap, roomStudentMap, kernel);
+        RoomAssignmentState state = base.baseState.copy();
+
+        RoommateCandidateIndex candidateIndex = null;
+        if (useIndex) {
+            List<Student> points = new ArrayList<>(students);
+            int fixedCount = state.studentCount() - students.size();
+            for (int r = 0; r < base.roomIds.size(); r++) {
+                points.addAll(roomStudentMap.getOrDefault(base.roomIds.get(r), List.of()));
+            }
+            candidateIndex = new RoommateCandidateIndex(points);
+            for (int j = 0; j < fixedCount; j++) {
+                int fixed = students.size() + j;
+                candidateIndex.place(fixed, state.roomOf(fixed));
+            }
+        }
+
+        int[] assigned = new int[students.size()];
+        int assignedCount = generateInitialSolution(students, roomBedMap, roomStudentMap, base.roomIds,
+                state, candidateIndex, assigned);
+
+        return new AnnealingProblem(students, base.roomIds, roomBedMap, roomStudentMap,
+                base.totalBeds, base.baseState, state, assigned, assignedCount);
+    }
+
+    /**
+     * 以已有解为初始解构建稠密模型（不再生成贪心初始解，用于对其他算法的结果做后优化）
+     *
+     * @param roomOf 待分配学生 i 所在的房间ID，为空表示未分配
+     */
+    static AnnealingProblem fromAssignment(List<Student> students,
+                                           List<Long> roomOf,
+                                           Map<Long, List<Bed>> roomBedMap,
+                                           Map<Long, List<Student>> roomStudentMap,
+                                           ScoringKernel kernel) {
+        AnnealingProblem base = base(students, roomBedMap, roomStudentMap, kernel);
+        RoomAssignmentState state = base.baseState.copy();
+
+        Map<Long, Integer> roomIndex = new HashMap<>();
+        for (int r = 0; r < base.roomIds.size(); r++) {
+            roomIndex.put(base.roomIds.get(r), r);
+        }
+        int[] assigned = new int[students.size()];
+        int assignedCount = 0;
+        for (int i = 0; i < students.size(); i++) {
+            Integer room = roomOf.get(i) != null ? roomIndex.get(roomOf.get(i)) : null;
+            if (room != null && state.freeSlots(room) > 0) {
+                state.place(i, room);
+                assigned[assignedCount++] = i;
+            }
+        }
+
+        return new AnnealingProblem(students, base.roomIds, roomBedMap, roomStudentMap,
+                base.totalBeds, base.baseState, state, assigned, assignedCount);
+    }
+
+    /**
+     * 构建只含房间现有学生的稠密模型：待分配学生 [0, n)，房间现有学生 [n, n + f)
+     */
+    private static AnnealingProblem base(List<Student> students,
+                                         Map<Long, List<Bed>> roomBedMap,
+                                         Map<Long, List<Student>> roomStudentMap,
+                                         ScoringKernel kernel) {
+        int totalStudents = students.size();
+        List<Long> roomIds = new ArrayList<>(roomBedMap.keySet());
+        int[] roomCapacity = new int[roomIds.size()];
+        List<Student> fixedStudents = new ArrayList<>();
+        List<Integer> fixedRooms = new ArrayList<>();
+        int totalBeds = 0;
+        for (int r = 0; r < roomIds.size(); r++) {
+            Long roomId = roomIds.get(r);
+            List<Student> existing = roomStudentMap.getOrDefault(roomId, List.of());
+            for (Student s : existing) {
+                fixedStudents.add(s);
+                fixedRooms.add(r);
+            }
+            int beds = roomBedMap.get(roomId).size();
+            roomCapacity[r] = existing.size() + beds;
+            totalBeds += beds;
+        }
+
+        if (totalBeds < totalStudents) {
+            log.warn("床位数量不足：需要{}，可用{}", totalStudents, totalBeds);
+        }
+
+        StudentProfile[] profiles = new StudentProfile[totalStudents + fixedStudents.size()];
+        for (int i = 0; i < totalStudents; i++) {
+            profiles[i] = kernel.profile(students.get(i));
+        }
+        for (int j = 0; j < fixedStudents.size(); j++) {
+            profiles[totalStudents + j] = kernel.profile(fixedStudents.get(j));
+        }
+
+        RoomAssignmentState state = new RoomAssignmentState(kernel, profiles, totalStudents, roomCapacity);
+        for (int j = 0; j < fixedStudents.size(); j++) {
+            state.place(totalStudents + j, fixedRooms.get(j));
+        }
+
+        return new AnnealingProblem(students, roomIds, roomBedMap, roomStudentMap,
+                totalBeds, state, state, new int[0], 0);
+    }
+
+    /**
+     * 是否存在多余空床位（可以提议"移动到空床位"）
+     */
+    boolean hasFreeSlots() {
+        return totalBeds > assignedCount;
+    }
+
+    /**
+     * 生成初始解（贪心策略 + 性别位图 + 空房间快速路径 + 早停），直接写入增量评分状态
+     * candidateIndex 非空时，空房间用完后先只为习惯最接近的已入住学生所在房间打分，无可用候选再全量扫描
+     *
+     * @return 已分配的学生数量（序号写入 assigned）
+     */
+    private static int generateInitialSolution(List<Student> students,
+                                               Map<Long, List<Bed>> roomBedMap,
+                                               Map<Long, List<Student>> roomStudentMap,
+                                               List<Long> roomIds,
+                                               RoomAssignmentState state,
+                                               RoommateCandidateIndex candidateIndex,
+                                               int[] assigned) {
+
+        // 候选房间索引：与状态共用房间序号，只遍历同性别 + 空房间
+        CandidateRoomIndex rooms = CandidateRoomIndex.of(roomIds, roomBedMap, roomStudentMap);
+
+        // 按习惯独特性排序：难匹配的优先分配
+        Integer[] order = new Integer[students.size()];
+        int[] distinctiveness = new int[students.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            distinctiveness[i] = getDistinctivenessScore(students.get(i));
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(distinctiveness[b], distinctiveness[a]));
+
+        long[] candidateRooms = new long[RoommateCandidateIndex.NEIGHBOURS];
+        int assignedCount = 0;
+        for (int ordinal : order) {
+            Student student = students.get(ordinal);
+            Integer gender = student.getGender();
+
+            // 快速路径：优先分配到空房间（得分固定 100，无需匹配计算）
+            int bestRoom = rooms.firstEmptyRoom();
+            double bestScore = -1;
+
+            // 索引路径：只为近邻所在的同性别房间打分
+            if (bestRoom < 0 && candidateIndex != null) {
+                int count = candidateIndex.candidateRooms(ordinal,
+                        r -> rooms.isCandidate(gender, (int) r), candidateRooms);
+                for (int i = 0; i < count; i++) {
+                    int room = (int) candidateRooms[i];
+                    if (state.excludes(ordinal, room)) continue;
+                    long sum = state.contributionTo(ordinal, room);
+                    if (state.lastConflicts() > 0) continue;
+                    double score = sum / 100.0 / state.roomSize(room);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestRoom = room;
+                    }
+                }
+            }
+
+            // 正常路径：空房间用完了才按位遍历有人的同性别房间
+            if (bestRoom < 0) {
+                int start = rooms.scanStart(student.getId());
+                for (int room = rooms.firstOccupiedRoom(gender, start); room >= 0;
+                     room = rooms.nextOccupiedRoom(gender, room, start)) {
+                    if (state.excludes(ordinal, room)) continue;
+                    long sum = state.contributionTo(ordinal, room);
+                    if (state.lastConflicts() > 0) continue;
+                    double score = sum / 100.0 / state.roomSize(room);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestRoom = room;
+                        // 早停：得分够高就不继续搜索
+                        if (bestScore >= 90) break;
+                    }
+                }
+            }
+
+            if (bestRoom >= 0) {
+                state.place(ordinal, bestRoom);
+                rooms.occupy(bestRoom, gender);
+                assigned[assignedCount++] = ordinal;
+                if (candidateIndex != null) {
+                    candidateIndex.place(ordinal, bestRoom);
+                }
+            }
+        }
+
+        log.info("初始解生成完成，已分配 {} / {} 学生", assignedCount, students.size());
+        return assignedCount;
+    }
+
+    static int getDistinctivenessScore(Student s) {
+        int score = 0;
+        if (Integer.valueOf(1).equals(s.getSmokingStatus())) score += 10;
+        if (Integer.valueOf(3).equals(s.getSleepSchedule())) score += 8;
+        if (Integer.valueOf(0).equals(s.getSleepSchedule())) score += 8;
+        if (Integer.valueOf(1).equals(s.getSensitiveToSound())) score += 5;
+        if (Integer.valueOf(1).equals(s.getSnores())) score += 5;
+        return score;
+    }
+
+    // ==================== 结果转换 ====================
+
+    /**
+     * 将解（待分配学生 -> 房间序号）展开为床位分配：房间内按可用床位顺序依次入住，
+     * 再为每个学生构建与最终室友（含房间现有学生）的富匹配结果
+     */
+    List<AllocationResultDTO> toResults(int[] roomOf,
+                                        CompatibilityService compatibilityService,
+                                        AllocationConfig config,
+                                        Consumer<AllocationAlgorithm.AllocationProgress> progressCallback) {
+
+        Map<Integer, List<Student>> roomMembers = new HashMap<>();
+        Bed[] bedOf = new Bed[students.size()];
+        int[] usedBeds = new int[roomIds.size()];
+        for (int i = 0; i < students.size(); i++) {
+            int room = roomOf[i];
+            if (room == RoomAssignmentState.UNASSIGNED) continue;
+            Long roomId = roomIds.get(room);
+            bedOf[i] = roomBedMap.get(roomId).get(usedBeds[room]++);
+            roomMembers.computeIfAbsent(room, r -> new ArrayList<>(roomStudentMap.getOrDefault(roomId, List.of())))
+                    .add(students.get(i));
+        }
+
+        List<AllocationResultDTO> results = new ArrayList<>(students.size());
+        int successCount = 0, failedCount = 0;
+
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            Bed bed = bedOf[i];
+            if (bed == null) {
+                results.add(AlgorithmHelper.buildFail(student, "无可用床位或所有床位存在硬约束冲突"));
+                failedCount++;
+                continue;
+            }
+
+            List<Student> roommates = roomMembers.get(roomOf[i]).stream()
+                    .filter(s -> s != student)
+                    .collect(Collectors.toList());
+            RoomMatchResult mr = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+            AllocationResultDTO result = AlgorithmHelper.buildSuccess(student, bed, mr);
+            if (Boolean.TRUE.equals(mr.getHasHardConflict())) {
+                result.setSuccess(false);
+                result.setFailReason(mr.getHardConflictReason());
+                failedCount++;
+            } else {
+                successCount++;
+            }
+            results.add(result);
+        }
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationAlgorithm.AllocationProgress(
+                    students.size(), students.size(), successCount, failedCount, "转换结果完成"));
+        }
+
+        log.info("退火分配结果转换完成，成功：{}，失败：{}", successCount, failedCount);
+        return results;
+    }
+}
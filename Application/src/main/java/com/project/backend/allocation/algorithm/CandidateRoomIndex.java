@@ -0,0 +1,157 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+
+import java.util.*;
+
+/**
+ * 候选房间索引（性别分桶的位图实现）
+ * 房间映射为稠密序号，空房间与"各性别已有人的房间"各用一个 BitSet 表示，只包含仍有空床位的房间；
+ * 每个房间的空床位数记录在 int 数组中，住满即从所有位图中清除。
+ * 算法直接按位迭代候选房间，不再为每个学生复制 HashSet，也没有 Long 装箱。
+ * 规则与原性别分桶一致：已有学生的房间按第一个学生的性别归桶，空房间任意性别可分配。
+ * 非线程安全，每个分片各建一个。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-11
+ */
+final class CandidateRoomIndex {
+
+    private final List<Long> roomIds;
+    private final Map<Long, Integer> ordinals;
+    private final int[] freeBeds;
+
+    /** 空房间（任意性别可分配） */
+    private final BitSet emptyRooms;
+    /** 性别 -> 已有该性别学生且有空床位的房间 */
+    private final Map<Integer, BitSet> occupiedRooms = new HashMap<>();
+
+    private CandidateRoomIndex(List<Long> roomIds) {
+        this.roomIds = roomIds;
+        this.ordinals = new HashMap<>(roomIds.size() * 2);
+        this.freeBeds = new int[roomIds.size()];
+        this.emptyRooms = new BitSet(roomIds.size());
+    }
+
+    /**
+     * 按 roomBedMap 的遍历顺序分配房间序号
+     */
+    static CandidateRoomIndex of(Map<Long, List<Bed>> roomBedMap, Map<Long, List<Student>> roomStudentMap) {
+        return of(new ArrayList<>(roomBedMap.keySet()), roomBedMap, roomStudentMap);
+    }
+
+    /**
+     * 按给定房间列表分配房间序号（与调用方已有的稠密序号保持一致）
+     */
+    static CandidateRoomIndex of(List<Long> roomIds,
+                                 Map<Long, List<Bed>> roomBedMap,
+                                 Map<Long, List<Student>> roomStudentMap) {
+        CandidateRoomIndex index = new CandidateRoomIndex(roomIds);
+        for (int r = 0; r < roomIds.size(); r++) {
+            Long roomId = roomIds.get(r);
+            index.ordinals.put(roomId, r);
+            int free = roomBedMap.getOrDefault(roomId, List.of()).size();
+            index.freeBeds[r] = free;
+            if (free == 0) continue;
+
+            List<Student> existing = roomStudentMap.getOrDefault(roomId, List.of());
+            if (existing.isEmpty()) {
+                index.emptyRooms.set(r);
+            } else {
+                index.bucket(existing.get(0).getGender()).set(r);
+            }
+        }
+        return index;
+    }
+
+    // ==================== 查询 ====================
+
+    int roomCount() {
+        return roomIds.size();
+    }
+
+    Long roomId(int room) {
+        return roomIds.get(room);
+    }
+
+    int ordinal(Long roomId) {
+        return ordinals.get(roomId);
+    }
+
+    int freeBeds(int room) {
+        return freeBeds[room];
+    }
+
+    /**
+     * 第一个仍有空床位的空房间，没有则返回 -1
+     */
+    int firstEmptyRoom() {
+        return emptyRooms.nextSetBit(0);
+    }
+
+    /**
+     * 环绕遍历的起点：按学生打散，避免所有学生都从低序号房间开始早停、把房间按顺序填满
+     */
+    int scanStart(Long studentId) {
+        if (roomIds.isEmpty() || studentId == null) return 0;
+        return (int) Math.floorMod(studentId * 0x9E3779B97F4A7C15L, (long) roomIds.size());
+    }
+
+    /**
+     * 从 start 开始环绕遍历时，第一个已有该性别学生且有空床位的房间，没有则返回 -1
+     */
+    int firstOccupiedRoom(Integer gender, int start) {
+        BitSet rooms = occupiedRooms.get(gender);
+        if (rooms == null) return -1;
+        int next = rooms.nextSetBit(start);
+        if (next >= 0) return next;
+        next = rooms.nextSetBit(0);
+        return next < start ? next : -1;
+    }
+
+    /**
+     * 从 start 开始环绕遍历时，room 之后的下一个候选房间，绕回 start 则返回 -1
+     */
+    int nextOccupiedRoom(Integer gender, int room, int start) {
+        BitSet rooms = occupiedRooms.get(gender);
+        int next = rooms.nextSetBit(room + 1);
+        if (room >= start) {
+            if (next >= 0) return next;
+            next = rooms.nextSetBit(0);
+        }
+        return next < start ? next : -1;
+    }
+
+    /**
+     * 房间是否是该性别学生的候选（有空床位，且为空房间或同性别房间）
+     */
+    boolean isCandidate(Integer gender, int room) {
+        if (emptyRooms.get(room)) return true;
+        BitSet rooms = occupiedRooms.get(gender);
+        return rooms != null && rooms.get(room);
+    }
+
+    // ==================== 更新 ====================
+
+    /**
+     * 学生入住房间：空床位减一；空房间转入该学生的性别桶；住满则从所有位图中清除
+     */
+    void occupy(int room, Integer gender) {
+        if (freeBeds[room] <= 0) return;
+        freeBeds[room]--;
+        if (emptyRooms.get(room)) {
+            emptyRooms.clear(room);
+            bucket(gender).set(room);
+        }
+        if (freeBeds[room] == 0) {
+            for (BitSet rooms : occupiedRooms.values()) {
+                rooms.clear(room);
+            }
+        }
+    }
+
+    private BitSet bucket(Integer gender) {
+        return occupiedRooms.computeIfAbsent(gender, g -> new BitSet(roomIds.size()));
+    }
+}
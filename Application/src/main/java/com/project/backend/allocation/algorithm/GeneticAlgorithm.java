@@ -0,0 +1,446 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.RoomAssignmentState;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * 岛屿模型遗传算法（Island Model GA）
+ * 策略：多个岛屿各自维护一个小种群（每个个体是一份完整的房间分配），岛屿之间并行进化，
+ * 每隔若干代按环形拓扑把本岛最优个体迁移到下一个岛屿，替换其最差个体。
+ * 交叉保留房间分组：子代随机继承父代 A 一半房间的整组成员，其余房间沿用父代 B 中仍未入住的成员，
+ * 剩余学生修复插入到有空床位且无硬约束冲突的房间；变异为若干次只接受改进的同性别交换（局部爬山）。
+ * 个体直接使用增量评分状态，评分与退火类算法的目标函数一致。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GeneticAlgorithm implements AllocationAlgorithm {
+
+    private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
+
+    // 遗传算法参数
+    /** 岛屿数量下限（核心数不足时仍保留迁移） */
+    private static final int MIN_ISLANDS = 2;
+    /** 每个岛屿的种群大小 */
+    private static final int POPULATION_SIZE = 6;
+    /** 每个岛屿每代产生的子代数 */
+    private static final int OFFSPRING_PER_GENERATION = 2;
+    /** 进化代数 */
+    private static final int GENERATIONS = 100;
+    /** 迁移间隔（代数） */
+    private static final int MIGRATION_INTERVAL = 5;
+    /** 变异（局部爬山）每个学生的交换尝试次数 */
+    private static final int MUTATION_SWAPS_PER_STUDENT = 2;
+    /** 初始种群扰动：每个学生的随机交换次数 */
+    private static final double KICK_SWAPS_PER_STUDENT = 0.1;
+    /** 修复插入时随机抽取的候选房间数 */
+    private static final int REPAIR_CANDIDATES = 16;
+    /** 随机种子（保证结果可复现） */
+    private static final long SEED = 42L;
+    /** 进度报告间隔（代数） */
+    private static final int PROGRESS_INTERVAL = 10;
+
+    @Override
+    public String getAlgorithmType() {
+        return "genetic";
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "岛屿遗传算法";
+    }
+
+    @Override
+    public String getDescription() {
+        return "多个种群在各自的核心上并行进化，保留房间分组的交叉 + 局部爬山变异，定期迁移精英个体";
+    }
+
+    @Override
+    public String getAdvantages() {
+        return "按核心数扩展，种群多样性好，适合5万-20万人规模的高质量分配";
+    }
+
+    @Override
+    public String getDisadvantages() {
+        return "内存占用随岛屿和种群规模增加，小规模时不如模拟退火快";
+    }
+
+    @Override
+    public String getEstimatedTime(int studentCount) {
+        if (studentCount <= 500) return "约5-15秒";
+        if (studentCount <= 5000) return "约15-30秒";
+        if (studentCount <= 50000) return "约30-90秒";
+        if (studentCount <= 200000) return "约2-5分钟";
+        return "约5-10分钟";
+    }
+
+    @Override
+    public boolean isRecommended() {
+        return false;
+    }
+
+    @Override
+    public List<AllocationResultDTO> allocate(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int tier = AlgorithmHelper.determineTier(getAlgorithmType(), students.size());
+        int islandCount = Math.max(MIN_ISLANDS, allocationExecutor.getParallelism());
+        log.info("岛屿遗传分配开始，学生数：{}，房间数：{}，岛屿数：{}，使用 Tier {}",
+                students.size(), roomBedMap.size(), islandCount, tier);
+
+        ScoringKernel kernel = ScoringKernel.compile(config);
+        if (tier < 2) {
+            return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel,
+                    islandCount, false, progressCallback);
+        }
+
+        // Tier 2/3: 分片按顺序执行，每个分片内部各岛屿用满分配计算池的并行度
+        List<AlgorithmHelper.Partition> partitions = AlgorithmHelper.partitionStudentsAndRooms(
+                students, roomBedMap, roomStudentMap);
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    students.size(), 0, 0, 0,
+                    String.format("已分为 %d 个分片，逐个分片并行进化", partitions.size())));
+        }
+
+        List<AllocationResultDTO> allResults = new ArrayList<>(students.size());
+        for (AlgorithmHelper.Partition p : partitions) {
+            allResults.addAll(allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, budget, kernel,
+                    islandCount, tier == 3, null));
+            int success = (int) allResults.stream().filter(AllocationResultDTO::isSuccess).count();
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(
+                        students.size(), allResults.size(), success, allResults.size() - success,
+                        String.format("分片 %s 完成", p.gender)));
+            }
+        }
+        return allResults;
+    }
+
+    /**
+     * 单个问题模型上的岛屿进化
+     * useIndex 为 true 时（Tier 3 分片）初始解由室友候选索引生成候选房间
+     */
+    private List<AllocationResultDTO> allocateDirect(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            int islandCount,
+            boolean useIndex,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int totalStudents = students.size();
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(totalStudents, 0, 0, 0, "正在生成初始解"));
+        }
+
+        // 1. 共享的不可变问题模型 + 贪心初始解
+        AnnealingProblem problem = AnnealingProblem.build(students, roomBedMap, roomStudentMap, kernel, useIndex);
+        if (problem.assignedCount < 2) {
+            return problem.toResults(problem.initialState.snapshotAssignment(), compatibilityService, config,
+                    progressCallback);
+        }
+
+        // 2. 初始种群：初始解扰动后局部爬山，各岛屿独立随机数
+        SplittableRandom master = new SplittableRandom(SEED);
+        Island[] islands = new Island[islandCount];
+        for (int i = 0; i < islandCount; i++) {
+            islands[i] = new Island(problem, master.split());
+        }
+        try {
+            allocationExecutor.invoke(() -> IntStream.range(0, islandCount).parallel()
+                    .forEach(i -> islands[i].seed(i == 0)));
+        } catch (Exception e) {
+            log.error("初始种群生成失败，使用初始解", e);
+            return problem.toResults(problem.initialState.snapshotAssignment(), compatibilityService, config,
+                    progressCallback);
+        }
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    totalStudents, 0, 0, 0,
+                    String.format("初始解得分: %.2f，%d 个岛屿开始并行进化", best(islands).totalScore(), islandCount)));
+        }
+
+        // 3. 主循环：各岛屿并行进化 MIGRATION_INTERVAL 代，然后环形迁移精英
+        int generation = 0;
+        while (generation < GENERATIONS) {
+            if (budget.isExhausted()) {
+                log.info("岛屿遗传提前结束（{}），代数：{}/{}，使用当前最优解", budget.stopReason(), generation, GENERATIONS);
+                break;
+            }
+            int steps = Math.min(MIGRATION_INTERVAL, GENERATIONS - generation);
+            try {
+                allocationExecutor.invoke(() -> IntStream.range(0, islandCount).parallel()
+                        .forEach(i -> islands[i].evolve(steps, budget)));
+            } catch (Exception e) {
+                log.error("岛屿遗传执行失败，提前结束并使用当前最优解", e);
+                break;
+            }
+            generation += steps;
+            migrate(islands);
+
+            if (progressCallback != null && generation % PROGRESS_INTERVAL == 0) {
+                progressCallback.accept(new AllocationProgress(
+                        totalStudents, (int) ((long) totalStudents * generation / GENERATIONS), 0, 0,
+                        String.format("进化中... 代数: %d/%d, 最优得分: %.2f",
+                                generation, GENERATIONS, best(islands).totalScore())));
+            }
+        }
+
+        RoomAssignmentState best = best(islands);
+        log.info("岛屿遗传完成，最优得分：{}，代数：{}", String.format("%.2f", best.totalScore()), generation);
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    totalStudents, totalStudents, 0, 0,
+                    String.format("优化完成，最终得分: %.2f，岛屿数: %d", best.totalScore(), islandCount)));
+        }
+
+        // 4. 用所有岛屿中的最优个体转换结果
+        return problem.toResults(best.snapshotAssignment(), compatibilityService, config, progressCallback);
+    }
+
+    /**
+     * 环形迁移：岛屿 i 的最优个体复制到岛屿 i+1，替换其最差个体
+     */
+    private void migrate(Island[] islands) {
+        RoomAssignmentState[] elites = new RoomAssignmentState[islands.length];
+        for (int i = 0; i < islands.length; i++) {
+            elites[i] = islands[i].best().copy();
+        }
+        for (int i = 0; i < islands.length; i++) {
+            islands[(i + 1) % islands.length].accept(elites[i]);
+        }
+    }
+
+    private RoomAssignmentState best(Island[] islands) {
+        RoomAssignmentState best = islands[0].best();
+        for (Island island : islands) {
+            if (island.best().totalScore() > best.totalScore()) best = island.best();
+        }
+        return best;
+    }
+
+    // ==================== 岛屿 ====================
+
+    /**
+     * 单个岛屿：独立种群 + 独立随机数，进化期间不与其他岛屿共享可变状态
+     */
+    private static final class Island {
+
+        private final AnnealingProblem problem;
+        private final SplittableRandom random;
+        private final List<RoomAssignmentState> population = new ArrayList<>(POPULATION_SIZE);
+
+        Island(AnnealingProblem problem, SplittableRandom random) {
+            this.problem = problem;
+            this.random = random;
+        }
+
+        /**
+         * 生成初始种群（keepInitial 为 true 时第一个个体不扰动，保证不差于初始解）
+         */
+        void seed(boolean keepInitial) {
+            int kicks = (int) Math.max(1, problem.assignedCount * KICK_SWAPS_PER_STUDENT);
+            for (int i = 0; i < POPULATION_SIZE; i++) {
+                RoomAssignmentState individual = problem.initialState.copy();
+                if (!keepInitial || i > 0) kick(individual, kicks);
+                mutate(individual);
+                population.add(individual);
+            }
+        }
+
+        void evolve(int generations, AllocationBudget budget) {
+            for (int g = 0; g < generations && !budget.isExhausted(); g++) {
+                for (int c = 0; c < OFFSPRING_PER_GENERATION; c++) {
+                    RoomAssignmentState child = crossover(select(), select());
+                    if (child == null) continue;
+                    mutate(child);
+                    accept(child);
+                }
+            }
+        }
+
+        /**
+         * 子代优于最差个体且得分不与已有个体重复时替换最差个体
+         */
+        void accept(RoomAssignmentState child) {
+            int worst = 0;
+            for (int i = 0; i < population.size(); i++) {
+                double score = population.get(i).totalScore();
+                if (score == child.totalScore()) return;
+                if (score < population.get(worst).totalScore()) worst = i;
+            }
+            if (child.totalScore() > population.get(worst).totalScore()) {
+                population.set(worst, child);
+            }
+        }
+
+        RoomAssignmentState best() {
+            RoomAssignmentState best = population.get(0);
+            for (RoomAssignmentState individual : population) {
+                if (individual.totalScore() > best.totalScore()) best = individual;
+            }
+            return best;
+        }
+
+        /**
+         * 二元锦标赛选择
+         */
+        private RoomAssignmentState select() {
+            RoomAssignmentState a = population.get(random.nextInt(population.size()));
+            RoomAssignmentState b = population.get(random.nextInt(population.size()));
+            return a.totalScore() >= b.totalScore() ? a : b;
+        }
+
+        /**
+         * 保留房间分组的交叉，子代未能安置全部学生时返回 null
+         */
+        private RoomAssignmentState crossover(RoomAssignmentState parentA, RoomAssignmentState parentB) {
+            RoomAssignmentState child = problem.baseState.copy();
+            int roomCount = child.roomCount();
+            int movable = child.movableCount();
+            boolean[] fromA = new boolean[roomCount];
+            boolean[] placed = new boolean[movable];
+            int placedCount = 0;
+
+            // 1. 继承父代 A 一半房间的整组成员
+            for (int r = 0; r < roomCount; r++) {
+                if (!random.nextBoolean()) continue;
+                fromA[r] = true;
+                for (int i = 0, n = parentA.roomSize(r); i < n; i++) {
+                    int s = parentA.member(r, i);
+                    if (s >= movable) continue;
+                    child.place(s, r);
+                    placed[s] = true;
+                    placedCount++;
+                }
+            }
+
+            // 2. 其余房间沿用父代 B 中尚未入住的成员（不引入硬约束冲突）
+            for (int r = 0; r < roomCount; r++) {
+                if (fromA[r]) continue;
+                for (int i = 0, n = parentB.roomSize(r); i < n; i++) {
+                    int s = parentB.member(r, i);
+                    if (s >= movable || placed[s] || child.freeSlots(r) <= 0) continue;
+                    if (!sameGender(child, s, r) || child.excludes(s, r)) continue;
+                    child.contributionTo(s, r);
+                    if (child.lastConflicts() > 0) continue;
+                    child.place(s, r);
+                    placed[s] = true;
+                    placedCount++;
+                }
+            }
+
+            // 3. 修复：剩余学生插入有空床位的房间
+            int[] openRooms = new int[roomCount];
+            int openCount = 0;
+            for (int r = 0; r < roomCount; r++) {
+                if (child.freeSlots(r) > 0) openRooms[openCount++] = r;
+            }
+            for (int k = 0; k < problem.assignedCount; k++) {
+                int s = problem.assigned[k];
+                if (placed[s]) continue;
+                int room = repairRoom(child, s, openRooms, openCount);
+                if (room < 0) return null;
+                child.place(s, room);
+                placed[s] = true;
+                placedCount++;
+            }
+            return placedCount >= problem.assignedCount ? child : null;
+        }
+
+        /**
+         * 为学生选修复房间（只考虑空房间或同性别房间）：先在随机抽取的候选中取无冲突且得分最高的，再顺序扫描第一个无冲突的房间
+         */
+        private int repairRoom(RoomAssignmentState child, int s, int[] openRooms, int openCount) {
+            int bestRoom = -1;
+            double bestScore = -1;
+            for (int c = 0; c < REPAIR_CANDIDATES && openCount > 0; c++) {
+                int r = openRooms[random.nextInt(openCount)];
+                if (child.freeSlots(r) <= 0 || !sameGender(child, s, r) || child.excludes(s, r)) continue;
+                long sum = child.contributionTo(s, r);
+                if (child.lastConflicts() > 0) continue;
+                double score = child.roomSize(r) == 0 ? ScoringKernel.EMPTY_ROOM_SCORE
+                        : sum / 100.0 / child.roomSize(r);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestRoom = r;
+                }
+            }
+            if (bestRoom >= 0) return bestRoom;
+
+            int start = openCount > 0 ? random.nextInt(openCount) : 0;
+            for (int c = 0; c < openCount; c++) {
+                int r = openRooms[(start + c) % openCount];
+                if (child.freeSlots(r) <= 0 || !sameGender(child, s, r) || child.excludes(s, r)) continue;
+                child.contributionTo(s, r);
+                if (child.lastConflicts() == 0) return r;
+            }
+            return -1;
+        }
+
+        /**
+         * 房间为空或与现有成员同性别（不论配置是否开启性别硬约束，与贪心、局部搜索一致）
+         */
+        private boolean sameGender(RoomAssignmentState child, int s, int r) {
+            return child.roomSize(r) == 0 || child.profile(child.member(r, 0)).gender == child.profile(s).gender;
+        }
+
+        /**
+         * 变异：随机同性别交换，只接受得分提高且不增加冲突的交换
+         */
+        private void mutate(RoomAssignmentState individual) {
+            long attempts = (long) problem.assignedCount * MUTATION_SWAPS_PER_STUDENT;
+            for (long i = 0; i < attempts; i++) {
+                int a = problem.assigned[random.nextInt(problem.assignedCount)];
+                int b = problem.assigned[random.nextInt(problem.assignedCount)];
+                if (individual.profile(a).gender != individual.profile(b).gender) continue;
+                double delta = individual.evaluateSwap(a, b);
+                if (delta > 0 && individual.pendingConflictDelta() <= 0) {
+                    individual.applyPending();
+                }
+            }
+        }
+
+        /**
+         * 扰动：随机交换（不增加冲突），为种群提供多样性
+         */
+        private void kick(RoomAssignmentState individual, int swaps) {
+            for (int i = 0; i < swaps; i++) {
+                int a = problem.assigned[random.nextInt(problem.assignedCount)];
+                int b = problem.assigned[random.nextInt(problem.assignedCount)];
+                if (individual.profile(a).gender != individual.profile(b).gender) continue;
+                individual.evaluateSwap(a, b);
+                if (individual.pendingConflictDelta() <= 0) {
+                    individual.applyPending();
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.project.backend.allocation.algorithm;
 
 import com.project.backend.student.entity.Student;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.kernel.StudentProfile;
 import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
 import com.project.backend.allocation.algorithm.model.RoomMatchResult;
 import com.project.backend.allocation.entity.AllocationConfig;
@@ -10,16 +12,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * 贪心分配算法（优化版）
  * 策略：依次为每个学生找当前最优的床位
- * 优化：性别分桶、空房间快速路径、早停、分片并行
+ * 优化：性别分桶、空房间快速路径、早停、分片并行；Tier 3 用室友候选索引替代全量房间扫描
  *
  * @author 陈鸿昇
  * @since 2026-02-02
@@ -30,9 +30,10 @@ import java.util.stream.Collectors;
 public class GreedyAlgorithm implements AllocationAlgorithm {
 
     private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
 
     /** 早停阈值：匹配分 >= 此值时停止搜索 */
-    private static final BigDecimal EARLY_STOP_SCORE = BigDecimal.valueOf(90);
+    private static final double EARLY_STOP_SCORE = 90.0;
 
     @Override
     public String getAlgorithmType() {
@@ -74,16 +75,18 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
             Consumer<AllocationProgress> progressCallback) {
 
-        int tier = AlgorithmHelper.determineTier(students.size());
+        int tier = AlgorithmHelper.determineTier(getAlgorithmType(), students.size());
         log.info("开始贪心分配，学生数：{}，可用房间数：{}，使用 Tier {}", students.size(), roomBedMap.size(), tier);
 
+        ScoringKernel kernel = ScoringKernel.compile(config);
         if (tier >= 2) {
-            return allocatePartitioned(students, roomBedMap, roomStudentMap, config, progressCallback);
+            return allocatePartitioned(students, roomBedMap, roomStudentMap, config, budget, kernel, tier == 3, progressCallback);
         }
 
-        return allocateDirect(students, roomBedMap, roomStudentMap, config, progressCallback);
+        return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, false, progressCallback);
     }
 
     /**
@@ -94,6 +97,9 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            boolean useIndex,
             Consumer<AllocationProgress> progressCallback) {
 
         List<AlgorithmHelper.Partition> partitions = AlgorithmHelper.partitionStudentsAndRooms(
@@ -105,13 +111,10 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
                     String.format("已分为 %d 个分片，开始并行执行", partitions.size())));
         }
 
-        ForkJoinPool pool = new ForkJoinPool(Math.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+        // 各分片提交到共享的分配计算池并行执行
         try {
-            List<AllocationResultDTO> allResults = pool.submit(() ->
-                    partitions.parallelStream()
-                            .flatMap(p -> allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, null).stream())
-                            .collect(Collectors.toList())
-            ).get();
+            List<AllocationResultDTO> allResults = allocationExecutor.invokePartitions(partitions,
+                    p -> allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, budget, kernel, useIndex, null));
 
             int success = (int) allResults.stream().filter(AllocationResultDTO::isSuccess).count();
             int failed = allResults.size() - success;
@@ -122,20 +125,22 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
             return allResults;
         } catch (Exception e) {
             log.error("分片并行执行失败，回退到单线程", e);
-            return allocateDirect(students, roomBedMap, roomStudentMap, config, progressCallback);
-        } finally {
-            pool.shutdown();
+            return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, useIndex, progressCallback);
         }
     }
 
     /**
      * Tier 1: 直接贪心分配（性别分桶 + 空房间快速路径 + 早停）
+     * useIndex 为 true 时（Tier 3 分片）候选房间由室友候选索引给出
      */
     private List<AllocationResultDTO> allocateDirect(
             List<Student> students,
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            boolean useIndex,
             Consumer<AllocationProgress> progressCallback) {
 
         List<AllocationResultDTO> results = new ArrayList<>();
@@ -152,21 +157,30 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
             currentRoomStudentMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
         }
 
-        // 性别分桶
-        Map<Integer, Set<Long>> genderBuckets = AlgorithmHelper.bucketRoomsByGender(availableBedMap, currentRoomStudentMap);
-
-        // 维护空房间集合（用于快速路径）
-        Set<Long> emptyRoomIds = new HashSet<>();
-        for (Long roomId : availableBedMap.keySet()) {
-            if (!currentRoomStudentMap.containsKey(roomId) || currentRoomStudentMap.get(roomId).isEmpty()) {
-                emptyRoomIds.add(roomId);
+        // 候选房间索引（稠密房间序号 + 性别位图），房间画像和硬约束等价类掩码按序号存放
+        CandidateRoomIndex rooms = CandidateRoomIndex.of(availableBedMap, currentRoomStudentMap);
+        List<List<StudentProfile>> roomProfiles = new ArrayList<>(rooms.roomCount());
+        long[] roomMasks = new long[rooms.roomCount()];
+        for (int r = 0; r < rooms.roomCount(); r++) {
+            List<Student> existing = currentRoomStudentMap.getOrDefault(rooms.roomId(r), List.of());
+            List<StudentProfile> profiles = new ArrayList<>(existing.size() + 4);
+            for (Student roommate : existing) {
+                profiles.add(kernel.profile(roommate));
             }
+            roomProfiles.add(profiles);
+            roomMasks[r] = ScoringKernel.classMask(profiles);
         }
 
         // 按习惯特征明显程度排序（难匹配的优先）
         List<Student> sortedStudents = sortStudentsByDistinctiveness(students);
 
+        // Tier 3: 室友候选索引，序号 [0, n) 为待分配学生（按处理顺序），其后为房间现有学生
+        RoommateCandidateIndex candidateIndex = useIndex
+                ? buildCandidateIndex(sortedStudents, currentRoomStudentMap, rooms) : null;
+        long[] candidateRooms = new long[RoommateCandidateIndex.NEIGHBOURS];
+
         for (Student student : sortedStudents) {
+            int ordinal = processedCount;
             processedCount++;
 
             if (progressCallback != null && processedCount % 100 == 0) {
@@ -175,37 +189,48 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
                         "正在分配第 " + processedCount + " 个学生"));
             }
 
-            // 获取该学生的候选房间（同性别 + 空房间）
-            Set<Long> candidateRoomIds = AlgorithmHelper.getCandidateRoomIds(student.getGender(), genderBuckets);
+            // 预算耗尽（取消/超时）：已分配的保留，其余学生标记失败
+            if (budget.isExhausted()) {
+                results.add(AlgorithmHelper.buildFail(student, budget.stopReason()));
+                failedCount++;
+                continue;
+            }
 
-            BedMatch bestMatch = findBestBed(student, candidateRoomIds, emptyRoomIds,
-                    availableBedMap, currentRoomStudentMap, config);
+            Integer gender = student.getGender();
+            StudentProfile profile = kernel.profile(student);
+            int room = -1;
+            if (candidateIndex != null) {
+                room = findIndexedRoom(ordinal, gender, profile, candidateIndex, candidateRooms,
+                        rooms, roomProfiles, roomMasks, kernel);
+            }
+            if (room < 0) {
+                room = findBestRoom(gender, profile, rooms, roomProfiles, roomMasks, kernel);
+            }
 
-            if (bestMatch != null && bestMatch.bed != null) {
-                Bed bed = bestMatch.bed;
-                Long roomId = bed.getRoomId();
-                boolean wasEmpty = emptyRoomIds.contains(roomId);
+            if (room >= 0) {
+                Long roomId = rooms.roomId(room);
+                List<Bed> beds = availableBedMap.get(roomId);
+                Bed bed = beds.remove(0);
 
-                results.add(AlgorithmHelper.buildSuccess(student, bed, bestMatch.matchResult));
+                // 只为最终选中的房间构建富匹配结果
+                RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
+                        student, currentRoomStudentMap.getOrDefault(roomId, List.of()), config);
+                results.add(AlgorithmHelper.buildSuccess(student, bed, matchResult));
                 successCount++;
 
-                // 更新状态
-                availableBedMap.get(roomId).remove(bed);
-                if (availableBedMap.get(roomId).isEmpty()) {
+                // 更新状态（空房间转入性别桶、满员房间移出候选由索引维护）
+                if (beds.isEmpty()) {
                     availableBedMap.remove(roomId);
-                    // 从所有桶中移除满员房间
-                    genderBuckets.values().forEach(set -> set.remove(roomId));
                 }
+                rooms.occupy(room, gender);
                 currentRoomStudentMap.computeIfAbsent(roomId, k -> new ArrayList<>()).add(student);
-
-                // 如果之前是空房间，更新桶
-                if (wasEmpty) {
-                    emptyRoomIds.remove(roomId);
-                    AlgorithmHelper.updateGenderBucket(roomId, student.getGender(), genderBuckets);
+                roomProfiles.get(room).add(profile);
+                roomMasks[room] |= ScoringKernel.classMask(profile);
+                if (candidateIndex != null) {
+                    candidateIndex.place(ordinal, room);
                 }
             } else {
-                results.add(AlgorithmHelper.buildFail(student,
-                        bestMatch != null ? bestMatch.failReason : "无可用床位"));
+                results.add(AlgorithmHelper.buildFail(student, "没有符合条件的床位（可能存在硬约束冲突）"));
                 failedCount++;
             }
         }
@@ -220,55 +245,104 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
     }
 
     /**
-     * 为学生找最佳床位（性别分桶 + 空房间快速路径 + 早停）
+     * 为学生找最佳房间（空房间快速路径 + 同性别房间位图环绕迭代 + 早停）
+     * 候选房间打分走编译内核，不构建 RoomMatchResult
+     *
+     * @return 房间序号，没有可用房间时返回 -1
      */
-    private BedMatch findBestBed(
-            Student student,
-            Set<Long> candidateRoomIds,
-            Set<Long> emptyRoomIds,
-            Map<Long, List<Bed>> availableBedMap,
-            Map<Long, List<Student>> roomStudentMap,
-            AllocationConfig config) {
-
-        BedMatch bestMatch = null;
-        BigDecimal bestScore = BigDecimal.valueOf(-1);
-
-        // 快速路径：如果有空房间且候选中包含，直接取一个（匹配分固定100）
-        for (Long emptyRoomId : emptyRoomIds) {
-            if (candidateRoomIds.contains(emptyRoomId)) {
-                List<Bed> beds = availableBedMap.get(emptyRoomId);
-                if (beds != null && !beds.isEmpty()) {
-                    RoomMatchResult emptyResult = compatibilityService.calculateRoomCompatibility(
-                            student, List.of(), config);
-                    return new BedMatch(beds.get(0), emptyResult, null);
-                }
-            }
+    private int findBestRoom(
+            Integer gender,
+            StudentProfile profile,
+            CandidateRoomIndex rooms,
+            List<List<StudentProfile>> roomProfiles,
+            long[] roomMasks,
+            ScoringKernel kernel) {
+
+        // 快速路径：有空房间直接取一个（匹配分固定100）
+        int emptyRoom = rooms.firstEmptyRoom();
+        if (emptyRoom >= 0) {
+            return emptyRoom;
         }
 
-        // 正常路径：遍历候选房间
-        for (Long roomId : candidateRoomIds) {
-            List<Bed> beds = availableBedMap.get(roomId);
-            if (beds == null || beds.isEmpty()) continue;
+        // 正常路径：按位遍历同性别且有空床位的房间
+        int bestRoom = -1;
+        double bestScore = -1;
+        int start = rooms.scanStart(profile.studentId);
+        for (int room = rooms.firstOccupiedRoom(gender, start); room >= 0;
+             room = rooms.nextOccupiedRoom(gender, room, start)) {
+            if (kernel.excludes(profile, roomMasks[room])) continue;
+            double score = kernel.roomScore(profile, roomProfiles.get(room));
+            if (score == ScoringKernel.CONFLICT) continue;
 
-            List<Student> roommates = roomStudentMap.getOrDefault(roomId, List.of());
-            RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
-                    student, roommates, config);
+            if (score > bestScore) {
+                bestScore = score;
+                bestRoom = room;
 
-            if (Boolean.TRUE.equals(matchResult.getHasHardConflict())) continue;
+                // 早停：分数够好就不继续找了
+                if (bestScore >= EARLY_STOP_SCORE) break;
+            }
+        }
+        return bestRoom;
+    }
 
-            if (matchResult.getAvgScore().compareTo(bestScore) > 0) {
-                bestScore = matchResult.getAvgScore();
-                bestMatch = new BedMatch(beds.get(0), matchResult, null);
+    /**
+     * Tier 3: 通过室友候选索引找房间
+     * 空房间快速路径不变；否则只为习惯最接近的已入住学生所在的房间打分。
+     * 索引未给出可用房间时返回 -1，由调用方回退到全量扫描
+     */
+    private int findIndexedRoom(
+            int ordinal,
+            Integer gender,
+            StudentProfile profile,
+            RoommateCandidateIndex candidateIndex,
+            long[] candidateRooms,
+            CandidateRoomIndex rooms,
+            List<List<StudentProfile>> roomProfiles,
+            long[] roomMasks,
+            ScoringKernel kernel) {
+
+        // 快速路径：空房间（匹配分固定100）
+        int emptyRoom = rooms.firstEmptyRoom();
+        if (emptyRoom >= 0) {
+            return emptyRoom;
+        }
 
-                // 早停：分数够好就不继续找了
-                if (bestScore.compareTo(EARLY_STOP_SCORE) >= 0) break;
+        // 近邻所在房间：同性别且仍有空床
+        int count = candidateIndex.candidateRooms(ordinal, r -> rooms.isCandidate(gender, (int) r), candidateRooms);
+        int bestRoom = -1;
+        double bestScore = -1;
+        for (int i = 0; i < count; i++) {
+            int room = (int) candidateRooms[i];
+            if (kernel.excludes(profile, roomMasks[room])) continue;
+            double score = kernel.roomScore(profile, roomProfiles.get(room));
+            if (score == ScoringKernel.CONFLICT) continue;
+            if (score > bestScore) {
+                bestScore = score;
+                bestRoom = room;
             }
         }
+        return bestRoom;
+    }
 
-        if (bestMatch == null) {
-            return new BedMatch(null, null, "没有符合条件的床位（可能存在硬约束冲突）");
+    /**
+     * 构建室友候选索引并登记房间现有学生（房间键为候选房间索引中的序号）
+     */
+    private RoommateCandidateIndex buildCandidateIndex(List<Student> sortedStudents,
+                                                       Map<Long, List<Student>> roomStudentMap,
+                                                       CandidateRoomIndex rooms) {
+        List<Student> points = new ArrayList<>(sortedStudents);
+        List<Integer> pointRooms = new ArrayList<>();
+        for (int r = 0; r < rooms.roomCount(); r++) {
+            for (Student occupant : roomStudentMap.getOrDefault(rooms.roomId(r), List.of())) {
+                points.add(occupant);
+                pointRooms.add(r);
+            }
+        }
+        RoommateCandidateIndex index = new RoommateCandidateIndex(points);
+        for (int j = 0; j < pointRooms.size(); j++) {
+            index.place(sortedStudents.size() + j, pointRooms.get(j));
         }
-        return bestMatch;
+        return index;
     }
 
     /**
@@ -289,19 +363,4 @@ public class GreedyAlgorithm implements AllocationAlgorithm {
         if (Integer.valueOf(1).equals(s.getSnores())) score += 5;
         return score;
     }
-
-    /**
-     * 床位匹配结果
-     */
-    private static class BedMatch {
-        Bed bed;
-        RoomMatchResult matchResult;
-        String failReason;
-
-        BedMatch(Bed bed, RoomMatchResult matchResult, String failReason) {
-            this.bed = bed;
-            this.matchResult = matchResult;
-            this.failReason = failReason;
-        }
-    }
 }
@@ -0,0 +1,298 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.AllocationAlgorithm.AllocationProgress;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.algorithm.model.RoomMatchResult;
+import com.project.backend.allocation.algorithm.model.WarmStartPlacement;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 增量分配（在已有方案上修复）
+ * 以上一次任务的分配结果为热启动，只处理变更部分：
+ * <ol>
+ *     <li>保留：仍然有效的历史结果（学生仍待分配、床位仍空闲、与房间成员性别一致）直接占用原床位</li>
+ *     <li>插入：其余学生（新增、资料变更、原先失败或被拒绝）用贪心插入，候选只包含仍有空床位的房间</li>
+ *     <li>修复：接收了新学生的房间内，未确认的成员与新学生一起用模拟退火在这些房间内重新分配，
+ *     冲突更少或总分更高时采用修复结果</li>
+ * </ol>
+ * 已确认/已调整的结果固定不动；搜索代价随变更学生数和受影响房间数增长，与整届学生数无关。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IncrementalAllocator {
+
+    private final CompatibilityService compatibilityService;
+    private final GreedyAlgorithm greedyAlgorithm;
+    private final SimulatedAnnealingAlgorithm annealingAlgorithm;
+
+    /**
+     * 增量分配
+     *
+     * @param students         待分配学生（含热启动学生）
+     * @param roomBedMap       房间ID -> 可用床位（含热启动结果占用的床位）
+     * @param roomStudentMap   房间ID -> 现有学生
+     * @param warmStart        热启动床位（调用方已剔除资料变更的学生）
+     * @param config           分配配置
+     * @param budget           运行预算
+     * @param progressCallback 进度回调
+     * @return 完整分配结果（保留 + 插入 + 修复）
+     */
+    public List<AllocationResultDTO> allocate(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            List<WarmStartPlacement> warmStart,
+            AllocationConfig config,
+            AllocationBudget budget,
+            Consumer<AllocationProgress> progressCallback) {
+
+        Map<Long, Student> studentById = AlgorithmHelper.buildStudentMap(students);
+        Map<Long, Bed> bedById = new HashMap<>();
+        Map<Long, List<Bed>> freeBeds = new HashMap<>();
+        for (Map.Entry<Long, List<Bed>> entry : roomBedMap.entrySet()) {
+            freeBeds.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            for (Bed bed : entry.getValue()) {
+                bedById.put(bed.getId(), bed);
+            }
+        }
+        Map<Long, List<Student>> members = new HashMap<>();
+        for (Map.Entry<Long, List<Student>> entry : roomStudentMap.entrySet()) {
+            members.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+
+        // 1. 保留仍然有效的历史结果
+        Map<Long, Bed> kept = new LinkedHashMap<>();
+        Map<Long, AllocationResultDTO> previous = new HashMap<>();
+        Set<Long> pinned = new HashSet<>();
+        Set<Long> staleRooms = new HashSet<>();
+        for (WarmStartPlacement placement : warmStart) {
+            AllocationResultDTO dto = placement.getPrevious();
+            Student student = studentById.get(dto.getStudentId());
+            Bed bed = bedById.get(dto.getBedId());
+            if (student == null || bed == null || kept.containsKey(student.getId())) continue;
+
+            List<Bed> roomFree = freeBeds.get(bed.getRoomId());
+            List<Student> roomMembers = members.computeIfAbsent(bed.getRoomId(), k -> new ArrayList<>());
+            if (!sameGender(roomMembers, student) || !roomFree.removeIf(b -> b.getId().equals(bed.getId()))) continue;
+
+            roomMembers.add(student);
+            kept.put(student.getId(), bed);
+            previous.put(student.getId(), dto);
+            if (placement.isPinned()) {
+                pinned.add(student.getId());
+                // 已调整的结果床位变了，原分数失效
+                if (!bed.getRoomId().equals(dto.getRoomId())) staleRooms.add(bed.getRoomId());
+            }
+        }
+
+        List<Student> pending = new ArrayList<>();
+        for (Student student : students) {
+            if (!kept.containsKey(student.getId())) pending.add(student);
+        }
+        log.info("增量分配：保留 {} 个历史结果（固定 {}），待插入 {} 名学生", kept.size(), pinned.size(), pending.size());
+        report(progressCallback, students.size(), kept.size(),
+                String.format("保留 %d 个历史结果，开始插入 %d 名学生", kept.size(), pending.size()));
+
+        // 2. 贪心插入：只在仍有空床位的房间中选择
+        Map<Long, List<Bed>> openBeds = new HashMap<>();
+        Map<Long, List<Student>> openMembers = new HashMap<>();
+        for (Map.Entry<Long, List<Bed>> entry : freeBeds.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            openBeds.put(entry.getKey(), entry.getValue());
+            List<Student> roomMembers = members.get(entry.getKey());
+            if (roomMembers != null && !roomMembers.isEmpty()) openMembers.put(entry.getKey(), roomMembers);
+        }
+        List<AllocationResultDTO> inserted = pending.isEmpty() ? List.of()
+                : greedyAlgorithm.allocate(pending, openBeds, openMembers, config, budget, null);
+
+        List<AllocationResultDTO> results = new ArrayList<>(students.size());
+        Map<Long, Bed> placed = new LinkedHashMap<>();
+        Set<Long> affectedRooms = new HashSet<>(staleRooms);
+        for (AllocationResultDTO dto : inserted) {
+            Bed bed = dto.getBedId() != null ? bedById.get(dto.getBedId()) : null;
+            if (bed == null) {
+                results.add(dto);
+                continue;
+            }
+            placed.put(dto.getStudentId(), bed);
+            affectedRooms.add(bed.getRoomId());
+        }
+
+        // 3. 受影响房间的局部修复
+        Map<Long, Bed> current = new LinkedHashMap<>(placed);
+        for (Map.Entry<Long, Bed> entry : kept.entrySet()) {
+            if (affectedRooms.contains(entry.getValue().getRoomId())) current.put(entry.getKey(), entry.getValue());
+        }
+        List<AllocationResultDTO> local = score(current, roomStudentMap, studentById, config);
+        if (!placed.isEmpty() && !budget.isExhausted()) {
+            report(progressCallback, students.size(), kept.size() + placed.size(),
+                    String.format("插入完成，正在修复 %d 个受影响房间", affectedRooms.size()));
+            List<AllocationResultDTO> repaired = repair(current, pinned, affectedRooms, roomBedMap,
+                    roomStudentMap, studentById, bedById, config, budget);
+            if (repaired != null && better(repaired, local)) {
+                local = repaired;
+            }
+        }
+        results.addAll(local);
+
+        // 4. 未受影响的保留结果沿用原分数
+        for (Map.Entry<Long, Bed> entry : kept.entrySet()) {
+            if (!affectedRooms.contains(entry.getValue().getRoomId())) {
+                results.add(carry(previous.get(entry.getKey()), entry.getValue()));
+            }
+        }
+
+        long success = results.stream().filter(AllocationResultDTO::isSuccess).count();
+        report(progressCallback, students.size(), students.size(),
+                String.format("增量分配完成，受影响房间 %d 个", affectedRooms.size()));
+        log.info("增量分配完成，成功：{}，失败：{}，受影响房间：{}", success, results.size() - success, affectedRooms.size());
+        return results;
+    }
+
+    // ==================== 局部修复 ====================
+
+    /**
+     * 在受影响房间内重新分配未固定的学生，全部分配成功才返回结果
+     */
+    private List<AllocationResultDTO> repair(Map<Long, Bed> current, Set<Long> pinned, Set<Long> rooms,
+                                             Map<Long, List<Bed>> roomBedMap,
+                                             Map<Long, List<Student>> roomStudentMap,
+                                             Map<Long, Student> studentById,
+                                             Map<Long, Bed> bedById,
+                                             AllocationConfig config,
+                                             AllocationBudget budget) {
+        List<Student> movable = new ArrayList<>();
+        Map<Long, List<Student>> fixedMembers = new HashMap<>();
+        Set<Long> pinnedBeds = new HashSet<>();
+        for (Map.Entry<Long, Bed> entry : current.entrySet()) {
+            Student student = studentById.get(entry.getKey());
+            if (pinned.contains(entry.getKey())) {
+                fixedMembers.computeIfAbsent(entry.getValue().getRoomId(), k -> new ArrayList<>()).add(student);
+                pinnedBeds.add(entry.getValue().getId());
+            } else {
+                movable.add(student);
+            }
+        }
+        if (movable.size() < 2) return null;
+
+        Map<Long, List<Bed>> subBeds = new HashMap<>();
+        for (Long roomId : rooms) {
+            List<Bed> beds = new ArrayList<>();
+            for (Bed bed : roomBedMap.getOrDefault(roomId, List.of())) {
+                if (!pinnedBeds.contains(bed.getId())) beds.add(bed);
+            }
+            subBeds.put(roomId, beds);
+            List<Student> existing = roomStudentMap.getOrDefault(roomId, List.of());
+            if (!existing.isEmpty()) fixedMembers.computeIfAbsent(roomId, k -> new ArrayList<>()).addAll(existing);
+        }
+
+        List<AllocationResultDTO> annealed = annealingAlgorithm.allocate(
+                movable, subBeds, fixedMembers, config, budget, null);
+        Map<Long, Bed> assignment = new LinkedHashMap<>();
+        for (AllocationResultDTO dto : annealed) {
+            Bed bed = dto.getBedId() != null ? bedById.get(dto.getBedId()) : null;
+            if (bed == null) return null;
+            assignment.put(dto.getStudentId(), bed);
+        }
+        for (Map.Entry<Long, Bed> entry : current.entrySet()) {
+            if (pinned.contains(entry.getKey())) assignment.put(entry.getKey(), entry.getValue());
+        }
+        return score(assignment, roomStudentMap, studentById, config);
+    }
+
+    /**
+     * 按最终房间成员重新计算匹配分（房间成员 = 现有学生 + 本次分配到该房间的学生）
+     */
+    private List<AllocationResultDTO> score(Map<Long, Bed> assignment,
+                                            Map<Long, List<Student>> roomStudentMap,
+                                            Map<Long, Student> studentById,
+                                            AllocationConfig config) {
+        Map<Long, List<Student>> occupants = new HashMap<>();
+        for (Map.Entry<Long, Bed> entry : assignment.entrySet()) {
+            Long roomId = entry.getValue().getRoomId();
+            occupants.computeIfAbsent(roomId, k -> new ArrayList<>(roomStudentMap.getOrDefault(k, List.of())))
+                    .add(studentById.get(entry.getKey()));
+        }
+
+        List<AllocationResultDTO> results = new ArrayList<>(assignment.size());
+        for (Map.Entry<Long, Bed> entry : assignment.entrySet()) {
+            Student student = studentById.get(entry.getKey());
+            List<Student> roommates = new ArrayList<>(occupants.get(entry.getValue().getRoomId()));
+            roommates.remove(student);
+            RoomMatchResult match = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+            results.add(AlgorithmHelper.buildSuccess(student, entry.getValue(), match));
+        }
+        return results;
+    }
+
+    /**
+     * 硬冲突更少，或冲突数相同且总分更高
+     */
+    private boolean better(List<AllocationResultDTO> candidate, List<AllocationResultDTO> baseline) {
+        long candidateConflicts = candidate.stream().filter(r -> !r.isSuccess()).count();
+        long baselineConflicts = baseline.stream().filter(r -> !r.isSuccess()).count();
+        if (candidateConflicts != baselineConflicts) return candidateConflicts < baselineConflicts;
+        return totalScore(candidate).compareTo(totalScore(baseline)) > 0;
+    }
+
+    private BigDecimal totalScore(List<AllocationResultDTO> results) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (AllocationResultDTO result : results) {
+            if (result.getMatchScore() != null) total = total.add(result.getMatchScore());
+        }
+        return total;
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 沿用历史结果（床位字段以实际床位为准）
+     */
+    private AllocationResultDTO carry(AllocationResultDTO previous, Bed bed) {
+        return AllocationResultDTO.builder()
+                .studentId(previous.getStudentId())
+                .studentNo(previous.getStudentNo())
+                .studentName(previous.getStudentName())
+                .gender(previous.getGender())
+                .deptCode(previous.getDeptCode())
+                .majorCode(previous.getMajorCode())
+                .classCode(previous.getClassCode())
+                .bedId(bed.getId())
+                .roomId(bed.getRoomId())
+                .roomCode(bed.getRoomCode())
+                .floorId(bed.getFloorId())
+                .floorCode(bed.getFloorCode())
+                .matchScore(previous.getMatchScore())
+                .conflictReasons(previous.getConflictReasons())
+                .advantages(previous.getAdvantages())
+                .success(true)
+                .build();
+    }
+
+    private boolean sameGender(List<Student> roomMembers, Student student) {
+        for (Student member : roomMembers) {
+            if (!Objects.equals(member.getGender(), student.getGender())) return false;
+        }
+        return true;
+    }
+
+    private void report(Consumer<AllocationProgress> progressCallback, int total, int processed, String stage) {
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(total, processed, 0, 0, stage));
+        }
+    }
+}
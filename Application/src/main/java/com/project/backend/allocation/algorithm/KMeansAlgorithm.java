@@ -1,6 +1,10 @@
 package com.project.backend.allocation.algorithm;
 
 import com.project.backend.student.entity.Student;
+import com.project.backend.allocation.algorithm.kernel.KMeansClusterer;
+import com.project.backend.allocation.algorithm.kernel.LifestyleVectors;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.kernel.StudentProfile;
 import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
 import com.project.backend.allocation.algorithm.model.RoomMatchResult;
 import com.project.backend.allocation.entity.AllocationConfig;
@@ -10,16 +14,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * K-Means聚类分配算法（优化版）
  * 策略：先将学生按生活习惯聚类，再将同类学生分配到同一房间
- * 优化：KMeans++ 初始化、Set 替代 List.contains、Tier3 整簇批量分配、分片并行
+ * 优化：KMeans++ 初始化 + Hamerly 剪枝（行主序 double[]，层次聚类）、Set 替代 List.contains、Tier3 按房间容量均衡分组整组入住、分片并行
  *
  * @author 陈鸿昇
  * @since 2026-02-02
@@ -30,9 +32,12 @@ import java.util.stream.Collectors;
 public class KMeansAlgorithm implements AllocationAlgorithm {
 
     private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
 
     private static final int MAX_ITERATIONS = 100;
-    private static final BigDecimal EARLY_STOP_SCORE = BigDecimal.valueOf(90);
+    /** Tier3 层次聚类树序每层的最大迭代次数（只需粗略分组，组内再交换微调） */
+    private static final int TREE_MAX_ITERATIONS = 20;
+    private static final double EARLY_STOP_SCORE = 90.0;
 
     @Override
     public String getAlgorithmType() {
@@ -79,19 +84,21 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
             Consumer<AllocationProgress> progressCallback) {
 
-        int tier = AlgorithmHelper.determineTier(students.size());
+        int tier = AlgorithmHelper.determineTier(getAlgorithmType(), students.size());
         log.info("开始K-Means聚类分配，学生数：{}，可用房间数：{}，使用 Tier {}", students.size(), roomBedMap.size(), tier);
 
+        ScoringKernel kernel = ScoringKernel.compile(config);
         if (tier == 3) {
-            return allocateClusterBatch(students, roomBedMap, roomStudentMap, config, progressCallback);
+            return allocateClusterBatch(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
         }
         if (tier == 2) {
-            return allocatePartitioned(students, roomBedMap, roomStudentMap, config, progressCallback);
+            return allocatePartitioned(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
         }
 
-        return allocateDirect(students, roomBedMap, roomStudentMap, config, progressCallback);
+        return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
     }
 
     // ==================== Tier 2: 分片并行 ====================
@@ -101,6 +108,8 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
             Consumer<AllocationProgress> progressCallback) {
 
         List<AlgorithmHelper.Partition> partitions = AlgorithmHelper.partitionStudentsAndRooms(
@@ -112,13 +121,10 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
                     String.format("已分为 %d 个分片，开始并行执行", partitions.size())));
         }
 
-        ForkJoinPool pool = new ForkJoinPool(Math.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+        // 各分片提交到共享的分配计算池并行执行
         try {
-            List<AllocationResultDTO> allResults = pool.submit(() ->
-                    partitions.parallelStream()
-                            .flatMap(p -> allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, null).stream())
-                            .collect(Collectors.toList())
-            ).get();
+            List<AllocationResultDTO> allResults = allocationExecutor.invokePartitions(partitions,
+                    p -> allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, budget, kernel, null));
 
             int success = (int) allResults.stream().filter(AllocationResultDTO::isSuccess).count();
             if (progressCallback != null) {
@@ -128,23 +134,24 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
             return allResults;
         } catch (Exception e) {
             log.error("分片并行执行失败，回退到单线程", e);
-            return allocateDirect(students, roomBedMap, roomStudentMap, config, progressCallback);
-        } finally {
-            pool.shutdown();
+            return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
         }
     }
 
-    // ==================== Tier 3: 先分片再整簇批量分配 ====================
+    // ==================== Tier 3: 先分片再按房间容量均衡分组 ====================
 
     /**
-     * Tier 3：先按性别分片保证硬约束，再对每个分片聚类 + 批量分配。
-     * 同簇学生习惯相似，只需抽样检查匹配度而非逐对全量计算。
+     * Tier 3：先按性别分片保证硬约束，再把每个分片的学生按层次聚类树序排列，
+     * 依次按空房间的空床位数切分成组、整组入住（组大小与房间容量一致，无需逐个学生搜索床位）。
+     * 组内有硬冲突的学生与超出空房间容量的学生，再逐个寻找有空床位的房间。
      */
     private List<AllocationResultDTO> allocateClusterBatch(
             List<Student> students,
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
             Consumer<AllocationProgress> progressCallback) {
 
         int totalStudents = students.size();
@@ -159,33 +166,38 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
 
         log.info("Tier3 分片完成，共 {} 个分片", partitions.size());
 
-        // 2. 每个分片独立聚类 + 批量分配
+        // 2. 每个分片独立均衡分组 + 整组入住
         List<AllocationResultDTO> allResults = new ArrayList<>();
         int processedTotal = 0;
         int successTotal = 0, failedTotal = 0;
+        int nextReport = 500;
 
         for (AlgorithmHelper.Partition partition : partitions) {
             if (partition.students.isEmpty()) continue;
 
+            // 预算耗尽（取消/超时）：尚未处理的分片整体标记失败
+            if (budget.isExhausted()) {
+                for (Student student : partition.students) {
+                    allResults.add(AlgorithmHelper.buildFail(student, budget.stopReason()));
+                }
+                processedTotal += partition.students.size();
+                failedTotal += partition.students.size();
+                continue;
+            }
+
             if (progressCallback != null) {
                 progressCallback.accept(new AllocationProgress(
                         totalStudents, processedTotal, successTotal, failedTotal,
                         String.format("Tier3: 正在聚类分片（%d 学生）", partition.students.size())));
             }
 
-            // 2a. 向量化 + 聚类
-            List<double[]> vectors = partition.students.stream().map(this::studentToVector).collect(Collectors.toList());
-            int avgBedsPerRoom = 4;
-            int k = Math.max(1, partition.students.size() / avgBedsPerRoom);
-            int[] clusterAssignments = kMeansClustering(vectors, k);
+            // 2a. 向量化 + 层次聚类树序（叶子大小取实际平均空床位数）
+            List<Student> partitionStudents = partition.students;
+            int leafSize = averageFreeBeds(partition.roomBedMap);
+            int[] order = allocationExecutor.compute(() -> KMeansClusterer.treeOrder(
+                    LifestyleVectors.of(partitionStudents), LifestyleVectors.DIM, leafSize, TREE_MAX_ITERATIONS, 42L));
 
-            // 2b. 按簇分组
-            Map<Integer, List<Student>> clusters = new HashMap<>();
-            for (int i = 0; i < partition.students.size(); i++) {
-                clusters.computeIfAbsent(clusterAssignments[i], c -> new ArrayList<>()).add(partition.students.get(i));
-            }
-
-            // 2c. 复制可用床位
+            // 2b. 复制可用床位
             Map<Long, List<Bed>> availableBeds = new HashMap<>();
             for (Map.Entry<Long, List<Bed>> entry : partition.roomBedMap.entrySet()) {
                 availableBeds.put(entry.getKey(), new ArrayList<>(entry.getValue()));
@@ -193,100 +205,134 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
 
             // 维护房间当前学生（用于匹配计算）
             Map<Long, List<Student>> currentRoomStudents = new HashMap<>();
+            Map<Long, List<StudentProfile>> currentRoomProfiles = new HashMap<>();
+            Map<Long, Long> currentRoomMasks = new HashMap<>();
             for (Map.Entry<Long, List<Student>> entry : partition.roomStudentMap.entrySet()) {
                 currentRoomStudents.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                currentRoomProfiles.put(entry.getKey(), toProfiles(entry.getValue(), kernel));
+                currentRoomMasks.put(entry.getKey(), ScoringKernel.classMask(currentRoomProfiles.get(entry.getKey())));
             }
 
-            // 2d. 空房间集合
-            Set<Long> emptyRoomIds = new LinkedHashSet<>();
-            for (Long roomId : availableBeds.keySet()) {
-                List<Student> existing = currentRoomStudents.get(roomId);
-                if (existing == null || existing.isEmpty()) {
-                    emptyRoomIds.add(roomId);
-                }
-            }
+            // 2c. 空房间按房间ID排序（同楼层的房间通常相邻）
+            List<Long> emptyRoomIds = availableBeds.keySet().stream()
+                    .filter(roomId -> currentRoomStudents.getOrDefault(roomId, List.of()).isEmpty())
+                    .sorted()
+                    .collect(Collectors.toList());
 
-            // 2e. 按簇分配：同簇学生尽量填入同一组连续房间
-            for (Map.Entry<Integer, List<Student>> clusterEntry : clusters.entrySet()) {
-                List<Student> clusterStudents = clusterEntry.getValue();
-
-                for (Student student : clusterStudents) {
-                    processedTotal++;
-                    boolean assigned = false;
-
-                    // 优先分配到空房间（无需匹配计算）
-                    Iterator<Long> emptyIter = emptyRoomIds.iterator();
-                    while (emptyIter.hasNext()) {
-                        Long emptyRoomId = emptyIter.next();
-                        List<Bed> beds = availableBeds.get(emptyRoomId);
-                        if (beds != null && !beds.isEmpty()) {
-                            Bed bed = beds.remove(beds.size() - 1);
-                            RoomMatchResult mr = compatibilityService.calculateRoomCompatibility(
-                                    student, List.of(), config);
-                            allResults.add(AlgorithmHelper.buildSuccess(student, bed, mr));
-                            successTotal++;
-                            assigned = true;
-
-                            currentRoomStudents.computeIfAbsent(emptyRoomId, x -> new ArrayList<>()).add(student);
-                            if (beds.isEmpty()) {
-                                availableBeds.remove(emptyRoomId);
-                                emptyIter.remove();
-                            } else {
-                                emptyIter.remove(); // 不再是空房间
-                            }
-                            break;
-                        } else {
-                            emptyIter.remove();
-                        }
+            // 2d. 按树序切分：每个空房间取与其空床位数相同的一组相邻学生（组内无硬冲突）
+            StudentProfile[] profiles = new StudentProfile[partitionStudents.size()];
+            for (int i = 0; i < profiles.length; i++) {
+                profiles[i] = kernel.profile(partitionStudents.get(i));
+            }
+            List<Student> leftovers = new ArrayList<>();
+            List<Long> groupRooms = new ArrayList<>();
+            List<int[]> groups = new ArrayList<>();
+            int cursor = 0;
+            for (Long roomId : emptyRoomIds) {
+                if (cursor >= order.length) break;
+                int capacity = availableBeds.get(roomId).size();
+                int[] group = new int[capacity];
+                List<StudentProfile> groupProfiles = new ArrayList<>(capacity);
+                long groupMask = 0;
+                int size = 0;
+                while (size < capacity && cursor < order.length) {
+                    int idx = order[cursor++];
+                    if (kernel.excludes(profiles[idx], groupMask)
+                            || kernel.hasHardConflict(profiles[idx], groupProfiles)) {
+                        leftovers.add(partitionStudents.get(idx));
+                        continue;
                     }
+                    group[size++] = idx;
+                    groupProfiles.add(profiles[idx]);
+                    groupMask |= ScoringKernel.classMask(profiles[idx]);
+                }
+                groupRooms.add(roomId);
+                groups.add(size == capacity ? group : Arrays.copyOf(group, size));
+            }
 
-                    // 空房间用完了，找有人的房间（跳过硬约束冲突）
-                    if (!assigned) {
-                        for (Iterator<Map.Entry<Long, List<Bed>>> it = availableBeds.entrySet().iterator(); it.hasNext(); ) {
-                            Map.Entry<Long, List<Bed>> roomEntry = it.next();
-                            Long roomId = roomEntry.getKey();
-                            List<Bed> beds = roomEntry.getValue();
-                            if (beds.isEmpty()) { it.remove(); continue; }
-
-                            List<Student> roommates = currentRoomStudents.getOrDefault(roomId, List.of());
-
-                            // 硬约束快速检查（只检查第一个室友，同簇学生间通常不冲突）
-                            if (!roommates.isEmpty()) {
-                                boolean hasConflict = compatibilityService.hasHardConflict(student, roommates.get(0), config);
-                                if (hasConflict) continue;
-                            }
-
-                            Bed bed = beds.remove(beds.size() - 1);
-                            RoomMatchResult mr = compatibilityService.calculateRoomCompatibility(student, roommates, config);
-
-                            if (Boolean.TRUE.equals(mr.getHasHardConflict())) {
-                                // 匹配后发现冲突，放回床位，跳过
-                                beds.add(bed);
-                                continue;
-                            }
-
-                            allResults.add(AlgorithmHelper.buildSuccess(student, bed, mr));
-                            successTotal++;
-                            assigned = true;
-                            currentRoomStudents.computeIfAbsent(roomId, x -> new ArrayList<>()).add(student);
-                            if (beds.isEmpty()) it.remove();
-                            break;
-                        }
-                    }
+            // 2e. 相邻组之间交换成员微调（切分边界上的组可能跨两个簇）
+            refineAdjacentGroups(groups, profiles, kernel);
+
+            // 2f. 整组入住
+            for (int g = 0; g < groups.size(); g++) {
+                Long roomId = groupRooms.get(g);
+                List<Bed> beds = availableBeds.get(roomId);
+                List<Student> group = new ArrayList<>();
+                List<StudentProfile> groupProfiles = new ArrayList<>();
+                for (int idx : groups.get(g)) {
+                    group.add(partitionStudents.get(idx));
+                    groupProfiles.add(profiles[idx]);
+                }
 
-                    if (!assigned) {
-                        allResults.add(AlgorithmHelper.buildFail(student, "无可用床位或所有床位存在硬约束冲突"));
-                        failedTotal++;
-                    }
+                for (int i = 0; i < group.size(); i++) {
+                    Student student = group.get(i);
+                    List<Student> roommates = new ArrayList<>(group);
+                    roommates.remove(i);
+                    RoomMatchResult mr = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+                    allResults.add(AlgorithmHelper.buildSuccess(student, beds.get(i), mr));
                 }
+                successTotal += group.size();
+                processedTotal += group.size();
+
+                beds.subList(0, group.size()).clear();
+                if (beds.isEmpty()) availableBeds.remove(roomId);
+                currentRoomStudents.put(roomId, group);
+                currentRoomProfiles.put(roomId, groupProfiles);
+                currentRoomMasks.put(roomId, ScoringKernel.classMask(groupProfiles));
 
-                // 每处理完一个簇报告进度
-                if (progressCallback != null && processedTotal % 500 == 0) {
+                if (progressCallback != null && processedTotal >= nextReport) {
+                    nextReport = processedTotal + 500;
                     progressCallback.accept(new AllocationProgress(
                             totalStudents, processedTotal, successTotal, failedTotal,
                             String.format("Tier3 批量分配中... %d/%d", processedTotal, totalStudents)));
                 }
             }
+            while (cursor < order.length) {
+                leftovers.add(partitionStudents.get(order[cursor++]));
+            }
+
+            // 2g. 剩余学生逐个找有空床位的房间（跳过硬约束冲突）
+            for (Student student : leftovers) {
+                processedTotal++;
+                if (budget.isExhausted()) {
+                    allResults.add(AlgorithmHelper.buildFail(student, budget.stopReason()));
+                    failedTotal++;
+                    continue;
+                }
+                boolean assigned = false;
+                StudentProfile profile = kernel.profile(student);
+
+                for (Iterator<Map.Entry<Long, List<Bed>>> it = availableBeds.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Long, List<Bed>> roomEntry = it.next();
+                    Long roomId = roomEntry.getKey();
+                    List<Bed> beds = roomEntry.getValue();
+                    if (beds.isEmpty()) { it.remove(); continue; }
+
+                    // 硬约束检查：先按等价类掩码 O(1) 排除，再走编译内核逐个室友检查
+                    if (kernel.excludes(profile, currentRoomMasks.getOrDefault(roomId, 0L))
+                            || kernel.hasHardConflict(profile, currentRoomProfiles.getOrDefault(roomId, List.of()))) {
+                        continue;
+                    }
+
+                    Bed bed = beds.remove(beds.size() - 1);
+                    List<Student> roommates = currentRoomStudents.getOrDefault(roomId, List.of());
+                    RoomMatchResult mr = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+
+                    allResults.add(AlgorithmHelper.buildSuccess(student, bed, mr));
+                    successTotal++;
+                    assigned = true;
+                    currentRoomStudents.computeIfAbsent(roomId, x -> new ArrayList<>()).add(student);
+                    currentRoomProfiles.computeIfAbsent(roomId, x -> new ArrayList<>()).add(profile);
+                    currentRoomMasks.merge(roomId, ScoringKernel.classMask(profile), (a, b) -> a | b);
+                    if (beds.isEmpty()) it.remove();
+                    break;
+                }
+
+                if (!assigned) {
+                    allResults.add(AlgorithmHelper.buildFail(student, "无可用床位或所有床位存在硬约束冲突"));
+                    failedTotal++;
+                }
+            }
         }
 
         if (progressCallback != null) {
@@ -298,6 +344,53 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
         return allResults;
     }
 
+    /**
+     * 相邻两组之间的成员交换：若交换后两组平均匹配分之和提高且不引入硬冲突，则执行交换
+     */
+    private void refineAdjacentGroups(List<int[]> groups, StudentProfile[] profiles, ScoringKernel kernel) {
+        for (int g = 0; g + 1 < groups.size(); g++) {
+            int[] a = groups.get(g);
+            int[] b = groups.get(g + 1);
+            int pairsA = a.length * (a.length - 1) / 2;
+            int pairsB = b.length * (b.length - 1) / 2;
+            if (pairsA == 0 && pairsB == 0) continue;
+
+            for (int i = 0; i < a.length; i++) {
+                for (int j = 0; j < b.length; j++) {
+                    int x = a[i], y = b[j];
+                    // x 与 y 分别相对本组/对方组（都排除 x、y 自身）的贡献
+                    long xInA = contribution(x, a, x, kernel, profiles);
+                    long yInA = contribution(y, a, x, kernel, profiles);
+                    long yInB = contribution(y, b, y, kernel, profiles);
+                    long xInB = contribution(x, b, y, kernel, profiles);
+                    if (yInA < 0 || xInB < 0) continue; // 交换后产生硬冲突
+
+                    double delta = 0;
+                    if (pairsA > 0) delta += (double) (yInA - Math.max(xInA, 0)) / pairsA;
+                    if (pairsB > 0) delta += (double) (xInB - Math.max(yInB, 0)) / pairsB;
+                    if (delta > 0) {
+                        a[i] = y;
+                        b[j] = x;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * student 与组内成员（排除 exclude）的匹配分之和，存在硬冲突返回 -1
+     */
+    private long contribution(int student, int[] group, int exclude, ScoringKernel kernel, StudentProfile[] profiles) {
+        long sum = 0;
+        for (int other : group) {
+            if (other == exclude || other == student) continue;
+            int points = kernel.pairPoints(profiles[student], profiles[other]);
+            if (points == ScoringKernel.CONFLICT) return -1;
+            sum += points;
+        }
+        return sum;
+    }
+
     // ==================== Tier 1: 直接分配 ====================
 
     private List<AllocationResultDTO> allocateDirect(
@@ -305,6 +398,8 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
             Map<Long, List<Bed>> roomBedMap,
             Map<Long, List<Student>> roomStudentMap,
             AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
             Consumer<AllocationProgress> progressCallback) {
 
         List<AllocationResultDTO> results = new ArrayList<>();
@@ -312,7 +407,7 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
 
         // 1. K
         int totalBeds = roomBedMap.values().stream().mapToInt(List::size).sum();
-        int avgBedsPerRoom = 4;
+        int avgBedsPerRoom = averageFreeBeds(roomBedMap);
         int k = Math.max(1, Math.min(totalBeds / avgBedsPerRoom, students.size() / avgBedsPerRoom));
 
         if (progressCallback != null) {
@@ -320,8 +415,7 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
         }
 
         // 2. 向量化 + KMeans++ 聚类
-        List<double[]> vectors = students.stream().map(this::studentToVector).collect(Collectors.toList());
-        int[] clusterAssignments = kMeansClustering(vectors, k);
+        int[] clusterAssignments = kMeansClustering(students, k);
 
         if (progressCallback != null) {
             progressCallback.accept(new AllocationProgress(totalStudents, 0, 0, 0, "聚类完成，正在分配床位"));
@@ -350,13 +444,13 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
             currentRoomStudentMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
         }
 
-        // 6. 性别分桶
-        Map<Integer, Set<Long>> genderBuckets = AlgorithmHelper.bucketRoomsByGender(availableBedMap, currentRoomStudentMap);
-        Set<Long> emptyRoomIds = new HashSet<>();
-        for (Long roomId : availableBedMap.keySet()) {
-            if (!currentRoomStudentMap.containsKey(roomId) || currentRoomStudentMap.get(roomId).isEmpty()) {
-                emptyRoomIds.add(roomId);
-            }
+        // 6. 候选房间索引（稠密房间序号 + 性别位图），房间画像和硬约束等价类掩码按序号存放
+        CandidateRoomIndex rooms = CandidateRoomIndex.of(availableBedMap, currentRoomStudentMap);
+        List<List<StudentProfile>> roomProfiles = new ArrayList<>(rooms.roomCount());
+        long[] roomMasks = new long[rooms.roomCount()];
+        for (int r = 0; r < rooms.roomCount(); r++) {
+            roomProfiles.add(toProfiles(currentRoomStudentMap.getOrDefault(rooms.roomId(r), List.of()), kernel));
+            roomMasks[r] = ScoringKernel.classMask(roomProfiles.get(r));
         }
 
         // 7. 按聚类分配
@@ -376,34 +470,36 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
                             "正在分配第 " + processedCount + " 个学生"));
                 }
 
-                Set<Long> candidateRoomIds = AlgorithmHelper.getCandidateRoomIds(student.getGender(), genderBuckets);
+                if (budget.isExhausted()) {
+                    results.add(AlgorithmHelper.buildFail(student, budget.stopReason()));
+                    failedCount++;
+                    continue;
+                }
 
-                BedMatch bestMatch = findBestBedForCluster(
-                        student, clusterIds, candidateRoomIds, emptyRoomIds,
-                        availableBedMap, currentRoomStudentMap, config);
+                Integer gender = student.getGender();
+                StudentProfile profile = kernel.profile(student);
+                int room = findBestRoomForCluster(gender, profile, clusterIds, rooms, roomProfiles, roomMasks, kernel);
 
-                if (bestMatch != null && bestMatch.bed != null) {
-                    Bed bed = bestMatch.bed;
-                    Long roomId = bed.getRoomId();
-                    boolean wasEmpty = emptyRoomIds.contains(roomId);
+                if (room >= 0) {
+                    Long roomId = rooms.roomId(room);
+                    List<Bed> beds = availableBedMap.get(roomId);
+                    Bed bed = beds.remove(0);
 
-                    results.add(AlgorithmHelper.buildSuccess(student, bed, bestMatch.matchResult));
+                    // 只为最终选中的房间构建富匹配结果
+                    RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
+                            student, currentRoomStudentMap.getOrDefault(roomId, List.of()), config);
+                    results.add(AlgorithmHelper.buildSuccess(student, bed, matchResult));
                     successCount++;
 
-                    availableBedMap.get(roomId).remove(bed);
-                    if (availableBedMap.get(roomId).isEmpty()) {
+                    if (beds.isEmpty()) {
                         availableBedMap.remove(roomId);
-                        genderBuckets.values().forEach(set -> set.remove(roomId));
                     }
+                    rooms.occupy(room, gender);
                     currentRoomStudentMap.computeIfAbsent(roomId, r -> new ArrayList<>()).add(student);
-
-                    if (wasEmpty) {
-                        emptyRoomIds.remove(roomId);
-                        AlgorithmHelper.updateGenderBucket(roomId, student.getGender(), genderBuckets);
-                    }
+                    roomProfiles.get(room).add(profile);
+                    roomMasks[room] |= ScoringKernel.classMask(profile);
                 } else {
-                    results.add(AlgorithmHelper.buildFail(student,
-                            bestMatch != null ? bestMatch.failReason : "无可用床位"));
+                    results.add(AlgorithmHelper.buildFail(student, "没有符合条件的床位"));
                     failedCount++;
                 }
             }
@@ -418,208 +514,79 @@ public class KMeansAlgorithm implements AllocationAlgorithm {
         return results;
     }
 
+    private List<StudentProfile> toProfiles(List<Student> students, ScoringKernel kernel) {
+        List<StudentProfile> profiles = new ArrayList<>(students.size());
+        for (Student student : students) {
+            profiles.add(kernel.profile(student));
+        }
+        return profiles;
+    }
+
     // ==================== K-Means++ ====================
 
     /**
-     * 将学生生活习惯转换为向量
+     * K-Means 聚类（KMeans++ 初始化 + Hamerly 剪枝，k 较大时层次聚类）
      */
-    private double[] studentToVector(Student s) {
-        return new double[]{
-                normalize(s.getSmokingStatus(), 0, 1),
-                normalize(s.getSmokingTolerance(), 0, 1),
-                normalize(s.getSleepSchedule(), 0, 3),
-                normalize(s.getSleepQuality(), 0, 2),
-                normalize(s.getSnores(), 0, 1),
-                normalize(s.getSensitiveToLight(), 0, 1),
-                normalize(s.getSensitiveToSound(), 0, 1),
-                normalize(s.getCleanlinessLevel(), 1, 5),
-                normalize(s.getBedtimeCleanup(), 0, 3),
-                normalize(s.getSocialPreference(), 0, 2),
-                normalize(s.getAllowVisitors(), 0, 2),
-                normalize(s.getPhoneCallTime(), 0, 2),
-                normalize(s.getStudyInRoom(), 0, 3),
-                normalize(s.getStudyEnvironment(), 0, 3),
-                normalize(s.getComputerUsageTime(), 0, 3),
-                normalize(s.getGamingPreference(), 0, 2),
-                normalize(s.getMusicPreference(), 0, 2),
-                normalize(s.getMusicVolume(), 0, 2),
-                normalize(s.getEatInRoom(), 0, 2)
-        };
-    }
-
-    private double normalize(Integer value, int min, int max) {
-        if (value == null) return 0.5;
-        return max == min ? 0.5 : (double) (value - min) / (max - min);
+    private int[] kMeansClustering(List<Student> students, int k) {
+        return allocationExecutor.compute(() -> KMeansClusterer.cluster(
+                LifestyleVectors.of(students), LifestyleVectors.DIM, k, MAX_ITERATIONS, 42L));
     }
 
     /**
-     * K-Means 聚类（KMeans++ 初始化）
+     * 房间平均空床位数（至少为 1）
      */
-    private int[] kMeansClustering(List<double[]> vectors, int k) {
-        int n = vectors.size();
-        if (n == 0) return new int[0];
-        int dim = vectors.get(0).length;
-        k = Math.min(k, n); // k 不能超过样本数
-
-        int[] assignments = new int[n];
-        Random random = new Random(42);
-
-        // === K-Means++ 初始化 ===
-        double[][] centroids = new double[k][dim];
-        // 第一个中心随机选
-        centroids[0] = Arrays.copyOf(vectors.get(random.nextInt(n)), dim);
-
-        double[] minDistances = new double[n];
-        Arrays.fill(minDistances, Double.MAX_VALUE);
-
-        for (int c = 1; c < k; c++) {
-            // 更新到最近中心的距离
-            double totalDist = 0;
-            for (int i = 0; i < n; i++) {
-                double dist = squaredEuclideanDistance(vectors.get(i), centroids[c - 1]);
-                if (dist < minDistances[i]) {
-                    minDistances[i] = dist;
-                }
-                totalDist += minDistances[i];
-            }
-
-            // 按距离的平方加权随机选下一个中心
-            double threshold = random.nextDouble() * totalDist;
-            double cumulative = 0;
-            int selected = 0;
-            for (int i = 0; i < n; i++) {
-                cumulative += minDistances[i];
-                if (cumulative >= threshold) {
-                    selected = i;
-                    break;
-                }
-            }
-            centroids[c] = Arrays.copyOf(vectors.get(selected), dim);
-        }
-
-        // === 迭代 ===
-        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-            boolean changed = false;
-
-            // 分配
-            for (int i = 0; i < n; i++) {
-                int nearest = 0;
-                double minDist = Double.MAX_VALUE;
-                for (int c = 0; c < k; c++) {
-                    double dist = squaredEuclideanDistance(vectors.get(i), centroids[c]);
-                    if (dist < minDist) {
-                        minDist = dist;
-                        nearest = c;
-                    }
-                }
-                if (assignments[i] != nearest) {
-                    assignments[i] = nearest;
-                    changed = true;
-                }
-            }
-
-            if (!changed) break;
-
-            // 更新中心
-            int[] counts = new int[k];
-            double[][] sums = new double[k][dim];
-            for (int i = 0; i < n; i++) {
-                int c = assignments[i];
-                counts[c]++;
-                for (int d = 0; d < dim; d++) {
-                    sums[c][d] += vectors.get(i)[d];
-                }
-            }
-            for (int c = 0; c < k; c++) {
-                if (counts[c] > 0) {
-                    for (int d = 0; d < dim; d++) {
-                        centroids[c][d] = sums[c][d] / counts[c];
-                    }
-                }
-            }
-        }
-
-        return assignments;
-    }
-
-    private double squaredEuclideanDistance(double[] a, double[] b) {
-        double sum = 0;
-        for (int i = 0; i < a.length; i++) {
-            double diff = a[i] - b[i];
-            sum += diff * diff;
-        }
-        return sum;
+    private int averageFreeBeds(Map<Long, List<Bed>> roomBedMap) {
+        if (roomBedMap.isEmpty()) return 1;
+        int totalBeds = roomBedMap.values().stream().mapToInt(List::size).sum();
+        return Math.max(1, Math.round((float) totalBeds / roomBedMap.size()));
     }
 
     // ==================== 床位搜索 ====================
 
     /**
-     * 为聚类中的学生找最佳床位（性别分桶 + 同聚类加分 + 早停）
+     * 为聚类中的学生找最佳房间（空房间快速路径 + 同性别房间位图环绕迭代 + 同聚类加分 + 早停）
+     *
+     * @return 房间序号，没有可用房间时返回 -1
      */
-    private BedMatch findBestBedForCluster(
-            Student student,
+    private int findBestRoomForCluster(
+            Integer gender,
+            StudentProfile profile,
             Set<Long> clusterStudentIds,
-            Set<Long> candidateRoomIds,
-            Set<Long> emptyRoomIds,
-            Map<Long, List<Bed>> availableBedMap,
-            Map<Long, List<Student>> roomStudentMap,
-            AllocationConfig config) {
-
-        BedMatch bestMatch = null;
-        BigDecimal bestScore = BigDecimal.valueOf(-1);
+            CandidateRoomIndex rooms,
+            List<List<StudentProfile>> roomProfiles,
+            long[] roomMasks,
+            ScoringKernel kernel) {
 
         // 空房间快速路径
-        for (Long emptyRoomId : emptyRoomIds) {
-            if (candidateRoomIds.contains(emptyRoomId)) {
-                List<Bed> beds = availableBedMap.get(emptyRoomId);
-                if (beds != null && !beds.isEmpty()) {
-                    RoomMatchResult emptyResult = compatibilityService.calculateRoomCompatibility(
-                            student, List.of(), config);
-                    return new BedMatch(beds.get(0), emptyResult, null);
-                }
-            }
+        int emptyRoom = rooms.firstEmptyRoom();
+        if (emptyRoom >= 0) {
+            return emptyRoom;
         }
 
-        for (Long roomId : candidateRoomIds) {
-            List<Bed> beds = availableBedMap.get(roomId);
-            if (beds == null || beds.isEmpty()) continue;
-
-            List<Student> roommates = roomStudentMap.getOrDefault(roomId, List.of());
-            RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
-                    student, roommates, config);
-
-            if (Boolean.TRUE.equals(matchResult.getHasHardConflict())) continue;
+        int bestRoom = -1;
+        double bestScore = -1;
+        int start = rooms.scanStart(profile.studentId);
+        for (int room = rooms.firstOccupiedRoom(gender, start); room >= 0;
+             room = rooms.nextOccupiedRoom(gender, room, start)) {
+            if (kernel.excludes(profile, roomMasks[room])) continue;
+            List<StudentProfile> roommates = roomProfiles.get(room);
+            double score = kernel.roomScore(profile, roommates);
+            if (score == ScoringKernel.CONFLICT) continue;
 
             // 综合得分 = 匹配分 + 同聚类室友加分（O(1) Set.contains）
-            BigDecimal score = matchResult.getAvgScore();
-            long sameClusterCount = roommates.stream()
-                    .filter(s -> clusterStudentIds.contains(s.getId()))
-                    .count();
-            score = score.add(BigDecimal.valueOf(sameClusterCount * 5));
+            int sameClusterCount = 0;
+            for (int i = 0, n = roommates.size(); i < n; i++) {
+                if (clusterStudentIds.contains(roommates.get(i).studentId)) sameClusterCount++;
+            }
+            score += sameClusterCount * 5;
 
-            if (score.compareTo(bestScore) > 0) {
+            if (score > bestScore) {
                 bestScore = score;
-                bestMatch = new BedMatch(beds.get(0), matchResult, null);
+                bestRoom = room;
 
-                if (bestScore.compareTo(EARLY_STOP_SCORE) >= 0) break;
+                if (bestScore >= EARLY_STOP_SCORE) break;
             }
         }
-
-        if (bestMatch == null) {
-            return new BedMatch(null, null, "没有符合条件的床位");
-        }
-        return bestMatch;
-    }
-
-    private static class BedMatch {
-        Bed bed;
-        RoomMatchResult matchResult;
-        String failReason;
-
-        BedMatch(Bed bed, RoomMatchResult matchResult, String failReason) {
-            this.bed = bed;
-            this.matchResult = matchResult;
-            this.failReason = failReason;
-        }
+        return bestRoom;
     }
 }
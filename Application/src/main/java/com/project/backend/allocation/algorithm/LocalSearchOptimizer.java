@@ -0,0 +1,373 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.AllocationAlgorithm.AllocationProgress;
+import com.project.backend.allocation.algorithm.kernel.RoomAssignmentState;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.algorithm.model.RoomMatchResult;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 局部搜索后优化
+ * 在任意算法的分配结果上继续做改进移动（爬山），只接受总分提高且不增加硬约束冲突的移动：
+ * <ul>
+ *     <li>两两交换：两个不同房间的同性别学生互换</li>
+ *     <li>三元轮换：a→b 的房间、b→c 的房间、c→a 的房间（拆成两次交换评估，不改善则撤销）</li>
+ *     <li>移动：有空床位时把学生移到另一个房间</li>
+ * </ul>
+ * 房间按现有成员性别分桶，每个性别桶再按房间切成若干分片，分片在共享计算池中并行搜索；
+ * 第二轮错开分片边界，让跨分片的交换也有机会。评分使用 {@link RoomAssignmentState} 的增量评分，
+ * 达到迭代上限、连续无改进或运行预算用完时停止。只有成员变化的房间重新计算匹配结果，其余结果原样返回。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalSearchOptimizer {
+
+    private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
+
+    /** 每个分片的目标学生数 */
+    private static final int PARTITION_STUDENTS = 10_000;
+    /** 搜索轮数（每轮错开分片边界） */
+    private static final int ROUNDS = 2;
+    /** 每个学生的尝试次数 */
+    private static final long ATTEMPTS_PER_STUDENT = 50;
+    /** 单个分片的尝试次数上限 */
+    private static final long MAX_ATTEMPTS = 2_000_000;
+    /** 连续无改进的尝试次数达到 学生数 × STALL_PER_STUDENT 时提前结束 */
+    private static final int STALL_PER_STUDENT = 20;
+    /** 预算检查间隔（尝试次数） */
+    private static final int BUDGET_CHECK_INTERVAL = 1_000;
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * 后优化
+     *
+     * @param results          算法输出的分配结果
+     * @param students         待分配学生
+     * @param roomBedMap       房间ID -> 可用床位
+     * @param roomStudentMap   房间ID -> 现有学生
+     * @param config           分配配置
+     * @param budget           运行预算
+     * @param progressCallback 进度回调
+     * @return 优化后的结果（顺序与输入一致）
+     */
+    public List<AllocationResultDTO> optimize(
+            List<AllocationResultDTO> results,
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            Consumer<AllocationProgress> progressCallback) {
+
+        if (budget.isExhausted()) return results;
+
+        Map<Long, Student> studentById = AlgorithmHelper.buildStudentMap(students);
+        List<AllocationResultDTO> current = new ArrayList<>(results);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+        int changedRooms = 0;
+
+        for (int round = 0; round < ROUNDS && !budget.isExhausted(); round++) {
+            List<Segment> segments = segment(current, studentById, roomBedMap, roomStudentMap, round);
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(results.size(), 0, 0, 0,
+                        String.format("局部搜索后优化第 %d 轮，%d 个分片", round + 1, segments.size())));
+            }
+
+            List<Replacement> replacements;
+            try {
+                replacements = allocationExecutor.invokePartitions(segments,
+                        s -> search(s, kernel, config, budget));
+            } catch (Exception e) {
+                log.error("局部搜索后优化失败，保留原结果", e);
+                return current;
+            }
+            for (Replacement replacement : replacements) {
+                current.set(replacement.index, replacement.result);
+            }
+            int roundChanged = segments.stream().mapToInt(s -> s.changedRooms).sum();
+            changedRooms += roundChanged;
+            if (roundChanged == 0) break;
+        }
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(results.size(), results.size(), 0, 0,
+                    String.format("局部搜索后优化完成，调整房间 %d 次", changedRooms)));
+        }
+        log.info("局部搜索后优化完成，调整房间 {} 次", changedRooms);
+        return current;
+    }
+
+    // ==================== 分片 ====================
+
+    /**
+     * 分片：已分配学生（及其房间）按房间性别分桶，桶内按房间顺序切分；空房间轮流分给各分片
+     */
+    private List<Segment> segment(List<AllocationResultDTO> results,
+                                  Map<Long, Student> studentById,
+                                  Map<Long, List<Bed>> roomBedMap,
+                                  Map<Long, List<Student>> roomStudentMap,
+                                  int round) {
+        Map<Long, List<Integer>> placedByRoom = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            AllocationResultDTO dto = results.get(i);
+            if (dto.getBedId() != null && roomBedMap.containsKey(dto.getRoomId())
+                    && studentById.containsKey(dto.getStudentId())) {
+                placedByRoom.computeIfAbsent(dto.getRoomId(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // 房间性别取第一个成员（现有学生优先）
+        Map<Integer, List<Long>> roomsByGender = new TreeMap<>();
+        List<Long> emptyRooms = new ArrayList<>();
+        for (Long roomId : roomBedMap.keySet()) {
+            List<Student> existing = roomStudentMap.getOrDefault(roomId, List.of());
+            List<Integer> placed = placedByRoom.getOrDefault(roomId, List.of());
+            Student first = !existing.isEmpty() ? existing.get(0)
+                    : !placed.isEmpty() ? studentById.get(results.get(placed.get(0)).getStudentId()) : null;
+            if (first == null) {
+                emptyRooms.add(roomId);
+            } else {
+                roomsByGender.computeIfAbsent(first.getGender() != null ? first.getGender() : 0,
+                        k -> new ArrayList<>()).add(roomId);
+            }
+        }
+
+        List<List<Long>> chunks = new ArrayList<>();
+        for (List<Long> rooms : roomsByGender.values()) {
+            int studentCount = 0;
+            for (Long roomId : rooms) {
+                studentCount += placedByRoom.getOrDefault(roomId, List.of()).size();
+            }
+            int chunkCount = Math.max(1, (studentCount + PARTITION_STUDENTS - 1) / PARTITION_STUDENTS);
+            int chunkSize = (rooms.size() + chunkCount - 1) / chunkCount;
+            // 第二轮起把房间列表旋转半个分片，使分片边界错开
+            int offset = chunkCount > 1 ? (round * chunkSize / 2) % rooms.size() : 0;
+            List<Long> rotated = new ArrayList<>(rooms.subList(offset, rooms.size()));
+            rotated.addAll(rooms.subList(0, offset));
+            for (int from = 0; from < rotated.size(); from += chunkSize) {
+                chunks.add(rotated.subList(from, Math.min(from + chunkSize, rotated.size())));
+            }
+        }
+        if (chunks.isEmpty()) return List.of();
+
+        List<List<Long>> chunkRooms = new ArrayList<>();
+        for (List<Long> chunk : chunks) {
+            chunkRooms.add(new ArrayList<>(chunk));
+        }
+        for (int i = 0; i < emptyRooms.size(); i++) {
+            chunkRooms.get(i % chunkRooms.size()).add(emptyRooms.get(i));
+        }
+
+        List<Segment> segments = new ArrayList<>(chunkRooms.size());
+        for (List<Long> rooms : chunkRooms) {
+            Segment segment = new Segment();
+            for (Long roomId : rooms) {
+                segment.roomBedMap.put(roomId, roomBedMap.get(roomId));
+                List<Student> existing = roomStudentMap.get(roomId);
+                if (existing != null && !existing.isEmpty()) segment.roomStudentMap.put(roomId, existing);
+                for (int index : placedByRoom.getOrDefault(roomId, List.of())) {
+                    AllocationResultDTO dto = results.get(index);
+                    segment.students.add(studentById.get(dto.getStudentId()));
+                    segment.roomOf.add(dto.getRoomId());
+                    segment.indexes.add(index);
+                }
+            }
+            if (segment.students.size() >= 2) segments.add(segment);
+        }
+        return segments;
+    }
+
+    // ==================== 搜索 ====================
+
+    /**
+     * 在一个分片内爬山，返回成员变化的房间的新结果
+     */
+    private List<Replacement> search(Segment segment, ScoringKernel kernel,
+                                     AllocationConfig config, AllocationBudget budget) {
+        AnnealingProblem problem = AnnealingProblem.fromAssignment(
+                segment.students, segment.roomOf, segment.roomBedMap, segment.roomStudentMap, kernel);
+        RoomAssignmentState state = problem.initialState.copy();
+        int[] initialRoomOf = state.snapshotAssignment();
+
+        // 同性别学生序号表（交换和轮换只在同性别学生之间进行）
+        Map<Integer, List<Integer>> byGender = new HashMap<>();
+        for (int k = 0; k < problem.assignedCount; k++) {
+            byGender.computeIfAbsent(genderOf(segment, problem.assigned[k]), g -> new ArrayList<>())
+                    .add(problem.assigned[k]);
+        }
+        Map<Integer, int[]> peerArrays = new HashMap<>();
+        byGender.forEach((gender, ordinals) ->
+                peerArrays.put(gender, ordinals.stream().mapToInt(Integer::intValue).toArray()));
+        int[][] peers = new int[problem.assignedCount][];
+        for (int k = 0; k < problem.assignedCount; k++) {
+            peers[k] = peerArrays.get(genderOf(segment, problem.assigned[k]));
+        }
+
+        SplittableRandom random = new SplittableRandom(segment.students.size() * 31L + problem.assignedCount);
+        boolean allowMoves = problem.hasFreeSlots();
+        int roomCount = state.roomCount();
+        long maxAttempts = Math.min((long) problem.assignedCount * ATTEMPTS_PER_STUDENT, MAX_ATTEMPTS);
+        long stallLimit = (long) problem.assignedCount * STALL_PER_STUDENT;
+        long sinceImprovement = 0;
+
+        for (long attempt = 0; attempt < maxAttempts && sinceImprovement < stallLimit; attempt++) {
+            if (attempt % BUDGET_CHECK_INTERVAL == 0 && budget.isExhausted()) break;
+
+            int k = random.nextInt(problem.assignedCount);
+            int a = problem.assigned[k];
+            int[] group = peers[k];
+            int move = random.nextInt(10);
+            boolean improved;
+            if (allowMoves && move == 0) {
+                improved = tryMove(state, a, random.nextInt(roomCount));
+            } else if (move <= 2 && group.length >= 3) {
+                improved = tryCycle(state, a, group[random.nextInt(group.length)], group[random.nextInt(group.length)]);
+            } else {
+                improved = trySwap(state, a, group[random.nextInt(group.length)]);
+            }
+            sinceImprovement = improved ? 0 : sinceImprovement + 1;
+        }
+
+        return replacements(segment, problem, state, initialRoomOf, config);
+    }
+
+    private boolean trySwap(RoomAssignmentState state, int a, int b) {
+        double delta = state.evaluateSwap(a, b);
+        int conflictDelta = state.pendingConflictDelta();
+        if (accept(delta, conflictDelta)) {
+            state.applyPending();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean tryMove(RoomAssignmentState state, int a, int room) {
+        double delta = state.evaluateMove(a, room);
+        int conflictDelta = state.pendingConflictDelta();
+        if (accept(delta, conflictDelta)) {
+            state.applyPending();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 三元轮换 a→B、b→C、c→A：先交换 a、b，再交换 b、c；合计不改善时把第一次交换换回来
+     */
+    private boolean tryCycle(RoomAssignmentState state, int a, int b, int c) {
+        int roomA = state.roomOf(a);
+        int roomB = state.roomOf(b);
+        int roomC = state.roomOf(c);
+        if (roomA == roomB || roomB == roomC || roomA == roomC) return false;
+
+        double first = state.evaluateSwap(a, b);
+        int firstConflicts = state.pendingConflictDelta();
+        state.applyPending();
+        double second = state.evaluateSwap(b, c);
+        int secondConflicts = state.pendingConflictDelta();
+        if (accept(first + second, firstConflicts + secondConflicts)) {
+            state.applyPending();
+            return true;
+        }
+        state.evaluateSwap(a, b);
+        state.applyPending();
+        return false;
+    }
+
+    private int genderOf(Segment segment, int ordinal) {
+        Integer gender = segment.students.get(ordinal).getGender();
+        return gender != null ? gender : 0;
+    }
+
+    /**
+     * 冲突减少，或冲突不变且总分提高
+     */
+    private boolean accept(double delta, int conflictDelta) {
+        return conflictDelta < 0 || (conflictDelta == 0 && delta > EPSILON);
+    }
+
+    // ==================== 结果转换 ====================
+
+    /**
+     * 成员变化的房间按可用床位顺序重新入住并重新计算匹配结果
+     */
+    private List<Replacement> replacements(Segment segment, AnnealingProblem problem, RoomAssignmentState state,
+                                           int[] initialRoomOf, AllocationConfig config) {
+        Set<Integer> changed = new HashSet<>();
+        for (int i = 0; i < initialRoomOf.length; i++) {
+            int room = state.roomOf(i);
+            if (room != initialRoomOf[i]) {
+                changed.add(room);
+                changed.add(initialRoomOf[i]);
+            }
+        }
+        changed.remove(RoomAssignmentState.UNASSIGNED);
+        segment.changedRooms = changed.size();
+        if (changed.isEmpty()) return List.of();
+
+        Map<Integer, List<Integer>> membersOf = new HashMap<>();
+        for (int i = 0; i < initialRoomOf.length; i++) {
+            int room = state.roomOf(i);
+            if (changed.contains(room)) membersOf.computeIfAbsent(room, r -> new ArrayList<>()).add(i);
+        }
+
+        List<Replacement> replacements = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : membersOf.entrySet()) {
+            Long roomId = problem.roomIds.get(entry.getKey());
+            List<Bed> beds = segment.roomBedMap.get(roomId);
+            List<Student> occupants = new ArrayList<>(segment.roomStudentMap.getOrDefault(roomId, List.of()));
+            for (int i : entry.getValue()) {
+                occupants.add(segment.students.get(i));
+            }
+
+            List<Integer> members = entry.getValue();
+            for (int m = 0; m < members.size(); m++) {
+                int i = members.get(m);
+                Student student = segment.students.get(i);
+                List<Student> roommates = new ArrayList<>(occupants);
+                roommates.remove(student);
+                RoomMatchResult match = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+                AllocationResultDTO result = AlgorithmHelper.buildSuccess(student, beds.get(m), match);
+                if (Boolean.TRUE.equals(match.getHasHardConflict())) {
+                    result.setSuccess(false);
+                    result.setFailReason(match.getHardConflictReason());
+                }
+                replacements.add(new Replacement(segment.indexes.get(i), result));
+            }
+        }
+        return replacements;
+    }
+
+    // ==================== 内部类型 ====================
+
+    /**
+     * 分片：一组房间及其中已分配的学生（学生序号与 indexes/previous 对应）
+     */
+    private static final class Segment {
+        final List<Student> students = new ArrayList<>();
+        final List<Long> roomOf = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+        final Map<Long, List<Bed>> roomBedMap = new LinkedHashMap<>();
+        final Map<Long, List<Student>> roomStudentMap = new HashMap<>();
+        /** 本轮成员变化的房间数 */
+        volatile int changedRooms;
+    }
+
+    private record Replacement(int index, AllocationResultDTO result) {
+    }
+}
@@ -0,0 +1,368 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.MinCostFlow;
+import com.project.backend.allocation.algorithm.kernel.RoomAssignmentState;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 最优分配算法（最小费用流）
+ * 策略：按轮次填充房间，每轮每个有空床位的房间开放一个槽位，
+ * 以"学生 -> 房间槽位"的最小费用最大流精确求解本轮指派；费用 = 满分 - 与房间当前成员（含现有学生与前几轮入住者）的平均匹配分。
+ * 每轮内同一房间最多入住一人，因此空房间不会在同一轮混入不同性别。
+ * 优化：稀疏候选边（每个学生只连接匹配分最高的若干房间）+ 空房间合并为一个池节点 + 原始类型匹配内核；
+ * 结束时与作为起点的贪心初始解在同一目标函数下对比，报告相对提升（并非与理论最优解的差距）
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OptimalAssignmentAlgorithm implements AllocationAlgorithm {
+
+    private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
+
+    /** 每个学生连接的非空候选房间数 */
+    private static final int CANDIDATE_ROOMS = 24;
+    /** 费用放大倍数，低位用于空房间的独特性决胜（难匹配的学生优先占据空房间） */
+    private static final int TIE_SCALE = 64;
+
+    @Override
+    public String getAlgorithmType() {
+        return "optimal";
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "最优分配算法";
+    }
+
+    @Override
+    public String getDescription() {
+        return "按轮次将学生指派到房间槽位，每轮以最小费用流求出精确最优解";
+    }
+
+    @Override
+    public String getAdvantages() {
+        return "每轮指派全局最优，结果可复现，并报告相对贪心初始解的得分提升";
+    }
+
+    @Override
+    public String getDisadvantages() {
+        return "计算量随人数平方增长，适合单个学院、调宿批次等数千人以内的场景";
+    }
+
+    @Override
+    public String getEstimatedTime(int studentCount) {
+        if (studentCount <= 500) return "约1-3秒";
+        if (studentCount <= 5000) return "约5-30秒";
+        if (studentCount <= 50000) return "约2-10分钟";
+        return "约10分钟以上，建议使用其他算法";
+    }
+
+    @Override
+    public boolean isRecommended() {
+        return false;
+    }
+
+    @Override
+    public List<AllocationResultDTO> allocate(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int tier = AlgorithmHelper.determineTier(getAlgorithmType(), students.size());
+        log.info("最优分配开始，学生数：{}，房间数：{}，使用 Tier {}", students.size(), roomBedMap.size(), tier);
+
+        ScoringKernel kernel = ScoringKernel.compile(config);
+        if (tier >= 2) {
+            return allocatePartitioned(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
+        }
+
+        return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
+    }
+
+    /**
+     * Tier 2/3: 分片并行分配
+     */
+    private List<AllocationResultDTO> allocatePartitioned(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            Consumer<AllocationProgress> progressCallback) {
+
+        List<AlgorithmHelper.Partition> partitions = AlgorithmHelper.partitionStudentsAndRooms(
+                students, roomBedMap, roomStudentMap);
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    students.size(), 0, 0, 0,
+                    String.format("已分为 %d 个分片，开始并行执行", partitions.size())));
+        }
+
+        // 各分片提交到共享的分配计算池并行执行
+        try {
+            List<AllocationResultDTO> allResults = allocationExecutor.invokePartitions(partitions,
+                    p -> allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, budget, kernel, null));
+
+            int success = (int) allResults.stream().filter(AllocationResultDTO::isSuccess).count();
+            int failed = allResults.size() - success;
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(
+                        students.size(), students.size(), success, failed, "分片并行执行完成"));
+            }
+            return allResults;
+        } catch (Exception e) {
+            log.error("分片并行执行失败，回退到单线程", e);
+            return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel, progressCallback);
+        }
+    }
+
+    /**
+     * Tier 1: 逐轮最小费用流指派
+     */
+    private List<AllocationResultDTO> allocateDirect(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int totalStudents = students.size();
+
+        // 1. 稠密模型（同时得到贪心启发式解，作为差距对比基准）
+        AnnealingProblem problem = AnnealingProblem.build(students, roomBedMap, roomStudentMap, kernel);
+        RoomAssignmentState state = problem.baseState.copy();
+
+        int[] tieBreak = new int[totalStudents];
+        for (int i = 0; i < totalStudents; i++) {
+            tieBreak[i] = TIE_SCALE - 1 - Math.min(TIE_SCALE - 1, AnnealingProblem.getDistinctivenessScore(students.get(i)));
+        }
+
+        // 2. 逐轮求解：每轮每个有空床位的房间开放一个槽位
+        int[] pending = new int[totalStudents];
+        for (int i = 0; i < totalStudents; i++) pending[i] = i;
+        int pendingCount = totalStudents;
+        int round = 0;
+
+        boolean stopped = false;
+        while (pendingCount > 0) {
+            if (budget.isExhausted()) {
+                stopped = true;
+                break;
+            }
+            round++;
+            int placed = solveRound(state, pending, pendingCount, tieBreak);
+            if (placed == 0) break;
+
+            // 压缩未分配列表
+            int kept = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                if (state.roomOf(pending[i]) == RoomAssignmentState.UNASSIGNED) {
+                    pending[kept++] = pending[i];
+                }
+            }
+            pendingCount = kept;
+
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(
+                        totalStudents, totalStudents - pendingCount, 0, 0,
+                        String.format("第 %d 轮指派完成，本轮入住 %d 人，剩余 %d 人", round, placed, pendingCount)));
+            }
+        }
+
+        // 预算耗尽（取消/超时）：逐轮指派尚未完成，返回已完整的贪心启发式解
+        if (stopped) {
+            log.info("最优分配提前结束（{}），已完成 {} 轮，使用贪心启发式解", budget.stopReason(), round);
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(
+                        totalStudents, totalStudents, 0, 0,
+                        String.format("%s，已完成 %d 轮，使用贪心启发式解", budget.stopReason(), round)));
+            }
+            return problem.toResults(problem.initialState.snapshotAssignment(), compatibilityService, config, progressCallback);
+        }
+
+        if (pendingCount > 0) {
+            int repaired = repairUnplaced(state, pending, pendingCount);
+            pendingCount -= repaired;
+            log.info("最优分配修复未分配学生：{} 人，仍未分配：{} 人", repaired, pendingCount);
+        }
+
+        // 3. 与贪心初始解在同一目标函数（房间得分之和）下对比（贪心解不是上界，只衡量相对提升）
+        double optimalScore = state.totalScore();
+        double heuristicScore = problem.initialState.totalScore();
+        double improvement = heuristicScore != 0 ? (optimalScore - heuristicScore) / Math.abs(heuristicScore) * 100 : 0;
+        log.info("最优分配完成，轮次：{}，未分配：{}，目标得分：{}，贪心初始解：{}，相对提升：{}%",
+                round, pendingCount, String.format("%.2f", optimalScore),
+                String.format("%.2f", heuristicScore), String.format("%+.2f", improvement));
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    totalStudents, totalStudents, 0, 0,
+                    String.format("最优分配完成，目标得分: %.2f，贪心初始解: %.2f，相对提升: %+.2f%%",
+                            optimalScore, heuristicScore, improvement)));
+        }
+
+        // 4. 转换结果
+        return problem.toResults(state.snapshotAssignment(), compatibilityService, config, progressCallback);
+    }
+
+    /**
+     * 求解一轮指派：源点 -> 学生（容量1）-> 房间（容量1，费用=满分-平均匹配分）-> 汇点（容量1）。
+     * 空房间对任何学生的得分都是 100，彼此等价，合并为一个容量为空房间数的"空房间池"节点
+     *
+     * @return 本轮入住人数
+     */
+    private int solveRound(RoomAssignmentState state, int[] pending, int pendingCount, int[] tieBreak) {
+        int roomCount = state.roomCount();
+
+        // 本轮开放的房间：有空槽位的非空房间各一个节点，空房间合并为一个池节点
+        int[] openRooms = new int[roomCount];
+        int[] roomNode = new int[roomCount];
+        int openCount = 0;
+        List<Integer> emptyRooms = new ArrayList<>();
+        for (int r = 0; r < roomCount; r++) {
+            if (state.freeSlots(r) <= 0) continue;
+            if (state.roomSize(r) == 0) {
+                emptyRooms.add(r);
+                continue;
+            }
+            roomNode[r] = 2 + pendingCount + openCount;
+            openRooms[openCount++] = r;
+        }
+        if (openCount == 0 && emptyRooms.isEmpty()) return 0;
+
+        int source = 0, sink = 1;
+        int poolNode = 2 + pendingCount + openCount;
+        MinCostFlow flow = new MinCostFlow(3 + pendingCount + openCount,
+                pendingCount * (CANDIDATE_ROOMS + 2) + openCount + 1);
+
+        int[] edgeStudent = new int[pendingCount * (CANDIDATE_ROOMS + 1)];
+        int[] edgeRoom = new int[edgeStudent.length];
+        int[] edgeId = new int[edgeStudent.length];
+        int edgeCount = 0;
+        long[] candidates = new long[openCount];
+
+        for (int i = 0; i < pendingCount; i++) {
+            int student = pending[i];
+            int studentNode = 2 + i;
+            flow.addEdge(source, studentNode, 1, 0);
+
+            // 非空房间：同性别、无硬冲突，费用 = 满分 - 平均匹配分（百分位整数），只保留最优的若干条
+            int gender = state.profile(student).gender;
+            int candidateCount = 0;
+            for (int k = 0; k < openCount; k++) {
+                int r = openRooms[k];
+                if (state.profile(state.member(r, 0)).gender != gender) continue;
+                if (state.excludes(student, r)) continue;
+                long sum = state.contributionTo(student, r);
+                if (state.lastConflicts() > 0) continue;
+                long points = Math.min(sum / state.roomSize(r), ScoringKernel.MAX_POINTS);
+                long cost = (ScoringKernel.MAX_POINTS - points) * TIE_SCALE;
+                candidates[candidateCount++] = (cost << 32) | r;
+            }
+            Arrays.sort(candidates, 0, candidateCount);
+            for (int k = 0; k < Math.min(candidateCount, CANDIDATE_ROOMS); k++) {
+                int r = (int) candidates[k];
+                edgeStudent[edgeCount] = student;
+                edgeRoom[edgeCount] = r;
+                edgeId[edgeCount++] = flow.addEdge(studentNode, roomNode[r], 1, candidates[k] >>> 32);
+            }
+
+            // 空房间池：得分 100，低位用独特性决胜
+            if (!emptyRooms.isEmpty()) {
+                edgeStudent[edgeCount] = student;
+                edgeRoom[edgeCount] = RoomAssignmentState.UNASSIGNED;
+                edgeId[edgeCount++] = flow.addEdge(studentNode, poolNode, 1, tieBreak[student]);
+            }
+        }
+        for (int k = 0; k < openCount; k++) {
+            flow.addEdge(roomNode[openRooms[k]], sink, 1, 0);
+        }
+        if (!emptyRooms.isEmpty()) {
+            flow.addEdge(poolNode, sink, emptyRooms.size(), 0);
+        }
+
+        flow.solve(source, sink, Integer.MAX_VALUE);
+
+        int placed = 0;
+        int nextEmpty = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (flow.flow(edgeId[e]) > 0) {
+                int room = edgeRoom[e] != RoomAssignmentState.UNASSIGNED ? edgeRoom[e] : emptyRooms.get(nextEmpty++);
+                state.place(edgeStudent[e], room);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * 对仍未分配的学生做一次"挤出"修复：把某个已入住学生 t 移到另一个有空槽位的房间，
+     * 让出的位置给未分配学生 s（双方都不产生硬冲突）
+     *
+     * @return 修复成功的人数
+     */
+    private int repairUnplaced(RoomAssignmentState state, int[] pending, int pendingCount) {
+        int repaired = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            if (tryEject(state, pending[i])) repaired++;
+        }
+        return repaired;
+    }
+
+    private boolean tryEject(RoomAssignmentState state, int student) {
+        int gender = state.profile(student).gender;
+        int roomCount = state.roomCount();
+        for (int q = 0; q < roomCount; q++) {
+            int size = state.roomSize(q);
+            if (size == 0 || state.profile(state.member(q, 0)).gender != gender) continue;
+            // 移出再放回会改变房间槽位顺序，按成员快照遍历，避免跳过被换位的成员
+            int[] members = new int[size];
+            for (int idx = 0; idx < size; idx++) {
+                members[idx] = state.member(q, idx);
+            }
+            for (int t : members) {
+                if (t >= state.movableCount()) continue; // 房间现有学生不可移动
+                state.remove(t);
+                state.contributionTo(student, q);
+                if (state.lastConflicts() == 0) {
+                    for (int r = 0; r < roomCount; r++) {
+                        if (r == q || state.freeSlots(r) <= 0) continue;
+                        if (state.roomSize(r) > 0 && state.profile(state.member(r, 0)).gender != state.profile(t).gender) {
+                            continue;
+                        }
+                        state.contributionTo(t, r);
+                        if (state.lastConflicts() == 0) {
+                            state.place(t, r);
+                            state.place(student, q);
+                            return true;
+                        }
+                    }
+                }
+                state.place(t, q);
+            }
+        }
+        return false;
+    }
+}
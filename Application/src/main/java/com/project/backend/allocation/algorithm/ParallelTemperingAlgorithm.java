@@ -0,0 +1,247 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.CompatibilityService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * 并行回火退火算法（Parallel Tempering / Replica Exchange）
+ * 策略：在同一份不可变问题模型上并行运行多条退火链，每条链固定在温度阶梯的一级上，
+ * 定期在相邻温度之间按 Metropolis 准则交换温度，最终取所有链见过的最优解。
+ * 优化：每条链独立的增量评分状态 + 确定性种子随机数；分片按顺序执行，每个分片占满全部核心，
+ * 单一性别的大批量学生也能用上所有 CPU
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ParallelTemperingAlgorithm implements AllocationAlgorithm {
+
+    private final CompatibilityService compatibilityService;
+    private final AllocationExecutor allocationExecutor;
+
+    // 并行回火参数
+    /** 温度阶梯最高温度 */
+    private static final double MAX_TEMPERATURE = 2.0;
+    /** 温度阶梯最低温度 */
+    private static final double MIN_TEMPERATURE = 0.1;
+    /** 链数量下限（核心数不足时仍保留回火交换） */
+    private static final int MIN_CHAINS = 2;
+    /** 每轮各链独立执行的步数，轮与轮之间进行温度交换 */
+    private static final int EXCHANGE_INTERVAL = 1_000;
+    /** 每条链每个学生的迭代预算 */
+    private static final long SWAPS_PER_STUDENT = 200;
+    /** 每条链迭代总预算上限 */
+    private static final long MAX_SWAPS = 5_000_000;
+    /** 随机种子（保证结果可复现） */
+    private static final long SEED = 42L;
+    /** 进度报告间隔（轮数） */
+    private static final int PROGRESS_INTERVAL = 50;
+
+    @Override
+    public String getAlgorithmType() {
+        return "parallel_annealing";
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "并行回火算法";
+    }
+
+    @Override
+    public String getDescription() {
+        return "多条退火链在不同温度下并行搜索，并定期交换温度，兼顾全局探索与局部精修";
+    }
+
+    @Override
+    public String getAdvantages() {
+        return "充分利用多核CPU，同等时间内搜索量成倍增加，结果稳定可复现";
+    }
+
+    @Override
+    public String getDisadvantages() {
+        return "占用全部CPU核心，内存占用随链数增加";
+    }
+
+    @Override
+    public String getEstimatedTime(int studentCount) {
+        if (studentCount <= 500) return "约5-15秒";
+        if (studentCount <= 5000) return "约15-30秒";
+        if (studentCount <= 50000) return "约30-90秒";
+        if (studentCount <= 200000) return "约2-5分钟";
+        return "约5-10分钟";
+    }
+
+    @Override
+    public boolean isRecommended() {
+        return false;
+    }
+
+    @Override
+    public List<AllocationResultDTO> allocate(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int tier = AlgorithmHelper.determineTier(getAlgorithmType(), students.size());
+        int chainCount = Math.max(MIN_CHAINS, allocationExecutor.getParallelism());
+        log.info("并行回火分配开始，学生数：{}，房间数：{}，链数：{}，使用 Tier {}",
+                students.size(), roomBedMap.size(), chainCount, tier);
+
+        ScoringKernel kernel = ScoringKernel.compile(config);
+        if (tier < 2) {
+            return allocateDirect(students, roomBedMap, roomStudentMap, config, budget, kernel,
+                    chainCount, false, progressCallback);
+        }
+
+        // Tier 2/3: 分片按顺序执行，每个分片内部用满分配计算池的并行度
+        List<AlgorithmHelper.Partition> partitions = AlgorithmHelper.partitionStudentsAndRooms(
+                students, roomBedMap, roomStudentMap);
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    students.size(), 0, 0, 0,
+                    String.format("已分为 %d 个分片，逐个分片并行回火", partitions.size())));
+        }
+
+        List<AllocationResultDTO> allResults = new ArrayList<>(students.size());
+        for (AlgorithmHelper.Partition p : partitions) {
+            allResults.addAll(allocateDirect(p.students, p.roomBedMap, p.roomStudentMap, config, budget, kernel,
+                    chainCount, tier == 3, null));
+            int success = (int) allResults.stream().filter(AllocationResultDTO::isSuccess).count();
+            if (progressCallback != null) {
+                progressCallback.accept(new AllocationProgress(
+                        students.size(), allResults.size(), success, allResults.size() - success,
+                        String.format("分片 %s 完成", p.gender)));
+            }
+        }
+        return allResults;
+    }
+
+    /**
+     * 单个问题模型上的并行回火
+     * useIndex 为 true 时（Tier 3 分片）初始解由室友候选索引生成候选房间
+     */
+    private List<AllocationResultDTO> allocateDirect(
+            List<Student> students,
+            Map<Long, List<Bed>> roomBedMap,
+            Map<Long, List<Student>> roomStudentMap,
+            AllocationConfig config,
+            AllocationBudget budget,
+            ScoringKernel kernel,
+            int chainCount,
+            boolean useIndex,
+            Consumer<AllocationProgress> progressCallback) {
+
+        int totalStudents = students.size();
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(totalStudents, 0, 0, 0, "正在生成初始解"));
+        }
+
+        // 1. 构建共享的不可变问题模型 + 初始解
+        AnnealingProblem problem = AnnealingProblem.build(students, roomBedMap, roomStudentMap, kernel, useIndex);
+
+        // 2. 温度阶梯（几何分布，下标 0 为最低温），每条链一个独立的种子随机数
+        SplittableRandom master = new SplittableRandom(SEED);
+        AnnealingChain[] ladder = new AnnealingChain[chainCount];
+        double ratio = Math.pow(MAX_TEMPERATURE / MIN_TEMPERATURE, 1.0 / (chainCount - 1));
+        for (int i = 0; i < chainCount; i++) {
+            ladder[i] = new AnnealingChain(problem, master.split(), MIN_TEMPERATURE * Math.pow(ratio, i));
+        }
+
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    totalStudents, 0, 0, 0,
+                    String.format("初始解得分: %.2f，%d 条链开始并行回火", ladder[0].bestScore(), chainCount)));
+        }
+
+        if (problem.assignedCount < 2) {
+            return problem.toResults(ladder[0].bestAssignment(), compatibilityService, config, progressCallback);
+        }
+
+        // 3. 主循环：各链并行推进 EXCHANGE_INTERVAL 步，然后交替尝试相邻温度交换
+        long maxSwaps = Math.min((long) totalStudents * SWAPS_PER_STUDENT, MAX_SWAPS);
+        int rounds = (int) Math.max(1, maxSwaps / EXCHANGE_INTERVAL);
+        int accepted = 0, attempted = 0;
+
+        for (int round = 1; round <= rounds; round++) {
+            if (budget.isExhausted()) {
+                log.info("并行回火提前结束（{}），轮次：{}/{}，使用当前最优解", budget.stopReason(), round - 1, rounds);
+                break;
+            }
+            try {
+                allocationExecutor.invoke(() -> IntStream.range(0, chainCount).parallel()
+                        .forEach(i -> ladder[i].run(EXCHANGE_INTERVAL)));
+            } catch (Exception e) {
+                log.error("并行回火执行失败，提前结束并使用当前最优解", e);
+                break;
+            }
+
+            for (int i = round % 2; i + 1 < chainCount; i += 2) {
+                attempted++;
+                if (tryExchange(ladder, i, master)) accepted++;
+            }
+
+            if (progressCallback != null && round % PROGRESS_INTERVAL == 0) {
+                progressCallback.accept(new AllocationProgress(
+                        totalStudents, (int) ((long) totalStudents * round / rounds), 0, 0,
+                        String.format("优化中... 轮次: %d/%d, 最优得分: %.2f, 交换接受率: %.0f%%",
+                                round, rounds, best(ladder).bestScore(), 100.0 * accepted / attempted)));
+            }
+        }
+
+        AnnealingChain best = best(ladder);
+        log.info("并行回火完成，最优得分：{}，交换接受率：{}/{}",
+                String.format("%.2f", best.bestScore()), accepted, attempted);
+        if (progressCallback != null) {
+            progressCallback.accept(new AllocationProgress(
+                    totalStudents, totalStudents, 0, 0,
+                    String.format("优化完成，最终得分: %.2f，链数: %d", best.bestScore(), chainCount)));
+        }
+
+        // 4. 用所有链中的最优解转换结果
+        return problem.toResults(best.bestAssignment(), compatibilityService, config, progressCallback);
+    }
+
+    /**
+     * 相邻温度交换：低温链 i 与高温链 i+1 以 min(1, exp((β_i - β_j)(S_j - S_i))) 的概率互换温度
+     */
+    private boolean tryExchange(AnnealingChain[] ladder, int i, SplittableRandom random) {
+        AnnealingChain cold = ladder[i];
+        AnnealingChain hot = ladder[i + 1];
+        double exponent = (1.0 / cold.temperature - 1.0 / hot.temperature)
+                * (hot.currentScore() - cold.currentScore());
+        if (exponent >= 0 || random.nextDouble() < Math.exp(exponent)) {
+            double t = cold.temperature;
+            cold.temperature = hot.temperature;
+            hot.temperature = t;
+            ladder[i] = hot;
+            ladder[i + 1] = cold;
+            return true;
+        }
+        return false;
+    }
+
+    private AnnealingChain best(AnnealingChain[] ladder) {
+        AnnealingChain best = ladder[0];
+        for (AnnealingChain chain : ladder) {
+            if (chain.bestScore() > best.bestScore()) best = chain;
+        }
+        return best;
+    }
+}
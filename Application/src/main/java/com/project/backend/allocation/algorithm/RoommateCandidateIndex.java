@@ -0,0 +1,82 @@
+package com.project.backend.allocation.algorithm;
+
+import com.project.backend.allocation.algorithm.kernel.LifestyleVectors;
+import com.project.backend.allocation.algorithm.kernel.LshIndex;
+import com.project.backend.student.entity.Student;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * 室友候选索引（Tier 3 向量索引批量模式）
+ * 在所有学生（待分配 + 房间现有学生）的生活习惯向量上建立 LSH 近似最近邻索引，
+ * 记录每个学生当前所在房间；为待分配学生查询习惯最接近的已入住学生，其所在房间即为候选房间。
+ * 候选生成从"遍历全部同性别房间"降为"查询常数个近邻"，候选为空时由调用方回退到全量扫描。
+ * 非线程安全，每个分片各建一个。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-11
+ */
+final class RoommateCandidateIndex {
+
+    /** 每次查询的近邻数量（候选房间数不超过此值） */
+    static final int NEIGHBOURS = 16;
+
+    /** 未入住 */
+    private static final long NO_ROOM = -1L;
+
+    private static final int TABLES = 8;
+    private static final int BITS = 12;
+    private static final long SEED = 42L;
+
+    private final LshIndex index;
+    private final long[] roomOf;
+    private final int[] neighbours = new int[NEIGHBOURS];
+
+    /** 本次查询的房间条件（查询过滤器复用同一个对象，避免每次查询创建闭包） */
+    private LongPredicate roomOpen;
+    private final IntPredicate placedInOpenRoom = this::placedInOpenRoom;
+
+    /**
+     * @param points 建索引的学生，下标即查询/入住时使用的序号
+     */
+    RoommateCandidateIndex(List<Student> points) {
+        this.index = new LshIndex(LifestyleVectors.of(points), LifestyleVectors.DIM, TABLES, BITS, SEED);
+        this.roomOf = new long[points.size()];
+        Arrays.fill(roomOf, NO_ROOM);
+    }
+
+    /**
+     * 记录学生入住房间（房间键由调用方决定：房间ID或稠密房间序号）
+     */
+    void place(int point, long room) {
+        roomOf[point] = room;
+    }
+
+    /**
+     * 查询候选房间：习惯最接近的已入住学生所在的、仍满足 roomOpen 的房间（去重，按近邻距离排序）
+     *
+     * @param out 输出数组（长度至少为 {@link #NEIGHBOURS}）
+     * @return 候选房间数量
+     */
+    int candidateRooms(int point, LongPredicate roomOpen, long[] out) {
+        this.roomOpen = roomOpen;
+        int found = index.query(point, NEIGHBOURS, placedInOpenRoom, neighbours);
+        int count = 0;
+        for (int i = 0; i < found; i++) {
+            long room = roomOf[neighbours[i]];
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = out[j] == room;
+            }
+            if (!seen) out[count++] = room;
+        }
+        return count;
+    }
+
+    private boolean placedInOpenRoom(int point) {
+        return roomOf[point] != NO_ROOM && roomOpen.test(roomOf[point]);
+    }
+}
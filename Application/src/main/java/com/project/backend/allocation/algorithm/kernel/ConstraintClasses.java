@@ -0,0 +1,85 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+/**
+ * 硬约束等价类
+ * 硬约束（性别、吸烟、作息差）只取决于 (性别, 是否吸烟, 是否不接受吸烟, 作息) 这几个小值域字段，
+ * 按它们把学生划分为至多 64 个等价类，编译时预计算类与类之间的冲突矩阵（每个类一个 64 位冲突掩码）。
+ * 房间/分组只需维护成员所属类的位掩码，判断"学生能否放入"即一次按位与，
+ * 不再逐个室友检查，候选房间和聚类分组可在打分前以 O(1) 排除。
+ * <p>
+ * 字段超出值域（性别不在 -1~2、作息不在 0~3）的学生不归类（{@link #UNCLASSIFIED}），
+ * 掩码检查对其不作判断，由逐对检查兜底。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public final class ConstraintClasses {
+
+    /** 等价类数量 */
+    public static final int CLASS_COUNT = 64;
+
+    /** 未归类 */
+    public static final int UNCLASSIFIED = -1;
+
+    /** 第 c 类与哪些类冲突 */
+    private final long[] conflictMasks = new long[CLASS_COUNT];
+
+    ConstraintClasses(boolean genderConstraint, boolean smokingConstraint, boolean sleepHardConstraint) {
+        for (int a = 0; a < CLASS_COUNT; a++) {
+            for (int b = 0; b < CLASS_COUNT; b++) {
+                if (conflicts(a, b, genderConstraint, smokingConstraint, sleepHardConstraint)) {
+                    conflictMasks[a] |= 1L << b;
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算等价类：性别槽位(2 位) | 吸烟标志(2 位) | 作息(2 位)
+     */
+    static int classOf(int gender, int flags, int sleepSchedule) {
+        if (gender < -1 || gender > 2 || sleepSchedule < 0 || sleepSchedule > 3) {
+            return UNCLASSIFIED;
+        }
+        int smoking = (flags & StudentProfile.SMOKES) != 0 ? 1 : 0;
+        if ((flags & StudentProfile.SMOKE_INTOLERANT) != 0) smoking |= 2;
+        return (gender + 1) << 4 | smoking << 2 | sleepSchedule;
+    }
+
+    /**
+     * 两个类之间是否冲突（任一方未归类时返回 false）
+     */
+    public boolean conflicts(int a, int b) {
+        return a >= 0 && b >= 0 && (conflictMasks[a] & (1L << b)) != 0;
+    }
+
+    /**
+     * 类 c 的学生与掩码中的任一类冲突（c 未归类时返回 false）
+     */
+    public boolean conflictsWithAny(int c, long mask) {
+        return c >= 0 && (conflictMasks[c] & mask) != 0;
+    }
+
+    /**
+     * 类的位掩码（未归类为 0）
+     */
+    public static long bit(int c) {
+        return c >= 0 ? 1L << c : 0L;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private static boolean conflicts(int a, int b, boolean genderConstraint,
+                                     boolean smokingConstraint, boolean sleepHardConstraint) {
+        if (genderConstraint && (a >> 4) != (b >> 4)) {
+            return true;
+        }
+        if (smokingConstraint) {
+            int smokingA = (a >> 2) & 3;
+            int smokingB = (b >> 2) & 3;
+            if ((smokingA & 1) != 0 && (smokingB & 2) != 0) return true;
+            if ((smokingB & 1) != 0 && (smokingA & 2) != 0) return true;
+        }
+        return sleepHardConstraint && Math.abs((a & 3) - (b & 3)) >= 3;
+    }
+}
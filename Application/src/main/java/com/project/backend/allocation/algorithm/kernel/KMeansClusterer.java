@@ -0,0 +1,350 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 加速 K-Means 聚类内核
+ * 数据按行主序存放在一维 double[] 中（第 i 个样本占 [i*dim, (i+1)*dim)），避免 List&lt;double[]&gt; 的指针跳转。
+ * <ul>
+ *     <li>k 不超过 DIRECT_MAX_K 时：KMeans++ 初始化 + Hamerly 三角不等式剪枝（每个样本一个上界、一个下界），
+ *     结果与朴素 Lloyd 迭代一致，但稳定后的样本几乎不再计算距离</li>
+ *     <li>k 更大时（如 Tier3 的 k≈n/4）：层次聚类，每层先聚成 BRANCH_K 个粗簇，再在每个粗簇内按样本占比递归细分，
+ *     各粗簇并行处理，总代价由 O(n·k) 降为约 O(n·BRANCH_K·log(k))</li>
+ * </ul>
+ * 另提供 {@link #treeOrder} 输出层次聚类的深度优先样本序列，用于切分出与房间容量一致的均衡分组。
+ * 分配与中心更新按样本分块并行（在调用方所在的 ForkJoinPool 中执行，分配算法通过共享的分配计算池调用）。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-11
+ */
+public final class KMeansClusterer {
+
+    /** 单级 Hamerly 聚类允许的最大 k，超过则走层次聚类 */
+    private static final int DIRECT_MAX_K = 1024;
+    /** 层次聚类每层的分支数 */
+    private static final int BRANCH_K = 32;
+    /** 并行分块大小（样本数） */
+    private static final int CHUNK_SIZE = 4096;
+
+    private KMeansClusterer() {
+    }
+
+    /**
+     * 聚类
+     *
+     * @param data          行主序样本数据
+     * @param dim           维度
+     * @param k             簇数（超过样本数时取样本数）
+     * @param maxIterations 单级聚类的最大迭代次数
+     * @param seed          随机种子
+     * @return 每个样本的簇编号（编号范围 [0, k)，可能存在空簇）
+     */
+    public static int[] cluster(double[] data, int dim, int k, int maxIterations, long seed) {
+        int n = data.length / dim;
+        if (n == 0) return new int[0];
+        k = Math.min(k, n);
+        if (k <= DIRECT_MAX_K) {
+            return hamerly(data, dim, k, maxIterations, seed);
+        }
+
+        int[] labels = new int[n];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) indices[i] = i;
+        clusterInto(data, dim, indices, k, maxIterations, seed, labels, 0);
+        return labels;
+    }
+
+    /**
+     * 层次聚类树序：递归地把样本聚成至多 BRANCH_K 个簇，直到每个叶子不超过 leafSize 个样本，
+     * 按深度优先顺序输出样本下标。相似的样本在序列中相邻，按房间容量顺序切分即可得到大小精确的组
+     *
+     * @param data          行主序样本数据
+     * @param dim           维度
+     * @param leafSize      叶子大小（通常取房间平均空床位数）
+     * @param maxIterations 每次聚类的最大迭代次数
+     * @param seed          随机种子
+     * @return 样本下标的排列
+     */
+    public static int[] treeOrder(double[] data, int dim, int leafSize, int maxIterations, long seed) {
+        int n = data.length / dim;
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) indices[i] = i;
+        int[] order = new int[n];
+        orderInto(data, dim, indices, Math.max(1, leafSize), maxIterations, seed, order, 0);
+        return order;
+    }
+
+    private static void orderInto(double[] data, int dim, int[] indices, int leafSize, int maxIterations,
+                                  long seed, int[] order, int offset) {
+        int n = indices.length;
+        if (n <= leafSize) {
+            System.arraycopy(indices, 0, order, offset, n);
+            return;
+        }
+
+        int k = Math.min(BRANCH_K, (n + leafSize - 1) / leafSize);
+        int[] labels = hamerly(gather(data, dim, indices), dim, k, maxIterations, seed);
+        int[] groupSize = new int[k];
+        for (int c : labels) groupSize[c]++;
+        for (int size : groupSize) {
+            if (size == n) { // 样本完全相同，无法再分
+                System.arraycopy(indices, 0, order, offset, n);
+                return;
+            }
+        }
+
+        int[][] groups = new int[k][];
+        int[] start = new int[k];
+        for (int g = 0, next = offset; g < k; g++) {
+            groups[g] = new int[groupSize[g]];
+            start[g] = next;
+            next += groupSize[g];
+        }
+        int[] fill = new int[k];
+        for (int i = 0; i < n; i++) {
+            int g = labels[i];
+            groups[g][fill[g]++] = indices[i];
+        }
+
+        IntStream.range(0, k).parallel()
+                .filter(g -> groupSize[g] > 0)
+                .forEach(g -> orderInto(data, dim, groups[g], leafSize, maxIterations,
+                        seed * 31 + g + 1, order, start[g]));
+    }
+
+    // ==================== 层次聚类 ====================
+
+    private static void clusterInto(double[] data, int dim, int[] indices, int k, int maxIterations,
+                                    long seed, int[] labels, int labelBase) {
+        int n = indices.length;
+        if (k <= 1) {
+            for (int i : indices) labels[i] = labelBase;
+            return;
+        }
+
+        double[] local = gather(data, dim, indices);
+        if (k <= BRANCH_K) {
+            int[] localLabels = hamerly(local, dim, k, maxIterations, seed);
+            for (int i = 0; i < n; i++) labels[indices[i]] = labelBase + localLabels[i];
+            return;
+        }
+
+        // 粗簇
+        int coarseK = BRANCH_K;
+        int[] coarse = hamerly(local, dim, coarseK, maxIterations, seed);
+        int[] groupSize = new int[coarseK];
+        for (int c : coarse) groupSize[c]++;
+        int[][] groups = new int[coarseK][];
+        for (int g = 0; g < coarseK; g++) groups[g] = new int[groupSize[g]];
+        int[] fill = new int[coarseK];
+        for (int i = 0; i < n; i++) {
+            int g = coarse[i];
+            groups[g][fill[g]++] = indices[i];
+        }
+
+        // 细分：每个粗簇按样本占比分配子簇数，编号区间连续不重叠
+        int[] subK = new int[coarseK];
+        int[] base = new int[coarseK];
+        int next = labelBase;
+        for (int g = 0; g < coarseK; g++) {
+            if (groupSize[g] == 0) continue;
+            subK[g] = (int) Math.max(1, Math.min(groupSize[g], Math.round((double) k * groupSize[g] / n)));
+            base[g] = next;
+            next += subK[g];
+        }
+
+        IntStream.range(0, coarseK).parallel()
+                .filter(g -> groupSize[g] > 0)
+                .forEach(g -> clusterInto(data, dim, groups[g], subK[g], maxIterations,
+                        seed * 31 + g + 1, labels, base[g]));
+    }
+
+    private static double[] gather(double[] data, int dim, int[] indices) {
+        double[] local = new double[indices.length * dim];
+        for (int i = 0; i < indices.length; i++) {
+            System.arraycopy(data, indices[i] * dim, local, i * dim, dim);
+        }
+        return local;
+    }
+
+    // ==================== Hamerly K-Means ====================
+
+    private static int[] hamerly(double[] x, int dim, int k, int maxIterations, long seed) {
+        int n = x.length / dim;
+        k = Math.min(k, n);
+        double[] centroids = kMeansPlusPlus(x, dim, k, seed);
+
+        int[] assign = new int[n];
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final int kk = k;
+
+        // 初始分配：全量扫描，得到最近/次近距离
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min(n, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                fullScan(x, dim, i, centroids, kk, assign, upper, lower);
+            }
+        });
+
+        double[] moved = new double[k];
+        double[] halfNearest = new double[k];
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            // 1. 更新中心（分块局部求和后合并），记录中心移动距离
+            double[] newCentroids = updateCentroids(x, dim, kk, assign, centroids, chunks);
+            int farthest = -1;
+            double maxMove = 0, secondMove = 0;
+            for (int c = 0; c < k; c++) {
+                moved[c] = Math.sqrt(squaredDistance(centroids, c * dim, newCentroids, c * dim, dim));
+                if (moved[c] > maxMove) {
+                    secondMove = maxMove;
+                    maxMove = moved[c];
+                    farthest = c;
+                } else if (moved[c] > secondMove) {
+                    secondMove = moved[c];
+                }
+            }
+            System.arraycopy(newCentroids, 0, centroids, 0, centroids.length);
+
+            // 2. 每个中心到最近其他中心距离的一半
+            for (int c = 0; c < k; c++) {
+                double min = Double.MAX_VALUE;
+                for (int o = 0; o < k; o++) {
+                    if (o == c) continue;
+                    double d = squaredDistance(centroids, c * dim, centroids, o * dim, dim);
+                    if (d < min) min = d;
+                }
+                halfNearest[c] = k > 1 ? Math.sqrt(min) / 2 : 0;
+            }
+
+            // 3. 更新界并仅对界失效的样本重新计算
+            final int far = farthest;
+            final double maxM = maxMove, secondM = secondMove;
+            int changed = IntStream.range(0, chunks).parallel().map(chunk -> {
+                int count = 0;
+                int end = Math.min(n, (chunk + 1) * CHUNK_SIZE);
+                for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                    int a = assign[i];
+                    upper[i] += moved[a];
+                    lower[i] -= a == far ? secondM : maxM;
+
+                    double bound = Math.max(halfNearest[a], lower[i]);
+                    if (upper[i] <= bound) continue;
+                    upper[i] = Math.sqrt(squaredDistance(x, i * dim, centroids, a * dim, dim));
+                    if (upper[i] <= bound) continue;
+
+                    fullScan(x, dim, i, centroids, kk, assign, upper, lower);
+                    if (assign[i] != a) count++;
+                }
+                return count;
+            }).sum();
+
+            if (changed == 0) break;
+        }
+
+        return assign;
+    }
+
+    private static void fullScan(double[] x, int dim, int i, double[] centroids, int k,
+                                 int[] assign, double[] upper, double[] lower) {
+        int nearest = 0;
+        double best = Double.MAX_VALUE, second = Double.MAX_VALUE;
+        int offset = i * dim;
+        for (int c = 0; c < k; c++) {
+            double d = squaredDistance(x, offset, centroids, c * dim, dim);
+            if (d < best) {
+                second = best;
+                best = d;
+                nearest = c;
+            } else if (d < second) {
+                second = d;
+            }
+        }
+        assign[i] = nearest;
+        upper[i] = Math.sqrt(best);
+        lower[i] = second == Double.MAX_VALUE ? Double.MAX_VALUE : Math.sqrt(second);
+    }
+
+    private static double[] updateCentroids(double[] x, int dim, int k, int[] assign,
+                                            double[] previous, int chunks) {
+        int n = assign.length;
+        double[] sums = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            // 每块：k*dim 个求和 + k 个计数
+            double[] partial = new double[k * dim + k];
+            int end = Math.min(n, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                int c = assign[i];
+                int to = c * dim, from = i * dim;
+                for (int d = 0; d < dim; d++) partial[to + d] += x[from + d];
+                partial[k * dim + c]++;
+            }
+            return partial;
+        }).reduce((a, b) -> {
+            for (int j = 0; j < a.length; j++) a[j] += b[j];
+            return a;
+        }).orElseGet(() -> new double[k * dim + k]);
+
+        double[] centroids = Arrays.copyOf(previous, k * dim);
+        for (int c = 0; c < k; c++) {
+            double count = sums[k * dim + c];
+            if (count == 0) continue; // 空簇保持原中心
+            for (int d = 0; d < dim; d++) {
+                centroids[c * dim + d] = sums[c * dim + d] / count;
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * KMeans++ 初始化
+     */
+    private static double[] kMeansPlusPlus(double[] x, int dim, int k, long seed) {
+        int n = x.length / dim;
+        Random random = new Random(seed);
+        double[] centroids = new double[k * dim];
+        System.arraycopy(x, random.nextInt(n) * dim, centroids, 0, dim);
+
+        double[] minDistances = new double[n];
+        Arrays.fill(minDistances, Double.MAX_VALUE);
+
+        for (int c = 1; c < k; c++) {
+            // 更新到最近中心的距离
+            int last = (c - 1) * dim;
+            double totalDist = 0;
+            for (int i = 0; i < n; i++) {
+                double dist = squaredDistance(x, i * dim, centroids, last, dim);
+                if (dist < minDistances[i]) {
+                    minDistances[i] = dist;
+                }
+                totalDist += minDistances[i];
+            }
+
+            // 按距离的平方加权随机选下一个中心
+            double threshold = random.nextDouble() * totalDist;
+            double cumulative = 0;
+            int selected = 0;
+            for (int i = 0; i < n; i++) {
+                cumulative += minDistances[i];
+                if (cumulative >= threshold) {
+                    selected = i;
+                    break;
+                }
+            }
+            System.arraycopy(x, selected * dim, centroids, c * dim, dim);
+        }
+        return centroids;
+    }
+
+    private static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dim) {
+        double sum = 0;
+        for (int d = 0; d < dim; d++) {
+            double diff = a[aOffset + d] - b[bOffset + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,63 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import com.project.backend.student.entity.Student;
+
+import java.util.List;
+
+/**
+ * 学生生活习惯向量
+ * 各维度归一化到 [0, 1]（未填写记为 0.5），按行主序写入一维 double[]，
+ * 供 K-Means 聚类与近似最近邻索引共用
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-11
+ */
+public final class LifestyleVectors {
+
+    /** 向量维度 */
+    public static final int DIM = 19;
+
+    private LifestyleVectors() {
+    }
+
+    /**
+     * 学生列表的习惯向量（行主序，第 i 个学生占 [i*DIM, (i+1)*DIM)）
+     */
+    public static double[] of(List<Student> students) {
+        double[] data = new double[students.size() * DIM];
+        for (int i = 0; i < students.size(); i++) {
+            write(students.get(i), data, i * DIM);
+        }
+        return data;
+    }
+
+    /**
+     * 将学生生活习惯写入 data 的 [offset, offset + DIM)
+     */
+    public static void write(Student s, double[] data, int offset) {
+        data[offset] = normalize(s.getSmokingStatus(), 0, 1);
+        data[offset + 1] = normalize(s.getSmokingTolerance(), 0, 1);
+        data[offset + 2] = normalize(s.getSleepSchedule(), 0, 3);
+        data[offset + 3] = normalize(s.getSleepQuality(), 0, 2);
+        data[offset + 4] = normalize(s.getSnores(), 0, 1);
+        data[offset + 5] = normalize(s.getSensitiveToLight(), 0, 1);
+        data[offset + 6] = normalize(s.getSensitiveToSound(), 0, 1);
+        data[offset + 7] = normalize(s.getCleanlinessLevel(), 1, 5);
+        data[offset + 8] = normalize(s.getBedtimeCleanup(), 0, 3);
+        data[offset + 9] = normalize(s.getSocialPreference(), 0, 2);
+        data[offset + 10] = normalize(s.getAllowVisitors(), 0, 2);
+        data[offset + 11] = normalize(s.getPhoneCallTime(), 0, 2);
+        data[offset + 12] = normalize(s.getStudyInRoom(), 0, 3);
+        data[offset + 13] = normalize(s.getStudyEnvironment(), 0, 3);
+        data[offset + 14] = normalize(s.getComputerUsageTime(), 0, 3);
+        data[offset + 15] = normalize(s.getGamingPreference(), 0, 2);
+        data[offset + 16] = normalize(s.getMusicPreference(), 0, 2);
+        data[offset + 17] = normalize(s.getMusicVolume(), 0, 2);
+        data[offset + 18] = normalize(s.getEatInRoom(), 0, 2);
+    }
+
+    private static double normalize(Integer value, int min, int max) {
+        if (value == null) return 0.5;
+        return max == min ? 0.5 : (double) (value - min) / (max - min);
+    }
+}
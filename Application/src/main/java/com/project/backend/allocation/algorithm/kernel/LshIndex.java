@@ -0,0 +1,194 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * 随机投影 LSH 近似最近邻索引
+ * 每张哈希表用 bits 个过数据均值的随机超平面把样本映射为 bits 位签名，签名相同的样本落入同一桶；
+ * 查询时合并所有表中同桶的样本（不足时再探查翻转 1 位的相邻桶），按真实欧氏距离取前 k 个。
+ * 桶以"按签名排序的下标数组 + 二分查找"存储，全部为原始类型数组。
+ * 查询使用内部去重与距离工作区（按需扩容、重复使用，查询不分配内存），非线程安全，每个分配线程各建一个索引。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-11
+ */
+public final class LshIndex {
+
+    /** 单次查询最多检查的样本数（大量相同向量落入同一桶时限制开销） */
+    private static final int MAX_SCAN = 4096;
+
+    private final double[] data;
+    private final int dim;
+    private final int tables;
+    private final int bits;
+
+    /** 超平面：[table][bit][dim] 展平 */
+    private final double[] planes;
+    private final double[] mean;
+    /** 每个样本在每张表中的签名：[table * n + i] */
+    private final int[] signatures;
+    /** 每张表按签名排序后的样本下标与签名 */
+    private final int[][] sortedPoints;
+    private final int[][] sortedSignatures;
+
+    // 查询工作区
+    private final int[] visitStamp;
+    private int stamp;
+    /** 前 k 个近邻的距离（与输出数组对应） */
+    private double[] bestDist = new double[0];
+    /** 本次查询已找到的近邻数 */
+    private int found;
+    /** 本次查询已检查的样本数 */
+    private int scanned;
+
+    public LshIndex(double[] data, int dim, int tables, int bits, long seed) {
+        this.data = data;
+        this.dim = dim;
+        this.tables = tables;
+        this.bits = bits;
+        int n = data.length / dim;
+
+        this.mean = new double[dim];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < dim; d++) mean[d] += data[i * dim + d];
+        }
+        for (int d = 0; d < dim; d++) mean[d] = n > 0 ? mean[d] / n : 0;
+
+        Random random = new Random(seed);
+        this.planes = new double[tables * bits * dim];
+        for (int i = 0; i < planes.length; i++) planes[i] = random.nextGaussian();
+
+        this.signatures = new int[tables * n];
+        this.sortedPoints = new int[tables][n];
+        this.sortedSignatures = new int[tables][n];
+        long[] keys = new long[n];
+        for (int t = 0; t < tables; t++) {
+            for (int i = 0; i < n; i++) {
+                int sig = signature(t, i);
+                signatures[t * n + i] = sig;
+                keys[i] = ((long) sig << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) {
+                sortedSignatures[t][i] = (int) (keys[i] >>> 32);
+                sortedPoints[t][i] = (int) keys[i];
+            }
+        }
+
+        this.visitStamp = new int[n];
+    }
+
+    public int size() {
+        return visitStamp.length;
+    }
+
+    /**
+     * 查询样本 point 的近似最近邻（不含自身）
+     *
+     * @param point  样本下标
+     * @param k      最多返回的近邻数
+     * @param filter 只返回满足条件的样本
+     * @param out    输出数组（长度至少为 k），按距离升序
+     * @return 实际返回的近邻数
+     */
+    public int query(int point, int k, IntPredicate filter, int[] out) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        visitStamp[point] = stamp;
+        if (bestDist.length < k) {
+            bestDist = new double[k];
+        }
+        found = 0;
+        scanned = 0;
+        int n = visitStamp.length;
+
+        // 1. 同桶
+        for (int t = 0; t < tables && scanned < MAX_SCAN; t++) {
+            probe(t, signatures[t * n + point], point, k, filter, out);
+        }
+        // 2. 近邻不足时探查翻转 1 位的相邻桶
+        for (int b = 0; b < bits && found < k && scanned < MAX_SCAN; b++) {
+            for (int t = 0; t < tables && scanned < MAX_SCAN; t++) {
+                probe(t, signatures[t * n + point] ^ (1 << b), point, k, filter, out);
+            }
+        }
+        return found;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void probe(int t, int sig, int point, int k, IntPredicate filter, int[] out) {
+        int[] sigs = sortedSignatures[t];
+        int from = lowerBound(sigs, sig);
+        int to = from;
+        while (to < sigs.length && sigs[to] == sig) to++;
+        int size = to - from;
+        if (size == 0) return;
+
+        // 大桶从与查询点相关的位置开始轮转扫描，避免所有查询都挤在桶首
+        int startOffset = point % size;
+        for (int j = 0; j < size && scanned < MAX_SCAN; j++) {
+            int candidate = sortedPoints[t][from + (startOffset + j) % size];
+            if (visitStamp[candidate] == stamp) continue;
+            visitStamp[candidate] = stamp;
+            scanned++;
+            if (!filter.test(candidate)) continue;
+            insert(candidate, squaredDistance(point, candidate), k, out);
+        }
+    }
+
+    /**
+     * 插入到按距离升序的前 k 列表
+     */
+    private void insert(int candidate, double dist, int k, int[] out) {
+        int count = found;
+        if (count == k && dist >= bestDist[k - 1]) return;
+        int pos = count < k ? count++ : k - 1;
+        while (pos > 0 && bestDist[pos - 1] > dist) {
+            bestDist[pos] = bestDist[pos - 1];
+            out[pos] = out[pos - 1];
+            pos--;
+        }
+        bestDist[pos] = dist;
+        out[pos] = candidate;
+        found = count;
+    }
+
+    private int signature(int table, int point) {
+        int sig = 0;
+        int offset = point * dim;
+        for (int b = 0; b < bits; b++) {
+            int planeOffset = (table * bits + b) * dim;
+            double dot = 0;
+            for (int d = 0; d < dim; d++) {
+                dot += (data[offset + d] - mean[d]) * planes[planeOffset + d];
+            }
+            if (dot >= 0) sig |= 1 << b;
+        }
+        return sig;
+    }
+
+    private double squaredDistance(int a, int b) {
+        double sum = 0;
+        int oa = a * dim, ob = b * dim;
+        for (int d = 0; d < dim; d++) {
+            double diff = data[oa + d] - data[ob + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,192 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import java.util.Arrays;
+
+/**
+ * 最小费用最大流求解器（稀疏图，原始类型数组存储）
+ * 算法：逐次最短增广路 + Johnson 势能（Dijkstra），要求初始边费用非负。
+ * Dijkstra 在弹出汇点后提前结束，未确定的节点按汇点距离更新势能，保证约化费用仍非负。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+public final class MinCostFlow {
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int nodeCount;
+    private final int[] head;
+
+    // 边数组（正向边下标为偶数，反向边为其 ^ 1）
+    private int[] to;
+    private int[] next;
+    private int[] capacity;
+    private long[] cost;
+    private int edgeCount;
+
+    // Dijkstra 工作区
+    private final long[] potential;
+    private final long[] dist;
+    private final int[] prevEdge;
+    private final boolean[] done;
+    private long[] heapKey;
+    private int[] heapNode;
+    private int heapSize;
+
+    public MinCostFlow(int nodeCount, int expectedEdges) {
+        this.nodeCount = nodeCount;
+        this.head = new int[nodeCount];
+        Arrays.fill(head, -1);
+        int cap = Math.max(16, expectedEdges * 2);
+        this.to = new int[cap];
+        this.next = new int[cap];
+        this.capacity = new int[cap];
+        this.cost = new long[cap];
+        this.potential = new long[nodeCount];
+        this.dist = new long[nodeCount];
+        this.prevEdge = new int[nodeCount];
+        this.done = new boolean[nodeCount];
+        this.heapKey = new long[Math.max(16, nodeCount)];
+        this.heapNode = new int[Math.max(16, nodeCount)];
+    }
+
+    /**
+     * 添加有向边
+     *
+     * @return 边编号（用于 {@link #flow(int)} 查询）
+     */
+    public int addEdge(int from, int toNode, int cap, long edgeCost) {
+        if (edgeCost < 0) {
+            throw new IllegalArgumentException("边费用必须非负: " + edgeCost);
+        }
+        ensureEdgeCapacity(edgeCount + 2);
+        int id = edgeCount;
+        link(from, toNode, cap, edgeCost);
+        link(toNode, from, 0, -edgeCost);
+        return id;
+    }
+
+    /**
+     * 边上的流量
+     */
+    public int flow(int edge) {
+        return capacity[edge ^ 1];
+    }
+
+    /**
+     * 求 source -> sink 的最小费用流（流量不超过 maxFlow）
+     *
+     * @return {流量, 总费用}
+     */
+    public long[] solve(int source, int sink, int maxFlow) {
+        int totalFlow = 0;
+        long totalCost = 0;
+        while (totalFlow < maxFlow && dijkstra(source, sink)) {
+            // 沿最短路增广（瓶颈容量）
+            int push = maxFlow - totalFlow;
+            for (int v = sink; v != source; v = to[prevEdge[v] ^ 1]) {
+                push = Math.min(push, capacity[prevEdge[v]]);
+            }
+            for (int v = sink; v != source; v = to[prevEdge[v] ^ 1]) {
+                int e = prevEdge[v];
+                capacity[e] -= push;
+                capacity[e ^ 1] += push;
+                totalCost += (long) push * cost[e];
+            }
+            totalFlow += push;
+        }
+        return new long[]{totalFlow, totalCost};
+    }
+
+    // ==================== 内部方法 ====================
+
+    private boolean dijkstra(int source, int sink) {
+        Arrays.fill(dist, INF);
+        Arrays.fill(done, false);
+        heapSize = 0;
+        dist[source] = 0;
+        push(0, source);
+
+        while (heapSize > 0) {
+            long d = heapKey[0];
+            int u = pop();
+            if (done[u] || d > dist[u]) continue;
+            done[u] = true;
+            if (u == sink) break;
+
+            for (int e = head[u]; e != -1; e = next[e]) {
+                if (capacity[e] <= 0) continue;
+                int v = to[e];
+                if (done[v]) continue;
+                long nd = d + cost[e] + potential[u] - potential[v];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    prevEdge[v] = e;
+                    push(nd, v);
+                }
+            }
+        }
+
+        if (!done[sink]) return false;
+
+        // 更新势能：未确定的节点按汇点距离封顶
+        long sinkDist = dist[sink];
+        for (int v = 0; v < nodeCount; v++) {
+            potential[v] += Math.min(dist[v], sinkDist);
+        }
+        return true;
+    }
+
+    private void link(int from, int toNode, int cap, long edgeCost) {
+        to[edgeCount] = toNode;
+        capacity[edgeCount] = cap;
+        cost[edgeCount] = edgeCost;
+        next[edgeCount] = head[from];
+        head[from] = edgeCount++;
+    }
+
+    private void ensureEdgeCapacity(int required) {
+        if (required <= to.length) return;
+        int newCap = Math.max(required, to.length * 2);
+        to = Arrays.copyOf(to, newCap);
+        next = Arrays.copyOf(next, newCap);
+        capacity = Arrays.copyOf(capacity, newCap);
+        cost = Arrays.copyOf(cost, newCap);
+    }
+
+    private void push(long key, int node) {
+        if (heapSize == heapKey.length) {
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKey[parent] <= key) break;
+            heapKey[i] = heapKey[parent];
+            heapNode[i] = heapNode[parent];
+            i = parent;
+        }
+        heapKey[i] = key;
+        heapNode[i] = node;
+    }
+
+    private int pop() {
+        int top = heapNode[0];
+        long key = heapKey[--heapSize];
+        int node = heapNode[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) child++;
+            if (heapKey[child] >= key) break;
+            heapKey[i] = heapKey[child];
+            heapNode[i] = heapNode[child];
+            i = child;
+        }
+        heapKey[i] = key;
+        heapNode[i] = node;
+        return top;
+    }
+}
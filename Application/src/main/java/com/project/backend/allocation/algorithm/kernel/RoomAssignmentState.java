@@ -0,0 +1,433 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import java.util.Arrays;
+
+/**
+ * 房间分配状态（增量评分）
+ * 学生和房间均使用稠密序号：学生 [0, movableCount) 为待分配学生，其余为房间现有学生（固定不动）。
+ * 每个房间维护成员槽位、两两匹配分之和与硬约束冲突对数，全部为原始类型数组，
+ * 交换/移动一次只需 O(房间人数) 次 {@link ScoringKernel#pairPoints} 计算。
+ * <p>
+ * 房间得分 = 所有学生对的平均分，硬约束冲突对记 -100 分；0/1 人房间记 100 分，
+ * 总分为各房间得分之和（与原模拟退火 calcRoomScore 的目标函数一致）。
+ * <p>
+ * 非线程安全：每条退火链/每个优化线程持有独立实例。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+public final class RoomAssignmentState {
+
+    /** 未分配房间 */
+    public static final int UNASSIGNED = -1;
+
+    /** 硬约束冲突对的惩罚（百分之一分，冲突对按 -100 分计） */
+    private static final long CONFLICT_PENALTY = 100_00;
+
+    private final ScoringKernel kernel;
+    private final StudentProfile[] profiles;
+    private final int movableCount;
+
+    /** 学生 -> 房间序号 */
+    private final int[] roomOf;
+    /** 学生 -> 在房间槽位中的位置 */
+    private final int[] slotOf;
+
+    /** 房间槽位在 slots 中的起始位置 */
+    private final int[] roomStart;
+    private final int[] roomCapacity;
+    private final int[] roomSize;
+    /** 所有房间的成员槽位（按 roomStart 分段） */
+    private final int[] slots;
+
+    /** 房间内非冲突学生对的匹配分之和（百分之一分） */
+    private final long[] pairSum;
+    /** 房间内硬约束冲突的学生对数 */
+    private final int[] conflicts;
+    /** 房间成员的硬约束等价类掩码 */
+    private final long[] classMask;
+
+    private double totalScore;
+
+    // ==================== 待提交的操作（evaluate -> applyPending） ====================
+
+    private static final int OP_NONE = 0;
+    private static final int OP_SWAP = 1;
+    private static final int OP_MOVE = 2;
+
+    private int pendingOp = OP_NONE;
+    private int pendingStudent1;
+    private int pendingStudent2;
+    private int pendingRoom;
+    private long pendingSumA;
+    private long pendingSumB;
+    private int pendingConflictsA;
+    private int pendingConflictsB;
+    private double pendingDelta;
+
+    /** contribution() 的第二个返回值 */
+    private int scratchConflicts;
+
+    /**
+     * @param kernel       编译后的匹配内核
+     * @param profiles     学生画像（前 movableCount 个为待分配学生，其余为固定学生）
+     * @param movableCount 待分配学生数量
+     * @param roomCapacity 各房间容量（现有学生数 + 可用床位数）
+     */
+    public RoomAssignmentState(ScoringKernel kernel, StudentProfile[] profiles, int movableCount, int[] roomCapacity) {
+        this.kernel = kernel;
+        this.profiles = profiles;
+        this.movableCount = movableCount;
+        this.roomCapacity = roomCapacity.clone();
+
+        int roomCount = roomCapacity.length;
+        this.roomStart = new int[roomCount];
+        this.roomSize = new int[roomCount];
+        this.pairSum = new long[roomCount];
+        this.conflicts = new int[roomCount];
+        this.classMask = new long[roomCount];
+        int totalSlots = 0;
+        for (int r = 0; r < roomCount; r++) {
+            roomStart[r] = totalSlots;
+            totalSlots += roomCapacity[r];
+        }
+        this.slots = new int[totalSlots];
+
+        this.roomOf = new int[profiles.length];
+        this.slotOf = new int[profiles.length];
+        Arrays.fill(roomOf, UNASSIGNED);
+
+        // 空房间/单人房得分 100
+        this.totalScore = 100.0 * roomCount;
+    }
+
+    /**
+     * 复制一个独立状态（供多链并行使用，画像和内核共享）
+     */
+    public RoomAssignmentState copy() {
+        RoomAssignmentState copy = new RoomAssignmentState(kernel, profiles, movableCount, roomCapacity);
+        System.arraycopy(roomOf, 0, copy.roomOf, 0, roomOf.length);
+        System.arraycopy(slotOf, 0, copy.slotOf, 0, slotOf.length);
+        System.arraycopy(roomSize, 0, copy.roomSize, 0, roomSize.length);
+        System.arraycopy(slots, 0, copy.slots, 0, slots.length);
+        System.arraycopy(pairSum, 0, copy.pairSum, 0, pairSum.length);
+        System.arraycopy(conflicts, 0, copy.conflicts, 0, conflicts.length);
+        System.arraycopy(classMask, 0, copy.classMask, 0, classMask.length);
+        copy.totalScore = totalScore;
+        return copy;
+    }
+
+    // ==================== 查询 ====================
+
+    public int studentCount() {
+        return profiles.length;
+    }
+
+    public int movableCount() {
+        return movableCount;
+    }
+
+    public int roomCount() {
+        return roomCapacity.length;
+    }
+
+    public StudentProfile profile(int student) {
+        return profiles[student];
+    }
+
+    public ScoringKernel kernel() {
+        return kernel;
+    }
+
+    public int roomOf(int student) {
+        return roomOf[student];
+    }
+
+    public int roomSize(int room) {
+        return roomSize[room];
+    }
+
+    public int roomCapacity(int room) {
+        return roomCapacity[room];
+    }
+
+    public int freeSlots(int room) {
+        return roomCapacity[room] - roomSize[room];
+    }
+
+    /**
+     * 房间内第 index 个成员的学生序号
+     */
+    public int member(int room, int index) {
+        return slots[roomStart[room] + index];
+    }
+
+    public int roomConflicts(int room) {
+        return conflicts[room];
+    }
+
+    public double roomScore(int room) {
+        return roomScore(pairSum[room], conflicts[room], roomSize[room]);
+    }
+
+    public double totalScore() {
+        return totalScore;
+    }
+
+    /**
+     * 全部房间的硬约束冲突对数
+     */
+    public int totalConflicts() {
+        int total = 0;
+        for (int c : conflicts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * 导出待分配学生的房间序号（用于保存最优解）
+     */
+    public void copyAssignment(int[] target) {
+        System.arraycopy(roomOf, 0, target, 0, movableCount);
+    }
+
+    public int[] snapshotAssignment() {
+        return Arrays.copyOf(roomOf, movableCount);
+    }
+
+    /**
+     * 学生放入房间时与房间现有成员的匹配分之和（冲突对数见 {@link #lastConflicts()}）
+     */
+    public long contributionTo(int student, int room) {
+        return contribution(student, room, student, UNASSIGNED);
+    }
+
+    public int lastConflicts() {
+        return scratchConflicts;
+    }
+
+    /**
+     * 学生与房间成员是否必然存在硬约束冲突（按等价类掩码 O(1) 判断，返回 false 时仍以打分为准）
+     */
+    public boolean excludes(int student, int room) {
+        return kernel.excludes(profiles[student], classMask[room]);
+    }
+
+    // ==================== 初始放置 ====================
+
+    /**
+     * 将未分配学生放入房间（构建初始解时使用，调用方保证房间有空槽位）
+     */
+    public void place(int student, int room) {
+        long sum = contribution(student, room, student, UNASSIGNED);
+        int conf = scratchConflicts;
+        double before = roomScore(room);
+        addMember(student, room);
+        pairSum[room] += sum;
+        conflicts[room] += conf;
+        totalScore += roomScore(room) - before;
+    }
+
+    /**
+     * 将学生移出房间
+     */
+    public void remove(int student) {
+        int room = roomOf[student];
+        if (room == UNASSIGNED) return;
+        long sum = contribution(student, room, student, UNASSIGNED);
+        int conf = scratchConflicts;
+        double before = roomScore(room);
+        removeMember(student, room);
+        pairSum[room] -= sum;
+        conflicts[room] -= conf;
+        totalScore += roomScore(room) - before;
+    }
+
+    // ==================== 增量评估 ====================
+
+    /**
+     * 评估交换两个学生所在房间的得分变化（不修改状态，之后可调用 {@link #applyPending()} 提交）
+     */
+    public double evaluateSwap(int s1, int s2) {
+        int roomA = roomOf[s1];
+        int roomB = roomOf[s2];
+        if (roomA == roomB || roomA == UNASSIGNED || roomB == UNASSIGNED) {
+            pendingOp = OP_NONE;
+            return 0;
+        }
+
+        long outA = contribution(s1, roomA, s1, UNASSIGNED);
+        int outAConf = scratchConflicts;
+        long inA = contribution(s2, roomA, s1, UNASSIGNED);
+        int inAConf = scratchConflicts;
+        long outB = contribution(s2, roomB, s2, UNASSIGNED);
+        int outBConf = scratchConflicts;
+        long inB = contribution(s1, roomB, s2, UNASSIGNED);
+        int inBConf = scratchConflicts;
+
+        pendingSumA = pairSum[roomA] - outA + inA;
+        pendingConflictsA = conflicts[roomA] - outAConf + inAConf;
+        pendingSumB = pairSum[roomB] - outB + inB;
+        pendingConflictsB = conflicts[roomB] - outBConf + inBConf;
+
+        pendingDelta = roomScore(pendingSumA, pendingConflictsA, roomSize[roomA])
+                + roomScore(pendingSumB, pendingConflictsB, roomSize[roomB])
+                - roomScore(roomA) - roomScore(roomB);
+        pendingOp = OP_SWAP;
+        pendingStudent1 = s1;
+        pendingStudent2 = s2;
+        return pendingDelta;
+    }
+
+    /**
+     * 评估将学生移动到另一个有空槽位房间的得分变化（之后可调用 {@link #applyPending()} 提交）
+     */
+    public double evaluateMove(int student, int targetRoom) {
+        int roomA = roomOf[student];
+        if (roomA == targetRoom || roomA == UNASSIGNED || freeSlots(targetRoom) <= 0) {
+            pendingOp = OP_NONE;
+            return 0;
+        }
+
+        long out = contribution(student, roomA, student, UNASSIGNED);
+        int outConf = scratchConflicts;
+        long in = contribution(student, targetRoom, student, UNASSIGNED);
+        int inConf = scratchConflicts;
+
+        pendingSumA = pairSum[roomA] - out;
+        pendingConflictsA = conflicts[roomA] - outConf;
+        pendingSumB = pairSum[targetRoom] + in;
+        pendingConflictsB = conflicts[targetRoom] + inConf;
+
+        pendingDelta = roomScore(pendingSumA, pendingConflictsA, roomSize[roomA] - 1)
+                + roomScore(pendingSumB, pendingConflictsB, roomSize[targetRoom] + 1)
+                - roomScore(roomA) - roomScore(targetRoom);
+        pendingOp = OP_MOVE;
+        pendingStudent1 = student;
+        pendingRoom = targetRoom;
+        return pendingDelta;
+    }
+
+    /**
+     * 待提交操作完成后两个房间的冲突对数变化
+     */
+    public int pendingConflictDelta() {
+        if (pendingOp == OP_SWAP) {
+            return pendingConflictsA + pendingConflictsB
+                    - conflicts[roomOf[pendingStudent1]] - conflicts[roomOf[pendingStudent2]];
+        }
+        if (pendingOp == OP_MOVE) {
+            return pendingConflictsA + pendingConflictsB
+                    - conflicts[roomOf[pendingStudent1]] - conflicts[pendingRoom];
+        }
+        return 0;
+    }
+
+    /**
+     * 提交最近一次 evaluateSwap / evaluateMove
+     */
+    public void applyPending() {
+        if (pendingOp == OP_SWAP) {
+            int s1 = pendingStudent1;
+            int s2 = pendingStudent2;
+            int roomA = roomOf[s1];
+            int roomB = roomOf[s2];
+            int posA = slotOf[s1];
+            int posB = slotOf[s2];
+            slots[roomStart[roomA] + posA] = s2;
+            slots[roomStart[roomB] + posB] = s1;
+            slotOf[s1] = posB;
+            slotOf[s2] = posA;
+            roomOf[s1] = roomB;
+            roomOf[s2] = roomA;
+            refreshClassMask(roomA);
+            refreshClassMask(roomB);
+            pairSum[roomA] = pendingSumA;
+            conflicts[roomA] = pendingConflictsA;
+            pairSum[roomB] = pendingSumB;
+            conflicts[roomB] = pendingConflictsB;
+            totalScore += pendingDelta;
+        } else if (pendingOp == OP_MOVE) {
+            int student = pendingStudent1;
+            int roomA = roomOf[student];
+            removeMember(student, roomA);
+            addMember(student, pendingRoom);
+            pairSum[roomA] = pendingSumA;
+            conflicts[roomA] = pendingConflictsA;
+            pairSum[pendingRoom] = pendingSumB;
+            conflicts[pendingRoom] = pendingConflictsB;
+            totalScore += pendingDelta;
+        }
+        pendingOp = OP_NONE;
+    }
+
+    /**
+     * 重新累加总分（消除长时间运行后的浮点累计误差）
+     */
+    public double recomputeTotal() {
+        double total = 0;
+        for (int r = 0; r < roomCapacity.length; r++) {
+            total += roomScore(r);
+        }
+        totalScore = total;
+        return total;
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 学生 student 与房间内成员（排除 excludeA/excludeB）的匹配分之和，冲突对数写入 scratchConflicts
+     */
+    private long contribution(int student, int room, int excludeA, int excludeB) {
+        StudentProfile profile = profiles[student];
+        int start = roomStart[room];
+        int end = start + roomSize[room];
+        long sum = 0;
+        int conf = 0;
+        for (int i = start; i < end; i++) {
+            int other = slots[i];
+            if (other == excludeA || other == excludeB) continue;
+            int points = kernel.pairPoints(profile, profiles[other]);
+            if (points == ScoringKernel.CONFLICT) {
+                conf++;
+            } else {
+                sum += points;
+            }
+        }
+        scratchConflicts = conf;
+        return sum;
+    }
+
+    private void addMember(int student, int room) {
+        int pos = roomSize[room]++;
+        slots[roomStart[room] + pos] = student;
+        slotOf[student] = pos;
+        roomOf[student] = room;
+        classMask[room] |= ScoringKernel.classMask(profiles[student]);
+    }
+
+    private void removeMember(int student, int room) {
+        int last = --roomSize[room];
+        int pos = slotOf[student];
+        int lastStudent = slots[roomStart[room] + last];
+        slots[roomStart[room] + pos] = lastStudent;
+        slotOf[lastStudent] = pos;
+        roomOf[student] = UNASSIGNED;
+        refreshClassMask(room);
+    }
+
+    private void refreshClassMask(int room) {
+        long mask = 0;
+        for (int i = roomStart[room], end = i + roomSize[room]; i < end; i++) {
+            mask |= ScoringKernel.classMask(profiles[slots[i]]);
+        }
+        classMask[room] = mask;
+    }
+
+    private static double roomScore(long sum, int conflictPairs, int size) {
+        if (size <= 1) return 100.0;
+        long pairs = (long) size * (size - 1) / 2;
+        return (sum - conflictPairs * CONFLICT_PENALTY) / 100.0 / pairs;
+    }
+}
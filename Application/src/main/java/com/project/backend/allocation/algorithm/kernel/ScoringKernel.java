@@ -0,0 +1,452 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.student.entity.Student;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的匹配度计算内核
+ * 将 AllocationConfig 的权重、硬约束、加分项预计算为原始类型表，
+ * 对 {@link StudentProfile} 计算两两/房间匹配分，全程无对象分配、无 BigDecimal。
+ * <p>
+ * 计分规则与 CompatibilityServiceImpl 完全一致（修改任一处规则时需同步修改另一处）：
+ * 各维度原始分为整数，加权分 = score * weight / 100 恰好保留两位小数，
+ * 因此内核以"百分之一分"为单位的整数运算即可得到与 BigDecimal 版本相同的结果。
+ * 富结果（MatchResult / RoomMatchResult，含冲突与优势文案）仍由 CompatibilityService
+ * 生成，只在最终结果和接口响应时构建。
+ * <p>
+ * 习惯字段都是小值域枚举，不同画像的数量远小于学生数：画像按习惯字段驻留为序号，
+ * 序号两两之间的习惯分按需缓存在矩阵中，矩阵边长随已驻留画像数按 2 的幂增长（上限 {@link #MAX_CACHED_PROFILES}），
+ * 画像种类少的运行只占用很小的缓存；加分项（同院系/专业/班级）在缓存值之上另算。
+ * <p>
+ * 线程安全：编译后只读，编码序号表使用 ConcurrentHashMap，可在分片并行时共享。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+public final class ScoringKernel {
+
+    /** 硬约束冲突标记（两两分数/房间分数返回此值表示不能同住） */
+    public static final int CONFLICT = -1;
+
+    /** 满分（百分之一分） */
+    public static final int MAX_POINTS = 100_00;
+
+    /** 空房间得分 */
+    public static final double EMPTY_ROOM_SCORE = 100.0;
+
+    // ==================== 编译后的配置表 ====================
+
+    private final boolean genderConstraint;
+    private final boolean smokingConstraint;
+    private final boolean sleepHardConstraint;
+
+    /** 硬约束等价类冲突矩阵 */
+    private final ConstraintClasses constraintClasses;
+
+    private final int sleepWeight;
+    private final int smokingWeight;
+    private final int cleanlinessWeight;
+    private final int socialWeight;
+    private final int studyWeight;
+    private final int entertainmentWeight;
+
+    /** 加分项（百分之一分） */
+    private final int sameClassBonus;
+    private final int sameMajorBonus;
+    private final int sameDeptBonus;
+
+    /** 院系/专业/班级编码 -> 内部序号 */
+    private final ConcurrentHashMap<String, Integer> codeIds = new ConcurrentHashMap<>();
+
+    // ==================== 画像驻留与两两分缓存 ====================
+
+    /** 缓存两两分的画像序号上限（矩阵最大 MAX_CACHED_PROFILES² 个 int） */
+    static final int MAX_CACHED_PROFILES = 1024;
+
+    /** 缓存矩阵的最小边长 */
+    private static final int MIN_CACHE_DIM = 64;
+
+    /** 习惯字段打包键 -> 画像序号 */
+    private final ConcurrentHashMap<Long, Integer> lifestyleIds = new ConcurrentHashMap<>();
+
+    /**
+     * 画像序号两两之间的习惯分（不含加分项，百分之一分 + 1，0 表示未计算）
+     * 写入是幂等的，并发线程可能重复计算同一格但结果相同，无需加锁；扩容时复制旧矩阵，
+     * 扩容期间写入旧矩阵的值可能丢失，之后重新计算即可
+     */
+    private volatile PairCache pairCache;
+
+    private ScoringKernel(AllocationConfig config) {
+        this.genderConstraint = Integer.valueOf(1).equals(config.getGenderConstraint());
+        this.smokingConstraint = Integer.valueOf(1).equals(config.getSmokingConstraint());
+        this.sleepHardConstraint = Integer.valueOf(1).equals(config.getSleepHardConstraint());
+        this.constraintClasses = new ConstraintClasses(genderConstraint, smokingConstraint, sleepHardConstraint);
+        this.sleepWeight = intValue(config.getSleepWeight(), 0);
+        this.smokingWeight = intValue(config.getSmokingWeight(), 0);
+        this.cleanlinessWeight = intValue(config.getCleanlinessWeight(), 0);
+        this.socialWeight = intValue(config.getSocialWeight(), 0);
+        this.studyWeight = intValue(config.getStudyWeight(), 0);
+        this.entertainmentWeight = intValue(config.getEntertainmentWeight(), 0);
+        this.sameClassBonus = intValue(config.getSameClassBonus(), 0) * 100;
+        this.sameMajorBonus = intValue(config.getSameMajorBonus(), 0) * 100;
+        this.sameDeptBonus = intValue(config.getSameDeptBonus(), 0) * 100;
+    }
+
+    /**
+     * 编译分配配置
+     */
+    public static ScoringKernel compile(AllocationConfig config) {
+        return new ScoringKernel(config);
+    }
+
+    // ==================== 画像编译 ====================
+
+    /**
+     * 将学生实体编译为紧凑画像（每个学生只需编译一次）
+     */
+    public StudentProfile profile(Student s) {
+        int flags = 0;
+        if (Integer.valueOf(1).equals(s.getSmokingStatus())) flags |= StudentProfile.SMOKES;
+        if (Integer.valueOf(1).equals(s.getSmokingTolerance())) flags |= StudentProfile.SMOKE_TOLERANT;
+        if (Integer.valueOf(0).equals(s.getSmokingTolerance())) flags |= StudentProfile.SMOKE_INTOLERANT;
+        if (Integer.valueOf(1).equals(s.getSnores())) flags |= StudentProfile.SNORES;
+        if (Integer.valueOf(0).equals(s.getSnores())) flags |= StudentProfile.NO_SNORE;
+        if (Integer.valueOf(1).equals(s.getSensitiveToSound())) flags |= StudentProfile.SOUND_SENSITIVE;
+        if (Integer.valueOf(1).equals(s.getSensitiveToLight())) flags |= StudentProfile.LIGHT_SENSITIVE;
+        if (Integer.valueOf(0).equals(s.getSleepQuality())) flags |= StudentProfile.LIGHT_SLEEPER;
+
+        int gender = intValue(s.getGender(), -1);
+        int[] fields = {
+                intValue(s.getSleepSchedule(), 1),
+                intValue(s.getCleanlinessLevel(), 3),
+                intValue(s.getBedtimeCleanup(), 1),
+                intValue(s.getSocialPreference(), 1),
+                intValue(s.getAllowVisitors(), 1),
+                intValue(s.getPhoneCallTime(), 1),
+                intValue(s.getStudyInRoom(), 1),
+                intValue(s.getStudyEnvironment(), 1),
+                intValue(s.getComputerUsageTime(), 2),
+                intValue(s.getGamingPreference(), 1),
+                intValue(s.getMusicPreference(), 1),
+                intValue(s.getMusicVolume(), 1),
+                intValue(s.getEatInRoom(), 1)};
+
+        return new StudentProfile(
+                s.getId(),
+                lifestyleId(gender, flags, fields),
+                gender,
+                flags,
+                intValue(s.getSleepSchedule(), 1),
+                intValue(s.getCleanlinessLevel(), 3),
+                intValue(s.getBedtimeCleanup(), 1),
+                intValue(s.getSocialPreference(), 1),
+                intValue(s.getAllowVisitors(), 1),
+                intValue(s.getPhoneCallTime(), 1),
+                intValue(s.getStudyInRoom(), 1),
+                intValue(s.getStudyEnvironment(), 1),
+                intValue(s.getComputerUsageTime(), 2),
+                intValue(s.getGamingPreference(), 1),
+                intValue(s.getMusicPreference(), 1),
+                intValue(s.getMusicVolume(), 1),
+                intValue(s.getEatInRoom(), 1),
+                codeId(s.getDeptCode()),
+                codeId(s.getMajorCode()),
+                codeId(s.getClassCode()));
+    }
+
+    /**
+     * 习惯字段（性别、标志位、13 项取值）打包为 64 位键并驻留为序号；任一取值超出 4 位时不驻留
+     */
+    private int lifestyleId(int gender, int flags, int[] fields) {
+        if (gender < -1 || gender > 14 || (flags & ~0xFF) != 0) return -1;
+        long key = (long) (gender + 1) << 8 | flags;
+        for (int field : fields) {
+            if (field < 0 || field > 15) return -1;
+            key = key << 4 | field;
+        }
+        Integer id = lifestyleIds.get(key);
+        if (id != null) return id;
+        synchronized (lifestyleIds) {
+            return lifestyleIds.computeIfAbsent(key, k -> lifestyleIds.size());
+        }
+    }
+
+    private int codeId(String code) {
+        if (code == null) return -1;
+        Integer id = codeIds.get(code);
+        if (id != null) return id;
+        synchronized (codeIds) {
+            return codeIds.computeIfAbsent(code, c -> codeIds.size());
+        }
+    }
+
+    // ==================== 硬约束 ====================
+
+    /**
+     * 检查两个学生之间是否存在硬约束冲突（均已归类时查冲突矩阵）
+     */
+    public boolean hasHardConflict(StudentProfile a, StudentProfile b) {
+        if (a.constraintClass >= 0 && b.constraintClass >= 0) {
+            return constraintClasses.conflicts(a.constraintClass, b.constraintClass);
+        }
+        if (genderConstraint && a.gender != b.gender) {
+            return true;
+        }
+        if (smokingConstraint) {
+            if (a.has(StudentProfile.SMOKES) && b.has(StudentProfile.SMOKE_INTOLERANT)) return true;
+            if (b.has(StudentProfile.SMOKES) && a.has(StudentProfile.SMOKE_INTOLERANT)) return true;
+        }
+        return sleepHardConstraint && Math.abs(a.sleepSchedule - b.sleepSchedule) >= 3;
+    }
+
+    /**
+     * 学生与掩码中的成员是否必然存在硬约束冲突（O(1) 预筛，返回 false 时仍需打分确认）
+     *
+     * @param classMask 房间/分组成员的等价类掩码（{@link #classMask}）
+     */
+    public boolean excludes(StudentProfile student, long classMask) {
+        return constraintClasses.conflictsWithAny(student.constraintClass, classMask);
+    }
+
+    /**
+     * 学生的等价类位掩码，房间/分组掩码为成员掩码的按位或
+     */
+    public static long classMask(StudentProfile student) {
+        return ConstraintClasses.bit(student.constraintClass);
+    }
+
+    /**
+     * 一组学生的等价类掩码
+     */
+    public static long classMask(List<StudentProfile> members) {
+        long mask = 0;
+        for (int i = 0, n = members.size(); i < n; i++) {
+            mask |= classMask(members.get(i));
+        }
+        return mask;
+    }
+
+    // ==================== 两两/房间分数 ====================
+
+    /**
+     * 两两匹配分（百分之一分，0-10000），存在硬约束冲突时返回 {@link #CONFLICT}
+     */
+    public int pairPoints(StudentProfile a, StudentProfile b) {
+        if (hasHardConflict(a, b)) {
+            return CONFLICT;
+        }
+
+        int total = lifestylePoints(a, b);
+
+        // 加分项（同院系/专业/班级），加分后总分不超过100
+        int bonus = bonusPoints(a, b);
+        if (bonus > 0) {
+            total = Math.min(total + bonus, MAX_POINTS);
+        }
+        return total;
+    }
+
+    /**
+     * 习惯部分的加权分（不含加分项），两个画像都已驻留且序号在上限内时查缓存
+     */
+    private int lifestylePoints(StudentProfile a, StudentProfile b) {
+        int idA = a.lifestyleId;
+        int idB = b.lifestyleId;
+        if (idA < 0 || idB < 0 || idA >= MAX_CACHED_PROFILES || idB >= MAX_CACHED_PROFILES) {
+            return weightedPoints(a, b);
+        }
+        PairCache cache = pairCache;
+        if (cache == null || idA >= cache.dim || idB >= cache.dim) {
+            cache = growCache(Math.max(idA, idB));
+        }
+        int[] cells = cache.cells;
+        int dim = cache.dim;
+        int cached = cells[idA * dim + idB];
+        if (cached != 0) {
+            return cached - 1;
+        }
+        int points = weightedPoints(a, b);
+        cells[idA * dim + idB] = points + 1;
+        cells[idB * dim + idA] = points + 1;
+        return points;
+    }
+
+    /**
+     * 扩容缓存矩阵使其容纳序号 maxId，边长取不小于已驻留画像数的 2 的幂
+     */
+    private synchronized PairCache growCache(int maxId) {
+        PairCache current = pairCache;
+        if (current != null && maxId < current.dim) {
+            return current;
+        }
+        int required = Math.max(Math.max(maxId + 1, lifestyleIds.size()), MIN_CACHE_DIM);
+        int dim = Math.min(Integer.highestOneBit(required - 1) << 1, MAX_CACHED_PROFILES);
+        PairCache grown = new PairCache(dim);
+        if (current != null) {
+            for (int row = 0; row < current.dim; row++) {
+                System.arraycopy(current.cells, row * current.dim, grown.cells, row * dim, current.dim);
+            }
+        }
+        pairCache = grown;
+        return grown;
+    }
+
+    private int weightedPoints(StudentProfile a, StudentProfile b) {
+        return sleepPoints(a, b) * sleepWeight
+                + smokingPoints(a, b) * smokingWeight
+                + cleanlinessPoints(a, b) * cleanlinessWeight
+                + socialPoints(a, b) * socialWeight
+                + studyPoints(a, b) * studyWeight
+                + entertainmentPoints(a, b) * entertainmentWeight;
+    }
+
+    /**
+     * 两两匹配分（0-100），存在硬约束冲突时返回 {@link #CONFLICT}
+     */
+    public double pairScore(StudentProfile a, StudentProfile b) {
+        int points = pairPoints(a, b);
+        return points == CONFLICT ? CONFLICT : points / 100.0;
+    }
+
+    /**
+     * 学生与房间现有室友的平均匹配分（0-100，与 RoomMatchResult.avgScore 相同的两位小数四舍五入）
+     * 空房间返回 {@link #EMPTY_ROOM_SCORE}，与任一室友存在硬约束冲突时返回 {@link #CONFLICT}
+     */
+    public double roomScore(StudentProfile student, List<StudentProfile> roommates) {
+        int count = roommates.size();
+        if (count == 0) {
+            return EMPTY_ROOM_SCORE;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            int points = pairPoints(student, roommates.get(i));
+            if (points == CONFLICT) {
+                return CONFLICT;
+            }
+            sum += points;
+        }
+        // 百分之一分取平均并四舍五入（HALF_UP）
+        return ((2 * sum + count) / (2L * count)) / 100.0;
+    }
+
+    /**
+     * 学生与房间现有室友中是否存在任一硬约束冲突
+     */
+    public boolean hasHardConflict(StudentProfile student, List<StudentProfile> roommates) {
+        for (int i = 0, n = roommates.size(); i < n; i++) {
+            if (hasHardConflict(student, roommates.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== 各维度原始分（0-100） ====================
+
+    private static int sleepPoints(StudentProfile a, StudentProfile b) {
+        int points = 100;
+        int diff = Math.abs(a.sleepSchedule - b.sleepSchedule);
+        if (diff == 1) {
+            points -= 10;
+        } else if (diff == 2) {
+            points -= 25;
+        } else if (diff >= 3) {
+            points -= 40;
+        }
+        if (a.has(StudentProfile.SNORES) && b.has(StudentProfile.SOUND_SENSITIVE)) points -= 25;
+        if (b.has(StudentProfile.SNORES) && a.has(StudentProfile.SOUND_SENSITIVE)) points -= 25;
+        if (a.has(StudentProfile.LIGHT_SLEEPER) && b.has(StudentProfile.LIGHT_SENSITIVE)) points -= 10;
+        if (b.has(StudentProfile.LIGHT_SLEEPER) && a.has(StudentProfile.LIGHT_SENSITIVE)) points -= 10;
+        return Math.max(0, points);
+    }
+
+    private static int smokingPoints(StudentProfile a, StudentProfile b) {
+        boolean aSmokes = a.has(StudentProfile.SMOKES);
+        boolean bSmokes = b.has(StudentProfile.SMOKES);
+        if (aSmokes == bSmokes) {
+            return 100;
+        }
+        int points = 100;
+        if (aSmokes) {
+            points -= b.has(StudentProfile.SMOKE_TOLERANT) ? 10 : 40;
+        }
+        if (bSmokes) {
+            points -= a.has(StudentProfile.SMOKE_TOLERANT) ? 10 : 40;
+        }
+        return Math.max(0, points);
+    }
+
+    private static int cleanlinessPoints(StudentProfile a, StudentProfile b) {
+        int points = 100;
+        int diff = Math.abs(a.cleanlinessLevel - b.cleanlinessLevel);
+        if (diff == 1) {
+            points -= 10;
+        } else if (diff == 2) {
+            points -= 20;
+        } else if (diff >= 3) {
+            points -= 35;
+        }
+        if (Math.abs(a.bedtimeCleanup - b.bedtimeCleanup) >= 2) points -= 10;
+        return Math.max(0, points);
+    }
+
+    private static int socialPoints(StudentProfile a, StudentProfile b) {
+        int points = 100;
+        int diff = Math.abs(a.socialPreference - b.socialPreference);
+        if (diff == 2) {
+            points -= 25;
+        } else if (diff != 0) {
+            points -= 10;
+        }
+        if (a.allowVisitors == 0 && b.allowVisitors == 2) points -= 15;
+        if (b.allowVisitors == 0 && a.allowVisitors == 2) points -= 15;
+        if (a.phoneCallTime == 0 && b.phoneCallTime == 2) points -= 10;
+        if (b.phoneCallTime == 0 && a.phoneCallTime == 2) points -= 10;
+        return Math.max(0, points);
+    }
+
+    private static int studyPoints(StudentProfile a, StudentProfile b) {
+        int points = 100;
+        if (a.studyInRoom >= 2 && a.studyEnvironment == 1 && b.studyEnvironment == 3) points -= 20;
+        if (b.studyInRoom >= 2 && b.studyEnvironment == 1 && a.studyEnvironment == 3) points -= 20;
+        return Math.max(0, points);
+    }
+
+    private static int entertainmentPoints(StudentProfile a, StudentProfile b) {
+        int points = 100;
+        if (Math.abs(a.computerUsageTime - b.computerUsageTime) >= 2) points -= 10;
+        if (a.gamingPreference == 2 && b.gamingPreference == 0) points -= 15;
+        if (b.gamingPreference == 2 && a.gamingPreference == 0) points -= 15;
+        if (a.musicPreference == 2 && a.musicVolume == 2 && b.musicPreference == 0) points -= 15;
+        if (b.musicPreference == 2 && b.musicVolume == 2 && a.musicPreference == 0) points -= 15;
+        if (Math.abs(a.eatInRoom - b.eatInRoom) >= 2) points -= 5;
+        return Math.max(0, points);
+    }
+
+    private int bonusPoints(StudentProfile a, StudentProfile b) {
+        if (a.classId >= 0 && a.classId == b.classId) return sameClassBonus;
+        if (a.majorId >= 0 && a.majorId == b.majorId) return sameMajorBonus;
+        if (a.deptId >= 0 && a.deptId == b.deptId) return sameDeptBonus;
+        return 0;
+    }
+
+    private static int intValue(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 两两分缓存矩阵（dim × dim）
+     */
+    private static final class PairCache {
+        final int dim;
+        final int[] cells;
+
+        PairCache(int dim) {
+            this.dim = dim;
+            this.cells = new int[dim * dim];
+        }
+    }
+}
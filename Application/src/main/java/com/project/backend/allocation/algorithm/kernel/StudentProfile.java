@@ -0,0 +1,113 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+/**
+ * 学生生活习惯的紧凑原始类型画像
+ * 由 {@link ScoringKernel#profile} 一次性从 Student 实体编译，算法内循环只读取此对象，
+ * 不再访问装箱的 Integer 字段。字段默认值与 CompatibilityServiceImpl 中 getIntValue 的默认值保持一致。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-10
+ */
+public final class StudentProfile {
+
+    // ==================== 标志位（区分 null 与 0/1 的字段） ====================
+
+    /** smokingStatus == 1 */
+    public static final int SMOKES = 1;
+    /** smokingTolerance == 1 */
+    public static final int SMOKE_TOLERANT = 1 << 1;
+    /** smokingTolerance == 0 */
+    public static final int SMOKE_INTOLERANT = 1 << 2;
+    /** snores == 1 */
+    public static final int SNORES = 1 << 3;
+    /** snores == 0 */
+    public static final int NO_SNORE = 1 << 4;
+    /** sensitiveToSound == 1 */
+    public static final int SOUND_SENSITIVE = 1 << 5;
+    /** sensitiveToLight == 1 */
+    public static final int LIGHT_SENSITIVE = 1 << 6;
+    /** sleepQuality == 0（浅睡易醒） */
+    public static final int LIGHT_SLEEPER = 1 << 7;
+
+    /** 学生ID */
+    public final Long studentId;
+    /** 性别（null 记为 -1） */
+    public final int gender;
+    /** 上述标志位的组合 */
+    public final int flags;
+    /** 硬约束等价类（{@link ConstraintClasses}） */
+    public final int constraintClass;
+    /** 生活习惯画像序号（习惯字段完全相同的学生共用，未驻留为 -1） */
+    public final int lifestyleId;
+
+    /** 作息（默认1） */
+    public final int sleepSchedule;
+    /** 整洁程度（默认3） */
+    public final int cleanlinessLevel;
+    /** 睡前整理（默认1） */
+    public final int bedtimeCleanup;
+    /** 社交偏好（默认1） */
+    public final int socialPreference;
+    /** 访客（默认1） */
+    public final int allowVisitors;
+    /** 电话（默认1） */
+    public final int phoneCallTime;
+    /** 宿舍学习（默认1） */
+    public final int studyInRoom;
+    /** 学习环境（默认1） */
+    public final int studyEnvironment;
+    /** 电脑使用（默认2） */
+    public final int computerUsageTime;
+    /** 游戏（默认1） */
+    public final int gamingPreference;
+    /** 音乐（默认1） */
+    public final int musicPreference;
+    /** 音量（默认1） */
+    public final int musicVolume;
+    /** 宿舍吃东西（默认1） */
+    public final int eatInRoom;
+
+    /** 院系编码的内部序号（null 为 -1） */
+    public final int deptId;
+    /** 专业编码的内部序号（null 为 -1） */
+    public final int majorId;
+    /** 班级编码的内部序号（null 为 -1） */
+    public final int classId;
+
+    StudentProfile(Long studentId, int lifestyleId, int gender, int flags,
+                   int sleepSchedule, int cleanlinessLevel, int bedtimeCleanup,
+                   int socialPreference, int allowVisitors, int phoneCallTime,
+                   int studyInRoom, int studyEnvironment,
+                   int computerUsageTime, int gamingPreference, int musicPreference,
+                   int musicVolume, int eatInRoom,
+                   int deptId, int majorId, int classId) {
+        this.studentId = studentId;
+        this.lifestyleId = lifestyleId;
+        this.gender = gender;
+        this.flags = flags;
+        this.constraintClass = ConstraintClasses.classOf(gender, flags, sleepSchedule);
+        this.sleepSchedule = sleepSchedule;
+        this.cleanlinessLevel = cleanlinessLevel;
+        this.bedtimeCleanup = bedtimeCleanup;
+        this.socialPreference = socialPreference;
+        this.allowVisitors = allowVisitors;
+        this.phoneCallTime = phoneCallTime;
+        this.studyInRoom = studyInRoom;
+        this.studyEnvironment = studyEnvironment;
+        this.computerUsageTime = computerUsageTime;
+        this.gamingPreference = gamingPreference;
+        this.musicPreference = musicPreference;
+        this.musicVolume = musicVolume;
+        this.eatInRoom = eatInRoom;
+        this.deptId = deptId;
+        this.majorId = majorId;
+        this.classId = classId;
+    }
+
+    /**
+     * 是否包含指定标志位
+     */
+    public boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+}
@@ -0,0 +1,29 @@
+package com.project.backend.allocation.algorithm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 增量分配的热启动床位
+ * 来自上一次任务的分配结果：previous 为原结果（床位字段为实际生效的床位），
+ * pinned 表示已确认/已调整，修复时固定不动
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarmStartPlacement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 原分配结果 */
+    private AllocationResultDTO previous;
+
+    /** 是否固定（已确认/已调整） */
+    private boolean pinned;
+}
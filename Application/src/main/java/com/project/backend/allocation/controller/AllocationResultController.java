@@ -2,6 +2,7 @@ package com.project.backend.allocation.controller;
 
 import com.project.backend.allocation.dto.result.AllocationResultAdjustDTO;
 import com.project.backend.allocation.dto.result.AllocationResultQueryDTO;
+import com.project.backend.allocation.service.AllocationProgressService;
 import com.project.backend.allocation.service.AllocationResultService;
 import com.project.backend.allocation.vo.AllocationResultVO;
 import com.project.core.annotation.Log;
@@ -16,6 +17,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -41,6 +44,7 @@ import java.util.List;
 public class AllocationResultController {
 
     private final AllocationResultService resultService;
+    private final AllocationProgressService progressService;
 
     /**
      * 分页查询分配结果
@@ -69,8 +73,8 @@ public class AllocationResultController {
     @Operation(summary = "确认分配结果")
     @Log(title = "确认分配结果", businessType = 2)
     public R<Void> confirmResults(@RequestParam Long taskId, @RequestBody List<Long> resultIds) {
-        boolean success = resultService.confirmResults(taskId, resultIds);
-        return success ? R.ok("确认成功", null) : R.fail("确认失败");
+        int skipped = resultService.confirmResults(taskId, resultIds);
+        return R.ok(skipped > 0 ? "确认成功，" + skipped + " 条已入住的结果未修改" : "确认成功", null);
     }
 
     /**
@@ -94,8 +98,34 @@ public class AllocationResultController {
             @RequestParam Long taskId,
             @RequestBody List<Long> resultIds,
             @RequestParam(required = false) String reason) {
-        boolean success = resultService.rejectResults(taskId, resultIds, reason);
-        return success ? R.ok("已拒绝", null) : R.fail("操作失败");
+        int skipped = resultService.rejectResults(taskId, resultIds, reason);
+        return R.ok(skipped > 0 ? "已拒绝，" + skipped + " 条已入住的结果未修改" : "已拒绝", null);
+    }
+
+    /**
+     * 拒绝全部待确认的分配结果
+     */
+    @PutMapping("/reject-all")
+    @Operation(summary = "拒绝全部待确认的分配结果")
+    @Log(title = "拒绝全部分配结果", businessType = 2)
+    public R<Void> rejectAll(@RequestParam Long taskId, @RequestParam(required = false) String reason) {
+        boolean success = resultService.rejectAll(taskId, reason);
+        return success ? R.ok("已全部拒绝", null) : R.fail("操作失败");
+    }
+
+    /**
+     * SSE 订阅批量确认/拒绝/入住进度（结果数较多时推送，需在发起操作前订阅）
+     *
+     * @param taskId 任务ID
+     * @return SSE 发射器
+     */
+    @GetMapping(value = "/confirm/progress/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "SSE 订阅批量确认/拒绝/入住进度")
+    public SseEmitter subscribeConfirmProgress(@RequestParam Long taskId) {
+        // 10 分钟超时
+        SseEmitter emitter = new SseEmitter(10 * 60 * 1000L);
+        progressService.subscribeConfirm(taskId, emitter);
+        return emitter;
     }
 
     /**
@@ -1,9 +1,14 @@
 package com.project.backend.allocation.controller;
 
+import com.project.backend.allocation.dto.task.AllocationCompareDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskQueryDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskSaveDTO;
+import com.project.backend.allocation.service.AllocationApplyService;
 import com.project.backend.allocation.service.AllocationProgressService;
 import com.project.backend.allocation.service.AllocationTaskService;
+import com.project.backend.allocation.vo.AllocationApplyResultVO;
+import com.project.backend.allocation.vo.AllocationCompareVO;
+import com.project.backend.allocation.vo.AllocationExecutorStatsVO;
 import com.project.backend.allocation.vo.AllocationPreviewVO;
 import com.project.backend.allocation.vo.AllocationProgressVO;
 import com.project.backend.allocation.vo.AllocationTaskVO;
@@ -14,6 +19,7 @@ import com.project.core.result.R;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -44,6 +50,7 @@ public class AllocationTaskController
 
     private final AllocationTaskService taskService;
     private final AllocationProgressService progressService;
+    private final AllocationApplyService applyService;
 
     @Override
     public String getEntityName() {
@@ -82,6 +89,24 @@ public class AllocationTaskController
         return R.ok(preview);
     }
 
+    /**
+     * 方案对比（同一批学生依次试算多个配置，不保存结果）
+     */
+    @PostMapping("/compare")
+    @Operation(summary = "方案对比", description = "提交后在分配任务池中依次试算各配置方案，返回对比ID，通过 GET /compare/{compareId} 查询结果，不保存分配结果")
+    public R<AllocationCompareVO> compare(@RequestBody @Valid AllocationCompareDTO compareDTO) {
+        return R.ok("方案对比已提交", taskService.compareConfigs(compareDTO));
+    }
+
+    /**
+     * 查询方案对比结果
+     */
+    @GetMapping("/compare/{compareId}")
+    @Operation(summary = "查询方案对比结果", description = "进行中时返回已完成的方案")
+    public R<AllocationCompareVO> getCompareResult(@PathVariable String compareId) {
+        return R.ok(taskService.getCompareResult(compareId));
+    }
+
     /**
      * 执行分配任务
      */
@@ -143,4 +168,23 @@ public class AllocationTaskController
         boolean success = taskService.cancelTask(id);
         return success ? R.ok("任务已取消", null) : R.fail("取消失败");
     }
+
+    /**
+     * 入住已确认的分配结果（批量写入学生、床位和入住人数，可重复执行）
+     */
+    @PutMapping("/{id}/apply")
+    @Operation(summary = "入住已确认的分配结果", description = "结果较多时可先订阅 /v1/system/allocation/result/confirm/progress/sse 查看进度")
+    @Log(title = "分配结果入住", businessType = 2)
+    public R<AllocationApplyResultVO> apply(@PathVariable Long id) {
+        return R.ok(applyService.applyTask(id));
+    }
+
+    /**
+     * 分配调度状态（排队任务数、计算池分片情况）
+     */
+    @GetMapping("/executor-stats")
+    @Operation(summary = "获取分配调度状态")
+    public R<AllocationExecutorStatsVO> executorStats() {
+        return R.ok(taskService.getExecutorStats());
+    }
 }
@@ -78,9 +78,18 @@ public class AllocationConfigSaveDTO implements Serializable {
 
     // ==================== 算法配置 ====================
 
-    @Schema(description = "算法类型：greedy/kmeans/annealing")
+    @Schema(description = "算法类型：greedy/kmeans/annealing/parallel_annealing/optimal/genetic")
     private String algorithmType = "kmeans";
 
+    @Schema(description = "算法时间预算（秒），为空不限制")
+    @Min(value = 1, message = "时间预算不能小于1秒")
+    private Integer timeLimitSeconds;
+
+    @Schema(description = "局部搜索后优化：1-启用 0-禁用")
+    @Min(value = 0, message = "后优化开关值无效")
+    @Max(value = 1, message = "后优化开关值无效")
+    private Integer postOptimize = 0;
+
     // ==================== 加分项 ====================
 
     @Schema(description = "同院系加分")
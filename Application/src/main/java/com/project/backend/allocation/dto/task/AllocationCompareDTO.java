@@ -0,0 +1,79 @@
+package com.project.backend.allocation.dto.task;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分配方案对比DTO
+ * 在同一份学生/床位快照上依次试算多个配置方案，不保存结果
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "分配方案对比请求")
+public class AllocationCompareDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "对比方案列表", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "请至少选择一个对比方案")
+    @Size(max = 8, message = "一次最多对比 8 个方案")
+    @Valid
+    private List<VariantDTO> variants;
+
+    @Schema(description = "对比总时间预算（秒）：各方案依次试算，每个方案的固定预算为 总预算 / 方案数；方案配置的预算更短时以配置为准",
+            requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "时间预算不能为空")
+    @Min(value = 1, message = "时间预算不能小于1秒")
+    @Max(value = 600, message = "时间预算不能超过600秒")
+    private Integer timeLimitSeconds;
+
+    // ==================== 学生筛选条件 ====================
+
+    @Schema(description = "目标入学年份")
+    private Integer targetEnrollmentYear;
+
+    @Schema(description = "目标性别：male/female/不限则为空")
+    private String targetGender;
+
+    @Schema(description = "目标校区编码")
+    private String targetCampusCode;
+
+    @Schema(description = "目标院系编码")
+    private String targetDeptCode;
+
+    @Schema(description = "目标专业编码")
+    private String targetMajorCode;
+
+    // ==================== 床位范围 ====================
+
+    @Schema(description = "目标楼层ID列表")
+    private List<Long> targetFloorIds;
+
+    /**
+     * 对比方案（内部类）
+     */
+    @Data
+    @Schema(description = "对比方案")
+    public static class VariantDTO implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Schema(description = "配置ID", requiredMode = Schema.RequiredMode.REQUIRED)
+        @NotNull(message = "配置ID不能为空")
+        private Long configId;
+
+        @Schema(description = "算法类型（为空则使用配置中的算法）：greedy/kmeans/annealing/parallel_annealing/optimal/genetic")
+        private String algorithmType;
+    }
+}
@@ -35,6 +35,9 @@ public class AllocationTaskSaveDTO implements Serializable {
     @NotNull(message = "配置ID不能为空")
     private Long configId;
 
+    @Schema(description = "增量分配的基准任务ID（为空为全量分配，基准任务需已完成）")
+    private Long baseTaskId;
+
     // ==================== 学生筛选条件 ====================
 
     @Schema(description = "目标入学年份")
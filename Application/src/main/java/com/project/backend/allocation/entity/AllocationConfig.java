@@ -66,10 +66,18 @@ public class AllocationConfig extends BaseEntity {
 
     // ==================== 算法配置 ====================
 
-    @Schema(description = "算法类型：greedy-贪心算法 kmeans-聚类算法 annealing-模拟退火")
+    @Schema(description = "算法类型：greedy-贪心算法 kmeans-聚类算法 annealing-模拟退火 parallel_annealing-并行回火 optimal-最优分配 genetic-岛屿遗传")
     @TableField("algorithm_type")
     private String algorithmType;
 
+    @Schema(description = "算法时间预算（秒），为空不限制；到期后返回当前最优解")
+    @TableField("time_limit_seconds")
+    private Integer timeLimitSeconds;
+
+    @Schema(description = "局部搜索后优化：1-启用 0-禁用（在算法结果上继续做交换/轮换改进）")
+    @TableField("post_optimize")
+    private Integer postOptimize;
+
     // ==================== 额外加分项 ====================
 
     @Schema(description = "同院系加分")
@@ -142,6 +142,10 @@ public class AllocationResult implements Serializable {
     @TableField("confirm_by")
     private Long confirmBy;
 
+    @Schema(description = "入住时间（已确认结果写入学生/床位的时间，为空表示尚未入住）")
+    @TableField("apply_time")
+    private LocalDateTime applyTime;
+
     // ==================== 时间字段 ====================
 
     @Schema(description = "创建时间")
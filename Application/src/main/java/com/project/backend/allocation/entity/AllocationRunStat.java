@@ -0,0 +1,99 @@
+package com.project.backend.allocation.entity;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 分配运行统计实体
+ * 每次执行完成的任务记录一条：规模、机器核数和各阶段实际耗时，用于校准耗时模型
+ * 注意：此表不继承BaseEntity，统计记录只追加不修改
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@TableName("sys_allocation_run_stat")
+@Schema(description = "分配运行统计实体")
+public class AllocationRunStat implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "主键ID")
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @Schema(description = "任务ID")
+    @TableField("task_id")
+    private Long taskId;
+
+    @Schema(description = "算法类型（增量分配为 incremental）")
+    @TableField("algorithm_type")
+    private String algorithmType;
+
+    @Schema(description = "使用的层级：1-直接优化 2-分片并行 3-向量索引")
+    @TableField("tier")
+    private Integer tier;
+
+    // ==================== 规模 ====================
+
+    @Schema(description = "学生数")
+    @TableField("student_count")
+    private Integer studentCount;
+
+    @Schema(description = "房间数")
+    @TableField("room_count")
+    private Integer roomCount;
+
+    @Schema(description = "床位数")
+    @TableField("bed_count")
+    private Integer bedCount;
+
+    @Schema(description = "分配计算池并行度")
+    @TableField("core_count")
+    private Integer coreCount;
+
+    // ==================== 各阶段耗时（毫秒） ====================
+
+    @Schema(description = "数据加载耗时")
+    @TableField("load_ms")
+    private Long loadMs;
+
+    @Schema(description = "算法耗时")
+    @TableField("algorithm_ms")
+    private Long algorithmMs;
+
+    @Schema(description = "后优化耗时（未启用为0）")
+    @TableField("optimize_ms")
+    private Long optimizeMs;
+
+    @Schema(description = "结果写库耗时")
+    @TableField("save_ms")
+    private Long saveMs;
+
+    @Schema(description = "总耗时")
+    @TableField("total_ms")
+    private Long totalMs;
+
+    // ==================== 结果 ====================
+
+    @Schema(description = "平均匹配分")
+    @TableField("avg_match_score")
+    private BigDecimal avgMatchScore;
+
+    @Schema(description = "是否因时间预算提前结束：1-是 0-否（提前结束的记录不参与拟合）")
+    @TableField("budget_expired")
+    private Integer budgetExpired;
+
+    @Schema(description = "创建时间")
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
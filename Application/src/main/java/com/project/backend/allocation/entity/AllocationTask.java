@@ -37,6 +37,10 @@ public class AllocationTask extends BaseEntity {
     @TableField("config_id")
     private Long configId;
 
+    @Schema(description = "增量分配的基准任务ID（为空为全量分配）")
+    @TableField("base_task_id")
+    private Long baseTaskId;
+
     // ==================== 分配范围（学生筛选条件） ====================
 
     @Schema(description = "目标入学年份")
@@ -125,6 +129,10 @@ public class AllocationTask extends BaseEntity {
     @TableField("execute_duration")
     private Integer executeDuration;
 
+    @Schema(description = "入住锁定时间（非空表示正在入住，入住过程中每块刷新）")
+    @TableField("apply_lock_time")
+    private LocalDateTime applyLockTime;
+
     // ==================== 其他字段 ====================
 
     @Schema(description = "备注")
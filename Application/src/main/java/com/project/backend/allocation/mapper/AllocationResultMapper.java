@@ -5,8 +5,10 @@ import com.project.backend.allocation.entity.AllocationResult;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 分配结果Mapper
@@ -18,49 +20,83 @@ import java.math.BigDecimal;
 public interface AllocationResultMapper extends BaseMapper<AllocationResult> {
 
     /**
-     * 统计任务的平均匹配分
+     * 统计指定状态的数量
      *
      * @param taskId 任务ID
-     * @return 平均匹配分
+     * @param status 状态
+     * @return 数量
      */
-    @Select("SELECT AVG(match_score) FROM sys_allocation_result WHERE task_id = #{taskId}")
-    BigDecimal calculateAvgMatchScore(@Param("taskId") Long taskId);
+    @Select("SELECT COUNT(*) FROM sys_allocation_result WHERE task_id = #{taskId} AND status = #{status}")
+    int countByStatus(@Param("taskId") Long taskId, @Param("status") Integer status);
 
     /**
-     * 统计任务的最低匹配分
+     * 按状态分块更新任务的结果（每次最多 limit 条，按 ID 顺序，已入住的结果不修改），重复调用直到返回 0
      *
-     * @param taskId 任务ID
-     * @return 最低匹配分
+     * @param taskId      任务ID
+     * @param fromStatus  原状态
+     * @param toStatus    目标状态
+     * @param reason      调整原因（为空时不修改）
+     * @param confirmTime 确认时间（为空时不修改）
+     * @param limit       每块条数
+     * @return 更新条数
      */
-    @Select("SELECT MIN(match_score) FROM sys_allocation_result WHERE task_id = #{taskId}")
-    BigDecimal calculateMinMatchScore(@Param("taskId") Long taskId);
+    @Update("<script>UPDATE sys_allocation_result SET status = #{toStatus}, update_time = NOW()" +
+            "<if test='reason != null'>, adjust_reason = #{reason}</if>" +
+            "<if test='confirmTime != null'>, confirm_time = #{confirmTime}</if>" +
+            " WHERE task_id = #{taskId} AND status = #{fromStatus} AND apply_time IS NULL ORDER BY id LIMIT #{limit}</script>")
+    int updateStatusChunk(@Param("taskId") Long taskId, @Param("fromStatus") Integer fromStatus,
+                          @Param("toStatus") Integer toStatus, @Param("reason") String reason,
+                          @Param("confirmTime") LocalDateTime confirmTime, @Param("limit") int limit);
 
     /**
-     * 统计任务的最高匹配分
+     * 按 ID 批量更新任务的结果状态（只更新属于该任务、原状态在 fromStatuses 中且尚未入住的结果）
      *
-     * @param taskId 任务ID
-     * @return 最高匹配分
+     * @param taskId       任务ID
+     * @param ids          结果ID
+     * @param fromStatuses 允许的原状态
+     * @param toStatus     目标状态
+     * @param reason       调整原因（为空时不修改）
+     * @param confirmTime  确认时间（为空时不修改）
+     * @return 更新条数
      */
-    @Select("SELECT MAX(match_score) FROM sys_allocation_result WHERE task_id = #{taskId}")
-    BigDecimal calculateMaxMatchScore(@Param("taskId") Long taskId);
+    @Update("<script>UPDATE sys_allocation_result SET status = #{toStatus}, update_time = NOW()" +
+            "<if test='reason != null'>, adjust_reason = #{reason}</if>" +
+            "<if test='confirmTime != null'>, confirm_time = #{confirmTime}</if>" +
+            " WHERE task_id = #{taskId} AND apply_time IS NULL" +
+            " AND status IN <foreach collection='fromStatuses' item='s' open='(' separator=',' close=')'>#{s}</foreach>" +
+            " AND id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int updateStatusByIds(@Param("taskId") Long taskId, @Param("ids") List<Long> ids,
+                          @Param("fromStatuses") List<Integer> fromStatuses, @Param("toStatus") Integer toStatus,
+                          @Param("reason") String reason, @Param("confirmTime") LocalDateTime confirmTime);
 
     /**
-     * 统计低于阈值的数量
+     * 统计指定结果中已入住的数量（已入住的结果不能再确认或拒绝）
      *
-     * @param taskId    任务ID
-     * @param threshold 阈值
-     * @return 低于阈值的数量
+     * @param taskId 任务ID
+     * @param ids    结果ID
+     * @return 数量
      */
-    @Select("SELECT COUNT(*) FROM sys_allocation_result WHERE task_id = #{taskId} AND match_score < #{threshold}")
-    int countLowScoreResults(@Param("taskId") Long taskId, @Param("threshold") BigDecimal threshold);
+    @Select("<script>SELECT COUNT(*) FROM sys_allocation_result WHERE task_id = #{taskId} AND apply_time IS NOT NULL" +
+            " AND id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int countAppliedByIds(@Param("taskId") Long taskId, @Param("ids") List<Long> ids);
 
     /**
-     * 统计指定状态的数量
+     * 统计任务中已确认但尚未入住的结果数
      *
      * @param taskId 任务ID
-     * @param status 状态
      * @return 数量
      */
-    @Select("SELECT COUNT(*) FROM sys_allocation_result WHERE task_id = #{taskId} AND status = #{status}")
-    int countByStatus(@Param("taskId") Long taskId, @Param("status") Integer status);
+    @Select("SELECT COUNT(*) FROM sys_allocation_result WHERE task_id = #{taskId} AND status = 1 AND apply_time IS NULL")
+    int countUnapplied(@Param("taskId") Long taskId);
+
+    /**
+     * 标记结果已入住
+     *
+     * @param ids       结果ID
+     * @param applyTime 入住时间
+     * @return 更新条数
+     */
+    @Update("<script>UPDATE sys_allocation_result SET apply_time = #{applyTime}, update_time = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int markApplied(@Param("ids") List<Long> ids, @Param("applyTime") LocalDateTime applyTime);
 }
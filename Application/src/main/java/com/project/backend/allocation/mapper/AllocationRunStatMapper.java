@@ -0,0 +1,15 @@
+package com.project.backend.allocation.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.project.backend.allocation.entity.AllocationRunStat;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 分配运行统计Mapper
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Mapper
+public interface AllocationRunStatMapper extends BaseMapper<AllocationRunStat> {
+}
@@ -3,6 +3,8 @@ package com.project.backend.allocation.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.project.backend.allocation.entity.AllocationTask;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
 /**
  * 分配任务Mapper
@@ -12,4 +14,50 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface AllocationTaskMapper extends BaseMapper<AllocationTask> {
+
+    /**
+     * 按增量调整已确认数并同步任务状态（全部确认/部分确认），单条语句完成，无需先查询
+     * 注意：MySQL 按从左到右的顺序赋值，status 须在 confirmed_count 之前计算
+     *
+     * @param taskId 任务ID
+     * @param delta  已确认数增量（可为负）
+     * @return 更新条数
+     */
+    @Update("UPDATE sys_allocation_task SET " +
+            "status = CASE WHEN GREATEST(IFNULL(confirmed_count, 0) + #{delta}, 0) >= IFNULL(allocated_count, 0) THEN 4 " +
+            "WHEN GREATEST(IFNULL(confirmed_count, 0) + #{delta}, 0) > 0 THEN 3 ELSE status END, " +
+            "confirmed_count = GREATEST(IFNULL(confirmed_count, 0) + #{delta}, 0), " +
+            "update_time = NOW() WHERE id = #{taskId}")
+    int addConfirmedCount(@Param("taskId") Long taskId, @Param("delta") int delta);
+
+    /**
+     * 条件进入入住状态：仅当任务为部分确认/全部确认、且没有正在进行的入住（锁为空或超过 staleMinutes 分钟未刷新）时写入锁定时间
+     * 多实例同时发起时只有一个成功
+     *
+     * @param taskId       任务ID
+     * @param staleMinutes 锁超时（分钟），超时视为上次入住已中断
+     * @return 1 表示成功进入入住状态
+     */
+    @Update("UPDATE sys_allocation_task SET apply_lock_time = NOW(), update_time = NOW() " +
+            "WHERE id = #{taskId} AND deleted = 0 AND status IN (3, 4) " +
+            "AND (apply_lock_time IS NULL OR apply_lock_time < NOW() - INTERVAL #{staleMinutes} MINUTE)")
+    int tryLockApply(@Param("taskId") Long taskId, @Param("staleMinutes") int staleMinutes);
+
+    /**
+     * 刷新入住锁定时间（每处理完一块调用）
+     *
+     * @param taskId 任务ID
+     * @return 更新条数
+     */
+    @Update("UPDATE sys_allocation_task SET apply_lock_time = NOW() WHERE id = #{taskId} AND apply_lock_time IS NOT NULL")
+    int refreshApplyLock(@Param("taskId") Long taskId);
+
+    /**
+     * 退出入住状态
+     *
+     * @param taskId 任务ID
+     * @return 更新条数
+     */
+    @Update("UPDATE sys_allocation_task SET apply_lock_time = NULL, update_time = NOW() WHERE id = #{taskId}")
+    int unlockApply(@Param("taskId") Long taskId);
 }
@@ -0,0 +1,22 @@
+package com.project.backend.allocation.service;
+
+import com.project.backend.allocation.vo.AllocationApplyResultVO;
+
+/**
+ * 分配结果入住服务
+ * 将任务中已确认的分配结果批量写入学生（房间/床位字段）、床位（入住学生、床位状态）和房间/楼层入住人数
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public interface AllocationApplyService {
+
+    /**
+     * 入住任务中所有已确认且尚未入住的结果
+     * 按块提交，可重复执行：已入住的结果不会重复处理，中断后再次执行从未入住的结果继续
+     *
+     * @param taskId 任务ID
+     * @return 入住结果
+     */
+    AllocationApplyResultVO applyTask(Long taskId);
+}
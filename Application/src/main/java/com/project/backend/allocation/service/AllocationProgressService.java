@@ -1,82 +1,47 @@
 package com.project.backend.allocation.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.backend.allocation.vo.AllocationConfirmProgressVO;
 import com.project.backend.allocation.vo.AllocationProgressVO;
-import lombok.extern.slf4j.Slf4j;
+import com.project.backend.common.service.ProgressHub;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-
 /**
  * 分配任务进度 SSE 推送服务
- * 支持实时推送分配进度到前端，替代轮询
+ * 支持实时推送分配进度到前端，替代轮询；推送经 {@link ProgressHub} 合并、异步发送并广播到所有实例
  *
  * @author 陈鸿昇
  * @since 2026-02-08
  */
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class AllocationProgressService {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CHANNEL_PREFIX = "allocation:";
+    private static final String CONFIRM_CHANNEL_PREFIX = "allocation:confirm:";
 
-    /**
-     * taskId -> emitter 列表（支持多客户端订阅同一任务）
-     */
-    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ProgressHub progressHub;
 
     /**
      * 订阅任务进度
      */
     public void subscribe(Long taskId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.computeIfAbsent(taskId, k -> new CopyOnWriteArrayList<>());
-        list.add(emitter);
-
-        emitter.onCompletion(() -> {
-            log.debug("[AllocationSSE] 连接完成，taskId: {}", taskId);
-            removeEmitter(taskId, emitter);
-        });
-        emitter.onTimeout(() -> {
-            log.debug("[AllocationSSE] 连接超时，taskId: {}", taskId);
-            removeEmitter(taskId, emitter);
-        });
-        emitter.onError(e -> {
-            log.debug("[AllocationSSE] 连接错误，taskId: {}", taskId);
-            removeEmitter(taskId, emitter);
-        });
-
-        log.info("[AllocationSSE] 新订阅，taskId: {}, 当前订阅数: {}", taskId, list.size());
-    }
-
-    private void removeEmitter(Long taskId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.get(taskId);
-        if (list != null) {
-            list.remove(emitter);
-            if (list.isEmpty()) {
-                emitters.remove(taskId);
-            }
-        }
+        progressHub.subscribe(channel(taskId), emitter);
     }
 
     /**
-     * 推送进度更新
+     * 推送进度更新（高频调用安全：同一推送周期内只发送最新进度）
      */
     public void pushProgress(Long taskId, AllocationProgressVO progress) {
-        sendEvent(taskId, "progress", progress);
+        progressHub.publish(channel(taskId), "progress", progress);
     }
 
     /**
      * 推送完成事件
      */
     public void pushComplete(Long taskId, AllocationProgressVO progress) {
-        sendEvent(taskId, "complete", progress);
-        closeAllEmitters(taskId);
+        progressHub.publishFinal(channel(taskId), "complete", progress);
     }
 
     /**
@@ -89,55 +54,40 @@ public class AllocationProgressService {
         error.setStatusName("执行失败");
         error.setErrorMessage(errorMessage);
         error.setCompleted(true);
-        sendEvent(taskId, "error", error);
-        closeAllEmitters(taskId);
+        progressHub.publishFinal(channel(taskId), "error", error);
     }
 
     /**
      * 推送当前状态（用于 SSE 刚连接时立即推送当前进度）
      */
     public void pushCurrent(Long taskId, AllocationProgressVO progress) {
-        sendEvent(taskId, "current", progress);
+        progressHub.publish(channel(taskId), "current", progress);
     }
 
-    private void sendEvent(Long taskId, String eventName, Object data) {
-        List<SseEmitter> list = emitters.get(taskId);
-        if (list == null || list.isEmpty()) return;
-
-        String jsonData;
-        try {
-            jsonData = objectMapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            log.error("[AllocationSSE] JSON 序列化失败，taskId: {}", taskId, e);
-            return;
-        }
+    // ==================== 批量确认/拒绝/入住 ====================
 
-        List<SseEmitter> deadEmitters = new CopyOnWriteArrayList<>();
-        for (SseEmitter emitter : list) {
-            try {
-                emitter.send(SseEmitter.event().name(eventName).data(jsonData));
-            } catch (IOException e) {
-                deadEmitters.add(emitter);
-            }
-        }
+    /**
+     * 订阅任务的批量确认/拒绝/入住进度
+     */
+    public void subscribeConfirm(Long taskId, SseEmitter emitter) {
+        progressHub.subscribe(CONFIRM_CHANNEL_PREFIX + taskId, emitter);
+    }
 
-        for (SseEmitter dead : deadEmitters) {
-            list.remove(dead);
-        }
+    /**
+     * 推送批量确认/拒绝/入住进度
+     */
+    public void pushConfirmProgress(AllocationConfirmProgressVO progress) {
+        progressHub.publish(CONFIRM_CHANNEL_PREFIX + progress.getTaskId(), "progress", progress);
     }
 
-    private void closeAllEmitters(Long taskId) {
-        List<SseEmitter> list = emitters.remove(taskId);
-        if (list != null) {
-            for (SseEmitter emitter : list) {
-                try { emitter.complete(); } catch (Exception ignored) {}
-            }
-            log.info("[AllocationSSE] 已关闭所有连接，taskId: {}, 连接数: {}", taskId, list.size());
-        }
+    /**
+     * 推送批量确认/拒绝/入住完成事件
+     */
+    public void pushConfirmComplete(AllocationConfirmProgressVO progress) {
+        progressHub.publishFinal(CONFIRM_CHANNEL_PREFIX + progress.getTaskId(), "complete", progress);
     }
 
-    public boolean hasSubscribers(Long taskId) {
-        List<SseEmitter> list = emitters.get(taskId);
-        return list != null && !list.isEmpty();
+    private static String channel(Long taskId) {
+        return CHANNEL_PREFIX + taskId;
     }
 }
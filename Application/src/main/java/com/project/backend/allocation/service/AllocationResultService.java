@@ -38,9 +38,9 @@ public interface AllocationResultService extends IService<AllocationResult> {
      *
      * @param taskId 任务ID
      * @param resultIds 结果ID列表
-     * @return 是否成功
+     * @return 因已入住而跳过的结果数
      */
-    boolean confirmResults(Long taskId, List<Long> resultIds);
+    int confirmResults(Long taskId, List<Long> resultIds);
 
     /**
      * 确认全部分配结果
@@ -56,9 +56,18 @@ public interface AllocationResultService extends IService<AllocationResult> {
      * @param taskId 任务ID
      * @param resultIds 结果ID列表
      * @param reason 拒绝原因
+     * @return 因已入住而跳过的结果数
+     */
+    int rejectResults(Long taskId, List<Long> resultIds, String reason);
+
+    /**
+     * 拒绝全部待确认的分配结果
+     *
+     * @param taskId 任务ID
+     * @param reason 拒绝原因
      * @return 是否成功
      */
-    boolean rejectResults(Long taskId, List<Long> resultIds, String reason);
+    boolean rejectAll(Long taskId, String reason);
 
     /**
      * 调整分配结果
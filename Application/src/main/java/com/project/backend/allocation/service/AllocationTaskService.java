@@ -1,9 +1,12 @@
 package com.project.backend.allocation.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.project.backend.allocation.dto.task.AllocationCompareDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskQueryDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskSaveDTO;
 import com.project.backend.allocation.entity.AllocationTask;
+import com.project.backend.allocation.vo.AllocationCompareVO;
+import com.project.backend.allocation.vo.AllocationExecutorStatsVO;
 import com.project.backend.allocation.vo.AllocationPreviewVO;
 import com.project.backend.allocation.vo.AllocationProgressVO;
 import com.project.backend.allocation.vo.AllocationTaskVO;
@@ -79,4 +82,27 @@ public interface AllocationTaskService extends IService<AllocationTask> {
      * @return 是否成功
      */
     boolean cancelTask(Long taskId);
+
+    /**
+     * 方案对比：校验方案后提交到分配任务池，加载一次学生/床位快照，在总时间预算内依次试算各方案，不保存结果
+     *
+     * @param compareDTO 对比请求
+     * @return 对比ID及初始状态（结果通过 {@link #getCompareResult(String)} 查询）
+     */
+    AllocationCompareVO compareConfigs(AllocationCompareDTO compareDTO);
+
+    /**
+     * 查询方案对比结果（进行中时返回已完成的方案）
+     *
+     * @param compareId 对比ID
+     * @return 对比结果
+     */
+    AllocationCompareVO getCompareResult(String compareId);
+
+    /**
+     * 获取分配调度状态（任务队列与计算池）
+     *
+     * @return 调度状态
+     */
+    AllocationExecutorStatsVO getExecutorStats();
 }
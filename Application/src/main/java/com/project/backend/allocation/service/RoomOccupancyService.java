@@ -0,0 +1,33 @@
+package com.project.backend.allocation.service;
+
+import java.util.Collection;
+
+/**
+ * 房间入住索引维护接口
+ * 床位推荐使用内存中的房间入住索引（每个有空床位房间的空床位和现有室友画像），
+ * 入住、调宿、退宿、问卷变更等修改入住关系或学生画像的操作在事务提交后通知索引刷新相关房间。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public interface RoomOccupancyService {
+
+    /**
+     * 刷新指定房间（事务提交后执行）
+     *
+     * @param roomIds 房间ID
+     */
+    void refreshRooms(Collection<Long> roomIds);
+
+    /**
+     * 刷新学生所在的房间（入住、调宿、退宿或画像变更后调用，事务提交后执行）
+     *
+     * @param studentId 学生ID
+     */
+    void refreshStudent(Long studentId);
+
+    /**
+     * 整体失效：提交后台重建，重建完成前推荐继续使用当前快照
+     */
+    void invalidate();
+}
@@ -0,0 +1,326 @@
+package com.project.backend.allocation.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.project.backend.allocation.entity.AllocationResult;
+import com.project.backend.allocation.entity.AllocationTask;
+import com.project.backend.allocation.mapper.AllocationResultMapper;
+import com.project.backend.allocation.mapper.AllocationTaskMapper;
+import com.project.backend.allocation.service.AllocationApplyService;
+import com.project.backend.allocation.service.AllocationProgressService;
+import com.project.backend.allocation.service.RoomOccupancyService;
+import com.project.backend.allocation.vo.AllocationApplyResultVO;
+import com.project.backend.allocation.vo.AllocationConfirmProgressVO;
+import com.project.backend.room.dto.bed.BedClaimDTO;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.room.mapper.FloorMapper;
+import com.project.backend.room.mapper.RoomMapper;
+import com.project.backend.room.service.BedClaimService;
+import com.project.backend.student.entity.Student;
+import com.project.backend.student.mapper.StudentMapper;
+import com.project.core.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分配结果入住服务实现
+ * 按结果ID顺序分块处理已确认且尚未入住的结果，每块一个事务：
+ * <ol>
+ *     <li>一次查询结果、学生和目标床位</li>
+ *     <li>逐条校验（学生/床位存在、床位可用且未被他人占用、学生未入住其他床位），不通过的跳过并记录原因</li>
+ *     <li>一条条件 UPDATE 批量占用仍空闲的床位（{@link BedClaimService#claimAll}），期间被他人占用的跳过</li>
+ *     <li>逐条条件更新学生房间/床位字段（仅当学生仍未入住），期间已入住其他床位的释放本次占用并跳过；
+ *     按已占用床位数重算涉及的房间/楼层入住人数</li>
+ *     <li>标记结果已入住（apply_time），提交后刷新床位推荐的房间入住索引</li>
+ * </ol>
+ * 已入住的结果不会被再次选中，中断后重新执行即从未入住的结果继续；跳过的结果处理后也可重新执行。
+ * 同一任务同时只能有一个入住过程：以任务的入住锁定时间做条件更新（跨实例生效），锁超时未刷新视为已中断。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AllocationApplyServiceImpl implements AllocationApplyService {
+
+    /** 每块处理的结果数（每块一个事务） */
+    private static final int APPLY_CHUNK_SIZE = 1000;
+    /** 待入住数达到此值时推送进度 */
+    private static final int PROGRESS_REPORT_THRESHOLD = 5000;
+    /** 返回的跳过原因条数上限 */
+    private static final int MAX_SKIPPED_REASONS = 100;
+    /** 入住锁超过该时长（分钟）未刷新视为上次入住已中断，可重新发起 */
+    private static final int APPLY_LOCK_STALE_MINUTES = 10;
+
+    private final AllocationTaskMapper taskMapper;
+    private final AllocationResultMapper resultMapper;
+    private final StudentMapper studentMapper;
+    private final BedMapper bedMapper;
+    private final RoomMapper roomMapper;
+    private final FloorMapper floorMapper;
+    private final BedClaimService bedClaimService;
+    private final RoomOccupancyService roomOccupancyService;
+    private final AllocationProgressService allocationProgressService;
+
+    /**
+     * 自身的代理对象，用于每块独立事务
+     */
+    @Lazy
+    @Autowired
+    private AllocationApplyServiceImpl selfProxy;
+
+    @Override
+    public AllocationApplyResultVO applyTask(Long taskId) {
+        AllocationTask task = taskMapper.selectById(taskId);
+        if (task == null) {
+            throw new BusinessException("任务不存在");
+        }
+        if (task.getStatus() != 3 && task.getStatus() != 4) {
+            throw new BusinessException("任务没有已确认的分配结果，请先确认");
+        }
+        // 条件进入入住状态（数据库中判断），多实例同时发起同一任务时只有一个成功
+        if (taskMapper.tryLockApply(taskId, APPLY_LOCK_STALE_MINUTES) != 1) {
+            throw new BusinessException("该任务正在入住中或状态已变化，请稍后再试");
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            int total = resultMapper.countUnapplied(taskId);
+            AllocationApplyResultVO vo = new AllocationApplyResultVO();
+            vo.setTaskId(taskId);
+            vo.setTotalCount(total);
+            int applied = 0;
+            int skipped = 0;
+            int processed = 0;
+
+            long afterId = 0;
+            while (true) {
+                ChunkOutcome outcome = selfProxy.applyChunk(taskId, afterId);
+                if (outcome.processed() == 0) break;
+                afterId = outcome.lastResultId();
+                processed += outcome.processed();
+                applied += outcome.applied();
+                skipped += outcome.skippedReasons().size();
+                for (String reason : outcome.skippedReasons()) {
+                    if (vo.getSkippedReasons().size() >= MAX_SKIPPED_REASONS) break;
+                    vo.getSkippedReasons().add(reason);
+                }
+                taskMapper.refreshApplyLock(taskId);
+                if (total >= PROGRESS_REPORT_THRESHOLD) {
+                    allocationProgressService.pushConfirmProgress(progress(taskId, total, processed, applied, false));
+                }
+                if (outcome.processed() < APPLY_CHUNK_SIZE) break;
+            }
+            if (total >= PROGRESS_REPORT_THRESHOLD) {
+                allocationProgressService.pushConfirmComplete(progress(taskId, total, processed, applied, true));
+            }
+
+            vo.setAppliedCount(applied);
+            vo.setSkippedCount(skipped);
+            vo.setDuration(System.currentTimeMillis() - start);
+            log.info("任务 {} 入住完成：待入住 {}，成功 {}，跳过 {}，耗时 {}ms",
+                    taskId, total, applied, skipped, vo.getDuration());
+            return vo;
+        } finally {
+            taskMapper.unlockApply(taskId);
+        }
+    }
+
+    /**
+     * 处理一块结果（ID 大于 afterId 的前 APPLY_CHUNK_SIZE 条已确认且尚未入住的结果），独立事务
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ChunkOutcome applyChunk(Long taskId, long afterId) {
+        LambdaQueryWrapper<AllocationResult> resultWrapper = new LambdaQueryWrapper<>();
+        resultWrapper.select(AllocationResult::getId, AllocationResult::getStudentId, AllocationResult::getStudentNo,
+                        AllocationResult::getAllocatedBedId, AllocationResult::getAdjustedBedId)
+                .eq(AllocationResult::getTaskId, taskId)
+                .eq(AllocationResult::getStatus, 1)
+                .isNull(AllocationResult::getApplyTime)
+                .gt(AllocationResult::getId, afterId)
+                .orderByAsc(AllocationResult::getId)
+                .last("LIMIT " + APPLY_CHUNK_SIZE);
+        List<AllocationResult> results = resultMapper.selectList(resultWrapper);
+        if (results.isEmpty()) {
+            return new ChunkOutcome(afterId, 0, 0, List.of());
+        }
+
+        // 1. 一次加载学生，一次加载目标床位
+        Set<Long> studentIds = results.stream().map(AllocationResult::getStudentId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> bedIds = results.stream().map(AllocationApplyServiceImpl::targetBedId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Student> students = studentIds.isEmpty() ? Map.of() : studentMapper.selectList(
+                        new LambdaQueryWrapper<Student>()
+                                .select(Student::getId, Student::getStudentName, Student::getBedId)
+                                .in(Student::getId, studentIds))
+                .stream().collect(Collectors.toMap(Student::getId, Function.identity()));
+        Map<Long, Bed> beds = bedIds.isEmpty() ? Map.of() : bedMapper.selectList(
+                        new LambdaQueryWrapper<Bed>()
+                                .in(Bed::getId, bedIds))
+                .stream().collect(Collectors.toMap(Bed::getId, Function.identity()));
+
+        // 2. 逐条校验，收集需要占用的床位
+        List<Long> appliedIds = new ArrayList<>(results.size());
+        List<AllocationResult> toClaim = new ArrayList<>(results.size());
+        List<BedClaimDTO> claims = new ArrayList<>(results.size());
+        Set<Long> claimedBeds = new HashSet<>();
+        Set<Long> roomIds = new HashSet<>();
+        Set<Long> floorIds = new HashSet<>();
+        List<String> skippedReasons = new ArrayList<>();
+
+        for (AllocationResult result : results) {
+            Long bedId = targetBedId(result);
+            Student student = students.get(result.getStudentId());
+            Bed bed = bedId != null ? beds.get(bedId) : null;
+            String reason = validate(result, student, bed, claimedBeds);
+            if (reason != null) {
+                skippedReasons.add("学号 " + result.getStudentNo() + "：" + reason);
+                continue;
+            }
+            claimedBeds.add(bedId);
+            // 已在目标床位（如管理员已手动分配）：只标记已入住
+            if (bedId.equals(student.getBedId()) && student.getId().equals(bed.getStudentId())) {
+                appliedIds.add(result.getId());
+                continue;
+            }
+
+            toClaim.add(result);
+            claims.add(new BedClaimDTO(bedId, student.getId(), student.getStudentName()));
+        }
+
+        // 3. 批量占用床位（条件更新，只占用仍空闲的）
+        Set<Long> claimed = claims.isEmpty() ? Set.of() : bedClaimService.claimAll(claims);
+
+        // 4. 占用成功的逐条条件写入学生（仅当学生仍未入住），期间已被其他操作分配床位的撤销本次占用并跳过
+        for (AllocationResult result : toClaim) {
+            Bed bed = beds.get(targetBedId(result));
+            if (!claimed.contains(bed.getId())) {
+                skippedReasons.add("学号 " + result.getStudentNo() + "：床位 " + bed.getBedCode() + " 已被其他学生占用");
+                continue;
+            }
+            // 学生记录已指向该床位（床位此前未登记学生）时无需再写学生
+            boolean assigned = bed.getId().equals(students.get(result.getStudentId()).getBedId())
+                    || assignStudent(result.getStudentId(), bed);
+            if (!assigned) {
+                // 床位在本次之前已由该学生占用时保持原样，否则释放本次占用
+                if (bed.getStudentId() == null) {
+                    bedClaimService.release(bed.getId(), result.getStudentId());
+                }
+                skippedReasons.add("学号 " + result.getStudentNo() + "：学生已入住其他床位");
+                continue;
+            }
+            appliedIds.add(result.getId());
+            roomIds.add(bed.getRoomId());
+            if (bed.getFloorId() != null) floorIds.add(bed.getFloorId());
+        }
+
+        // 重算房间/楼层入住人数
+        if (!roomIds.isEmpty()) {
+            roomMapper.refreshOccupancy(roomIds);
+            if (!floorIds.isEmpty()) {
+                floorMapper.refreshOccupancy(floorIds);
+            }
+            roomOccupancyService.refreshRooms(roomIds);
+        }
+
+        // 5. 标记已入住
+        if (!appliedIds.isEmpty()) {
+            resultMapper.markApplied(appliedIds, LocalDateTime.now());
+        }
+
+        Long lastResultId = results.get(results.size() - 1).getId();
+        return new ChunkOutcome(lastResultId, results.size(), appliedIds.size(), skippedReasons);
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 条件写入学生的房间/床位（WHERE id = ? AND bed_id IS NULL），返回是否写入成功
+     * 校验后到写入前学生被其他操作（如管理员手动分配）分配床位时返回 false
+     */
+    private boolean assignStudent(Long studentId, Bed bed) {
+        LambdaUpdateWrapper<Student> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(Student::getCampusCode, bed.getCampusCode())
+                .set(Student::getFloorId, bed.getFloorId())
+                .set(Student::getFloorCode, bed.getFloorCode())
+                .set(Student::getRoomId, bed.getRoomId())
+                .set(Student::getRoomCode, bed.getRoomCode())
+                .set(Student::getBedId, bed.getId())
+                .set(Student::getBedCode, bed.getBedCode())
+                .eq(Student::getId, studentId)
+                .isNull(Student::getBedId);
+        return studentMapper.update(null, wrapper) == 1;
+    }
+
+    /**
+     * 校验结果能否入住，返回跳过原因（可入住时返回 null）
+     */
+    private static String validate(AllocationResult result, Student student, Bed bed, Set<Long> claimedBeds) {
+        if (student == null) {
+            return "学生不存在";
+        }
+        if (bed == null) {
+            return "床位不存在";
+        }
+        if (!Integer.valueOf(1).equals(bed.getStatus())) {
+            return "床位 " + bed.getBedCode() + " 已停用";
+        }
+        if (claimedBeds.contains(bed.getId())) {
+            return "床位 " + bed.getBedCode() + " 在本次入住中已分给其他学生";
+        }
+        boolean bedTakenByOther = bed.getStudentId() != null && !bed.getStudentId().equals(student.getId());
+        if (bedTakenByOther) {
+            return "床位 " + bed.getBedCode() + " 已被其他学生占用";
+        }
+        if (bed.getStudentId() == null && !Integer.valueOf(1).equals(bed.getBedStatus())) {
+            return "床位 " + bed.getBedCode() + " 当前不可入住";
+        }
+        if (student.getBedId() != null && !student.getBedId().equals(bed.getId())) {
+            return "学生已入住其他床位";
+        }
+        return null;
+    }
+
+    /**
+     * 结果的目标床位：已调整的取调整后的床位
+     */
+    private static Long targetBedId(AllocationResult result) {
+        return result.getAdjustedBedId() != null ? result.getAdjustedBedId() : result.getAllocatedBedId();
+    }
+
+    private static AllocationConfirmProgressVO progress(Long taskId, int total, int processed, int applied,
+                                                        boolean completed) {
+        AllocationConfirmProgressVO vo = new AllocationConfirmProgressVO();
+        vo.setTaskId(taskId);
+        vo.setAction("apply");
+        vo.setTotalCount(total);
+        vo.setProcessedCount(completed ? Math.max(processed, total) : processed);
+        vo.setUpdatedCount(applied);
+        vo.setProgressPercent(completed ? 100 : (int) Math.min(99, processed * 100L / Math.max(total, 1)));
+        vo.setCompleted(completed);
+        return vo;
+    }
+
+    /**
+     * 单块处理结果
+     *
+     * @param lastResultId   本块最后一条结果的ID（下一块从其之后开始）
+     * @param processed      本块处理的结果数
+     * @param applied        入住成功数
+     * @param skippedReasons 跳过原因
+     */
+    record ChunkOutcome(Long lastResultId, int processed, int applied, List<String> skippedReasons) {
+    }
+}
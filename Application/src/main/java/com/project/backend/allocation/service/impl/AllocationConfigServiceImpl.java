@@ -45,6 +45,9 @@ public class AllocationConfigServiceImpl extends ServiceImpl<AllocationConfigMap
         ALGORITHM_NAMES.put("greedy", "贪心算法");
         ALGORITHM_NAMES.put("kmeans", "聚类分配算法");
         ALGORITHM_NAMES.put("annealing", "模拟退火算法");
+        ALGORITHM_NAMES.put("parallel_annealing", "并行回火算法");
+        ALGORITHM_NAMES.put("genetic", "岛屿遗传算法");
+        ALGORITHM_NAMES.put("optimal", "最优分配算法");
     }
 
     @Override
@@ -12,13 +12,17 @@ import com.project.backend.allocation.entity.AllocationResult;
 import com.project.backend.allocation.entity.AllocationTask;
 import com.project.backend.allocation.mapper.AllocationResultMapper;
 import com.project.backend.allocation.mapper.AllocationTaskMapper;
+import com.project.backend.allocation.service.AllocationProgressService;
 import com.project.backend.allocation.service.AllocationResultService;
+import com.project.backend.allocation.vo.AllocationConfirmProgressVO;
 import com.project.backend.allocation.vo.AllocationResultVO;
 import com.project.backend.allocation.vo.AllocationRoommateVO;
 import com.project.core.exception.BusinessException;
 import com.project.core.result.PageResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +30,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +48,19 @@ public class AllocationResultServiceImpl extends ServiceImpl<AllocationResultMap
     private final AllocationResultMapper resultMapper;
     private final AllocationTaskMapper taskMapper;
     private final StudentMapper studentMapper;
+    private final AllocationProgressService allocationProgressService;
+
+    /**
+     * 自身的代理对象，用于每块独立事务
+     */
+    @Lazy
+    @Autowired
+    private AllocationResultServiceImpl selfProxy;
+
+    /** 批量更新状态时每条语句处理的结果数 */
+    private static final int STATUS_CHUNK_SIZE = 2000;
+    /** 待处理数达到此值时推送批量确认/拒绝进度 */
+    private static final int PROGRESS_REPORT_THRESHOLD = 10000;
 
     private static final Map<Integer, String> RESULT_STATUS_NAMES = Map.of(
             0, "待确认",
@@ -88,58 +106,113 @@ public class AllocationResultServiceImpl extends ServiceImpl<AllocationResultMap
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public boolean confirmResults(Long taskId, List<Long> resultIds) {
-        updateResultsStatus(taskId, resultIds, 1, null, LocalDateTime.now());
+    public int confirmResults(Long taskId, List<Long> resultIds) {
+        // 待确认、已拒绝、已调整 -> 已确认；已入住的结果不修改。每块独立事务，提交后推送进度
+        BulkProgress progress = new BulkProgress(taskId, "confirm", resultIds.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (List<Long> chunk : chunks(resultIds)) {
+            ChunkOutcome outcome = selfProxy.confirmChunk(taskId, chunk, now);
+            progress.advance(chunk.size(), outcome.updated(), outcome.skipped());
+        }
+        progress.finish();
+        return progress.skipped;
+    }
 
-        // 更新任务确认数
-        updateTaskConfirmCount(taskId);
+    @Override
+    public boolean confirmAll(Long taskId) {
+        // 按任务 + 状态分块更新，不加载结果实体
+        updatePendingStatus(taskId, "confirm", 1, null, LocalDateTime.now());
         return true;
     }
 
     @Override
+    public int rejectResults(Long taskId, List<Long> resultIds, String reason) {
+        // 待确认、已确认、已调整 -> 已拒绝；已入住的结果不修改。每块独立事务，提交后推送进度
+        BulkProgress progress = new BulkProgress(taskId, "reject", resultIds.size());
+        for (List<Long> chunk : chunks(resultIds)) {
+            ChunkOutcome outcome = selfProxy.rejectChunk(taskId, chunk, reason);
+            progress.advance(chunk.size(), outcome.updated(), outcome.skipped());
+        }
+        progress.finish();
+        return progress.skipped;
+    }
+
+    @Override
+    public boolean rejectAll(Long taskId, String reason) {
+        // 只拒绝待确认的结果，已确认数不变
+        updatePendingStatus(taskId, "reject", 2, reason, null);
+        return true;
+    }
+
+    // ==================== 分块事务 ====================
+
+    /**
+     * 按 ID 确认一块结果并同步任务已确认数（独立事务，更新条数即已确认数增量）
+     */
     @Transactional(rollbackFor = Exception.class)
-    public boolean confirmAll(Long taskId) {
-        LambdaQueryWrapper<AllocationResult> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(AllocationResult::getTaskId, taskId)
-                .eq(AllocationResult::getStatus, 0);
-        List<AllocationResult> results = resultMapper.selectList(wrapper);
+    public ChunkOutcome confirmChunk(Long taskId, List<Long> chunk, LocalDateTime confirmTime) {
+        int updated = resultMapper.updateStatusByIds(taskId, chunk, List.of(0, 2, 3), 1, null, confirmTime);
+        updateTaskConfirmCount(taskId, updated);
+        return new ChunkOutcome(updated, resultMapper.countAppliedByIds(taskId, chunk));
+    }
 
-        List<Long> resultIds = results.stream().map(AllocationResult::getId).collect(Collectors.toList());
-        return confirmResults(taskId, resultIds);
+    /**
+     * 按 ID 拒绝一块结果并同步任务已确认数（独立事务）
+     * 已确认的先单独更新，以便从已确认数中扣除
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ChunkOutcome rejectChunk(Long taskId, List<Long> chunk, String reason) {
+        int unconfirmed = resultMapper.updateStatusByIds(taskId, chunk, List.of(1), 2, reason, null);
+        int others = resultMapper.updateStatusByIds(taskId, chunk, List.of(0, 3), 2, reason, null);
+        updateTaskConfirmCount(taskId, -unconfirmed);
+        return new ChunkOutcome(unconfirmed + others, resultMapper.countAppliedByIds(taskId, chunk));
     }
 
-    @Override
+    /**
+     * 将任务中最多 STATUS_CHUNK_SIZE 条待确认结果更新为目标状态，确认时同步任务已确认数（独立事务）
+     *
+     * @return 更新条数
+     */
     @Transactional(rollbackFor = Exception.class)
-    public boolean rejectResults(Long taskId, List<Long> resultIds, String reason) {
-        updateResultsStatus(taskId, resultIds, 2, reason, null);
-        return true;
+    public int updatePendingChunk(Long taskId, Integer toStatus, String reason, LocalDateTime confirmTime) {
+        int count = resultMapper.updateStatusChunk(taskId, 0, toStatus, reason, confirmTime, STATUS_CHUNK_SIZE);
+        if (toStatus == 1) {
+            updateTaskConfirmCount(taskId, count);
+        }
+        return count;
     }
 
     /**
-     * 批量更新分配结果状态（抽离的公共方法）
+     * 将任务中所有待确认结果分块更新为目标状态（每块一条 UPDATE ... LIMIT，走 task_id + status 索引）
+     * 每块独立事务，锁持有时间和回滚量以块为限，进度在每块提交后推送；中途失败时已提交的块保留，重新执行即处理剩余结果
      *
-     * @param taskId 任务ID
-     * @param resultIds 结果ID列表
-     * @param status 目标状态（1=已确认，2=已拒绝）
-     * @param reason 调整原因（可选）
-     * @param confirmTime 确认时间（可选）
+     * @return 更新条数
      */
-    private void updateResultsStatus(Long taskId, List<Long> resultIds, Integer status,
-                                     String reason, LocalDateTime confirmTime) {
-        for (Long resultId : resultIds) {
-            AllocationResult result = resultMapper.selectById(resultId);
-            if (result != null && result.getTaskId().equals(taskId)) {
-                result.setStatus(status);
-                if (reason != null) {
-                    result.setAdjustReason(reason);
-                }
-                if (confirmTime != null) {
-                    result.setConfirmTime(confirmTime);
-                }
-                resultMapper.updateById(result);
-            }
+    private int updatePendingStatus(Long taskId, String action, Integer toStatus,
+                                    String reason, LocalDateTime confirmTime) {
+        int total = resultMapper.countByStatus(taskId, 0);
+        BulkProgress progress = new BulkProgress(taskId, action, total);
+        int updated = 0;
+        while (true) {
+            int count = selfProxy.updatePendingChunk(taskId, toStatus, reason, confirmTime);
+            updated += count;
+            progress.advance(count, count, 0);
+            if (count < STATUS_CHUNK_SIZE) break;
+        }
+        progress.skipped = Math.max(0, total - updated);
+        progress.finish();
+        log.info("任务 {} 批量{}完成，待确认 {} 条，更新 {} 条，已入住跳过 {} 条", taskId,
+                "confirm".equals(action) ? "确认" : "拒绝", total, updated, progress.skipped);
+        return updated;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += STATUS_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + STATUS_CHUNK_SIZE, distinct.size())));
         }
+        return chunks;
     }
 
     @Override
@@ -233,17 +306,71 @@ public class AllocationResultServiceImpl extends ServiceImpl<AllocationResultMap
         return vo;
     }
 
-    private void updateTaskConfirmCount(Long taskId) {
-        int confirmedCount = resultMapper.countByStatus(taskId, 1);
-        AllocationTask task = taskMapper.selectById(taskId);
-        if (task != null) {
-            task.setConfirmedCount(confirmedCount);
-            if (confirmedCount >= task.getAllocatedCount()) {
-                task.setStatus(4); // 全部确认
-            } else if (confirmedCount > 0) {
-                task.setStatus(3); // 部分确认
+    /**
+     * 按本次更新的条数调整任务已确认数和状态
+     */
+    private void updateTaskConfirmCount(Long taskId, int delta) {
+        if (delta != 0) {
+            taskMapper.addConfirmedCount(taskId, delta);
+        }
+    }
+
+    /**
+     * 批量确认/拒绝进度（待处理数达到阈值时才推送）
+     */
+    private final class BulkProgress {
+
+        private final Long taskId;
+        private final String action;
+        private final int total;
+        private final boolean report;
+        private int processed;
+        private int updated;
+        /** 因已入住而跳过的结果数 */
+        private int skipped;
+
+        BulkProgress(Long taskId, String action, int total) {
+            this.taskId = taskId;
+            this.action = action;
+            this.total = total;
+            this.report = total >= PROGRESS_REPORT_THRESHOLD;
+        }
+
+        void advance(int processedDelta, int updatedDelta, int skippedDelta) {
+            processed += processedDelta;
+            updated += updatedDelta;
+            skipped += skippedDelta;
+            if (report) {
+                allocationProgressService.pushConfirmProgress(toVO(false));
+            }
+        }
+
+        void finish() {
+            if (report) {
+                allocationProgressService.pushConfirmComplete(toVO(true));
             }
-            taskMapper.updateById(task);
         }
+
+        private AllocationConfirmProgressVO toVO(boolean completed) {
+            AllocationConfirmProgressVO vo = new AllocationConfirmProgressVO();
+            vo.setTaskId(taskId);
+            vo.setAction(action);
+            vo.setTotalCount(total);
+            vo.setProcessedCount(completed ? Math.max(processed, total) : processed);
+            vo.setUpdatedCount(updated);
+            vo.setSkippedCount(skipped);
+            vo.setProgressPercent(completed ? 100 : (int) Math.min(99, processed * 100L / Math.max(total, 1)));
+            vo.setCompleted(completed);
+            return vo;
+        }
+    }
+
+    /**
+     * 单块更新结果
+     *
+     * @param updated 状态实际发生变化的结果数
+     * @param skipped 因已入住而跳过的结果数
+     */
+    record ChunkOutcome(int updated, int skipped) {
     }
 }
@@ -0,0 +1,94 @@
+package com.project.backend.allocation.service.impl;
+
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.entity.AllocationResult;
+import com.project.backend.allocation.entity.AllocationTask;
+import com.project.backend.allocation.service.AllocationResultService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分配结果写入器
+ * 逐条接收算法结果，攒满一批后批量写库（每批独立提交，配合 rewriteBatchedStatements 合并为多行 INSERT），
+ * 同时在写入过程中累计任务统计（{@link AllocationResultStats}），写完后不再回查聚合。
+ * 每个任务各建一个，非线程安全。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+final class AllocationResultSink {
+
+    private final Long taskId;
+    private final AllocationResultService resultService;
+    private final int batchSize;
+    private final List<AllocationResult> buffer;
+    private final AllocationResultStats stats;
+
+    AllocationResultSink(Long taskId, AllocationResultService resultService, int batchSize, BigDecimal lowScoreThreshold) {
+        this.taskId = taskId;
+        this.resultService = resultService;
+        this.batchSize = Math.max(1, batchSize);
+        this.stats = new AllocationResultStats(lowScoreThreshold);
+        this.buffer = new ArrayList<>(this.batchSize);
+    }
+
+    /**
+     * 接收一条结果，缓冲区满时写库
+     */
+    void accept(AllocationResultDTO dto) {
+        buffer.add(toEntity(dto));
+        stats.accept(dto);
+
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 写入剩余结果，并把统计结果写回任务（不更新数据库）
+     */
+    void finish(AllocationTask task) {
+        flush();
+        task.setAllocatedCount(stats.successCount());
+        task.setFailedCount(stats.failedCount());
+        if (stats.successCount() > 0) {
+            task.setAvgMatchScore(stats.avgScore());
+        }
+        task.setMinMatchScore(stats.minScore());
+        task.setMaxMatchScore(stats.maxScore());
+        task.setLowScoreCount(stats.lowScoreCount());
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void flush() {
+        if (buffer.isEmpty()) return;
+        resultService.saveBatch(buffer, batchSize);
+        buffer.clear();
+    }
+
+    private AllocationResult toEntity(AllocationResultDTO dto) {
+        AllocationResult result = new AllocationResult();
+        result.setTaskId(taskId);
+        result.setStudentId(dto.getStudentId());
+        result.setStudentNo(dto.getStudentNo());
+        result.setStudentName(dto.getStudentName());
+        result.setGender(dto.getGender());
+        result.setDeptCode(dto.getDeptCode());
+        result.setMajorCode(dto.getMajorCode());
+        result.setClassCode(dto.getClassCode());
+        result.setAllocatedBedId(dto.getBedId());
+        result.setAllocatedRoomId(dto.getRoomId());
+        result.setAllocatedRoomCode(dto.getRoomCode());
+        result.setAllocatedFloorId(dto.getFloorId());
+        result.setAllocatedFloorCode(dto.getFloorCode());
+        result.setMatchScore(dto.getMatchScore());
+        result.setConflictReasons(dto.getConflictReasons());
+        result.setAdvantages(dto.getAdvantages());
+        result.setRoommateIds(dto.getRoommateIds());
+        result.setStatus(0); // 待确认
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.backend.allocation.service.impl;
+
+import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 分配结果统计（流式累计）
+ * 逐条累计成功/失败数、平均分、最低/最高分和低分数量，无需回查数据库。
+ * 统计口径与原聚合 SQL 一致：最低/最高分和低分数量统计所有有分数的结果，平均分只统计成功的结果。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+final class AllocationResultStats {
+
+    private final BigDecimal lowScoreThreshold;
+
+    private int successCount;
+    private int failedCount;
+    private int lowScoreCount;
+    private BigDecimal totalScore = BigDecimal.ZERO;
+    private BigDecimal minScore;
+    private BigDecimal maxScore;
+
+    AllocationResultStats(BigDecimal lowScoreThreshold) {
+        this.lowScoreThreshold = lowScoreThreshold;
+    }
+
+    void accept(AllocationResultDTO dto) {
+        BigDecimal score = dto.getMatchScore();
+        if (score != null) {
+            minScore = minScore == null || score.compareTo(minScore) < 0 ? score : minScore;
+            maxScore = maxScore == null || score.compareTo(maxScore) > 0 ? score : maxScore;
+            if (lowScoreThreshold != null && score.compareTo(lowScoreThreshold) < 0) {
+                lowScoreCount++;
+            }
+        }
+        if (dto.isSuccess()) {
+            successCount++;
+            if (score != null) {
+                totalScore = totalScore.add(score);
+            }
+        } else {
+            failedCount++;
+        }
+    }
+
+    int successCount() {
+        return successCount;
+    }
+
+    int failedCount() {
+        return failedCount;
+    }
+
+    int lowScoreCount() {
+        return lowScoreCount;
+    }
+
+    /**
+     * 成功结果的平均分（保留两位小数），没有成功结果时为空
+     */
+    BigDecimal avgScore() {
+        return successCount > 0
+                ? totalScore.divide(BigDecimal.valueOf(successCount), 2, RoundingMode.HALF_UP)
+                : null;
+    }
+
+    BigDecimal minScore() {
+        return minScore;
+    }
+
+    BigDecimal maxScore() {
+        return maxScore;
+    }
+}
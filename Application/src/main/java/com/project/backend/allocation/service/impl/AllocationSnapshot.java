@@ -0,0 +1,280 @@
+package com.project.backend.allocation.service.impl;
+
+import com.project.backend.room.entity.Bed;
+import com.project.backend.student.entity.Student;
+
+import java.util.*;
+
+/**
+ * 分配输入快照（列式存储）
+ * 只保存分配相关的列：学生按列存入原始类型数组（ID、性别、房间床位ID、19 项生活习惯各占 1 字节），
+ * 院系/专业/班级、房间/楼层编码等重复字符串统一编入字典，只存字典下标。
+ * 算法仍以 Student / Bed 为输入，{@link #students()} 等方法按需生成只填充分配相关字段的轻量实体，
+ * 编码字符串在实体间共享同一实例。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public final class AllocationSnapshot {
+
+    /** 生活习惯列数 */
+    static final int LIFESTYLE_FIELDS = 19;
+
+    /** 生活习惯未填写 */
+    private static final byte NO_VALUE = Byte.MIN_VALUE;
+
+    /** 编码字典（院系/专业/班级、房间/楼层编码共用） */
+    private final List<String> codes = new ArrayList<>();
+    private final Map<String, Integer> codeIndex = new HashMap<>();
+
+    /** 待分配学生 */
+    final StudentColumns targets = new StudentColumns();
+    /** 可用床位所在房间的现有学生 */
+    final StudentColumns roommates = new StudentColumns();
+    /** 可用床位 */
+    final BedColumns beds = new BedColumns();
+
+    // ==================== 物化 ====================
+
+    /**
+     * 待分配学生（轻量实体）
+     */
+    List<Student> students() {
+        return targets.toStudents();
+    }
+
+    /**
+     * 房间ID -> 可用床位
+     */
+    Map<Long, List<Bed>> roomBedMap() {
+        Map<Long, List<Bed>> map = new HashMap<>();
+        for (int i = 0; i < beds.size; i++) {
+            Bed bed = beds.toBed(i);
+            map.computeIfAbsent(bed.getRoomId(), k -> new ArrayList<>()).add(bed);
+        }
+        return map;
+    }
+
+    /**
+     * 房间ID -> 现有学生
+     */
+    Map<Long, List<Student>> roomStudentMap() {
+        Map<Long, List<Student>> map = new HashMap<>();
+        for (Student student : roommates.toStudents()) {
+            if (student.getRoomId() != null) {
+                map.computeIfAbsent(student.getRoomId(), k -> new ArrayList<>()).add(student);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 可用床位所在的房间ID
+     */
+    Set<Long> roomIds() {
+        Set<Long> roomIds = new HashSet<>();
+        for (int i = 0; i < beds.size; i++) {
+            roomIds.add(beds.roomIds[i]);
+        }
+        return roomIds;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private int code(String value) {
+        if (value == null) return -1;
+        Integer index = codeIndex.get(value);
+        if (index == null) {
+            index = codes.size();
+            codes.add(value);
+            codeIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private String code(int index) {
+        return index < 0 ? null : codes.get(index);
+    }
+
+    private static long id(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static Long id(long value) {
+        return value == 0L ? null : value;
+    }
+
+    private static byte lifestyle(Integer value) {
+        return value == null ? NO_VALUE : value.byteValue();
+    }
+
+    private static Integer lifestyle(byte value) {
+        return value == NO_VALUE ? null : (int) value;
+    }
+
+    // ==================== 列存储 ====================
+
+    /**
+     * 学生列（ID 为 0 表示空）
+     */
+    final class StudentColumns {
+
+        int size;
+        long[] ids = new long[16];
+        String[] studentNos = new String[16];
+        String[] studentNames = new String[16];
+        byte[] genders = new byte[16];
+        int[] deptCodes = new int[16];
+        int[] majorCodes = new int[16];
+        int[] classCodes = new int[16];
+        long[] roomIds = new long[16];
+        long[] bedIds = new long[16];
+        byte[] lifestyle = new byte[16 * LIFESTYLE_FIELDS];
+
+        void add(Student s) {
+            if (size == ids.length) grow();
+            int i = size++;
+            ids[i] = id(s.getId());
+            studentNos[i] = s.getStudentNo();
+            studentNames[i] = s.getStudentName();
+            genders[i] = s.getGender() == null ? 0 : s.getGender().byteValue();
+            deptCodes[i] = code(s.getDeptCode());
+            majorCodes[i] = code(s.getMajorCode());
+            classCodes[i] = code(s.getClassCode());
+            roomIds[i] = id(s.getRoomId());
+            bedIds[i] = id(s.getBedId());
+
+            int o = i * LIFESTYLE_FIELDS;
+            lifestyle[o] = lifestyle(s.getSmokingStatus());
+            lifestyle[o + 1] = lifestyle(s.getSmokingTolerance());
+            lifestyle[o + 2] = lifestyle(s.getSleepSchedule());
+            lifestyle[o + 3] = lifestyle(s.getSleepQuality());
+            lifestyle[o + 4] = lifestyle(s.getSnores());
+            lifestyle[o + 5] = lifestyle(s.getSensitiveToLight());
+            lifestyle[o + 6] = lifestyle(s.getSensitiveToSound());
+            lifestyle[o + 7] = lifestyle(s.getCleanlinessLevel());
+            lifestyle[o + 8] = lifestyle(s.getBedtimeCleanup());
+            lifestyle[o + 9] = lifestyle(s.getSocialPreference());
+            lifestyle[o + 10] = lifestyle(s.getAllowVisitors());
+            lifestyle[o + 11] = lifestyle(s.getPhoneCallTime());
+            lifestyle[o + 12] = lifestyle(s.getStudyInRoom());
+            lifestyle[o + 13] = lifestyle(s.getStudyEnvironment());
+            lifestyle[o + 14] = lifestyle(s.getComputerUsageTime());
+            lifestyle[o + 15] = lifestyle(s.getGamingPreference());
+            lifestyle[o + 16] = lifestyle(s.getMusicPreference());
+            lifestyle[o + 17] = lifestyle(s.getMusicVolume());
+            lifestyle[o + 18] = lifestyle(s.getEatInRoom());
+        }
+
+        /**
+         * 是否填写了生活习惯问卷（吸烟或作息任一项已填）
+         */
+        boolean surveyFilled(int i) {
+            int o = i * LIFESTYLE_FIELDS;
+            return lifestyle[o] != NO_VALUE || lifestyle[o + 2] != NO_VALUE;
+        }
+
+        boolean hasBed(int i) {
+            return bedIds[i] != 0L;
+        }
+
+        List<Student> toStudents() {
+            List<Student> students = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                students.add(toStudent(i));
+            }
+            return students;
+        }
+
+        private Student toStudent(int i) {
+            Student s = new Student();
+            s.setId(id(ids[i]));
+            s.setStudentNo(studentNos[i]);
+            s.setStudentName(studentNames[i]);
+            s.setGender(genders[i] == 0 ? null : (int) genders[i]);
+            s.setDeptCode(code(deptCodes[i]));
+            s.setMajorCode(code(majorCodes[i]));
+            s.setClassCode(code(classCodes[i]));
+            s.setRoomId(id(roomIds[i]));
+            s.setBedId(id(bedIds[i]));
+
+            int o = i * LIFESTYLE_FIELDS;
+            s.setSmokingStatus(lifestyle(lifestyle[o]));
+            s.setSmokingTolerance(lifestyle(lifestyle[o + 1]));
+            s.setSleepSchedule(lifestyle(lifestyle[o + 2]));
+            s.setSleepQuality(lifestyle(lifestyle[o + 3]));
+            s.setSnores(lifestyle(lifestyle[o + 4]));
+            s.setSensitiveToLight(lifestyle(lifestyle[o + 5]));
+            s.setSensitiveToSound(lifestyle(lifestyle[o + 6]));
+            s.setCleanlinessLevel(lifestyle(lifestyle[o + 7]));
+            s.setBedtimeCleanup(lifestyle(lifestyle[o + 8]));
+            s.setSocialPreference(lifestyle(lifestyle[o + 9]));
+            s.setAllowVisitors(lifestyle(lifestyle[o + 10]));
+            s.setPhoneCallTime(lifestyle(lifestyle[o + 11]));
+            s.setStudyInRoom(lifestyle(lifestyle[o + 12]));
+            s.setStudyEnvironment(lifestyle(lifestyle[o + 13]));
+            s.setComputerUsageTime(lifestyle(lifestyle[o + 14]));
+            s.setGamingPreference(lifestyle(lifestyle[o + 15]));
+            s.setMusicPreference(lifestyle(lifestyle[o + 16]));
+            s.setMusicVolume(lifestyle(lifestyle[o + 17]));
+            s.setEatInRoom(lifestyle(lifestyle[o + 18]));
+            return s;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            studentNos = Arrays.copyOf(studentNos, capacity);
+            studentNames = Arrays.copyOf(studentNames, capacity);
+            genders = Arrays.copyOf(genders, capacity);
+            deptCodes = Arrays.copyOf(deptCodes, capacity);
+            majorCodes = Arrays.copyOf(majorCodes, capacity);
+            classCodes = Arrays.copyOf(classCodes, capacity);
+            roomIds = Arrays.copyOf(roomIds, capacity);
+            bedIds = Arrays.copyOf(bedIds, capacity);
+            lifestyle = Arrays.copyOf(lifestyle, capacity * LIFESTYLE_FIELDS);
+        }
+    }
+
+    /**
+     * 床位列
+     */
+    final class BedColumns {
+
+        int size;
+        long[] ids = new long[16];
+        long[] roomIds = new long[16];
+        long[] floorIds = new long[16];
+        int[] roomCodes = new int[16];
+        int[] floorCodes = new int[16];
+
+        void add(Bed bed) {
+            if (size == ids.length) grow();
+            int i = size++;
+            ids[i] = id(bed.getId());
+            roomIds[i] = id(bed.getRoomId());
+            floorIds[i] = id(bed.getFloorId());
+            roomCodes[i] = code(bed.getRoomCode());
+            floorCodes[i] = code(bed.getFloorCode());
+        }
+
+        private Bed toBed(int i) {
+            Bed bed = new Bed();
+            bed.setId(id(ids[i]));
+            bed.setRoomId(id(roomIds[i]));
+            bed.setRoomCode(code(roomCodes[i]));
+            bed.setFloorId(id(floorIds[i]));
+            bed.setFloorCode(code(floorCodes[i]));
+            return bed;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            roomIds = Arrays.copyOf(roomIds, capacity);
+            floorIds = Arrays.copyOf(floorIds, capacity);
+            roomCodes = Arrays.copyOf(roomCodes, capacity);
+            floorCodes = Arrays.copyOf(floorCodes, capacity);
+        }
+    }
+}
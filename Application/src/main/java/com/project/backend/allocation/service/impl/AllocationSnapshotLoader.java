@@ -0,0 +1,110 @@
+package com.project.backend.allocation.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.student.entity.Student;
+import com.project.backend.student.mapper.StudentMapper;
+import com.project.core.constant.CommonConstant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 分配输入快照加载器
+ * 通过 MyBatis 游标流式读取分配相关列，逐行写入列式快照，不再整表加载完整的学生/床位实体。
+ * 游标必须在事务内遍历，加载方法为只读事务。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AllocationSnapshotLoader {
+
+
+    private final StudentMapper studentMapper;
+    private final BedMapper bedMapper;
+
+    /**
+     * 加载快照
+     *
+     * @param studentWrapper 待分配学生条件（需包含逻辑删除条件）
+     * @param bedWrapper     可用床位条件（需包含逻辑删除条件）
+     * @param withRoommates  是否加载床位所在房间的现有学生
+     * @return 快照
+     */
+    @Transactional(readOnly = true)
+    public AllocationSnapshot load(LambdaQueryWrapper<Student> studentWrapper,
+                                   LambdaQueryWrapper<Bed> bedWrapper,
+                                   boolean withRoommates) {
+        long start = System.currentTimeMillis();
+        AllocationSnapshot snapshot = new AllocationSnapshot();
+
+        try (Cursor<Student> cursor = studentMapper.streamAllocationColumns(studentWrapper)) {
+            cursor.forEach(snapshot.targets::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try (Cursor<Bed> cursor = bedMapper.streamAllocationColumns(bedWrapper)) {
+            cursor.forEach(snapshot.beds::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (withRoommates) {
+            List<Long> roomIds = new ArrayList<>(snapshot.roomIds());
+            for (int from = 0; from < roomIds.size(); from += CommonConstant.ID_CHUNK) {
+                List<Long> chunk = roomIds.subList(from, Math.min(from + CommonConstant.ID_CHUNK, roomIds.size()));
+                LambdaQueryWrapper<Student> roommateWrapper = new LambdaQueryWrapper<>();
+                roommateWrapper.in(Student::getRoomId, chunk)
+                        .eq(Student::getDeleted, 0);
+                try (Cursor<Student> cursor = studentMapper.streamAllocationColumns(roommateWrapper)) {
+                    cursor.forEach(snapshot.roommates::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        log.info("分配快照加载完成：待分配学生 {}，可用床位 {}，现有学生 {}，耗时 {}ms",
+                snapshot.targets.size, snapshot.beds.size, snapshot.roommates.size,
+                System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
+    /**
+     * 指定学生中在某时间之后资料有变更的学生ID（增量分配时判断历史结果是否失效）
+     *
+     * @param studentIds 学生ID
+     * @param since      起始时间
+     * @return 有变更的学生ID
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> changedSince(List<Long> studentIds, LocalDateTime since) {
+        Set<Long> changed = new HashSet<>();
+        for (int from = 0; from < studentIds.size(); from += CommonConstant.ID_CHUNK) {
+            List<Long> chunk = studentIds.subList(from, Math.min(from + CommonConstant.ID_CHUNK, studentIds.size()));
+            LambdaQueryWrapper<Student> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(Student::getId)
+                    .in(Student::getId, chunk)
+                    .gt(Student::getUpdateTime, since);
+            for (Object id : studentMapper.selectObjs(wrapper)) {
+                changed.add(((Number) id).longValue());
+            }
+        }
+        return changed;
+    }
+}
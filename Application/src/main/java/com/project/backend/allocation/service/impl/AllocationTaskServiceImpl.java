@@ -3,33 +3,47 @@ package com.project.backend.allocation.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.project.backend.student.entity.Student;
-import com.project.backend.student.mapper.StudentMapper;
 import com.project.backend.allocation.algorithm.AlgorithmFactory;
+import com.project.backend.allocation.algorithm.AlgorithmHelper;
+import com.project.backend.allocation.algorithm.AllocationExecutor;
 import com.project.backend.allocation.algorithm.AllocationAlgorithm;
+import com.project.backend.allocation.algorithm.AllocationBudget;
+import com.project.backend.allocation.algorithm.AllocationCostModel;
+import com.project.backend.allocation.algorithm.IncrementalAllocator;
+import com.project.backend.allocation.algorithm.LocalSearchOptimizer;
 import com.project.backend.allocation.algorithm.model.AllocationResultDTO;
+import com.project.backend.allocation.algorithm.model.WarmStartPlacement;
+import com.project.backend.allocation.dto.task.AllocationCompareDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskQueryDTO;
 import com.project.backend.allocation.dto.task.AllocationTaskSaveDTO;
 import com.project.backend.allocation.entity.AllocationConfig;
 import com.project.backend.allocation.entity.AllocationResult;
+import com.project.backend.allocation.entity.AllocationRunStat;
 import com.project.backend.allocation.entity.AllocationTask;
 import com.project.backend.allocation.mapper.AllocationResultMapper;
 import com.project.backend.allocation.mapper.AllocationTaskMapper;
 import com.project.backend.allocation.service.AllocationConfigService;
 import com.project.backend.allocation.service.AllocationProgressService;
+import com.project.backend.allocation.service.AllocationResultService;
 import com.project.backend.allocation.service.AllocationTaskService;
+import com.project.backend.allocation.vo.AllocationCompareVO;
+import com.project.backend.allocation.vo.AllocationExecutorStatsVO;
 import com.project.backend.allocation.vo.AllocationPreviewVO;
 import com.project.backend.allocation.vo.AllocationProgressVO;
 import com.project.backend.allocation.vo.AllocationTaskVO;
+import com.project.backend.common.service.TaskStateStore;
 import com.project.backend.room.entity.Bed;
-import com.project.backend.room.mapper.BedMapper;
 import com.project.core.exception.BusinessException;
 import com.project.core.result.PageResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,7 +51,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 分配任务服务实现
@@ -53,13 +68,30 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
 
     private final AllocationConfigService configService;
     private final AlgorithmFactory algorithmFactory;
-    private final StudentMapper studentMapper;
-    private final BedMapper bedMapper;
+    private final IncrementalAllocator incrementalAllocator;
+    private final LocalSearchOptimizer localSearchOptimizer;
+    private final AllocationSnapshotLoader snapshotLoader;
+    private final AllocationCostModel costModel;
+    private final AllocationExecutor allocationExecutor;
+    private final ThreadPoolTaskExecutor allocationTaskExecutor;
     private final AllocationResultMapper resultMapper;
     private final AllocationProgressService allocationProgressService;
+    private final AllocationResultService allocationResultService;
+    private final TaskStateStore taskStateStore;
 
-    // 任务进度缓存
-    private final ConcurrentHashMap<Long, AllocationProgressVO> progressCache = new ConcurrentHashMap<>();
+    /** 分配结果每批写库的条数 */
+    @Value("${allocation.result.batch-save-size:2000}")
+    private int resultBatchSaveSize;
+
+    /** 任务进度快照的命名空间 */
+    private static final String PROGRESS_NAMESPACE = "allocation:progress";
+    /** 方案对比结果的状态命名空间 */
+    private static final String COMPARE_NAMESPACE = "allocation:compare";
+    /** 执行中进度快照的最小保存间隔（毫秒），SSE 推送不受此限制 */
+    private static final long PROGRESS_SAVE_INTERVAL_MS = 1000L;
+
+    // 执行中任务的运行预算（取消令牌 + 时间预算），取消执行中的任务时通知算法提前结束
+    private final ConcurrentHashMap<Long, AllocationBudget> runningBudgets = new ConcurrentHashMap<>();
 
     private static final Map<Integer, String> TASK_TYPE_NAMES = Map.of(
             1, "批量分配",
@@ -117,6 +149,16 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         if (config == null) {
             throw new BusinessException("配置不存在");
         }
+        // 增量分配：基准任务需已完成
+        if (saveDTO.getBaseTaskId() != null) {
+            AllocationTask baseTask = getById(saveDTO.getBaseTaskId());
+            if (baseTask == null) {
+                throw new BusinessException("基准任务不存在");
+            }
+            if (baseTask.getStatus() < 2 || baseTask.getStatus() > 4) {
+                throw new BusinessException("基准任务尚未完成，不能作为增量分配的基准");
+            }
+        }
 
         // 编辑模式：ID 存在时走更新逻辑
         if (saveDTO.getId() != null) {
@@ -163,36 +205,37 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         AllocationPreviewVO preview = new AllocationPreviewVO();
         List<String> warnings = new ArrayList<>();
 
+        // 加载符合条件的学生与可用床位（列式快照，不加载现有室友）
+        LambdaQueryWrapper<Bed> bedWrapper = buildBedQueryWrapper(saveDTO);
+        bedWrapper.eq(Bed::getBedStatus, 1); // 空闲
+        AllocationSnapshot snapshot = snapshotLoader.load(buildStudentQueryWrapper(saveDTO), bedWrapper, false);
+        AllocationSnapshot.StudentColumns students = snapshot.targets;
+
         // 1. 统计符合条件的学生
-        LambdaQueryWrapper<Student> studentWrapper = buildStudentQueryWrapper(saveDTO);
-        List<Student> students = studentMapper.selectList(studentWrapper);
-        preview.setTotalStudents(students.size());
+        preview.setTotalStudents(students.size);
 
         // 统计问卷填写情况
-        long filledCount = students.stream()
-                .filter(s -> s.getSmokingStatus() != null || s.getSleepSchedule() != null)
-                .count();
-        preview.setSurveyFilledCount((int) filledCount);
-        preview.setSurveyUnfilledCount(students.size() - (int) filledCount);
-        preview.setSurveyFillRate(students.size() > 0 ? (filledCount * 100.0 / students.size()) : 0);
+        int filledCount = 0;
+        int alreadyAllocated = 0;
+        for (int i = 0; i < students.size; i++) {
+            if (students.surveyFilled(i)) filledCount++;
+            if (students.hasBed(i)) alreadyAllocated++;
+        }
+        preview.setSurveyFilledCount(filledCount);
+        preview.setSurveyUnfilledCount(students.size - filledCount);
+        preview.setSurveyFillRate(students.size > 0 ? (filledCount * 100.0 / students.size) : 0);
 
         // 已分配学生
-        long alreadyAllocated = students.stream().filter(s -> s.getBedId() != null).count();
-        preview.setAlreadyAllocatedCount((int) alreadyAllocated);
-        preview.setToBeAllocatedCount(students.size() - (int) alreadyAllocated);
+        preview.setAlreadyAllocatedCount(alreadyAllocated);
+        preview.setToBeAllocatedCount(students.size - alreadyAllocated);
 
         // 2. 统计可用床位
-        LambdaQueryWrapper<Bed> bedWrapper = buildBedQueryWrapper(saveDTO);
-        bedWrapper.eq(Bed::getBedStatus, 1); // 空闲
-        List<Bed> beds = bedMapper.selectList(bedWrapper);
-        preview.setTotalAvailableBeds(beds.size());
-
-        Set<Long> roomIds = beds.stream().map(Bed::getRoomId).collect(Collectors.toSet());
-        preview.setTotalRooms(roomIds.size());
+        preview.setTotalAvailableBeds(snapshot.beds.size);
+        preview.setTotalRooms(snapshot.roomIds().size());
 
         // 3. 床位是否充足
         int toAllocate = preview.getToBeAllocatedCount();
-        int availableBeds = beds.size();
+        int availableBeds = snapshot.beds.size;
         preview.setBedsEnough(availableBeds >= toAllocate);
         preview.setBedDifference(availableBeds - toAllocate);
 
@@ -207,6 +250,12 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
             warnings.add("没有待分配的学生");
         }
 
+        // 5. 预计耗时与算法推荐（有实测记录时按校准模型估算）
+        AllocationConfig config = saveDTO.getConfigId() != null ? configService.getById(saveDTO.getConfigId()) : null;
+        if (config != null && toAllocate > 0) {
+            fillEstimate(preview, config, toAllocate);
+        }
+
         preview.setWarnings(warnings);
         preview.setCanExecute(preview.getToBeAllocatedCount() > 0 && preview.getBedsEnough());
         if (!preview.getCanExecute()) {
@@ -216,9 +265,38 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         return preview;
     }
 
+    /**
+     * 填充预计耗时和推荐算法
+     */
+    private void fillEstimate(AllocationPreviewVO preview, AllocationConfig config, int studentCount) {
+        String algorithmType = config.getAlgorithmType();
+        preview.setAlgorithmType(algorithmType);
+        Optional<AllocationCostModel.Estimate> estimate = costModel.estimate(algorithmType, studentCount,
+                Integer.valueOf(1).equals(config.getPostOptimize()));
+        if (estimate.isPresent()) {
+            long totalMs = estimate.get().totalMs();
+            preview.setEstimatedTime(AllocationCostModel.describe(totalMs));
+            preview.setEstimatedSeconds((totalMs + 999) / 1000);
+            preview.setEstimateCalibrated(true);
+        } else {
+            preview.setEstimatedTime(algorithmFactory.getAlgorithm(algorithmType).getEstimatedTime(studentCount));
+            preview.setEstimateCalibrated(false);
+        }
+
+        AllocationAlgorithm recommended = algorithmFactory.recommendAlgorithm(studentCount, config.getTimeLimitSeconds());
+        preview.setRecommendedAlgorithmType(recommended.getAlgorithmType());
+        preview.setRecommendedAlgorithmName(recommended.getAlgorithmName());
+    }
+
+    /**
+     * 执行分配任务
+     * 同步校验任务状态后提交到分配任务池（同时执行的任务数固定，其余排队），排队已满时返回业务错误。
+     * 算法运行期间不持有数据库事务：状态变更即时提交，结果在算法返回后按批写库（每批独立提交，失败时清理）。
+     * 运行预算从任务开始计时（配置的时间预算），执行中可通过 {@link #cancelTask(Long)} 取消。
+     * 状态均以条件更新写入：只有仍为待执行的任务会被启动，只有仍为执行中的任务会被标记为完成；
+     * 取消由数据库状态决定（任一实例都可取消），执行线程定期检查，保存结果后再确认一次，被取消时丢弃已写入的结果。
+     */
     @Override
-    @Async
-    @Transactional(rollbackFor = Exception.class)
     public void executeTask(Long taskId) {
         AllocationTask task = getById(taskId);
         if (task == null) {
@@ -228,10 +306,37 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
             throw new BusinessException("任务状态不正确，只能执行待执行的任务");
         }
 
-        // 更新状态为执行中
+        // 提交到分配任务池：排队已满时拒绝，任务保持待执行状态，可稍后重新执行
+        try {
+            allocationTaskExecutor.execute(() -> runTask(taskId));
+        } catch (TaskRejectedException e) {
+            log.warn("分配任务排队已满，拒绝执行任务 {}", taskId);
+            throw new BusinessException("系统繁忙，排队中的分配任务已满，请稍后再试");
+        }
+    }
+
+    /**
+     * 在分配任务池中执行任务
+     */
+    private void runTask(Long taskId) {
+        AllocationTask task = getById(taskId);
+        if (task == null || task.getStatus() != 0) {
+            log.info("任务 {} 不存在或已不是待执行状态，跳过执行", taskId);
+            return;
+        }
+
+        AllocationConfig config = configService.getById(task.getConfigId());
+        AllocationBudget budget = AllocationBudget.ofSeconds(config != null ? config.getTimeLimitSeconds() : null);
+        runningBudgets.put(taskId, budget);
+
+        // 更新状态为执行中（条件更新：任务在排队期间被取消或已被其他线程启动时不再执行）
         task.setStatus(1);
         task.setStartTime(LocalDateTime.now());
-        updateById(task);
+        if (!updateIfStatus(task, 0)) {
+            runningBudgets.remove(taskId);
+            log.info("任务 {} 已不是待执行状态（可能已被取消），跳过执行", taskId);
+            return;
+        }
 
         // 初始化进度
         AllocationProgressVO progress = new AllocationProgressVO();
@@ -241,115 +346,110 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         progress.setCurrentStage("正在准备数据...");
         progress.setProgressPercent(0);
         progress.setCompleted(false);
-        progressCache.put(taskId, progress);
+        saveProgress(progress);
 
         try {
-            // 1. 获取配置
-            AllocationConfig config = configService.getById(task.getConfigId());
+            // 1. 校验配置
             if (config == null) {
                 throw new BusinessException("配置不存在");
             }
 
-            // 2. 获取待分配学生
+            // 2. 加载待分配学生（未分配且已填问卷）、可用床位和房间现有学生
             LambdaQueryWrapper<Student> studentWrapper = buildStudentQueryWrapperFromTask(task);
             studentWrapper.isNull(Student::getBedId); // 未分配的
             studentWrapper.isNotNull(Student::getSleepSchedule); // 已填问卷的
-            List<Student> students = studentMapper.selectList(studentWrapper);
-
-            task.setTotalStudents(students.size());
-            progress.setTotalStudents(students.size());
-
-            // 3. 获取可用床位
             LambdaQueryWrapper<Bed> bedWrapper = buildBedQueryWrapperFromTask(task);
             bedWrapper.eq(Bed::getBedStatus, 1);
-            List<Bed> beds = bedMapper.selectList(bedWrapper);
-            task.setTotalBeds(beds.size());
-
-            // 按房间分组床位
-            Map<Long, List<Bed>> roomBedMap = beds.stream()
-                    .collect(Collectors.groupingBy(Bed::getRoomId));
-
-            // 获取房间现有学生
-            Set<Long> roomIds = roomBedMap.keySet();
-            Map<Long, List<Student>> roomStudentMap = new HashMap<>();
-            if (!roomIds.isEmpty()) {
-                LambdaQueryWrapper<Student> roommateWrapper = new LambdaQueryWrapper<>();
-                roommateWrapper.in(Student::getRoomId, roomIds);
-                List<Student> existingStudents = studentMapper.selectList(roommateWrapper);
-                roomStudentMap = existingStudents.stream()
-                        .filter(s -> s.getRoomId() != null)
-                        .collect(Collectors.groupingBy(Student::getRoomId));
-            }
+            long loadStart = System.currentTimeMillis();
+            AllocationSnapshot snapshot = snapshotLoader.load(studentWrapper, bedWrapper, true);
 
-            // 4. 执行算法
-            AllocationAlgorithm algorithm = algorithmFactory.getAlgorithm(config.getAlgorithmType());
-            List<AllocationResultDTO> results = algorithm.allocate(
-                    students, roomBedMap, roomStudentMap, config,
-                    p -> {
-                        progress.setProcessedCount(p.getProcessedCount());
-                        progress.setSuccessCount(p.getSuccessCount());
-                        progress.setFailedCount(p.getFailedCount());
-                        progress.setCurrentStage(p.getCurrentStage());
-                        progress.setProgressPercent(p.getProgressPercent());
-                        // SSE 实时推送（有订阅者时才推送）
-                        if (allocationProgressService.hasSubscribers(taskId)) {
-                            allocationProgressService.pushProgress(taskId, progress);
-                        }
-                    }
-            );
-
-            // 5. 保存结果
-            int successCount = 0;
-            int failedCount = 0;
-            BigDecimal totalScore = BigDecimal.ZERO;
+            // 3. 生成算法输入
+            List<Student> students = snapshot.students();
+            Map<Long, List<Bed>> roomBedMap = snapshot.roomBedMap();
+            Map<Long, List<Student>> roomStudentMap = snapshot.roomStudentMap();
 
-            for (AllocationResultDTO dto : results) {
-                AllocationResult result = new AllocationResult();
-                result.setTaskId(taskId);
-                result.setStudentId(dto.getStudentId());
-                result.setStudentNo(dto.getStudentNo());
-                result.setStudentName(dto.getStudentName());
-                result.setGender(dto.getGender());
-                result.setDeptCode(dto.getDeptCode());
-                result.setMajorCode(dto.getMajorCode());
-                result.setClassCode(dto.getClassCode());
-                result.setAllocatedBedId(dto.getBedId());
-                result.setAllocatedRoomId(dto.getRoomId());
-                result.setAllocatedRoomCode(dto.getRoomCode());
-                result.setAllocatedFloorId(dto.getFloorId());
-                result.setAllocatedFloorCode(dto.getFloorCode());
-                result.setMatchScore(dto.getMatchScore());
-                result.setConflictReasons(dto.getConflictReasons());
-                result.setAdvantages(dto.getAdvantages());
-                result.setRoommateIds(dto.getRoommateIds());
-                result.setStatus(0); // 待确认
-
-                resultMapper.insert(result);
-
-                if (dto.isSuccess()) {
-                    successCount++;
-                    if (dto.getMatchScore() != null) {
-                        totalScore = totalScore.add(dto.getMatchScore());
+            task.setTotalStudents(students.size());
+            progress.setTotalStudents(students.size());
+            task.setTotalBeds(snapshot.beds.size);
+            AllocationRunStat runStat = new AllocationRunStat();
+            runStat.setLoadMs(System.currentTimeMillis() - loadStart);
+
+            // 4. 执行算法（指定了基准任务时在其结果上增量修复）
+            AtomicLong lastSaved = new AtomicLong(System.currentTimeMillis());
+            Consumer<AllocationAlgorithm.AllocationProgress> progressCallback = p -> {
+                progress.setProcessedCount(p.getProcessedCount());
+                progress.setSuccessCount(p.getSuccessCount());
+                progress.setFailedCount(p.getFailedCount());
+                progress.setCurrentStage(p.getCurrentStage());
+                progress.setProgressPercent(p.getProgressPercent());
+                // SSE 实时推送（推送中心合并高频回调，不阻塞计算线程）
+                allocationProgressService.pushProgress(taskId, progress);
+                // 进度快照按间隔保存，供轮询接口和其他实例读取；同时检查任务是否已在其他实例被取消
+                long now = System.currentTimeMillis();
+                long last = lastSaved.get();
+                if (now - last >= PROGRESS_SAVE_INTERVAL_MS && lastSaved.compareAndSet(last, now)) {
+                    saveProgress(progress);
+                    if (!budget.isCancelled() && isCancelled(taskId)) {
+                        budget.cancel();
                     }
-                } else {
-                    failedCount++;
+                }
+            };
+            List<AllocationResultDTO> results;
+            long algorithmStart = System.currentTimeMillis();
+            long optimizeMs = 0;
+            if (task.getBaseTaskId() != null) {
+                List<WarmStartPlacement> warmStart = loadWarmStart(task.getBaseTaskId());
+                results = incrementalAllocator.allocate(students, roomBedMap, roomStudentMap, warmStart,
+                        config, budget, progressCallback);
+                runStat.setAlgorithmType("incremental");
+            } else {
+                AllocationAlgorithm algorithm = algorithmFactory.getAlgorithm(config.getAlgorithmType());
+                results = algorithm.allocate(students, roomBedMap, roomStudentMap, config, budget, progressCallback);
+                runStat.setAlgorithmType(algorithm.getAlgorithmType());
+                runStat.setTier(AlgorithmHelper.determineTier(algorithm.getAlgorithmType(), students.size()));
+                if (Integer.valueOf(1).equals(config.getPostOptimize())) {
+                    long optimizeStart = System.currentTimeMillis();
+                    results = localSearchOptimizer.optimize(results, students, roomBedMap, roomStudentMap,
+                            config, budget, progressCallback);
+                    optimizeMs = System.currentTimeMillis() - optimizeStart;
                 }
             }
+            runStat.setAlgorithmMs(System.currentTimeMillis() - algorithmStart - optimizeMs);
+            runStat.setOptimizeMs(optimizeMs);
 
-            // 6. 更新任务统计
-            task.setAllocatedCount(successCount);
-            task.setFailedCount(failedCount);
-            if (successCount > 0) {
-                task.setAvgMatchScore(totalScore.divide(BigDecimal.valueOf(successCount), 2, java.math.RoundingMode.HALF_UP));
+            // 已取消：丢弃结果
+            if (budget.isCancelled() || isCancelled(taskId)) {
+                markCancelled(task, progress);
+                return;
+            }
+
+            // 5. 分批保存结果，写入过程中累计任务统计
+            progress.setCurrentStage("正在保存分配结果...");
+            saveProgress(progress);
+            long saveStart = System.currentTimeMillis();
+            AllocationResultSink sink = new AllocationResultSink(taskId, allocationResultService,
+                    resultBatchSaveSize, BigDecimal.valueOf(config.getMinMatchScore()));
+            for (AllocationResultDTO dto : results) {
+                sink.accept(dto);
             }
-            task.setMinMatchScore(resultMapper.calculateMinMatchScore(taskId));
-            task.setMaxMatchScore(resultMapper.calculateMaxMatchScore(taskId));
-            task.setLowScoreCount(resultMapper.countLowScoreResults(taskId, BigDecimal.valueOf(config.getMinMatchScore())));
+            sink.finish(task);
 
+            // 条件更新为已完成：保存期间被取消（状态已不是执行中）时丢弃已写入的结果
             task.setStatus(2); // 已完成
             task.setEndTime(LocalDateTime.now());
             task.setExecuteDuration((int) java.time.Duration.between(task.getStartTime(), task.getEndTime()).getSeconds());
-            updateById(task);
+            if (budget.isCancelled() || !updateIfStatus(task, 1)) {
+                deleteResults(taskId);
+                markCancelled(task, progress);
+                return;
+            }
+
+            // 记录各阶段耗时，校准耗时模型
+            runStat.setSaveMs(System.currentTimeMillis() - saveStart);
+            recordRunStat(runStat, task, roomBedMap.size(), budget);
+
+            int successCount = task.getAllocatedCount();
+            int failedCount = task.getFailedCount();
 
             // 更新进度
             progress.setStatus(2);
@@ -357,34 +457,162 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
             progress.setSuccessCount(successCount);
             progress.setFailedCount(failedCount);
             progress.setProgressPercent(100);
-            progress.setCurrentStage("分配完成");
+            progress.setCurrentStage(budget.isExpired() ? "分配完成（时间预算已用完，已返回当前最优解）" : "分配完成");
             progress.setCompleted(true);
 
-            log.info("任务 {} 执行完成，成功：{}，失败：{}", taskId, successCount, failedCount);
+            log.info("任务 {} 执行完成，成功：{}，失败：{}，时间预算用完：{}", taskId, successCount, failedCount, budget.isExpired());
 
             // SSE 推送完成事件
+            saveProgress(progress);
             allocationProgressService.pushComplete(taskId, progress);
 
         } catch (Exception e) {
             log.error("任务执行失败", e);
+            // 结果按批提交，任务尚未完成时清理已写入的部分结果（已标记完成的任务保留结果）
             task.setStatus(5); // 取消
             task.setEndTime(LocalDateTime.now());
-            updateById(task);
+            if (updateIfStatus(task, 1, 5)) {
+                deleteResults(taskId);
+            }
 
             progress.setStatus(5);
             progress.setStatusName("执行失败");
             progress.setErrorMessage(e.getMessage());
             progress.setCompleted(true);
+            saveProgress(progress);
 
             // SSE 推送错误事件
             allocationProgressService.pushError(taskId, e.getMessage());
+        } finally {
+            runningBudgets.remove(taskId);
+        }
+    }
+
+    /**
+     * 补全并保存运行统计
+     */
+    private void recordRunStat(AllocationRunStat runStat, AllocationTask task, int roomCount, AllocationBudget budget) {
+        runStat.setTaskId(task.getId());
+        runStat.setStudentCount(task.getTotalStudents());
+        runStat.setRoomCount(roomCount);
+        runStat.setBedCount(task.getTotalBeds());
+        runStat.setCoreCount(allocationExecutor.getParallelism());
+        runStat.setTotalMs(runStat.getLoadMs() + runStat.getAlgorithmMs() + runStat.getOptimizeMs() + runStat.getSaveMs());
+        runStat.setAvgMatchScore(task.getAvgMatchScore());
+        runStat.setBudgetExpired(budget.isExpired() ? 1 : 0);
+        costModel.record(runStat);
+    }
+
+    /**
+     * 加载增量分配的热启动结果
+     * 取基准任务中待确认、已确认、已调整且有床位的结果；已确认/已调整的固定不动，
+     * 基准任务完成后资料有变更的学生，其待确认结果不再沿用（重新插入）。
+     */
+    private List<WarmStartPlacement> loadWarmStart(Long baseTaskId) {
+        AllocationTask baseTask = getById(baseTaskId);
+        if (baseTask == null) {
+            throw new BusinessException("基准任务不存在");
+        }
+
+        LambdaQueryWrapper<AllocationResult> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(AllocationResult::getTaskId, baseTaskId)
+                .in(AllocationResult::getStatus, 0, 1, 3)
+                .isNotNull(AllocationResult::getAllocatedBedId);
+        List<AllocationResult> baseResults = resultMapper.selectList(wrapper);
+
+        Set<Long> changed = Collections.emptySet();
+        if (baseTask.getEndTime() != null) {
+            List<Long> pendingIds = baseResults.stream()
+                    .filter(r -> r.getStatus() == 0)
+                    .map(AllocationResult::getStudentId)
+                    .toList();
+            changed = snapshotLoader.changedSince(pendingIds, baseTask.getEndTime());
+        }
+
+        List<WarmStartPlacement> warmStart = new ArrayList<>(baseResults.size());
+        for (AllocationResult result : baseResults) {
+            boolean pinned = result.getStatus() != 0;
+            if (!pinned && changed.contains(result.getStudentId())) continue;
+
+            Long bedId = result.getStatus() == 3 && result.getAdjustedBedId() != null
+                    ? result.getAdjustedBedId() : result.getAllocatedBedId();
+            AllocationResultDTO previous = AllocationResultDTO.builder()
+                    .studentId(result.getStudentId())
+                    .studentNo(result.getStudentNo())
+                    .studentName(result.getStudentName())
+                    .gender(result.getGender())
+                    .deptCode(result.getDeptCode())
+                    .majorCode(result.getMajorCode())
+                    .classCode(result.getClassCode())
+                    .bedId(bedId)
+                    .roomId(result.getAllocatedRoomId())
+                    .matchScore(result.getMatchScore())
+                    .conflictReasons(result.getConflictReasons())
+                    .advantages(result.getAdvantages())
+                    .success(true)
+                    .build();
+            warmStart.add(new WarmStartPlacement(previous, pinned));
         }
+        log.info("增量分配基准任务 {}：沿用 {} 个结果，资料变更 {} 人", baseTaskId, warmStart.size(), changed.size());
+        return warmStart;
+    }
+
+    /**
+     * 执行中被取消：丢弃结果，任务标记为已取消
+     */
+    private void markCancelled(AllocationTask task, AllocationProgressVO progress) {
+        task.setStatus(5);
+        task.setEndTime(LocalDateTime.now());
+        updateIfStatus(task, 1, 5);
+
+        progress.setStatus(5);
+        progress.setStatusName("已取消");
+        progress.setCurrentStage("任务已取消");
+        progress.setCompleted(true);
+
+        log.info("任务 {} 执行中被取消，结果已丢弃", task.getId());
+        saveProgress(progress);
+        allocationProgressService.pushComplete(task.getId(), progress);
+    }
+
+    /**
+     * 条件更新任务：仅当任务当前状态在 expectedStatuses 中时写入
+     *
+     * @return 是否更新成功（false 表示状态已被其他请求或实例改变）
+     */
+    private boolean updateIfStatus(AllocationTask task, Integer... expectedStatuses) {
+        LambdaUpdateWrapper<AllocationTask> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.eq(AllocationTask::getId, task.getId())
+                .in(AllocationTask::getStatus, Arrays.asList(expectedStatuses));
+        return update(task, wrapper);
+    }
+
+    /**
+     * 任务是否已被取消（以数据库状态为准，取消请求可能来自其他实例）
+     */
+    private boolean isCancelled(Long taskId) {
+        AllocationTask current = getOne(new LambdaQueryWrapper<AllocationTask>()
+                .select(AllocationTask::getId, AllocationTask::getStatus)
+                .eq(AllocationTask::getId, taskId));
+        return current == null || Integer.valueOf(5).equals(current.getStatus());
+    }
+
+    private void deleteResults(Long taskId) {
+        resultMapper.delete(new LambdaQueryWrapper<AllocationResult>().eq(AllocationResult::getTaskId, taskId));
+    }
+
+    /**
+     * 保存进度快照（过期自动清除，过期后由数据库中的任务状态兜底）
+     */
+    private void saveProgress(AllocationProgressVO progress) {
+        taskStateStore.save(PROGRESS_NAMESPACE, String.valueOf(progress.getTaskId()), progress);
     }
 
     @Override
     @Transactional(readOnly = true)
     public AllocationProgressVO getTaskProgress(Long taskId) {
-        AllocationProgressVO progress = progressCache.get(taskId);
+        AllocationProgressVO progress = taskStateStore.load(PROGRESS_NAMESPACE, String.valueOf(taskId),
+                AllocationProgressVO.class);
         if (progress != null) {
             return progress;
         }
@@ -419,12 +647,24 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         if (task == null) {
             throw new BusinessException("任务不存在");
         }
-        if (task.getStatus() != 0 && task.getStatus() != 2) {
-            throw new BusinessException("只能取消待执行或已完成的任务");
+        if (task.getStatus() != 0 && task.getStatus() != 1 && task.getStatus() != 2) {
+            throw new BusinessException("只能取消待执行、执行中或已完成的任务");
         }
 
-        task.setStatus(5);
-        return updateById(task);
+        // 以条件更新作为取消的唯一依据：执行中的任务无论在哪个实例运行，执行线程都会看到状态变化并丢弃结果
+        AllocationTask update = new AllocationTask();
+        update.setId(taskId);
+        update.setStatus(5);
+        if (!updateIfStatus(update, task.getStatus())) {
+            throw new BusinessException("任务状态已变化，请刷新后重试");
+        }
+
+        // 本实例正在执行时立即通知算法提前结束，其他实例的执行线程在下次检查时结束
+        AllocationBudget budget = runningBudgets.get(taskId);
+        if (budget != null) {
+            budget.cancel();
+        }
+        return true;
     }
 
     // ==================== 私有方法 ====================
@@ -446,6 +686,186 @@ public class AllocationTaskServiceImpl extends ServiceImpl<AllocationTaskMapper,
         return vo;
     }
 
+    @Override
+    public AllocationCompareVO compareConfigs(AllocationCompareDTO compareDTO) {
+        // 1. 校验方案：配置存在、算法类型有效（配置副本只用于试算，不会保存）
+        List<AllocationConfig> configs = new ArrayList<>();
+        List<AllocationAlgorithm> algorithms = new ArrayList<>();
+        for (AllocationCompareDTO.VariantDTO variant : compareDTO.getVariants()) {
+            AllocationConfig config = configService.getById(variant.getConfigId());
+            if (config == null) {
+                throw new BusinessException("配置不存在：" + variant.getConfigId());
+            }
+            if (StrUtil.isNotBlank(variant.getAlgorithmType())) {
+                config.setAlgorithmType(variant.getAlgorithmType());
+            }
+            algorithms.add(algorithmFactory.getAlgorithm(config.getAlgorithmType()));
+            configs.add(config);
+        }
+
+        // 2. 提交到分配任务池（与分配任务共用并发上限），结果按对比ID保存在任务状态存储中
+        AllocationCompareVO compare = new AllocationCompareVO();
+        compare.setCompareId(UUID.randomUUID().toString().replace("-", ""));
+        compare.setCompleted(false);
+        compare.setResults(new ArrayList<>());
+        saveCompare(compare);
+        try {
+            allocationTaskExecutor.execute(() -> runCompare(compare, compareDTO, configs, algorithms));
+        } catch (TaskRejectedException e) {
+            taskStateStore.remove(COMPARE_NAMESPACE, compare.getCompareId());
+            log.warn("分配任务排队已满，拒绝方案对比");
+            throw new BusinessException("系统繁忙，排队中的分配任务已满，请稍后再试");
+        }
+
+        // 返回独立对象，避免与执行线程同时读写
+        AllocationCompareVO accepted = new AllocationCompareVO();
+        accepted.setCompareId(compare.getCompareId());
+        accepted.setCompleted(false);
+        accepted.setResults(List.of());
+        return accepted;
+    }
+
+    @Override
+    public AllocationCompareVO getCompareResult(String compareId) {
+        AllocationCompareVO compare = taskStateStore.load(COMPARE_NAMESPACE, compareId, AllocationCompareVO.class);
+        if (compare == null) {
+            throw new BusinessException("对比结果不存在或已过期");
+        }
+        return compare;
+    }
+
+    /**
+     * 在分配任务池中执行方案对比：加载一次快照，各方案依次试算（算法内部的分片并行仍由计算池承担），
+     * 每个方案使用相同的固定预算（总预算 / 方案数，不超过方案自身配置的时限），保证各方案的得分和耗时可比；
+     * 固定预算不足 1 秒时不试算。完成一个保存一次
+     */
+    private void runCompare(AllocationCompareVO compare, AllocationCompareDTO compareDTO,
+                            List<AllocationConfig> configs, List<AllocationAlgorithm> algorithms) {
+        int variantSeconds = compareDTO.getTimeLimitSeconds() / configs.size();
+        try {
+            long loadStart = System.currentTimeMillis();
+            LambdaQueryWrapper<Student> studentWrapper = buildStudentQueryWrapper(
+                    compareDTO.getTargetEnrollmentYear(), compareDTO.getTargetGender(), compareDTO.getTargetCampusCode(),
+                    compareDTO.getTargetDeptCode(), compareDTO.getTargetMajorCode());
+            studentWrapper.isNull(Student::getBedId); // 未分配的
+            studentWrapper.isNotNull(Student::getSleepSchedule); // 已填问卷的
+            LambdaQueryWrapper<Bed> bedWrapper = buildBedQueryWrapper(
+                    compareDTO.getTargetCampusCode(), compareDTO.getTargetFloorIds());
+            bedWrapper.eq(Bed::getBedStatus, 1);
+            AllocationSnapshot snapshot = snapshotLoader.load(studentWrapper, bedWrapper, true);
+
+            List<Student> students = Collections.unmodifiableList(snapshot.students());
+            Map<Long, List<Bed>> roomBedMap = readOnly(snapshot.roomBedMap());
+            Map<Long, List<Student>> roomStudentMap = readOnly(snapshot.roomStudentMap());
+
+            compare.setTotalStudents(students.size());
+            compare.setTotalBeds(snapshot.beds.size);
+            compare.setLoadDurationMs(System.currentTimeMillis() - loadStart);
+            saveCompare(compare);
+
+            for (int i = 0; i < configs.size(); i++) {
+                AllocationConfig config = configs.get(i);
+                int seconds = variantSeconds;
+                if (config.getTimeLimitSeconds() != null && config.getTimeLimitSeconds() > 0) {
+                    seconds = Math.min(seconds, config.getTimeLimitSeconds());
+                }
+                compare.getResults().add(seconds < 1
+                        ? skippedVariant(config, algorithms.get(i))
+                        : runVariant(config, algorithms.get(i), students, roomBedMap, roomStudentMap, seconds));
+                saveCompare(compare);
+            }
+        } catch (Exception e) {
+            log.error("方案对比执行失败", e);
+            compare.setErrorMessage(e.getMessage());
+        }
+        compare.setCompleted(true);
+        saveCompare(compare);
+    }
+
+    private void saveCompare(AllocationCompareVO compare) {
+        taskStateStore.save(COMPARE_NAMESPACE, compare.getCompareId(), compare);
+    }
+
+    /**
+     * 固定预算不足 1 秒（总预算小于方案数）、未试算的方案
+     */
+    private static AllocationCompareVO.VariantResultVO skippedVariant(AllocationConfig config,
+                                                                      AllocationAlgorithm algorithm) {
+        AllocationCompareVO.VariantResultVO result = new AllocationCompareVO.VariantResultVO();
+        result.setConfigId(config.getId());
+        result.setConfigName(config.getConfigName());
+        result.setAlgorithmType(algorithm.getAlgorithmType());
+        result.setAlgorithmName(algorithm.getAlgorithmName());
+        result.setBudgetExpired(true);
+        result.setErrorMessage("对比时间预算不足（每个方案至少 1 秒），未试算");
+        return result;
+    }
+
+    /**
+     * 试算单个方案，只统计不保存；单个方案失败不影响其他方案
+     */
+    private AllocationCompareVO.VariantResultVO runVariant(AllocationConfig config,
+                                                          AllocationAlgorithm algorithm,
+                                                          List<Student> students,
+                                                          Map<Long, List<Bed>> roomBedMap,
+                                                          Map<Long, List<Student>> roomStudentMap,
+                                                          int budgetSeconds) {
+        AllocationCompareVO.VariantResultVO result = new AllocationCompareVO.VariantResultVO();
+        result.setConfigId(config.getId());
+        result.setConfigName(config.getConfigName());
+        result.setAlgorithmType(algorithm.getAlgorithmType());
+        result.setAlgorithmName(algorithm.getAlgorithmName());
+
+        AllocationBudget budget = AllocationBudget.ofSeconds(budgetSeconds);
+        long start = System.currentTimeMillis();
+        try {
+            List<AllocationResultDTO> results = algorithm.allocate(
+                    students, roomBedMap, roomStudentMap, config, budget, null);
+            if (Integer.valueOf(1).equals(config.getPostOptimize())) {
+                results = localSearchOptimizer.optimize(results, students, roomBedMap, roomStudentMap,
+                        config, budget, null);
+            }
+            AllocationResultStats stats = new AllocationResultStats(BigDecimal.valueOf(config.getMinMatchScore()));
+            results.forEach(stats::accept);
+
+            result.setSuccessCount(stats.successCount());
+            result.setFailedCount(stats.failedCount());
+            result.setAvgMatchScore(stats.avgScore());
+            result.setMinMatchScore(stats.minScore());
+            result.setMaxMatchScore(stats.maxScore());
+            result.setLowScoreCount(stats.lowScoreCount());
+            result.setBudgetExpired(budget.isExpired());
+        } catch (Exception e) {
+            log.error("方案试算失败，配置：{}，算法：{}", config.getId(), algorithm.getAlgorithmType(), e);
+            result.setErrorMessage(e.getMessage());
+        }
+        result.setDurationMs(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 只读视图（多个方案共享同一份输入）
+     */
+    private static <T> Map<Long, List<T>> readOnly(Map<Long, List<T>> map) {
+        map.replaceAll((key, value) -> Collections.unmodifiableList(value));
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public AllocationExecutorStatsVO getExecutorStats() {
+        AllocationExecutorStatsVO stats = new AllocationExecutorStatsVO();
+        stats.setMaxConcurrentTasks(allocationTaskExecutor.getMaxPoolSize());
+        stats.setRunningTasks(allocationTaskExecutor.getActiveCount());
+        stats.setQueuedTasks(allocationTaskExecutor.getThreadPoolExecutor().getQueue().size());
+        stats.setParallelism(allocationExecutor.getParallelism());
+        stats.setActiveThreads(allocationExecutor.getActiveThreads());
+        stats.setPendingPartitions(allocationExecutor.getPendingPartitions());
+        stats.setActivePartitions(allocationExecutor.getActivePartitions());
+        stats.setCompletedPartitions(allocationExecutor.getCompletedPartitions());
+        stats.setQueuedComputeTasks(allocationExecutor.getQueuedTasks());
+        return stats;
+    }
+
     /**
      * 构建学生查询条件（从DTO）
      */
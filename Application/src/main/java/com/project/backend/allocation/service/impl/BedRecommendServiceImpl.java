@@ -3,16 +3,14 @@ package com.project.backend.allocation.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.project.backend.student.entity.Student;
 import com.project.backend.student.mapper.StudentMapper;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.kernel.StudentProfile;
 import com.project.backend.allocation.algorithm.model.RoomMatchResult;
 import com.project.backend.allocation.entity.AllocationConfig;
-import com.project.backend.allocation.service.AllocationConfigService;
 import com.project.backend.allocation.service.BedRecommendService;
 import com.project.backend.allocation.service.CompatibilityService;
 import com.project.backend.allocation.vo.BedRecommendVO;
 import com.project.backend.room.entity.Bed;
-import com.project.backend.room.entity.Room;
-import com.project.backend.room.mapper.BedMapper;
-import com.project.backend.room.mapper.RoomMapper;
 import com.project.core.exception.BusinessException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +23,8 @@ import java.util.stream.Collectors;
 
 /**
  * 床位推荐服务实现
+ * 推荐在内存中的房间入住索引（{@link RoomOccupancyIndex}）上完成：紧凑画像打分 + 前 K 小顶堆，
+ * 只为入选的房间生成完整的匹配明细，一次推荐不再按房间数查询数据库。
  *
  * @author 陈鸿昇
  * @since 2026-02-02
@@ -35,28 +35,19 @@ import java.util.stream.Collectors;
 public class BedRecommendServiceImpl implements BedRecommendService {
 
     private final StudentMapper studentMapper;
-    private final BedMapper bedMapper;
-    private final RoomMapper roomMapper;
     private final CompatibilityService compatibilityService;
-    private final AllocationConfigService configService;
+    private final RoomOccupancyIndex occupancyIndex;
 
     @Override
     @Transactional(readOnly = true)
     public List<BedRecommendVO> recommendBeds(Long studentId, int limit) {
         Student student = getStudentOrThrow(studentId);
-        AllocationConfig config = getDefaultConfig();
+        RoomOccupancyIndex.View view = currentView();
 
-        // 查询空床位（不排除任何房间）
-        List<Bed> availableBeds = queryAvailableBeds(student.getCampusCode(), null);
-        if (availableBeds.isEmpty()) {
-            return Collections.emptyList();
-        }
+        // 在房间入住索引中打分（不排除任何房间，无最低分数要求）
+        List<Candidate> candidates = topRooms(student, view, null, null, limit);
 
-        // 处理房间推荐（无最低分数要求）
-        List<RoomMatchResult> results = processRoomRecommendations(
-                student, availableBeds, config, null);
-
-        return convertAndSort(results, limit);
+        return convert(student, candidates, view.config());
     }
 
     @Override
@@ -68,25 +59,22 @@ public class BedRecommendServiceImpl implements BedRecommendService {
             throw new BusinessException("学生当前没有床位，请使用普通推荐");
         }
 
-        AllocationConfig config = getDefaultConfig();
+        RoomOccupancyIndex.View view = currentView();
+        AllocationConfig config = view.config();
 
-        // 计算当前房间的匹配度作为基准
-        List<Student> currentRoommates = getRoommates(student.getRoomId(), studentId);
+        // 计算当前房间的匹配度作为基准（当前房间在索引中时直接使用索引中的室友）
+        RoomOccupancyIndex.RoomEntry currentRoom = occupancyIndex.roomOf(studentId);
+        List<Student> currentRoommates = currentRoom != null
+                ? excludeSelf(currentRoom.occupants(), studentId)
+                : getRoommates(student.getRoomId(), studentId);
         RoomMatchResult currentMatch = compatibilityService.calculateRoomCompatibility(
                 student, currentRoommates, config);
         BigDecimal currentScore = currentMatch.getAvgScore();
 
-        // 查询其他房间的空床位（排除当前房间）
-        List<Bed> availableBeds = queryAvailableBeds(student.getCampusCode(), student.getRoomId());
-        if (availableBeds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 处理房间推荐（只推荐比当前房间匹配度更高的）
-        List<RoomMatchResult> results = processRoomRecommendations(
-                student, availableBeds, config, currentScore);
+        // 在其他房间中打分（排除当前房间，只推荐比当前房间匹配度更高的）
+        List<Candidate> candidates = topRooms(student, view, student.getRoomId(), currentScore, limit);
 
-        return convertAndSort(results, limit);
+        return convert(student, candidates, config);
     }
 
     // ==================== 抽离的公共方法 ====================
@@ -103,109 +91,70 @@ public class BedRecommendServiceImpl implements BedRecommendService {
     }
 
     /**
-     * 查询可用床位
-     *
-     * @param campusCode 校区编码（可选）
-     * @param excludeRoomId 排除的房间ID（可选，用于调宿推荐）
-     * @return 可用床位列表
+     * 当前的索引视图（不等待重建）；默认配置已变更时提交后台重建，本次仍按快照的配置打分，保证打分与匹配明细一致
      */
-    private List<Bed> queryAvailableBeds(String campusCode, Long excludeRoomId) {
-        LambdaQueryWrapper<Bed> bedWrapper = new LambdaQueryWrapper<>();
-        bedWrapper.eq(Bed::getBedStatus, 1)
-                .eq(Bed::getStatus, 1)
-                .eq(Bed::getDeleted, 0);
-
-        if (campusCode != null) {
-            bedWrapper.eq(Bed::getCampusCode, campusCode);
-        }
-        if (excludeRoomId != null) {
-            bedWrapper.ne(Bed::getRoomId, excludeRoomId);
-        }
-
-        return bedMapper.selectList(bedWrapper);
+    private RoomOccupancyIndex.View currentView() {
+        RoomOccupancyIndex.View view = occupancyIndex.view();
+        occupancyIndex.checkConfig(occupancyIndex.defaultConfig());
+        return view;
     }
 
     /**
-     * 处理房间推荐核心逻辑
+     * 在房间入住索引中为学生选出匹配度最高的 limit 个房间
+     * 只在同校区的空床位房间中打分（紧凑画像，跳过有硬约束冲突的房间），用容量为 limit 的小顶堆保留前 K 个
      *
-     * @param student 学生
-     * @param availableBeds 可用床位列表
-     * @param config 配置
-     * @param minScore 最低匹配分数要求（用于调宿推荐，null表示无要求）
-     * @return 匹配结果列表
+     * @param student       学生
+     * @param view          索引视图
+     * @param excludeRoomId 排除的房间ID（可选，用于调宿推荐）
+     * @param minScore      最低匹配分数要求（用于调宿推荐，null表示无要求）
+     * @param limit         返回数量限制
+     * @return 候选房间（按匹配度降序）
      */
-    private List<RoomMatchResult> processRoomRecommendations(
-            Student student, List<Bed> availableBeds, AllocationConfig config, BigDecimal minScore) {
-
-        // 按房间分组
-        Map<Long, List<Bed>> roomBedMap = availableBeds.stream()
-                .collect(Collectors.groupingBy(Bed::getRoomId));
-
-        List<RoomMatchResult> results = new ArrayList<>();
-
-        for (Map.Entry<Long, List<Bed>> entry : roomBedMap.entrySet()) {
-            Long roomId = entry.getKey();
-            List<Bed> beds = entry.getValue();
-
-            if (beds.isEmpty()) {
-                continue;
-            }
-
-            Bed bed = beds.get(0);
-            List<Student> roommates = getRoommates(roomId, student.getId());
-
-            // 检查性别约束
-            if (!checkGenderConstraint(student, roommates, config)) {
-                continue;
-            }
-
-            // 计算匹配度
-            RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
-                    student, roommates, config);
-            matchResult.setRoomId(roomId);
-            matchResult.setBedId(bed.getId());
-
-            // 跳过有硬约束冲突的
-            if (Boolean.TRUE.equals(matchResult.getHasHardConflict())) {
-                continue;
-            }
-
-            // 如果有最低分数要求，只保留超过的结果
-            if (minScore != null && matchResult.getAvgScore().compareTo(minScore) <= 0) {
-                continue;
+    private List<Candidate> topRooms(Student student, RoomOccupancyIndex.View view,
+                                     Long excludeRoomId, BigDecimal minScore, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        ScoringKernel kernel = view.kernel();
+        StudentProfile profile = kernel.profile(student);
+        String campusCode = student.getCampusCode();
+        double threshold = minScore != null ? minScore.doubleValue() : Double.NEGATIVE_INFINITY;
+
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(limit + 1, Candidate.WORST_FIRST);
+        for (RoomOccupancyIndex.RoomEntry room : view.rooms()) {
+            if (room.roomId().equals(excludeRoomId)) continue;
+            if (campusCode != null && !campusCode.equals(room.campusCode())) continue;
+
+            double score = kernel.roomScore(profile, roommateProfiles(room, student.getId()));
+            // 跳过有硬约束冲突的；有最低分数要求时只保留超过的结果
+            if (score == ScoringKernel.CONFLICT || score <= threshold) continue;
+
+            heap.offer(new Candidate(room, score));
+            if (heap.size() > limit) {
+                heap.poll();
             }
-
-            results.add(matchResult);
         }
 
-        return results;
+        List<Candidate> result = new ArrayList<>(heap);
+        result.sort(Candidate.WORST_FIRST.reversed());
+        return result;
     }
 
     /**
-     * 检查性别约束
-     *
-     * @param student 学生
-     * @param roommates 室友列表
-     * @param config 配置
-     * @return 是否满足性别约束
+     * 转换为VO：只为入选的房间生成完整的匹配明细，床位和房间信息取自索引
      */
-    private boolean checkGenderConstraint(Student student, List<Student> roommates, AllocationConfig config) {
-        if (!Integer.valueOf(1).equals(config.getGenderConstraint()) || roommates.isEmpty()) {
-            return true;
+    private List<BedRecommendVO> convert(Student student, List<Candidate> candidates, AllocationConfig config) {
+        List<BedRecommendVO> list = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            RoomOccupancyIndex.RoomEntry room = candidate.room();
+            Bed bed = room.freeBeds().get(0);
+            RoomMatchResult matchResult = compatibilityService.calculateRoomCompatibility(
+                    student, excludeSelf(room.occupants(), student.getId()), config);
+            matchResult.setRoomId(room.roomId());
+            matchResult.setBedId(bed.getId());
+            list.add(convertToVO(matchResult, room, bed));
         }
-        return roommates.stream()
-                .allMatch(r -> Objects.equals(r.getGender(), student.getGender()));
-    }
-
-    /**
-     * 排序并转换为VO
-     */
-    private List<BedRecommendVO> convertAndSort(List<RoomMatchResult> results, int limit) {
-        return results.stream()
-                .sorted((a, b) -> b.getAvgScore().compareTo(a.getAvgScore()))
-                .limit(limit)
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        return list;
     }
 
     // ==================== 私有方法 ====================
@@ -213,7 +162,7 @@ public class BedRecommendServiceImpl implements BedRecommendService {
     /**
      * 将 RoomMatchResult 转换为 BedRecommendVO
      */
-    private BedRecommendVO convertToVO(RoomMatchResult result) {
+    private BedRecommendVO convertToVO(RoomMatchResult result, RoomOccupancyIndex.RoomEntry room, Bed bed) {
         BedRecommendVO vo = new BedRecommendVO();
         vo.setRoomId(result.getRoomId());
         vo.setBedId(result.getBedId());
@@ -224,23 +173,34 @@ public class BedRecommendServiceImpl implements BedRecommendService {
         vo.setAdvantages(result.getOverallAdvantages());
         vo.setConflicts(result.getOverallConflicts());
 
-        // 获取床位和房间信息
-        if (result.getBedId() != null) {
-            Bed bed = bedMapper.selectById(result.getBedId());
-            if (bed != null) {
-                vo.setBedCode(bed.getBedCode());
-            }
-        }
-        if (result.getRoomId() != null) {
-            Room room = roomMapper.selectById(result.getRoomId());
-            if (room != null) {
-                vo.setRoomCode(room.getRoomCode());
-                vo.setRoomNumber(room.getRoomNumber());
-                vo.setFloorCode(room.getFloorCode());
+        // 床位和房间信息
+        vo.setBedCode(bed.getBedCode());
+        vo.setRoomCode(room.roomCode());
+        vo.setRoomNumber(room.roomNumber());
+        vo.setFloorCode(room.floorCode());
+
+        return vo;
+    }
+
+    /**
+     * 房间现有学生的画像（排除学生本人）
+     */
+    private List<StudentProfile> roommateProfiles(RoomOccupancyIndex.RoomEntry room, Long studentId) {
+        List<Student> occupants = room.occupants();
+        for (int i = 0; i < occupants.size(); i++) {
+            if (occupants.get(i).getId().equals(studentId)) {
+                List<StudentProfile> profiles = new ArrayList<>(room.profiles());
+                profiles.remove(i);
+                return profiles;
             }
         }
+        return room.profiles();
+    }
 
-        return vo;
+    private List<Student> excludeSelf(List<Student> occupants, Long studentId) {
+        return occupants.stream()
+                .filter(s -> !s.getId().equals(studentId))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -258,33 +218,11 @@ public class BedRecommendServiceImpl implements BedRecommendService {
     }
 
     /**
-     * 获取默认配置
+     * 候选房间（按匹配度排序，同分时房间ID小的优先）
      */
-    private AllocationConfig getDefaultConfig() {
-        // 查找启用的默认配置
-        LambdaQueryWrapper<AllocationConfig> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(AllocationConfig::getStatus, 1)
-                .orderByAsc(AllocationConfig::getId)
-                .last("LIMIT 1");
-        AllocationConfig config = configService.getOne(wrapper);
-
-        if (config == null) {
-            // 返回一个默认配置
-            config = new AllocationConfig();
-            config.setSmokingConstraint(1);
-            config.setGenderConstraint(1);
-            config.setSleepHardConstraint(0);
-            config.setSleepWeight(30);
-            config.setSmokingWeight(20);
-            config.setCleanlinessWeight(15);
-            config.setSocialWeight(15);
-            config.setStudyWeight(10);
-            config.setEntertainmentWeight(10);
-            config.setSameDeptBonus(5);
-            config.setSameMajorBonus(10);
-            config.setSameClassBonus(15);
-        }
+    private record Candidate(RoomOccupancyIndex.RoomEntry room, double score) {
 
-        return config;
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score)
+                .thenComparing(c -> c.room().roomId(), Comparator.reverseOrder());
     }
 }
@@ -3,6 +3,7 @@ package com.project.backend.allocation.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.project.backend.student.entity.Student;
 import com.project.backend.student.mapper.StudentMapper;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
 import com.project.backend.allocation.algorithm.model.DimensionScore;
 import com.project.backend.allocation.algorithm.model.MatchResult;
 import com.project.backend.allocation.algorithm.model.RoomMatchResult;
@@ -20,6 +21,9 @@ import java.util.Objects;
 /**
  * 匹配度计算服务实现
  * 实现学生之间基于生活习惯的匹配度计算
+ * <p>
+ * 本类生成带冲突/优势文案的富结果，用于最终分配结果和接口响应；
+ * 算法内循环使用规则相同的 {@link ScoringKernel}，修改计分规则时需同步修改两处。
  *
  * @author 陈鸿昇
  * @since 2026-02-02
@@ -32,7 +36,6 @@ public class CompatibilityServiceImpl implements CompatibilityService {
     private final StudentMapper studentMapper;
 
     @Override
-    @Transactional(readOnly = true)
     public MatchResult calculateCompatibility(Student studentA, Student studentB, AllocationConfig config) {
         MatchResult result = MatchResult.builder()
                 .studentAId(studentA.getId())
@@ -107,13 +110,11 @@ public class CompatibilityServiceImpl implements CompatibilityService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public boolean hasHardConflict(Student studentA, Student studentB, AllocationConfig config) {
         return checkHardConstraints(studentA, studentB, config) != null;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public RoomMatchResult calculateRoomCompatibility(Student student, List<Student> roommates, AllocationConfig config) {
         RoomMatchResult result = RoomMatchResult.builder()
                 .studentId(student.getId())
@@ -12,6 +12,7 @@ import com.project.backend.allocation.dto.survey.LifestyleSurveySaveDTO;
 import com.project.backend.allocation.entity.LifestyleSurvey;
 import com.project.backend.allocation.mapper.LifestyleSurveyMapper;
 import com.project.backend.allocation.service.LifestyleSurveyService;
+import com.project.backend.allocation.service.RoomOccupancyService;
 import com.project.backend.allocation.vo.LifestyleSurveyVO;
 import com.project.backend.allocation.vo.survey.LifestyleSurveyDetailVO;
 import com.project.backend.allocation.vo.survey.LifestyleSurveyListVO;
@@ -43,6 +44,7 @@ public class LifestyleSurveyServiceImpl extends ServiceImpl<LifestyleSurveyMappe
 
     private final StudentMapper studentMapper;
     private final LifestyleSurveyMapper surveyMapper;
+    private final RoomOccupancyService roomOccupancyService;
 
     private static final Map<Integer, String> STATUS_NAMES = Map.of(
             0, "未填写",
@@ -284,6 +286,8 @@ public class LifestyleSurveyServiceImpl extends ServiceImpl<LifestyleSurveyMappe
 
         BeanUtil.copyProperties(dto, student);
         studentMapper.updateById(student);
+        // 画像变更，提交后刷新所在房间的入住索引
+        roomOccupancyService.refreshStudent(studentId);
 
         // 更新问卷状态
         LambdaQueryWrapper<LifestyleSurvey> wrapper = new LambdaQueryWrapper<>();
@@ -0,0 +1,396 @@
+package com.project.backend.allocation.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.project.backend.allocation.algorithm.kernel.ScoringKernel;
+import com.project.backend.allocation.algorithm.kernel.StudentProfile;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.AllocationConfigService;
+import com.project.backend.allocation.service.RoomOccupancyService;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.room.entity.Room;
+import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.room.mapper.RoomMapper;
+import com.project.backend.student.entity.Student;
+import com.project.backend.student.mapper.StudentMapper;
+import com.project.core.constant.CommonConstant;
+import com.project.core.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 房间入住索引
+ * 在内存中维护每个有空床位房间的摘要：房间/楼层编码、空床位（按ID升序）、现有学生及其紧凑画像，
+ * 床位推荐直接遍历索引打分，不再逐房间查询室友和逐结果查询床位/房间。
+ * <p>
+ * 画像按默认配置编译（{@link ScoringKernel}）。整体重建只在后台线程执行：启动时建立一次，之后每 10 分钟按当前默认配置重建，
+ * 推荐时发现配置变更（ID 或更新时间不同）也只提交后台重建；重建期间继续使用旧快照，完成后通过一个 volatile 引用整体替换，
+ * 推荐请求从不等待重建。
+ * 入住关系变更由 {@link RoomOccupancyService} 的通知在事务提交后按房间刷新（每个房间 3 次查询），重建期间刷新的房间在替换后补刷；
+ * 楼栋/房间/床位结构调整等未通知的变更由定期重建兜底。
+ * 每个房间的摘要不可变，刷新时整体替换，读写之间无需加锁；现有学生只保留 ID 和评分所需的画像列，不持有证件号、电话等字段。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomOccupancyIndex implements RoomOccupancyService {
+
+    /** 定期重建间隔（毫秒） */
+    private static final long REBUILD_INTERVAL_MS = 10 * 60 * 1000L;
+
+    /** 现有学生只查询的列：ID、所在房间和评分/匹配明细用到的画像列 */
+    private static final List<SFunction<Student, ?>> OCCUPANT_COLUMNS = List.of(
+            Student::getId, Student::getRoomId, Student::getGender,
+            Student::getDeptCode, Student::getMajorCode, Student::getClassCode,
+            Student::getSmokingStatus, Student::getSmokingTolerance,
+            Student::getSleepSchedule, Student::getSleepQuality, Student::getSnores,
+            Student::getSensitiveToLight, Student::getSensitiveToSound,
+            Student::getCleanlinessLevel, Student::getBedtimeCleanup,
+            Student::getSocialPreference, Student::getAllowVisitors, Student::getPhoneCallTime,
+            Student::getStudyInRoom, Student::getStudyEnvironment,
+            Student::getComputerUsageTime, Student::getGamingPreference,
+            Student::getMusicPreference, Student::getMusicVolume, Student::getEatInRoom);
+
+    private final BedMapper bedMapper;
+    private final RoomMapper roomMapper;
+    private final StudentMapper studentMapper;
+    private final AllocationConfigService configService;
+
+    /** 当前快照，重建完成后整体替换 */
+    private volatile State state;
+    /** 是否已提交尚未开始的重建（合并重复请求） */
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    /** 是否正在重建 */
+    private volatile boolean rebuilding;
+    /** 重建期间收到刷新通知的房间，替换快照后补刷 */
+    private final Set<Long> refreshedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "room-occupancy-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void start() {
+        // 启动时建立一次，之后定期重建
+        rebuilder.scheduleWithFixedDelay(this::rebuildSafely, 0, REBUILD_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 获取当前快照的视图（不等待重建），重建完成前返回旧快照及其评分内核和配置
+     * 启动后首次建立尚未完成时提示稍后再试
+     */
+    View view() {
+        State current = state;
+        if (current == null) {
+            requestRebuild();
+            throw new BusinessException("床位推荐索引正在初始化，请稍后再试");
+        }
+        return new View(current.kernel, current.config, current.rooms.values());
+    }
+
+    /**
+     * 当前的默认配置（第一个启用的配置，没有时使用内置默认值）
+     */
+    AllocationConfig defaultConfig() {
+        LambdaQueryWrapper<AllocationConfig> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(AllocationConfig::getStatus, 1)
+                .orderByAsc(AllocationConfig::getId)
+                .last("LIMIT 1");
+        AllocationConfig config = configService.getOne(wrapper);
+
+        if (config == null) {
+            // 返回一个默认配置
+            config = new AllocationConfig();
+            config.setSmokingConstraint(1);
+            config.setGenderConstraint(1);
+            config.setSleepHardConstraint(0);
+            config.setSleepWeight(30);
+            config.setSmokingWeight(20);
+            config.setCleanlinessWeight(15);
+            config.setSocialWeight(15);
+            config.setStudyWeight(10);
+            config.setEntertainmentWeight(10);
+            config.setSameDeptBonus(5);
+            config.setSameMajorBonus(10);
+            config.setSameClassBonus(15);
+        }
+
+        return config;
+    }
+
+    /**
+     * 配置变更时提交后台重建（推荐请求发现快照配置过期时调用）
+     */
+    void checkConfig(AllocationConfig config) {
+        State current = state;
+        if (current != null && !current.configKey.equals(configKey(config))) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * 学生当前所在房间的摘要（房间没有空床位或不在索引中时返回 null）
+     */
+    RoomEntry roomOf(Long studentId) {
+        State current = state;
+        if (current == null) return null;
+        Long roomId = current.studentRooms.get(studentId);
+        return roomId != null ? current.rooms.get(roomId) : null;
+    }
+
+    // ==================== 维护 ====================
+
+    @Override
+    public void refreshRooms(Collection<Long> roomIds) {
+        Set<Long> ids = roomIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) return;
+        afterCommit(() -> {
+            State current = state;
+            if (current == null) return;
+            if (rebuilding) refreshedDuringRebuild.addAll(ids);
+            try {
+                for (Long roomId : ids) {
+                    reloadRoom(current, roomId);
+                }
+            } catch (Exception e) {
+                log.warn("刷新房间入住索引失败，提交后台重建，房间ID：{}", ids, e);
+                invalidate();
+            }
+        });
+    }
+
+    @Override
+    public void refreshStudent(Long studentId) {
+        if (studentId == null) return;
+        afterCommit(() -> {
+            State current = state;
+            if (current == null) return;
+            try {
+                Set<Long> roomIds = new HashSet<>();
+                Long indexedRoom = current.studentRooms.get(studentId);
+                if (indexedRoom != null) roomIds.add(indexedRoom);
+                Student student = studentMapper.selectOne(new LambdaQueryWrapper<Student>()
+                        .select(Student::getId, Student::getRoomId)
+                        .eq(Student::getId, studentId));
+                if (student != null && student.getRoomId() != null) roomIds.add(student.getRoomId());
+                if (rebuilding) refreshedDuringRebuild.addAll(roomIds);
+                for (Long roomId : roomIds) {
+                    reloadRoom(current, roomId);
+                }
+            } catch (Exception e) {
+                log.warn("刷新学生所在房间失败，提交后台重建，学生ID：{}", studentId, e);
+                invalidate();
+            }
+        });
+    }
+
+    @Override
+    public void invalidate() {
+        requestRebuild();
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 提交一次后台重建（已有排队的重建时合并）
+     */
+    private void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(this::rebuildSafely);
+        }
+    }
+
+    private void rebuildSafely() {
+        rebuildQueued.set(false);
+        try {
+            rebuild(defaultConfig());
+        } catch (Exception e) {
+            log.error("房间入住索引重建失败，继续使用{}", state != null ? "旧快照" : "空索引（推荐暂不可用）", e);
+        }
+    }
+
+    /**
+     * 全量建立新快照并整体替换（只在后台线程执行）
+     */
+    private void rebuild(AllocationConfig config) {
+        long start = System.currentTimeMillis();
+        refreshedDuringRebuild.clear();
+        rebuilding = true;
+        State fresh;
+        try {
+            fresh = new State(configKey(config), config, ScoringKernel.compile(config));
+
+            // 1. 空床位按房间分组
+            LambdaQueryWrapper<Bed> bedWrapper = freeBedWrapper().orderByAsc(Bed::getId);
+            Map<Long, List<Bed>> freeBeds = bedMapper.selectList(bedWrapper).stream()
+                    .filter(bed -> bed.getRoomId() != null)
+                    .collect(Collectors.groupingBy(Bed::getRoomId, LinkedHashMap::new, Collectors.toList()));
+
+            // 2. 房间号与现有学生（按房间分批，学生只查画像列）
+            List<Long> roomIds = new ArrayList<>(freeBeds.keySet());
+            Map<Long, String> roomNumbers = new HashMap<>();
+            Map<Long, List<Student>> occupants = new HashMap<>();
+            for (int from = 0; from < roomIds.size(); from += CommonConstant.ID_CHUNK) {
+                List<Long> chunk = roomIds.subList(from, Math.min(from + CommonConstant.ID_CHUNK, roomIds.size()));
+                LambdaQueryWrapper<Room> roomWrapper = new LambdaQueryWrapper<>();
+                roomWrapper.select(Room::getId, Room::getRoomNumber).in(Room::getId, chunk);
+                for (Room room : roomMapper.selectList(roomWrapper)) {
+                    roomNumbers.put(room.getId(), room.getRoomNumber());
+                }
+                for (Student student : studentMapper.selectList(occupantWrapper().in(Student::getRoomId, chunk))) {
+                    occupants.computeIfAbsent(student.getRoomId(), k -> new ArrayList<>()).add(student);
+                }
+            }
+
+            for (Map.Entry<Long, List<Bed>> entry : freeBeds.entrySet()) {
+                Long roomId = entry.getKey();
+                fresh.put(RoomEntry.of(roomId, roomNumbers.get(roomId), entry.getValue(),
+                        occupants.getOrDefault(roomId, List.of()), fresh.kernel));
+            }
+            state = fresh;
+        } finally {
+            rebuilding = false;
+        }
+
+        // 3. 重建期间收到通知的房间可能已在全量查询之后变化，在新快照上补刷
+        Set<Long> pending = new HashSet<>(refreshedDuringRebuild);
+        refreshedDuringRebuild.clear();
+        for (Long roomId : pending) {
+            reloadRoom(fresh, roomId);
+        }
+        log.info("房间入住索引重建完成：有空床位房间 {}，现有学生 {}，补刷房间 {}，耗时 {}ms",
+                fresh.rooms.size(), fresh.studentRooms.size(), pending.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 重新加载单个房间：没有空床位时移出索引
+     */
+    private void reloadRoom(State current, Long roomId) {
+        LambdaQueryWrapper<Bed> bedWrapper = freeBedWrapper().eq(Bed::getRoomId, roomId).orderByAsc(Bed::getId);
+        List<Bed> beds = bedMapper.selectList(bedWrapper);
+        if (beds.isEmpty()) {
+            current.remove(roomId);
+            return;
+        }
+        Room room = roomMapper.selectById(roomId);
+        List<Student> students = studentMapper.selectList(occupantWrapper().eq(Student::getRoomId, roomId));
+        current.put(RoomEntry.of(roomId, room != null ? room.getRoomNumber() : null, beds, students, current.kernel));
+    }
+
+    private LambdaQueryWrapper<Bed> freeBedWrapper() {
+        LambdaQueryWrapper<Bed> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Bed::getId, Bed::getBedCode, Bed::getRoomId, Bed::getRoomCode,
+                        Bed::getFloorCode, Bed::getCampusCode)
+                .eq(Bed::getBedStatus, 1)
+                .eq(Bed::getStatus, 1)
+                .eq(Bed::getDeleted, 0);
+        return wrapper;
+    }
+
+    private static LambdaQueryWrapper<Student> occupantWrapper() {
+        LambdaQueryWrapper<Student> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(true, OCCUPANT_COLUMNS).eq(Student::getDeleted, 0);
+        return wrapper;
+    }
+
+    private static String configKey(AllocationConfig config) {
+        return config.getId() + "@" + config.getUpdateTime();
+    }
+
+    /**
+     * 事务提交后执行（不在事务中时立即执行），回滚的修改不会进入索引
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ==================== 索引结构 ====================
+
+    /**
+     * 索引视图：编译画像使用的评分内核、对应的配置 + 房间摘要
+     */
+    record View(ScoringKernel kernel, AllocationConfig config, Collection<RoomEntry> rooms) {
+    }
+
+    /**
+     * 房间摘要（不可变）
+     *
+     * @param freeBeds  空床位（只含 ID、编码、房间/楼层编码、校区）
+     * @param occupants 现有学生（只含 ID、所在房间和画像列）
+     * @param profiles  现有学生的紧凑画像（与 occupants 一一对应）
+     */
+    record RoomEntry(Long roomId, String campusCode, String roomCode, String roomNumber, String floorCode,
+                     List<Bed> freeBeds, List<Student> occupants, List<StudentProfile> profiles) {
+
+        static RoomEntry of(Long roomId, String roomNumber, List<Bed> beds, List<Student> students,
+                            ScoringKernel kernel) {
+            Bed first = beds.get(0);
+            List<StudentProfile> profiles = new ArrayList<>(students.size());
+            for (Student student : students) {
+                profiles.add(kernel.profile(student));
+            }
+            return new RoomEntry(roomId, first.getCampusCode(), first.getRoomCode(), roomNumber, first.getFloorCode(),
+                    List.copyOf(beds), List.copyOf(students), List.copyOf(profiles));
+        }
+    }
+
+    private static final class State {
+
+        final String configKey;
+        final AllocationConfig config;
+        final ScoringKernel kernel;
+        final ConcurrentHashMap<Long, RoomEntry> rooms = new ConcurrentHashMap<>();
+        /** 学生ID -> 所在房间ID（只含索引中的房间） */
+        final ConcurrentHashMap<Long, Long> studentRooms = new ConcurrentHashMap<>();
+
+        State(String configKey, AllocationConfig config, ScoringKernel kernel) {
+            this.configKey = configKey;
+            this.config = config;
+            this.kernel = kernel;
+        }
+
+        synchronized void put(RoomEntry entry) {
+            remove(entry.roomId());
+            rooms.put(entry.roomId(), entry);
+            for (Student student : entry.occupants()) {
+                studentRooms.put(student.getId(), entry.roomId());
+            }
+        }
+
+        synchronized void remove(Long roomId) {
+            RoomEntry old = rooms.remove(roomId);
+            if (old == null) return;
+            for (Student student : old.occupants()) {
+                studentRooms.remove(student.getId(), roomId);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.project.backend.allocation.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分配结果入住VO
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "分配结果入住结果")
+public class AllocationApplyResultVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "任务ID")
+    private Long taskId;
+
+    @Schema(description = "本次待入住数（已确认且尚未入住）")
+    private Integer totalCount;
+
+    @Schema(description = "入住成功数")
+    private Integer appliedCount;
+
+    @Schema(description = "跳过数（学生/床位不存在、床位已被占用、学生已入住其他床位等，可处理后重新执行）")
+    private Integer skippedCount;
+
+    @Schema(description = "跳过原因（最多返回前 100 条）")
+    private List<String> skippedReasons = new ArrayList<>();
+
+    @Schema(description = "耗时（毫秒）")
+    private Long duration;
+}
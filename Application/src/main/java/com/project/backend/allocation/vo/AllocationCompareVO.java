@@ -0,0 +1,91 @@
+package com.project.backend.allocation.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 分配方案对比结果VO
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "分配方案对比结果")
+public class AllocationCompareVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "对比ID（用于查询结果）")
+    private String compareId;
+
+    @Schema(description = "是否已全部完成")
+    private Boolean completed;
+
+    @Schema(description = "对比失败原因（成功为空）")
+    private String errorMessage;
+
+    @Schema(description = "待分配学生数")
+    private Integer totalStudents;
+
+    @Schema(description = "可用床位数")
+    private Integer totalBeds;
+
+    @Schema(description = "快照加载耗时（毫秒）")
+    private Long loadDurationMs;
+
+    @Schema(description = "各方案结果（按请求顺序，进行中时只包含已完成的方案）")
+    private List<VariantResultVO> results;
+
+    /**
+     * 单个方案的试算结果（内部类）
+     */
+    @Data
+    @Schema(description = "方案试算结果")
+    public static class VariantResultVO implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Schema(description = "配置ID")
+        private Long configId;
+
+        @Schema(description = "配置名称")
+        private String configName;
+
+        @Schema(description = "算法类型")
+        private String algorithmType;
+
+        @Schema(description = "算法名称")
+        private String algorithmName;
+
+        @Schema(description = "成功分配数")
+        private Integer successCount;
+
+        @Schema(description = "失败数")
+        private Integer failedCount;
+
+        @Schema(description = "平均匹配分")
+        private BigDecimal avgMatchScore;
+
+        @Schema(description = "最低匹配分")
+        private BigDecimal minMatchScore;
+
+        @Schema(description = "最高匹配分")
+        private BigDecimal maxMatchScore;
+
+        @Schema(description = "低分数量（低于配置的最低匹配分）")
+        private Integer lowScoreCount;
+
+        @Schema(description = "执行耗时（毫秒）")
+        private Long durationMs;
+
+        @Schema(description = "是否因时间预算用完提前结束")
+        private Boolean budgetExpired;
+
+        @Schema(description = "试算失败原因（成功为空）")
+        private String errorMessage;
+    }
+}
@@ -63,6 +63,12 @@ public class AllocationConfigVO implements Serializable {
     @Schema(description = "算法类型名称")
     private String algorithmTypeName;
 
+    @Schema(description = "算法时间预算（秒），为空不限制")
+    private Integer timeLimitSeconds;
+
+    @Schema(description = "局部搜索后优化：1-启用 0-禁用")
+    private Integer postOptimize;
+
     // ==================== 加分项 ====================
 
     @Schema(description = "同院系加分")
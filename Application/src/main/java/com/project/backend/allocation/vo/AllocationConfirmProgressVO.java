@@ -0,0 +1,43 @@
+package com.project.backend.allocation.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 批量确认/拒绝/入住进度VO
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "批量确认/拒绝/入住进度")
+public class AllocationConfirmProgressVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "任务ID")
+    private Long taskId;
+
+    @Schema(description = "操作：confirm-确认 reject-拒绝 apply-入住")
+    private String action;
+
+    @Schema(description = "待处理总数")
+    private Integer totalCount;
+
+    @Schema(description = "已处理数")
+    private Integer processedCount;
+
+    @Schema(description = "已更新数（状态实际发生变化的结果数）")
+    private Integer updatedCount;
+
+    @Schema(description = "跳过数（已入住、不能再确认或拒绝的结果数）")
+    private Integer skippedCount;
+
+    @Schema(description = "进度百分比")
+    private Integer progressPercent;
+
+    @Schema(description = "是否完成")
+    private Boolean completed;
+}
@@ -0,0 +1,50 @@
+package com.project.backend.allocation.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分配调度状态VO
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "分配调度状态")
+public class AllocationExecutorStatsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // ==================== 任务队列 ====================
+
+    @Schema(description = "允许同时执行的任务数")
+    private Integer maxConcurrentTasks;
+
+    @Schema(description = "正在执行的任务数")
+    private Integer runningTasks;
+
+    @Schema(description = "排队等待执行的任务数")
+    private Integer queuedTasks;
+
+    // ==================== 计算池 ====================
+
+    @Schema(description = "计算池并行度")
+    private Integer parallelism;
+
+    @Schema(description = "正在计算的线程数（估计值）")
+    private Integer activeThreads;
+
+    @Schema(description = "等待执行的分片数")
+    private Integer pendingPartitions;
+
+    @Schema(description = "正在执行的分片数")
+    private Integer activePartitions;
+
+    @Schema(description = "累计完成的分片数")
+    private Integer completedPartitions;
+
+    @Schema(description = "计算池排队的子任务数（估计值）")
+    private Long queuedComputeTasks;
+}
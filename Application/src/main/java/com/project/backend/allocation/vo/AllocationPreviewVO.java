@@ -62,6 +62,26 @@ public class AllocationPreviewVO implements Serializable {
     @Schema(description = "差额数量（正数表示床位多余，负数表示床位不足）")
     private Integer bedDifference;
 
+    // ==================== 预计耗时 ====================
+
+    @Schema(description = "配置使用的算法类型")
+    private String algorithmType;
+
+    @Schema(description = "预计耗时描述")
+    private String estimatedTime;
+
+    @Schema(description = "预计耗时（秒，未校准时为空）")
+    private Long estimatedSeconds;
+
+    @Schema(description = "预计耗时是否来自实测校准（false 为算法默认描述）")
+    private Boolean estimateCalibrated;
+
+    @Schema(description = "按规模和时间预算推荐的算法类型")
+    private String recommendedAlgorithmType;
+
+    @Schema(description = "推荐的算法名称")
+    private String recommendedAlgorithmName;
+
     // ==================== 习惯分布统计 ====================
 
     @Schema(description = "作息时间分布")
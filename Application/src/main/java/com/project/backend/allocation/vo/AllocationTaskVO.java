@@ -38,6 +38,9 @@ public class AllocationTaskVO implements Serializable {
     @Schema(description = "配置名称")
     private String configName;
 
+    @Schema(description = "增量分配的基准任务ID")
+    private Long baseTaskId;
+
     // ==================== 分配范围 ====================
 
     @Schema(description = "目标入学年份")
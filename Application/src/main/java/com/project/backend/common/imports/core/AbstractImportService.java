@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.project.backend.common.imports.dto.ProcessedRow;
 import com.project.backend.common.imports.dto.RawRow;
 import com.project.backend.common.imports.listener.ImportParallelListener;
+import com.project.backend.common.service.TaskStateStore;
 import com.project.backend.student.dto.imports.ImportError;
 import com.project.backend.student.dto.imports.ImportResult;
 import com.project.backend.student.dto.imports.ImportTaskVO;
@@ -35,6 +36,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 
@@ -60,6 +62,9 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
     @Autowired
     protected ImportProgressService importProgressService;
 
+    @Autowired
+    protected TaskStateStore taskStateStore;
+
     /**
      * 自身的代理对象，用于触发 Spring 事务等 AOP 能力
      */
@@ -82,7 +87,12 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
     protected static final String UPLOAD_PREFIX = "uploads/";
     protected static final int BATCH_SAVE_SIZE = 5000;
     protected static final int QUEUE_CAPACITY = 5000;
-    protected static final ConcurrentHashMap<String, ImportTaskVO> TASK_MAP = new ConcurrentHashMap<>();
+    /** 异步任务状态快照的命名空间（任务结束后保留到过期，供查询和其他实例读取） */
+    protected static final String TASK_NAMESPACE = "import:task";
+    /** 执行中任务状态快照的最小保存间隔（毫秒） */
+    protected static final long TASK_SAVE_INTERVAL_MS = 1000L;
+    /** 本实例执行中的任务（任务结束即移除） */
+    private static final ConcurrentHashMap<String, RunningTask> RUNNING_TASKS = new ConcurrentHashMap<>();
     protected static final ExecutorService IMPORT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "import-task");
         t.setDaemon(false);
@@ -201,7 +211,8 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
                 .status("processing")
                 .progressPercent(0)
                 .build();
-        TASK_MAP.put(taskId, vo);
+        RUNNING_TASKS.put(taskId, new RunningTask(vo));
+        taskStateStore.save(TASK_NAMESPACE, taskId, vo);
         IMPORT_EXECUTOR.execute(() -> {
             try {
                 log.info("异步导入任务开始，taskId: {}, frontendTotalRows: {}", taskId, totalRows);
@@ -217,50 +228,48 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
 
                 // 通过代理对象调用带事务的方法，确保异步导入同样受事务管理
                 ImportResult result = selfProxy.importFromExcelWithTransaction(fileUrl, totalRows, taskId);
-                ImportTaskVO v = TASK_MAP.get(taskId);
-                if (v != null) {
-                    v.setStatus("success");
-                    v.setProgressPercent(100);
-                    // 任务完成时返回结果；错误列表超过 500 条时只返回前 500 条，避免响应过大
-                    ImportResult toReturn = result;
-                    if (result.getErrors() != null && result.getErrors().size() > 500) {
-                        log.info("失败原因较多（共 {} 条），仅返回前 500 条供前端展示", result.getErrors().size());
-                        toReturn = ImportResult.builder()
-                                .totalRows(result.getTotalRows())
-                                .successCount(result.getSuccessCount())
-                                .failCount(result.getFailCount())
-                                .errors(new ArrayList<>(result.getErrors().subList(0, 500)))
-                                .build();
-                    }
-                    v.setResult(toReturn);
-                    log.info("异步导入任务完成，taskId: {}, 成功: {}, 失败: {}", taskId, result.getSuccessCount(), result.getFailCount());
-
-                    // SSE 推送：阶段3 - 完成
-                    importProgressService.pushComplete(taskId, "success", toReturn);
+                vo.setStatus("success");
+                vo.setProgressPercent(100);
+                // 任务完成时返回结果；错误列表超过 500 条时只返回前 500 条，避免响应过大（也避免快照过大）
+                ImportResult toReturn = result;
+                if (result.getErrors() != null && result.getErrors().size() > 500) {
+                    log.info("失败原因较多（共 {} 条），仅返回前 500 条供前端展示", result.getErrors().size());
+                    toReturn = ImportResult.builder()
+                            .totalRows(result.getTotalRows())
+                            .successCount(result.getSuccessCount())
+                            .failCount(result.getFailCount())
+                            .errors(new ArrayList<>(result.getErrors().subList(0, 500)))
+                            .build();
                 }
+                vo.setResult(toReturn);
+                taskStateStore.save(TASK_NAMESPACE, taskId, vo);
+                log.info("异步导入任务完成，taskId: {}, 成功: {}, 失败: {}", taskId, result.getSuccessCount(), result.getFailCount());
+
+                // SSE 推送：阶段3 - 完成
+                importProgressService.pushComplete(taskId, "success", toReturn);
             } catch (Exception e) {
                 log.error("异步导入失败，taskId: {}, 错误: {}", taskId, e.getMessage(), e);
-                ImportTaskVO v = TASK_MAP.get(taskId);
-                if (v != null) {
-                    v.setStatus("failed");
-                    v.setProgressPercent(0);
-                    // 失败时返回错误信息（限制错误列表大小，避免响应过大）
-                    List<ImportError> errors = List.of(ImportError.builder()
-                            .row(0)
-                            .column("系统")
-                            .message("导入异常: " + e.getMessage())
-                            .build());
-                    ImportResult failResult = ImportResult.builder()
-                            .totalRows(0)
-                            .successCount(0)
-                            .failCount(0)
-                            .errors(errors)
-                            .build();
-                    v.setResult(failResult);
-
-                    // SSE 推送：失败
-                    importProgressService.pushError(taskId, "导入失败: " + e.getMessage());
-                }
+                vo.setStatus("failed");
+                vo.setProgressPercent(0);
+                // 失败时返回错误信息（限制错误列表大小，避免响应过大）
+                List<ImportError> errors = List.of(ImportError.builder()
+                        .row(0)
+                        .column("系统")
+                        .message("导入异常: " + e.getMessage())
+                        .build());
+                ImportResult failResult = ImportResult.builder()
+                        .totalRows(0)
+                        .successCount(0)
+                        .failCount(0)
+                        .errors(errors)
+                        .build();
+                vo.setResult(failResult);
+                taskStateStore.save(TASK_NAMESPACE, taskId, vo);
+
+                // SSE 推送：失败
+                importProgressService.pushError(taskId, "导入失败: " + e.getMessage());
+            } finally {
+                RUNNING_TASKS.remove(taskId);
             }
         });
         return taskId;
@@ -270,7 +279,11 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
      * 获取异步任务状态
      */
     public ImportTaskVO getTask(String taskId) {
-        return TASK_MAP.get(taskId);
+        RunningTask running = RUNNING_TASKS.get(taskId);
+        if (running != null) {
+            return running.vo;
+        }
+        return taskStateStore.load(TASK_NAMESPACE, taskId, ImportTaskVO.class);
     }
 
     /**
@@ -679,10 +692,11 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
      * 更新异步任务进度
      */
     private void updateTaskProgress(String taskId, ImportResult result, Integer estimatedTotalRows) {
-        ImportTaskVO vo = TASK_MAP.get(taskId);
-        if (vo == null) {
+        RunningTask running = RUNNING_TASKS.get(taskId);
+        if (running == null) {
             return;
         }
+        ImportTaskVO vo = running.vo;
 
         int progressPercent = 0;
         int processedRows = (result.getTotalRows() != null ? result.getTotalRows() : 0);
@@ -720,6 +734,13 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
         Integer failCount = result.getFailCount();
         importProgressService.pushProgress(taskId, progressPercent, processedRows, totalRows, successCount, failCount);
 
+        // 状态快照按间隔保存，供其他实例查询
+        long now = System.currentTimeMillis();
+        long last = running.lastSaved.get();
+        if (now - last >= TASK_SAVE_INTERVAL_MS && running.lastSaved.compareAndSet(last, now)) {
+            taskStateStore.save(TASK_NAMESPACE, taskId, vo);
+        }
+
         // 每10000行更新一次详细日志（避免日志过多）
         if (processedRows % 10000 == 0) {
             log.info("导入进度更新，taskId: {}, 已处理: {} 行, 预估总行数: {}, 成功: {}, 失败: {}, 进度: {}%",
@@ -742,4 +763,17 @@ public abstract class AbstractImportService<DTO, Entity, Context extends ImportC
         Entity entity = convertDtoToEntity(raw.getDto(), raw.getRowIndex(), context, rowErrors, batchKeys);
         return new ProcessedRow<>(raw.getRowIndex(), entity, rowErrors);
     }
+
+    /**
+     * 本实例执行中的任务：当前状态 + 上次保存快照的时间
+     */
+    private static final class RunningTask {
+
+        final ImportTaskVO vo;
+        final AtomicLong lastSaved = new AtomicLong(System.currentTimeMillis());
+
+        RunningTask(ImportTaskVO vo) {
+            this.vo = vo;
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package com.project.backend.common.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统一的 SSE 进度推送中心（分配任务、数据导入等共用）
+ * <ul>
+ *     <li>合并：同一频道同一事件在一个推送周期内只保留最新状态，按固定频率推送，突发的进度回调不会逐条发送</li>
+ *     <li>异步：发布只写入待推送表，序列化和发送在推送线程中执行，客户端写入慢不会拖慢计算/导入线程</li>
+ *     <li>心跳：定期向所有连接发送 SSE 注释，保持代理/负载均衡的空闲连接并及时清理断开的连接</li>
+ *     <li>多实例：事件经 Redis 发布/订阅广播到所有实例，订阅者连在任一实例上都能收到；Redis 不可用时只推送本实例</li>
+ * </ul>
+ * 频道名由调用方约定（例如 allocation:任务ID、import:任务ID）；终态事件推送后关闭该频道的所有连接。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProgressHub implements MessageListener, DisposableBean {
+
+    /** Redis 广播主题 */
+    private static final String TOPIC = "progress:hub";
+    /** 推送周期（毫秒），同一事件每个周期最多推送一次 */
+    private static final long FLUSH_INTERVAL_MS = 200L;
+    /** 心跳间隔（秒） */
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 15L;
+
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+
+    /** 是否经 Redis 广播到其他实例 */
+    @Value("${progress.hub.cluster-enabled:true}")
+    private boolean clusterEnabled;
+
+    /** 频道 -> 本实例的连接 */
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    /** 待推送事件（频道 + 事件名 -> 最新状态） */
+    private final Map<String, PendingEvent> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "progress-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void start() {
+        sender.scheduleWithFixedDelay(this::flushSafely, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        sender.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+        if (clusterEnabled) {
+            RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+            if (container != null) {
+                container.addMessageListener(this, new ChannelTopic(TOPIC));
+            } else {
+                clusterEnabled = false;
+            }
+        }
+        log.info("[ProgressHub] 启动完成，推送周期 {}ms，心跳 {}s，多实例广播：{}",
+                FLUSH_INTERVAL_MS, HEARTBEAT_INTERVAL_SECONDS, clusterEnabled);
+    }
+
+    // ==================== 订阅 ====================
+
+    /**
+     * 订阅频道（连接完成/超时/出错时自动移除）
+     */
+    public void subscribe(String channel, SseEmitter emitter) {
+        List<SseEmitter> list = emitters.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+
+        emitter.onCompletion(() -> removeEmitter(channel, emitter));
+        emitter.onTimeout(() -> removeEmitter(channel, emitter));
+        emitter.onError(e -> removeEmitter(channel, emitter));
+
+        log.info("[ProgressHub] 新订阅，channel: {}, 本实例订阅数: {}", channel, list.size());
+    }
+
+    // ==================== 发布 ====================
+
+    /**
+     * 发布进度事件（合并后在下一个推送周期发送）
+     */
+    public void publish(String channel, String event, Object data) {
+        enqueue(channel, event, data, false);
+    }
+
+    /**
+     * 发布终态事件（立即安排发送，发送后关闭该频道的所有连接）
+     */
+    public void publishFinal(String channel, String event, Object data) {
+        enqueue(channel, event, data, true);
+        sender.execute(this::flushSafely);
+    }
+
+    // ==================== Redis 广播 ====================
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Envelope envelope = objectMapper.readValue(
+                    new String(message.getBody(), StandardCharsets.UTF_8), Envelope.class);
+            sender.execute(() -> deliver(envelope));
+        } catch (Exception e) {
+            log.warn("[ProgressHub] 广播消息解析失败", e);
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void enqueue(String channel, String event, Object data, boolean last) {
+        pending.put(channel + '\u0000' + event,
+                new PendingEvent(channel, event, data, last, sequence.incrementAndGet()));
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("[ProgressHub] 推送失败", e);
+        }
+    }
+
+    /**
+     * 取出待推送事件，按发布顺序序列化后广播（未启用或 Redis 不可用时直接推送本实例）
+     */
+    private void flush() {
+        if (pending.isEmpty()) return;
+        List<PendingEvent> batch = new ArrayList<>(pending.size());
+        for (String key : List.copyOf(pending.keySet())) {
+            PendingEvent event = pending.remove(key);
+            if (event != null) batch.add(event);
+        }
+        batch.sort(Comparator.comparingLong(PendingEvent::sequence));
+
+        for (PendingEvent event : batch) {
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(event.data());
+            } catch (JsonProcessingException e) {
+                log.error("[ProgressHub] JSON 序列化失败，channel: {}, event: {}", event.channel(), event.event(), e);
+                continue;
+            }
+            Envelope envelope = new Envelope(event.channel(), event.event(), json, event.last());
+            if (!broadcast(envelope)) {
+                deliver(envelope);
+            }
+        }
+    }
+
+    private boolean broadcast(Envelope envelope) {
+        if (!clusterEnabled) return false;
+        try {
+            stringRedisTemplate.convertAndSend(TOPIC, objectMapper.writeValueAsString(envelope));
+            return true;
+        } catch (Exception e) {
+            log.debug("[ProgressHub] Redis 广播失败，只推送本实例，channel: {}", envelope.channel());
+            return false;
+        }
+    }
+
+    /**
+     * 推送到本实例的连接
+     */
+    private void deliver(Envelope envelope) {
+        List<SseEmitter> list = envelope.last() ? emitters.remove(envelope.channel()) : emitters.get(envelope.channel());
+        if (list == null || list.isEmpty()) return;
+
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(SseEmitter.event().name(envelope.event()).data(envelope.data()));
+            } catch (IOException | IllegalStateException e) {
+                list.remove(emitter);
+            }
+        }
+
+        if (envelope.last()) {
+            for (SseEmitter emitter : list) {
+                try { emitter.complete(); } catch (Exception ignored) {}
+            }
+            log.info("[ProgressHub] 已关闭所有连接，channel: {}, 连接数: {}", envelope.channel(), list.size());
+        }
+    }
+
+    private void heartbeat() {
+        emitters.forEach((channel, list) -> {
+            for (SseEmitter emitter : list) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (Exception e) {
+                    removeEmitter(channel, emitter);
+                }
+            }
+        });
+    }
+
+    private void removeEmitter(String channel, SseEmitter emitter) {
+        List<SseEmitter> list = emitters.get(channel);
+        if (list != null) {
+            list.remove(emitter);
+            if (list.isEmpty()) {
+                emitters.remove(channel, list);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+    }
+
+    private record PendingEvent(String channel, String event, Object data, boolean last, long sequence) {
+    }
+
+    /**
+     * 广播消息（data 为已序列化的 JSON）
+     */
+    record Envelope(String channel, String event, String data, boolean last) {
+    }
+}
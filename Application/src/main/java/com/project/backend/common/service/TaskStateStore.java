@@ -0,0 +1,41 @@
+package com.project.backend.common.service;
+
+/**
+ * 异步任务状态存储
+ * 保存分配任务进度、导入任务状态等短期快照（序列化为紧凑 JSON），写入时刷新过期时间，到期自动清除，
+ * 进程内不长期持有任务对象；Redis 实现可被所有实例读取。
+ * <p>
+ * 通过 task.state.store 选择实现：redis（默认）或 memory（单实例/测试）。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public interface TaskStateStore {
+
+    /**
+     * 保存快照（覆盖旧值并刷新过期时间）
+     *
+     * @param namespace 命名空间（例如 allocation:progress、import:task）
+     * @param taskId    任务ID
+     * @param snapshot  快照对象
+     */
+    void save(String namespace, String taskId, Object snapshot);
+
+    /**
+     * 读取快照
+     *
+     * @param namespace 命名空间
+     * @param taskId    任务ID
+     * @param type      快照类型
+     * @return 快照，不存在或已过期时返回 null
+     */
+    <T> T load(String namespace, String taskId, Class<T> type);
+
+    /**
+     * 删除快照
+     *
+     * @param namespace 命名空间
+     * @param taskId    任务ID
+     */
+    void remove(String namespace, String taskId);
+}
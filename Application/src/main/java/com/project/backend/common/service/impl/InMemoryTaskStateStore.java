@@ -0,0 +1,121 @@
+package com.project.backend.common.service.impl;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.backend.common.service.TaskStateStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内任务状态存储（单实例部署、测试，以及 Redis 不可用时的降级）
+ * 与 Redis 实现一致：保存序列化后的 JSON 而不是对象引用，读取得到独立副本；
+ * 过期条目在读取时清除，并在写入时定期整体清扫，长期运行内存不随历史任务增长。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "task.state.store", havingValue = "memory")
+public class InMemoryTaskStateStore implements TaskStateStore {
+
+    /** 两次整体清扫的最小间隔（毫秒） */
+    private static final long SWEEP_INTERVAL_MS = 60 * 1000L;
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+
+    public InMemoryTaskStateStore(ObjectMapper objectMapper,
+                                  @Value("${task.state.ttl-minutes:1440}") long ttlMinutes) {
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    @Override
+    public void save(String namespace, String taskId, Object snapshot) {
+        try {
+            put(namespace, taskId, objectMapper.writeValueAsString(snapshot), System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            log.error("任务状态序列化失败，namespace: {}, taskId: {}", namespace, taskId, e);
+        }
+    }
+
+    @Override
+    public <T> T load(String namespace, String taskId, Class<T> type) {
+        Entry entry = peek(namespace, taskId);
+        if (entry == null) return null;
+        try {
+            return objectMapper.readValue(entry.json(), type);
+        } catch (JsonProcessingException e) {
+            log.warn("任务状态反序列化失败，namespace: {}, taskId: {}", namespace, taskId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String namespace, String taskId) {
+        entries.remove(key(namespace, taskId));
+    }
+
+    /**
+     * 写入已序列化的快照（Redis 降级时使用，保留原始写入时间用于恢复后比较新旧）
+     */
+    void put(String namespace, String taskId, String json, long savedAt) {
+        long now = System.currentTimeMillis();
+        entries.put(key(namespace, taskId), new Entry(json, savedAt, now + ttlMs));
+        sweepIfDue(now);
+    }
+
+    /**
+     * 读取未过期的条目（过期条目顺带清除）
+     */
+    Entry peek(String namespace, String taskId) {
+        String key = key(namespace, taskId);
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expireAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 仅当条目未被更新时删除（Redis 恢复后回写成功时使用）
+     */
+    void removeIfSame(String namespace, String taskId, Entry entry) {
+        entries.remove(key(namespace, taskId), entry);
+    }
+
+    /**
+     * 清除所有过期条目（每分钟最多一次）
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_MS || !lastSweep.compareAndSet(last, now)) return;
+        entries.values().removeIf(entry -> entry.expireAt() <= now);
+    }
+
+    private static String key(String namespace, String taskId) {
+        return namespace + ':' + taskId;
+    }
+
+    /**
+     * @param json     快照 JSON
+     * @param savedAt  写入时间（毫秒）
+     * @param expireAt 过期时间（毫秒）
+     */
+    record Entry(String json, long savedAt, long expireAt) {
+    }
+}
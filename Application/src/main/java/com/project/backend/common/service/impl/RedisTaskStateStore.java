@@ -0,0 +1,155 @@
+package com.project.backend.common.service.impl;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.backend.common.service.TaskStateStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Redis 任务状态存储（默认实现）
+ * 快照以「写入时间|JSON」保存在 task:state:命名空间:任务ID 下，写入时设置过期时间，所有实例共享。
+ * Redis 不可用时降级到进程内存储（同样按过期时间清除）；恢复后读取时比较写入时间，
+ * 降级期间写入的较新条目优先于 Redis 中残留的旧值，并回写到 Redis。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "task.state.store", havingValue = "redis", matchIfMissing = true)
+public class RedisTaskStateStore implements TaskStateStore {
+
+    private static final String KEY_PREFIX = "task:state:";
+    /** 值中写入时间与 JSON 的分隔符 */
+    private static final char SAVED_AT_SEPARATOR = '|';
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    /** Redis 不可用时的降级存储 */
+    private final InMemoryTaskStateStore fallback;
+
+    public RedisTaskStateStore(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                               @Value("${task.state.ttl-minutes:1440}") long ttlMinutes) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.fallback = new InMemoryTaskStateStore(objectMapper, ttlMinutes);
+    }
+
+    @Override
+    public void save(String namespace, String taskId, Object snapshot) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            log.error("任务状态序列化失败，namespace: {}, taskId: {}", namespace, taskId, e);
+            return;
+        }
+        long savedAt = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForValue().set(key(namespace, taskId), encode(json, savedAt), ttl);
+        } catch (Exception e) {
+            log.warn("任务状态写入 Redis 失败，降级为本实例存储，namespace: {}, taskId: {}: {}",
+                    namespace, taskId, e.getMessage());
+            fallback.put(namespace, taskId, json, savedAt);
+            return;
+        }
+        // Redis 中已是最新值，降级期间的旧条目作废
+        fallback.remove(namespace, taskId);
+    }
+
+    @Override
+    public <T> T load(String namespace, String taskId, Class<T> type) {
+        String value;
+        try {
+            value = stringRedisTemplate.opsForValue().get(key(namespace, taskId));
+        } catch (Exception e) {
+            log.warn("任务状态读取 Redis 失败，读取本实例存储，namespace: {}, taskId: {}: {}",
+                    namespace, taskId, e.getMessage());
+            return fallback.load(namespace, taskId, type);
+        }
+        String json = value != null ? decodeJson(value) : null;
+        InMemoryTaskStateStore.Entry pending = fallback.peek(namespace, taskId);
+        if (pending != null) {
+            if (value == null || pending.savedAt() > decodeSavedAt(value)) {
+                // 降级期间写入的条目比 Redis 中的旧值新：以它为准并回写 Redis
+                json = pending.json();
+                writeBack(namespace, taskId, pending);
+            } else {
+                fallback.removeIfSame(namespace, taskId, pending);
+            }
+        }
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            log.warn("任务状态反序列化失败，namespace: {}, taskId: {}", namespace, taskId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String namespace, String taskId) {
+        fallback.remove(namespace, taskId);
+        try {
+            stringRedisTemplate.delete(key(namespace, taskId));
+        } catch (Exception e) {
+            log.warn("任务状态删除失败，namespace: {}, taskId: {}: {}", namespace, taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * Redis 恢复后把降级期间的条目回写，成功后移出本实例存储
+     */
+    private void writeBack(String namespace, String taskId, InMemoryTaskStateStore.Entry entry) {
+        try {
+            stringRedisTemplate.opsForValue().set(key(namespace, taskId), encode(entry.json(), entry.savedAt()), ttl);
+            fallback.removeIfSame(namespace, taskId, entry);
+        } catch (Exception e) {
+            log.warn("任务状态回写 Redis 失败，namespace: {}, taskId: {}: {}", namespace, taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 存储格式：写入时间（毫秒）|JSON
+     */
+    private static String encode(String json, long savedAt) {
+        return savedAt + String.valueOf(SAVED_AT_SEPARATOR) + json;
+    }
+
+    private static String decodeJson(String value) {
+        int sep = savedAtSeparator(value);
+        return sep < 0 ? value : value.substring(sep + 1);
+    }
+
+    /**
+     * 写入时间，旧格式（纯 JSON）视为最早
+     */
+    private static long decodeSavedAt(String value) {
+        int sep = savedAtSeparator(value);
+        return sep < 0 ? 0L : Long.parseLong(value, 0, sep, 10);
+    }
+
+    private static int savedAtSeparator(String value) {
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0))) return -1;
+        int sep = value.indexOf(SAVED_AT_SEPARATOR);
+        for (int i = 1; i < sep; i++) {
+            if (!Character.isDigit(value.charAt(i))) return -1;
+        }
+        return sep;
+    }
+
+    private static String key(String namespace, String taskId) {
+        return KEY_PREFIX + namespace + ':' + taskId;
+    }
+}
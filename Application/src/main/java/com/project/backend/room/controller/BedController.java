@@ -8,7 +8,9 @@ import com.project.core.result.R;
 import com.project.backend.room.dto.bed.BedBatchCreateDTO;
 import com.project.backend.room.dto.bed.BedQueryDTO;
 import com.project.backend.room.dto.bed.BedSaveDTO;
+import com.project.backend.room.service.BedClaimService;
 import com.project.backend.room.service.BedService;
+import com.project.backend.room.vo.BedClaimStatsVO;
 import com.project.backend.room.vo.BedVO;
 import com.project.core.annotation.Log;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,6 +18,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -36,6 +39,7 @@ public class BedController extends BaseCrudController<BedVO, BedQueryDTO, BedSav
         implements BatchDeleteController, StatusUpdateController {
 
     private final BedService bedService;
+    private final BedClaimService bedClaimService;
 
     @Override
     public String getEntityName() {
@@ -78,4 +82,10 @@ public class BedController extends BaseCrudController<BedVO, BedQueryDTO, BedSav
     public R<Integer> batchCreate(@RequestBody @Valid BedBatchCreateDTO dto) {
         return R.ok(bedService.batchCreateBeds(dto));
     }
+
+    @GetMapping("/claim-stats")
+    @Operation(summary = "床位占用统计", description = "本实例启动以来的床位占用尝试、成功、冲突和换床位次数")
+    public R<BedClaimStatsVO> claimStats() {
+        return R.ok(bedClaimService.getStats());
+    }
 }
@@ -0,0 +1,28 @@
+package com.project.backend.room.dto.bed;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 床位占用请求（一个学生占用一个床位）
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "床位占用请求")
+public class BedClaimDTO {
+
+    @Schema(description = "床位ID")
+    private Long bedId;
+
+    @Schema(description = "学生ID")
+    private Long studentId;
+
+    @Schema(description = "学生姓名")
+    private String studentName;
+}
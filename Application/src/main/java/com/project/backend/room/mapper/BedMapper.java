@@ -1,11 +1,19 @@
 package com.project.backend.room.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.project.backend.room.dto.bed.BedClaimDTO;
 import com.project.backend.room.entity.Bed;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,4 +39,42 @@ public interface BedMapper extends BaseMapper<Bed> {
             " GROUP BY room_id" +
             "</script>")
     List<Map<String, Object>> countGroupByRoomIds(@Param("roomIds") Set<Long> roomIds);
+
+    /**
+     * 流式查询智能分配所需的床位列（床位、房间、楼层），游标需在事务内遍历
+     * 注意：自定义 SQL 不会自动追加逻辑删除条件，由调用方在 wrapper 中指定
+     */
+    @Select("SELECT id, room_id, room_code, floor_id, floor_code FROM sys_bed ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Bed> streamAllocationColumns(@Param(Constants.WRAPPER) Wrapper<Bed> wrapper);
+
+    /**
+     * 条件占用单个床位：仅当床位启用、空闲且无人入住时写入学生，返回 1 表示占用成功、0 表示已被占用或不可用
+     * 判断和写入在同一条语句中完成，并发请求只有一个能成功
+     */
+    @Update("UPDATE sys_bed SET student_id = #{studentId}, student_name = #{studentName}, bed_status = 2, " +
+            "check_in_date = #{checkInDate}, update_time = NOW() " +
+            "WHERE id = #{bedId} AND bed_status = 1 AND student_id IS NULL AND status = 1 AND deleted = 0")
+    int claim(@Param("bedId") Long bedId, @Param("studentId") Long studentId,
+              @Param("studentName") String studentName, @Param("checkInDate") LocalDate checkInDate);
+
+    /**
+     * 条件批量占用床位（一条语句）：每个床位按 CASE 写入各自的学生，只更新仍然空闲的床位
+     * 返回值为占用成功的床位数，具体哪些成功需回查 student_id
+     */
+    @Update("<script>UPDATE sys_bed SET " +
+            "student_id = CASE id <foreach collection='claims' item='c'>WHEN #{c.bedId} THEN #{c.studentId} </foreach>END, " +
+            "student_name = CASE id <foreach collection='claims' item='c'>WHEN #{c.bedId} THEN #{c.studentName} </foreach>END, " +
+            "bed_status = 2, check_in_date = #{checkInDate}, update_time = NOW() " +
+            "WHERE bed_status = 1 AND student_id IS NULL AND status = 1 AND deleted = 0 AND id IN " +
+            "<foreach collection='claims' item='c' open='(' separator=',' close=')'>#{c.bedId}</foreach>" +
+            "</script>")
+    int claimBatch(@Param("claims") List<BedClaimDTO> claims, @Param("checkInDate") LocalDate checkInDate);
+
+    /**
+     * 条件释放床位：仅当床位仍由指定学生占用时清空，用于撤销本次占用（如学生已被其他操作分配床位）
+     */
+    @Update("UPDATE sys_bed SET student_id = NULL, student_name = NULL, bed_status = 1, check_in_date = NULL, " +
+            "update_time = NOW() WHERE id = #{bedId} AND student_id = #{studentId} AND deleted = 0")
+    int release(@Param("bedId") Long bedId, @Param("studentId") Long studentId);
 }
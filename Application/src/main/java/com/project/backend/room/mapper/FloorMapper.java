@@ -3,6 +3,10 @@ package com.project.backend.room.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.project.backend.room.entity.Floor;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
 
 /**
  * 楼层Mapper
@@ -12,4 +16,16 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface FloorMapper extends BaseMapper<Floor> {
+
+    /**
+     * 按已占用床位数重新计算楼层当前入住人数（单条语句批量更新，可重复执行）
+     *
+     * @param floorIds 楼层ID
+     * @return 更新条数
+     */
+    @Update("<script>UPDATE sys_floor f SET current_occupancy = " +
+            "(SELECT COUNT(*) FROM sys_bed b WHERE b.floor_id = f.id AND b.bed_status = 2 AND b.deleted = 0), " +
+            "update_time = NOW() WHERE f.id IN " +
+            "<foreach collection='floorIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int refreshOccupancy(@Param("floorIds") Collection<Long> floorIds);
 }
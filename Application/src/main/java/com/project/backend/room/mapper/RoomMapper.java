@@ -3,6 +3,10 @@ package com.project.backend.room.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.project.backend.room.entity.Room;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
 
 /**
  * 房间Mapper
@@ -12,4 +16,16 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface RoomMapper extends BaseMapper<Room> {
+
+    /**
+     * 按已占用床位数重新计算房间当前入住人数（单条语句批量更新，可重复执行）
+     *
+     * @param roomIds 房间ID
+     * @return 更新条数
+     */
+    @Update("<script>UPDATE sys_room r SET current_occupancy = " +
+            "(SELECT COUNT(*) FROM sys_bed b WHERE b.room_id = r.id AND b.bed_status = 2 AND b.deleted = 0), " +
+            "update_time = NOW() WHERE r.id IN " +
+            "<foreach collection='roomIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int refreshOccupancy(@Param("roomIds") Collection<Long> roomIds);
 }
@@ -0,0 +1,60 @@
+package com.project.backend.room.service;
+
+import com.project.backend.room.dto.bed.BedClaimDTO;
+import com.project.backend.room.vo.BedClaimStatsVO;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 床位占用服务
+ * 以条件 UPDATE（仅更新空闲床位）原子占用床位，替代先查询床位状态再 updateById 的写法，
+ * 并发请求同一床位时只有一个成功，其余得到冲突结果；须在调用方事务中使用，事务回滚时占用一并撤销。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+public interface BedClaimService {
+
+    /**
+     * 占用指定床位
+     *
+     * @param bedId       床位ID
+     * @param studentId   学生ID
+     * @param studentName 学生姓名
+     * @return 是否占用成功（false 表示床位已被占用、非空闲或已停用）
+     */
+    boolean claim(Long bedId, Long studentId, String studentName);
+
+    /**
+     * 占用指定床位，冲突时改占同房间的其他空闲床位
+     *
+     * @param bedId       首选床位ID
+     * @param studentId   学生ID
+     * @param studentName 学生姓名
+     * @return 实际占用的床位ID，同房间没有可用床位时返回 null
+     */
+    Long claimOrAlternative(Long bedId, Long studentId, String studentName);
+
+    /**
+     * 批量占用床位（一条语句）
+     *
+     * @param claims 占用请求（床位不可重复）
+     * @return 占用成功的床位ID
+     */
+    Set<Long> claimAll(List<BedClaimDTO> claims);
+
+    /**
+     * 释放床位（仅当床位仍由该学生占用），用于撤销本事务中的占用
+     *
+     * @param bedId     床位ID
+     * @param studentId 学生ID
+     * @return 是否释放成功
+     */
+    boolean release(Long bedId, Long studentId);
+
+    /**
+     * 获取占用统计
+     */
+    BedClaimStatsVO getStats();
+}
@@ -0,0 +1,155 @@
+package com.project.backend.room.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.project.backend.room.dto.bed.BedClaimDTO;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.room.service.BedClaimService;
+import com.project.backend.room.vo.BedClaimStatsVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 床位占用服务实现
+ * 单个床位：一条条件 UPDATE，影响行数即占用结果；冲突时可按床位ID顺序尝试同房间的空闲床位。
+ * 批量：一条 CASE 条件 UPDATE 占用所有仍空闲的床位，再按 student_id 回查哪些成功。
+ * 不加行锁等待，也不依赖版本号重试：冲突的请求立即得到结果，由调用方决定报错、换床位或跳过。
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BedClaimServiceImpl implements BedClaimService {
+
+    /** 首选床位冲突后最多尝试的同房间床位数 */
+    private static final int MAX_ALTERNATIVES = 8;
+    /** 批量占用每条语句的床位数 */
+    private static final int BATCH_SIZE = 1000;
+
+    private final BedMapper bedMapper;
+
+    // ==================== 统计 ====================
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder fallbackClaimed = new LongAdder();
+    private final LongAdder fallbackExhausted = new LongAdder();
+    private final LongAdder batchStatements = new LongAdder();
+    private final LongAdder batchBeds = new LongAdder();
+
+    @Override
+    public boolean claim(Long bedId, Long studentId, String studentName) {
+        attempts.increment();
+        boolean success = bedMapper.claim(bedId, studentId, studentName, LocalDate.now()) == 1;
+        if (success) {
+            claimed.increment();
+        } else {
+            conflicts.increment();
+            log.debug("床位占用冲突，床位ID：{}，学生ID：{}", bedId, studentId);
+        }
+        return success;
+    }
+
+    @Override
+    public Long claimOrAlternative(Long bedId, Long studentId, String studentName) {
+        if (claim(bedId, studentId, studentName)) {
+            return bedId;
+        }
+
+        Bed preferred = bedMapper.selectById(bedId);
+        if (preferred != null && preferred.getRoomId() != null) {
+            LambdaQueryWrapper<Bed> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(Bed::getId)
+                    .eq(Bed::getRoomId, preferred.getRoomId())
+                    .ne(Bed::getId, bedId)
+                    .eq(Bed::getBedStatus, 1)
+                    .isNull(Bed::getStudentId)
+                    .eq(Bed::getStatus, 1)
+                    .orderByAsc(Bed::getId)
+                    .last("LIMIT " + MAX_ALTERNATIVES);
+            for (Bed candidate : bedMapper.selectList(wrapper)) {
+                if (claim(candidate.getId(), studentId, studentName)) {
+                    fallbackClaimed.increment();
+                    log.info("床位 {} 已被占用，学生 {} 改占同房间床位 {}", bedId, studentId, candidate.getId());
+                    return candidate.getId();
+                }
+            }
+        }
+        fallbackExhausted.increment();
+        return null;
+    }
+
+    @Override
+    public Set<Long> claimAll(List<BedClaimDTO> claims) {
+        // 同一床位只保留第一个请求
+        Map<Long, BedClaimDTO> byBed = new LinkedHashMap<>();
+        for (BedClaimDTO claim : claims) {
+            if (claim.getBedId() != null && claim.getStudentId() != null) {
+                byBed.putIfAbsent(claim.getBedId(), claim);
+            }
+        }
+        if (byBed.isEmpty()) return Set.of();
+
+        List<BedClaimDTO> distinct = new ArrayList<>(byBed.values());
+        LocalDate today = LocalDate.now();
+        Set<Long> success = new HashSet<>();
+        for (int from = 0; from < distinct.size(); from += BATCH_SIZE) {
+            List<BedClaimDTO> chunk = distinct.subList(from, Math.min(from + BATCH_SIZE, distinct.size()));
+            int updated = bedMapper.claimBatch(chunk, today);
+            batchStatements.increment();
+            batchBeds.add(chunk.size());
+            attempts.add(chunk.size());
+            claimed.add(updated);
+            conflicts.add(chunk.size() - updated);
+
+            // 回查：床位上的学生与请求一致即占用成功（含此前已由该学生占用的床位）
+            LambdaQueryWrapper<Bed> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(Bed::getId, Bed::getStudentId)
+                    .in(Bed::getId, chunk.stream().map(BedClaimDTO::getBedId).toList());
+            for (Bed bed : bedMapper.selectList(wrapper)) {
+                BedClaimDTO claim = byBed.get(bed.getId());
+                if (claim != null && claim.getStudentId().equals(bed.getStudentId())) {
+                    success.add(bed.getId());
+                }
+            }
+        }
+        if (success.size() < distinct.size()) {
+            log.info("批量占用床位：请求 {}，成功 {}，冲突 {}", distinct.size(), success.size(),
+                    distinct.size() - success.size());
+        }
+        return success;
+    }
+
+    @Override
+    public boolean release(Long bedId, Long studentId) {
+        boolean success = bedMapper.release(bedId, studentId) == 1;
+        if (!success) {
+            log.warn("床位释放失败（已不由该学生占用），床位ID：{}，学生ID：{}", bedId, studentId);
+        }
+        return success;
+    }
+
+    @Override
+    public BedClaimStatsVO getStats() {
+        BedClaimStatsVO stats = new BedClaimStatsVO();
+        long total = attempts.sum();
+        long conflictCount = conflicts.sum();
+        stats.setAttempts(total);
+        stats.setClaimed(claimed.sum());
+        stats.setConflicts(conflictCount);
+        stats.setConflictRate(total > 0 ? Math.round(conflictCount * 10000.0 / total) / 100.0 : 0.0);
+        stats.setFallbackClaimed(fallbackClaimed.sum());
+        stats.setFallbackExhausted(fallbackExhausted.sum());
+        stats.setBatchStatements(batchStatements.sum());
+        stats.setBatchBeds(batchBeds.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,43 @@
+package com.project.backend.room.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 床位占用统计VO（本实例启动以来的累计值）
+ *
+ * @author 陈鸿昇
+ * @since 2026-02-12
+ */
+@Data
+@Schema(description = "床位占用统计")
+public class BedClaimStatsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "占用尝试次数（按床位计）")
+    private Long attempts;
+
+    @Schema(description = "占用成功次数")
+    private Long claimed;
+
+    @Schema(description = "冲突次数（床位已被占用或不可用）")
+    private Long conflicts;
+
+    @Schema(description = "冲突率（%）")
+    private Double conflictRate;
+
+    @Schema(description = "目标床位冲突后改占同房间其他床位成功的次数")
+    private Long fallbackClaimed;
+
+    @Schema(description = "目标床位冲突且同房间没有可用床位的次数")
+    private Long fallbackExhausted;
+
+    @Schema(description = "批量占用语句数")
+    private Long batchStatements;
+
+    @Schema(description = "批量占用涉及的床位数")
+    private Long batchBeds;
+}
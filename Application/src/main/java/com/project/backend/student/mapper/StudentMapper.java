@@ -1,8 +1,15 @@
 package com.project.backend.student.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.project.backend.student.entity.Student;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 /**
  * 学生Mapper
@@ -12,4 +19,18 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface StudentMapper extends BaseMapper<Student> {
+
+    /**
+     * 流式查询智能分配所需的列（身份、性别、院系专业班级、房间床位、生活习惯）
+     * 只投影分配相关列，逐行读取不整表缓存；游标需在事务内遍历。
+     * 注意：自定义 SQL 不会自动追加逻辑删除条件，由调用方在 wrapper 中指定
+     */
+    @Select("SELECT id, student_no, student_name, gender, dept_code, major_code, class_code, room_id, bed_id, " +
+            "smoking_status, smoking_tolerance, sleep_schedule, sleep_quality, snores, " +
+            "sensitive_to_light, sensitive_to_sound, cleanliness_level, bedtime_cleanup, " +
+            "social_preference, allow_visitors, phone_call_time, study_in_room, study_environment, " +
+            "computer_usage_time, gaming_preference, music_preference, music_volume, eat_in_room " +
+            "FROM sys_student ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Student> streamAllocationColumns(@Param(Constants.WRAPPER) Wrapper<Student> wrapper);
 }
@@ -1,35 +1,28 @@
 package com.project.backend.student.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.backend.common.service.ProgressHub;
 import com.project.backend.student.dto.imports.ImportResult;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 导入进度 SSE 推送服务
- * 支持实时推送导入进度到前端
+ * 支持实时推送导入进度到前端；推送经 {@link ProgressHub} 合并、异步发送并广播到所有实例
  *
  * @author 陈鸿昇
  * @since 2026-02-05
  */
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class ImportProgressService {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CHANNEL_PREFIX = "import:";
 
-    /**
-     * taskId -> emitter 列表（支持多客户端订阅同一任务）
-     */
-    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ProgressHub progressHub;
 
     /**
      * 订阅任务进度
@@ -38,37 +31,7 @@ public class ImportProgressService {
      * @param emitter SSE 发射器
      */
     public void subscribe(String taskId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.computeIfAbsent(taskId, k -> new CopyOnWriteArrayList<>());
-        list.add(emitter);
-
-        // 设置回调：连接完成/超时/错误时移除
-        emitter.onCompletion(() -> {
-            log.debug("SSE 连接完成，taskId: {}", taskId);
-            removeEmitter(taskId, emitter);
-        });
-        emitter.onTimeout(() -> {
-            log.debug("SSE 连接超时，taskId: {}", taskId);
-            removeEmitter(taskId, emitter);
-        });
-        emitter.onError(e -> {
-            log.debug("SSE 连接错误，taskId: {}, error: {}", taskId, e.getMessage());
-            removeEmitter(taskId, emitter);
-        });
-
-        log.info("新的 SSE 订阅，taskId: {}, 当前订阅数: {}", taskId, list.size());
-    }
-
-    /**
-     * 移除指定的 emitter
-     */
-    private void removeEmitter(String taskId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.get(taskId);
-        if (list != null) {
-            list.remove(emitter);
-            if (list.isEmpty()) {
-                emitters.remove(taskId);
-            }
-        }
+        progressHub.subscribe(CHANNEL_PREFIX + taskId, emitter);
     }
 
     /**
@@ -86,7 +49,7 @@ public class ImportProgressService {
         if (totalRows != null) {
             data.put("totalRows", totalRows);
         }
-        sendEvent(taskId, "stage", data);
+        progressHub.publish(CHANNEL_PREFIX + taskId, "stage", data);
     }
 
     /**
@@ -111,7 +74,7 @@ public class ImportProgressService {
         if (failCount != null) {
             data.put("failCount", failCount);
         }
-        sendEvent(taskId, "progress", data);
+        progressHub.publish(CHANNEL_PREFIX + taskId, "progress", data);
     }
 
     /**
@@ -134,10 +97,8 @@ public class ImportProgressService {
         if (result != null) {
             data.put("result", result);
         }
-        sendEvent(taskId, "complete", data);
-
         // 完成后关闭所有连接
-        closeAllEmitters(taskId);
+        progressHub.publishFinal(CHANNEL_PREFIX + taskId, "complete", data);
     }
 
     /**
@@ -149,76 +110,7 @@ public class ImportProgressService {
     public void pushError(String taskId, String message) {
         Map<String, Object> data = new ConcurrentHashMap<>();
         data.put("message", message);
-        sendEvent(taskId, "error", data);
-
         // 错误后关闭所有连接
-        closeAllEmitters(taskId);
-    }
-
-    /**
-     * 发送 SSE 事件
-     */
-    private void sendEvent(String taskId, String eventName, Object data) {
-        List<SseEmitter> list = emitters.get(taskId);
-        if (list == null || list.isEmpty()) {
-            log.debug("没有订阅者，taskId: {}, event: {}", taskId, eventName);
-            return;
-        }
-
-        String jsonData;
-        try {
-            jsonData = objectMapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            log.error("JSON 序列化失败，taskId: {}, event: {}", taskId, eventName, e);
-            return;
-        }
-
-        List<SseEmitter> deadEmitters = new CopyOnWriteArrayList<>();
-
-        for (SseEmitter emitter : list) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name(eventName)
-                        .data(jsonData));
-            } catch (IOException e) {
-                log.debug("发送 SSE 事件失败，标记为待移除，taskId: {}, event: {}", taskId, eventName);
-                deadEmitters.add(emitter);
-            }
-        }
-
-        // 移除失效的 emitter
-        for (SseEmitter dead : deadEmitters) {
-            list.remove(dead);
-        }
-
-        log.debug("SSE 事件已发送，taskId: {}, event: {}, 订阅数: {}", taskId, eventName, list.size());
-    }
-
-    /**
-     * 关闭指定任务的所有 SSE 连接
-     */
-    private void closeAllEmitters(String taskId) {
-        List<SseEmitter> list = emitters.remove(taskId);
-        if (list != null) {
-            for (SseEmitter emitter : list) {
-                try {
-                    emitter.complete();
-                } catch (Exception e) {
-                    log.debug("关闭 SSE 连接时发生异常，taskId: {}", taskId);
-                }
-            }
-            log.info("已关闭所有 SSE 连接，taskId: {}, 连接数: {}", taskId, list.size());
-        }
-    }
-
-    /**
-     * 检查是否有订阅者
-     *
-     * @param taskId 任务 ID
-     * @return 是否有订阅者
-     */
-    public boolean hasSubscribers(String taskId) {
-        List<SseEmitter> list = emitters.get(taskId);
-        return list != null && !list.isEmpty();
+        progressHub.publishFinal(CHANNEL_PREFIX + taskId, "error", data);
     }
 }
@@ -1,5 +1,6 @@
 package com.project.core.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -32,4 +33,22 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * 智能分配任务执行器
+     * 同时执行的任务数固定，其余任务排队；任务内部的计算统一提交到分配计算池
+     */
+    @Bean(name = "allocationTaskExecutor")
+    public ThreadPoolTaskExecutor allocationTaskExecutor(
+            @Value("${allocation.compute.max-concurrent-tasks:2}") int maxConcurrentTasks,
+            @Value("${allocation.compute.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentTasks);
+        executor.setMaxPoolSize(maxConcurrentTasks);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("allocation-task-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
 }
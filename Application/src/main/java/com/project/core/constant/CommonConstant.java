@@ -91,4 +91,9 @@ public class CommonConstant {
     private CommonConstant() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
+
+    /**
+     * 按 ID 批量查询时每批的 ID 数（避免超长 IN 列表）
+     */
+    public static final int ID_CHUNK = 1000;
 }
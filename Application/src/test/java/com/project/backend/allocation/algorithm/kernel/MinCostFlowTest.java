@@ -0,0 +1,163 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 最小费用流求解器测试
+ *
+ * 测试要点
+ * 1. 小规模手算实例的流量、总费用和各边流量
+ * 2. 不可行（汇点不可达/容量不足）时返回可达的最大流
+ * 3. 需要沿负约化费用的反向边撤销先前增广的实例
+ * 4. 随机二分图指派与穷举结果一致
+ */
+@DisplayName("最小费用流求解器测试")
+public class MinCostFlowTest {
+
+    private static final int SOURCE = 0;
+    private static final int SINK = 1;
+
+    @Test
+    @DisplayName("3x3 指派：手算最优解")
+    void testAssignment_HandChecked() {
+        // 费用矩阵（行=学生，列=房间）：
+        //   4 1 3
+        //   2 0 5
+        //   3 2 2
+        // 最优：学生0->房间1(1)，学生1->房间0(2)，学生2->房间2(2)，总费用 5
+        long[][] costs = {{4, 1, 3}, {2, 0, 5}, {3, 2, 2}};
+        MinCostFlow flow = new MinCostFlow(8, 16);
+        int[][] edges = buildAssignment(flow, costs);
+
+        long[] result = flow.solve(SOURCE, SINK, Integer.MAX_VALUE);
+
+        assertThat(result).containsExactly(3, 5);
+        assertThat(flow.flow(edges[0][1])).isEqualTo(1);
+        assertThat(flow.flow(edges[1][0])).isEqualTo(1);
+        assertThat(flow.flow(edges[2][2])).isEqualTo(1);
+        assertThat(flow.flow(edges[1][1])).isZero();
+    }
+
+    @Test
+    @DisplayName("需撤销先前增广：第二条增广路经过负约化费用的反向边")
+    void testReroute_ThroughNegativeReducedCostEdge() {
+        // 学生0: 房间0 费用1，房间1 费用2；学生1: 房间0 费用2，房间1 费用100
+        // 第一轮沿最短路 0->房间0（费用1）；第二轮学生1 走 房间0 -> 反向边(-1) -> 学生0 -> 房间1，路径费用 2-1+2=3
+        // 最终：学生0->房间1，学生1->房间0，总费用 4（而不是贪心的 1+100）
+        long[][] costs = {{1, 2}, {2, 100}};
+        MinCostFlow flow = new MinCostFlow(6, 8);
+        int[][] edges = buildAssignment(flow, costs);
+
+        long[] first = flow.solve(SOURCE, SINK, 1);
+        assertThat(first).containsExactly(1, 1);
+        assertThat(flow.flow(edges[0][0])).isEqualTo(1);
+
+        long[] second = flow.solve(SOURCE, SINK, 1);
+        assertThat(second).containsExactly(1, 3);
+        assertThat(flow.flow(edges[0][0])).isZero();
+        assertThat(flow.flow(edges[0][1])).isEqualTo(1);
+        assertThat(flow.flow(edges[1][0])).isEqualTo(1);
+        assertThat(flow.flow(edges[1][1])).isZero();
+    }
+
+    @Test
+    @DisplayName("不可行：汇点不可达时流量为 0")
+    void testInfeasible_SinkUnreachable() {
+        MinCostFlow flow = new MinCostFlow(4, 4);
+        flow.addEdge(SOURCE, 2, 1, 3);
+        flow.addEdge(3, SINK, 1, 0);
+
+        assertThat(flow.solve(SOURCE, SINK, Integer.MAX_VALUE)).containsExactly(0, 0);
+    }
+
+    @Test
+    @DisplayName("容量不足：返回可达的最大流及其最小费用")
+    void testInfeasible_CapacityBound() {
+        // 3 个学生只能进 1 个房间（容量 2），费用 5/1/3，取最便宜的两个
+        MinCostFlow flow = new MinCostFlow(6, 8);
+        int room = 5;
+        long[] costs = {5, 1, 3};
+        int[] studentEdges = new int[3];
+        for (int i = 0; i < 3; i++) {
+            flow.addEdge(SOURCE, 2 + i, 1, 0);
+            studentEdges[i] = flow.addEdge(2 + i, room, 1, costs[i]);
+        }
+        flow.addEdge(room, SINK, 2, 0);
+
+        assertThat(flow.solve(SOURCE, SINK, 3)).containsExactly(2, 4);
+        assertThat(flow.flow(studentEdges[0])).isZero();
+        assertThat(flow.flow(studentEdges[1])).isEqualTo(1);
+        assertThat(flow.flow(studentEdges[2])).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("负费用边：拒绝")
+    void testNegativeCost_Rejected() {
+        MinCostFlow flow = new MinCostFlow(2, 1);
+        assertThatThrownBy(() -> flow.addEdge(SOURCE, SINK, 1, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("随机指派：与穷举最优解一致")
+    void testRandomAssignment_MatchesBruteForce() {
+        Random random = new Random(20260212L);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(6);
+            long[][] costs = new long[n][n];
+            for (long[] row : costs) {
+                for (int j = 0; j < n; j++) {
+                    row[j] = random.nextInt(50);
+                }
+            }
+            MinCostFlow flow = new MinCostFlow(2 + 2 * n, n * n + 2 * n);
+            buildAssignment(flow, costs);
+
+            long[] result = flow.solve(SOURCE, SINK, Integer.MAX_VALUE);
+
+            assertThat(result[0]).isEqualTo(n);
+            assertThat(result[1]).isEqualTo(bruteForce(costs, 0, new boolean[n]));
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    /**
+     * 建立完全二分指派图：源点 -> 学生 -> 房间 -> 汇点，容量均为 1
+     *
+     * @return 学生 i 到房间 j 的边编号
+     */
+    private static int[][] buildAssignment(MinCostFlow flow, long[][] costs) {
+        int n = costs.length;
+        int m = costs[0].length;
+        int[][] edges = new int[n][m];
+        for (int i = 0; i < n; i++) {
+            flow.addEdge(SOURCE, 2 + i, 1, 0);
+            for (int j = 0; j < m; j++) {
+                edges[i][j] = flow.addEdge(2 + i, 2 + n + j, 1, costs[i][j]);
+            }
+        }
+        for (int j = 0; j < m; j++) {
+            flow.addEdge(2 + n + j, SINK, 1, 0);
+        }
+        return edges;
+    }
+
+    private static long bruteForce(long[][] costs, int row, boolean[] used) {
+        if (row == costs.length) return 0;
+        long best = Long.MAX_VALUE;
+        for (int j = 0; j < costs.length; j++) {
+            if (used[j]) continue;
+            used[j] = true;
+            best = Math.min(best, costs[row][j] + bruteForce(costs, row + 1, used));
+            used[j] = false;
+        }
+        return best;
+    }
+}
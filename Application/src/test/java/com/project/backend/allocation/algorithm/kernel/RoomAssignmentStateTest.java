@@ -0,0 +1,214 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.student.entity.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 房间分配状态增量评分测试
+ *
+ * 测试要点
+ * 1. 随机放置/移出/交换/移动序列中，每一步后的增量总分等于从成员全量重算的总分
+ * 2. 评估但不提交的操作不改变状态，评估的得分变化等于提交后的实际变化
+ * 3. 房间冲突对数与全量统计一致
+ */
+@DisplayName("房间分配状态增量评分测试")
+public class RoomAssignmentStateTest {
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    @DisplayName("随机操作序列：增量总分与全量重算一致")
+    void testRandomOperations_MatchFullRecompute() {
+        Random random = new Random(20260212L);
+        for (int round = 0; round < 10; round++) {
+            // 性别/吸烟硬约束开启，保证序列中出现冲突对
+            ScoringKernel kernel = ScoringKernel.compile(randomConfig(random, 1));
+            int studentCount = 40;
+            int movableCount = 30;
+            StudentProfile[] profiles = new StudentProfile[studentCount];
+            for (int i = 0; i < studentCount; i++) {
+                profiles[i] = kernel.profile(randomStudent(random, (long) i));
+            }
+            int[] capacity = new int[12];
+            for (int r = 0; r < capacity.length; r++) {
+                capacity[r] = 2 + random.nextInt(5);
+            }
+            RoomAssignmentState state = new RoomAssignmentState(kernel, profiles, movableCount, capacity);
+
+            // 固定学生先入住
+            for (int s = movableCount; s < studentCount; s++) {
+                placeRandomly(random, state, s);
+            }
+            assertMatchesFullRecompute(state);
+
+            for (int step = 0; step < 2000; step++) {
+                int op = random.nextInt(4);
+                int student = random.nextInt(movableCount);
+                if (op == 0) {
+                    if (state.roomOf(student) == RoomAssignmentState.UNASSIGNED) {
+                        placeRandomly(random, state, student);
+                    }
+                } else if (op == 1) {
+                    state.remove(student);
+                } else if (op == 2) {
+                    int other = random.nextInt(movableCount);
+                    assertEvaluateThenApply(state, state.evaluateSwap(student, other));
+                } else {
+                    int room = random.nextInt(state.roomCount());
+                    assertEvaluateThenApply(state, state.evaluateMove(student, room));
+                }
+                assertMatchesFullRecompute(state);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("只评估不提交：状态保持不变")
+    void testEvaluateWithoutApply_LeavesStateUnchanged() {
+        Random random = new Random(7L);
+        ScoringKernel kernel = ScoringKernel.compile(randomConfig(random, 0));
+        StudentProfile[] profiles = new StudentProfile[8];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = kernel.profile(randomStudent(random, (long) i));
+        }
+        RoomAssignmentState state = new RoomAssignmentState(kernel, profiles, profiles.length, new int[]{4, 4, 4});
+        for (int s = 0; s < profiles.length; s++) {
+            state.place(s, s % 3);
+        }
+        double before = state.totalScore();
+        int[] assignment = state.snapshotAssignment();
+
+        state.evaluateSwap(0, 1);
+        state.evaluateMove(2, 0);
+
+        assertThat(state.totalScore()).isEqualTo(before);
+        assertThat(state.snapshotAssignment()).isEqualTo(assignment);
+        assertMatchesFullRecompute(state);
+    }
+
+    @Test
+    @DisplayName("复制的状态独立变化")
+    void testCopy_IsIndependent() {
+        Random random = new Random(11L);
+        ScoringKernel kernel = ScoringKernel.compile(randomConfig(random, 0));
+        StudentProfile[] profiles = new StudentProfile[6];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = kernel.profile(randomStudent(random, (long) i));
+        }
+        RoomAssignmentState state = new RoomAssignmentState(kernel, profiles, profiles.length, new int[]{3, 3});
+        for (int s = 0; s < profiles.length; s++) {
+            state.place(s, s % 2);
+        }
+        RoomAssignmentState copy = state.copy();
+        double before = state.totalScore();
+
+        copy.evaluateSwap(0, 1);
+        copy.applyPending();
+
+        assertThat(state.totalScore()).isEqualTo(before);
+        assertThat(state.roomOf(0)).isEqualTo(0);
+        assertThat(copy.roomOf(0)).isEqualTo(1);
+        assertMatchesFullRecompute(state);
+        assertMatchesFullRecompute(copy);
+    }
+
+    // ==================== 断言 ====================
+
+    /**
+     * 提交评估过的操作，实际得分变化应等于评估值
+     */
+    private static void assertEvaluateThenApply(RoomAssignmentState state, double delta) {
+        double before = state.totalScore();
+        state.applyPending();
+        assertThat(state.totalScore() - before).isCloseTo(delta, within(EPSILON));
+    }
+
+    /**
+     * 从各房间成员逐对重算得分和冲突对数，与增量维护的结果比较
+     */
+    private static void assertMatchesFullRecompute(RoomAssignmentState state) {
+        ScoringKernel kernel = state.kernel();
+        double expectedTotal = 0;
+        for (int room = 0; room < state.roomCount(); room++) {
+            int size = state.roomSize(room);
+            long sum = 0;
+            int conflictPairs = 0;
+            for (int i = 0; i < size; i++) {
+                int a = state.member(room, i);
+                assertThat(state.roomOf(a)).isEqualTo(room);
+                for (int j = i + 1; j < size; j++) {
+                    int points = kernel.pairPoints(state.profile(a), state.profile(state.member(room, j)));
+                    if (points == ScoringKernel.CONFLICT) {
+                        conflictPairs++;
+                    } else {
+                        sum += points;
+                    }
+                }
+            }
+            double roomScore = size <= 1 ? 100.0
+                    : (sum - conflictPairs * 100_00L) / 100.0 / ((long) size * (size - 1) / 2);
+            assertThat(state.roomConflicts(room)).isEqualTo(conflictPairs);
+            assertThat(state.roomScore(room)).isCloseTo(roomScore, within(EPSILON));
+            expectedTotal += roomScore;
+        }
+        assertThat(state.totalScore()).isCloseTo(expectedTotal, within(EPSILON));
+    }
+
+    // ==================== 测试数据 ====================
+
+    private static void placeRandomly(Random random, RoomAssignmentState state, int student) {
+        int start = random.nextInt(state.roomCount());
+        for (int i = 0; i < state.roomCount(); i++) {
+            int room = (start + i) % state.roomCount();
+            if (state.freeSlots(room) > 0) {
+                state.place(student, room);
+                return;
+            }
+        }
+    }
+
+    private static AllocationConfig randomConfig(Random random, int hardConstraint) {
+        AllocationConfig config = new AllocationConfig();
+        config.setSleepWeight(random.nextInt(41));
+        config.setSmokingWeight(random.nextInt(41));
+        config.setCleanlinessWeight(random.nextInt(41));
+        config.setSocialWeight(random.nextInt(41));
+        config.setStudyWeight(random.nextInt(41));
+        config.setEntertainmentWeight(random.nextInt(41));
+        config.setGenderConstraint(hardConstraint);
+        config.setSmokingConstraint(hardConstraint);
+        config.setSleepHardConstraint(0);
+        config.setSameClassBonus(random.nextInt(11));
+        config.setSameMajorBonus(random.nextInt(11));
+        config.setSameDeptBonus(random.nextInt(11));
+        return config;
+    }
+
+    private static Student randomStudent(Random random, Long id) {
+        Student s = new Student();
+        s.setId(id);
+        s.setGender(1 + random.nextInt(2));
+        s.setSmokingStatus(random.nextInt(4) == 0 ? 1 : 0);
+        s.setSmokingTolerance(random.nextInt(2));
+        s.setSleepSchedule(random.nextInt(4));
+        s.setSleepQuality(random.nextInt(3));
+        s.setSnores(random.nextInt(2));
+        s.setSensitiveToLight(random.nextInt(2));
+        s.setSensitiveToSound(random.nextInt(2));
+        s.setCleanlinessLevel(1 + random.nextInt(5));
+        s.setSocialPreference(random.nextInt(3));
+        s.setAllowVisitors(random.nextInt(3));
+        s.setGamingPreference(random.nextInt(3));
+        s.setMusicPreference(random.nextInt(3));
+        s.setMusicVolume(random.nextInt(3));
+        s.setClassCode("C" + random.nextInt(3));
+        return s;
+    }
+}
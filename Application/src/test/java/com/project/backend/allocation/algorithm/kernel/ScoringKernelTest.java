@@ -0,0 +1,298 @@
+package com.project.backend.allocation.algorithm.kernel;
+
+import com.project.backend.allocation.algorithm.model.MatchResult;
+import com.project.backend.allocation.algorithm.model.RoomMatchResult;
+import com.project.backend.allocation.entity.AllocationConfig;
+import com.project.backend.allocation.service.impl.CompatibilityServiceImpl;
+import com.project.backend.student.entity.Student;
+import com.project.backend.student.mapper.StudentMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 匹配度计算内核测试
+ *
+ * 测试要点
+ * 1. 内核两两分与 CompatibilityServiceImpl 的 BigDecimal 结果逐一相等
+ * 2. 房间平均分的 HALF_UP 两位小数舍入一致（含恰好 .5 的边界）
+ * 3. 硬约束判断、加分项封顶一致
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("匹配度计算内核测试")
+public class ScoringKernelTest {
+
+    @Mock
+    private StudentMapper studentMapper;
+
+    @InjectMocks
+    private CompatibilityServiceImpl compatibilityService;
+
+    @Test
+    @DisplayName("固定学生对：两两分与服务结果一致")
+    void testPairScore_FixedPairs() {
+        AllocationConfig config = config(33, 17, 21, 9, 13, 7, 0, 0, 0, 0, 0, 0);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+
+        // 全部默认值
+        assertPairParity(kernel, config, new Student(), new Student());
+        // 作息差 3 档 + 打呼噜/声音敏感 + 浅睡/光线敏感
+        Student a = student(1L, 1, 0, 1, 1, 0);
+        Student b = student(2L, 1, 3, 0, 0, 1);
+        a.setSensitiveToLight(1);
+        b.setSleepQuality(0);
+        b.setSensitiveToSound(1);
+        assertPairParity(kernel, config, a, b);
+        // 吸烟者与可接受/不接受者
+        Student smoker = student(3L, 1, 1, null, null, null);
+        smoker.setSmokingStatus(1);
+        Student tolerant = student(4L, 1, 1, null, null, null);
+        tolerant.setSmokingTolerance(1);
+        Student intolerant = student(5L, 1, 1, null, null, null);
+        intolerant.setSmokingTolerance(0);
+        assertPairParity(kernel, config, smoker, tolerant);
+        assertPairParity(kernel, config, smoker, intolerant);
+    }
+
+    @Test
+    @DisplayName("加分项：同班/同专业/同院系优先级及总分封顶 100")
+    void testPairScore_BonusCap() {
+        AllocationConfig config = config(20, 20, 20, 20, 10, 10, 0, 0, 0, 15, 8, 3);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+
+        Student a = student(1L, 1, 1, null, null, null);
+        Student b = student(2L, 1, 1, null, null, null);
+        a.setDeptCode("D1");
+        b.setDeptCode("D1");
+        a.setMajorCode("M1");
+        b.setMajorCode("M1");
+        a.setClassCode("C1");
+        b.setClassCode("C1");
+        // 同班加分后超过 100，封顶
+        assertPairParity(kernel, config, a, b);
+        assertThat(kernel.pairScore(kernel.profile(a), kernel.profile(b))).isEqualTo(100.0);
+
+        b.setClassCode("C2");
+        b.setSleepSchedule(3);
+        assertPairParity(kernel, config, a, b);
+        b.setMajorCode("M2");
+        assertPairParity(kernel, config, a, b);
+    }
+
+    @Test
+    @DisplayName("硬约束：性别/吸烟/作息冲突判断一致")
+    void testHardConflict() {
+        AllocationConfig config = config(20, 20, 20, 20, 10, 10, 1, 1, 1, 0, 0, 0);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+
+        Student male = student(1L, 1, 0, null, null, null);
+        Student female = student(2L, 2, 0, null, null, null);
+        Student nullGender = student(3L, null, 0, null, null, null);
+        Student lateMale = student(4L, 1, 3, null, null, null);
+        Student smoker = student(5L, 1, 1, null, null, null);
+        smoker.setSmokingStatus(1);
+        Student intolerant = student(6L, 1, 1, null, null, null);
+        intolerant.setSmokingTolerance(0);
+
+        List<Student> students = List.of(male, female, nullGender, lateMale, smoker, intolerant);
+        for (Student x : students) {
+            for (Student y : students) {
+                assertPairParity(kernel, config, x, y);
+            }
+        }
+        assertThat(kernel.pairPoints(kernel.profile(male), kernel.profile(female))).isEqualTo(ScoringKernel.CONFLICT);
+        assertThat(kernel.pairPoints(kernel.profile(male), kernel.profile(lateMale))).isEqualTo(ScoringKernel.CONFLICT);
+        assertThat(kernel.pairPoints(kernel.profile(smoker), kernel.profile(intolerant))).isEqualTo(ScoringKernel.CONFLICT);
+    }
+
+    @Test
+    @DisplayName("随机学生与权重：两两分、房间平均分与服务结果一致")
+    void testRandomParity() {
+        Random random = new Random(20260212L);
+        for (int round = 0; round < 20; round++) {
+            AllocationConfig config = config(random.nextInt(41), random.nextInt(41), random.nextInt(41),
+                    random.nextInt(41), random.nextInt(41), random.nextInt(41),
+                    random.nextInt(2), random.nextInt(2), random.nextInt(2),
+                    random.nextInt(11), random.nextInt(11), random.nextInt(11));
+            ScoringKernel kernel = ScoringKernel.compile(config);
+
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                students.add(randomStudent(random, (long) i));
+            }
+            for (Student a : students) {
+                for (Student b : students) {
+                    assertPairParity(kernel, config, a, b);
+                }
+            }
+            for (int i = 0; i < 50; i++) {
+                Student student = students.get(random.nextInt(students.size()));
+                List<Student> roommates = new ArrayList<>();
+                int count = 1 + random.nextInt(5);
+                for (int j = 0; j < count; j++) {
+                    roommates.add(students.get(random.nextInt(students.size())));
+                }
+                assertRoomParity(kernel, config, student, roommates);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("两两分缓存：画像数超过当前缓存边长时扩容，已缓存和新计算的分数不变")
+    void testPairCache_GrowsWithInternedProfiles() {
+        Random random = new Random(42L);
+        AllocationConfig config = config(25, 15, 20, 15, 15, 10, 0, 0, 0, 0, 0, 0);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+
+        // 先驻留少量画像并填充缓存
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            students.add(randomStudent(random, (long) i));
+        }
+        for (Student a : students) {
+            for (Student b : students) {
+                assertPairParity(kernel, config, a, b);
+            }
+        }
+        // 再驻留更多画像（超过初始边长，触发扩容），新旧画像交叉打分
+        for (int i = 40; i < 300; i++) {
+            students.add(randomStudent(random, (long) i));
+        }
+        for (int i = 0; i < students.size(); i += 3) {
+            for (int j = 0; j < students.size(); j += 7) {
+                assertPairParity(kernel, config, students.get(i), students.get(j));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("房间平均分：恰好半个百分之一分时向上舍入")
+    void testRoomScore_HalfUpRounding() {
+        // 只有作息权重 33：作息相同 33.00 分，差 1 档 90*33/100 = 29.70 分，差 2 档 75*33/100 = 24.75 分
+        AllocationConfig config = config(33, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        ScoringKernel kernel = ScoringKernel.compile(config);
+
+        Student student = student(1L, 1, 0, null, null, null);
+        Student same = student(2L, 1, 0, null, null, null);
+        Student diff2 = student(3L, 1, 2, null, null, null);
+        Student diff1 = student(4L, 1, 1, null, null, null);
+
+        // (33.00 + 24.75) / 2 = 28.875 -> 28.88
+        assertRoomParity(kernel, config, student, List.of(same, diff2));
+        assertThat(kernel.roomScore(kernel.profile(student),
+                List.of(kernel.profile(same), kernel.profile(diff2)))).isEqualTo(28.88);
+        // (33.00 + 29.70 + 24.75) / 3 = 29.15
+        assertRoomParity(kernel, config, student, List.of(same, diff1, diff2));
+        // (24.75 + 24.75 + 33.00 + 29.70) / 4 = 28.05
+        assertRoomParity(kernel, config, student, List.of(diff2, diff2, same, diff1));
+        // 空房间
+        assertThat(kernel.roomScore(kernel.profile(student), List.of())).isEqualTo(ScoringKernel.EMPTY_ROOM_SCORE);
+    }
+
+    // ==================== 断言 ====================
+
+    private void assertPairParity(ScoringKernel kernel, AllocationConfig config, Student a, Student b) {
+        MatchResult expected = compatibilityService.calculateCompatibility(a, b, config);
+        int points = kernel.pairPoints(kernel.profile(a), kernel.profile(b));
+        if (Boolean.TRUE.equals(expected.getHasHardConflict())) {
+            assertThat(points).isEqualTo(ScoringKernel.CONFLICT);
+            return;
+        }
+        assertThat(BigDecimal.valueOf(points, 2))
+                .as("学生 %s / %s", a.getId(), b.getId())
+                .isEqualByComparingTo(expected.getTotalScore());
+        assertThat(kernel.hasHardConflict(kernel.profile(a), kernel.profile(b)))
+                .isEqualTo(compatibilityService.hasHardConflict(a, b, config));
+    }
+
+    private void assertRoomParity(ScoringKernel kernel, AllocationConfig config,
+                                  Student student, List<Student> roommates) {
+        RoomMatchResult expected = compatibilityService.calculateRoomCompatibility(student, roommates, config);
+        List<StudentProfile> profiles = roommates.stream().map(kernel::profile).toList();
+        double score = kernel.roomScore(kernel.profile(student), profiles);
+        if (Boolean.TRUE.equals(expected.getHasHardConflict())) {
+            assertThat(score).isEqualTo((double) ScoringKernel.CONFLICT);
+            return;
+        }
+        assertThat(BigDecimal.valueOf(score)).isEqualByComparingTo(expected.getAvgScore());
+    }
+
+    // ==================== 测试数据 ====================
+
+    private static AllocationConfig config(int sleep, int smoking, int cleanliness, int social, int study,
+                                           int entertainment, int genderConstraint, int smokingConstraint,
+                                           int sleepHardConstraint, int classBonus, int majorBonus, int deptBonus) {
+        AllocationConfig config = new AllocationConfig();
+        config.setSleepWeight(sleep);
+        config.setSmokingWeight(smoking);
+        config.setCleanlinessWeight(cleanliness);
+        config.setSocialWeight(social);
+        config.setStudyWeight(study);
+        config.setEntertainmentWeight(entertainment);
+        config.setGenderConstraint(genderConstraint);
+        config.setSmokingConstraint(smokingConstraint);
+        config.setSleepHardConstraint(sleepHardConstraint);
+        config.setSameClassBonus(classBonus);
+        config.setSameMajorBonus(majorBonus);
+        config.setSameDeptBonus(deptBonus);
+        return config;
+    }
+
+    private static Student student(Long id, Integer gender, Integer sleepSchedule,
+                                   Integer snores, Integer sleepQuality, Integer sensitiveToSound) {
+        Student s = new Student();
+        s.setId(id);
+        s.setGender(gender);
+        s.setSleepSchedule(sleepSchedule);
+        s.setSnores(snores);
+        s.setSleepQuality(sleepQuality);
+        s.setSensitiveToSound(sensitiveToSound);
+        return s;
+    }
+
+    /**
+     * 随机学生：各字段取值域内的值或 null（null 走默认值分支）
+     */
+    private static Student randomStudent(Random random, Long id) {
+        Student s = new Student();
+        s.setId(id);
+        s.setGender(randomOrNull(random, 1, 2));
+        s.setSmokingStatus(randomOrNull(random, 0, 1));
+        s.setSmokingTolerance(randomOrNull(random, 0, 1));
+        s.setSleepSchedule(randomOrNull(random, 0, 3));
+        s.setSleepQuality(randomOrNull(random, 0, 2));
+        s.setSnores(randomOrNull(random, 0, 1));
+        s.setSensitiveToLight(randomOrNull(random, 0, 1));
+        s.setSensitiveToSound(randomOrNull(random, 0, 1));
+        s.setCleanlinessLevel(randomOrNull(random, 1, 5));
+        s.setBedtimeCleanup(randomOrNull(random, 0, 3));
+        s.setSocialPreference(randomOrNull(random, 0, 2));
+        s.setAllowVisitors(randomOrNull(random, 0, 2));
+        s.setPhoneCallTime(randomOrNull(random, 0, 2));
+        s.setStudyInRoom(randomOrNull(random, 0, 3));
+        s.setStudyEnvironment(randomOrNull(random, 1, 3));
+        s.setComputerUsageTime(randomOrNull(random, 0, 3));
+        s.setGamingPreference(randomOrNull(random, 0, 2));
+        s.setMusicPreference(randomOrNull(random, 0, 2));
+        s.setMusicVolume(randomOrNull(random, 0, 2));
+        s.setEatInRoom(randomOrNull(random, 0, 3));
+        s.setDeptCode(random.nextBoolean() ? "D" + random.nextInt(2) : null);
+        s.setMajorCode(random.nextBoolean() ? "M" + random.nextInt(3) : null);
+        s.setClassCode(random.nextBoolean() ? "C" + random.nextInt(4) : null);
+        return s;
+    }
+
+    private static Integer randomOrNull(Random random, int min, int max) {
+        return random.nextInt(8) == 0 ? null : min + random.nextInt(max - min + 1);
+    }
+}
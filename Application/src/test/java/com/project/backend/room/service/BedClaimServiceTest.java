@@ -0,0 +1,220 @@
+package com.project.backend.room.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.project.backend.room.dto.bed.BedClaimDTO;
+import com.project.backend.room.entity.Bed;
+import com.project.backend.room.mapper.BedMapper;
+import com.project.backend.room.service.impl.BedClaimServiceImpl;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 床位占用服务测试
+ * BedMapper 由内存床位表模拟（仅占用启用、空闲且无人入住的床位），只验证服务对占用结果的处理；
+ * 条件 UPDATE 本身的并发原子性由数据库保证，不在本测试范围内
+ *
+ * 测试要点
+ * 1. 批量占用：同一批次重复的床位只保留第一个请求，只发出一条语句
+ * 2. 批量占用：床位已由同一学生占用时视为成功（有意为之，便于中断后重新入住），但不计入占用成功数
+ * 3. 批量占用：床位已被其他学生占用时不成功，原占用保持不变
+ * 4. 冲突回退：依次尝试同房间空闲床位，最多 MAX_ALTERNATIVES 个，全部失败时放弃
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("床位占用服务测试")
+public class BedClaimServiceTest {
+
+    /** 与 BedClaimServiceImpl.MAX_ALTERNATIVES 一致 */
+    private static final int MAX_ALTERNATIVES = 8;
+    private static final long ROOM_ID = 100L;
+
+    @Mock
+    private BedMapper bedMapper;
+
+    @InjectMocks
+    private BedClaimServiceImpl bedClaimService;
+
+    /** 模拟的床位表 */
+    private final Map<Long, Bed> table = new HashMap<>();
+    /** 每次 claimBatch 收到的请求（复制） */
+    private final List<List<BedClaimDTO>> batchCalls = new ArrayList<>();
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper 解析列名需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Bed.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(bedMapper.claim(anyLong(), anyLong(), anyString(), any(LocalDate.class)))
+                .thenAnswer(inv -> claimRow(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2)) ? 1 : 0);
+        lenient().when(bedMapper.claimBatch(any(), any(LocalDate.class))).thenAnswer(inv -> {
+            List<BedClaimDTO> claims = new ArrayList<>(inv.<List<BedClaimDTO>>getArgument(0));
+            batchCalls.add(claims);
+            // CASE id WHEN ... 对重复的床位取第一个分支；WHERE 只命中空闲床位
+            Set<Long> seen = new HashSet<>();
+            int updated = 0;
+            for (BedClaimDTO claim : claims) {
+                if (seen.add(claim.getBedId()) && claimRow(claim.getBedId(), claim.getStudentId(), claim.getStudentName())) {
+                    updated++;
+                }
+            }
+            return updated;
+        });
+        // 回查：返回表中全部床位的副本，由服务按请求过滤
+        lenient().when(bedMapper.selectList(any())).thenAnswer(inv -> table.values().stream().map(this::copy).toList());
+    }
+
+    // ==================== 批量占用 ====================
+
+    @Test
+    @DisplayName("批量占用：重复床位只保留第一个请求")
+    void testClaimAll_DuplicateBedIds_FirstRequestWins() {
+        addBed(1L, null);
+        addBed(2L, null);
+
+        Set<Long> claimed = bedClaimService.claimAll(List.of(
+                new BedClaimDTO(1L, 10L, "张三"),
+                new BedClaimDTO(1L, 11L, "李四"),
+                new BedClaimDTO(2L, 12L, "王五")));
+
+        assertThat(claimed).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(batchCalls).hasSize(1);
+        assertThat(batchCalls.get(0)).extracting(BedClaimDTO::getBedId).containsExactly(1L, 2L);
+        assertThat(table.get(1L).getStudentId()).isEqualTo(10L);
+        assertThat(table.get(2L).getStudentId()).isEqualTo(12L);
+        assertThat(bedClaimService.getStats().getClaimed()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("批量占用：床位已由同一学生占用时视为成功")
+    void testClaimAll_BedHeldBySameStudent_CountsAsSuccess() {
+        addBed(1L, 10L);
+
+        Set<Long> claimed = bedClaimService.claimAll(List.of(new BedClaimDTO(1L, 10L, "张三")));
+
+        // 条件 UPDATE 未命中（床位非空闲），回查发现仍是该学生，按成功返回
+        assertThat(claimed).containsExactly(1L);
+        assertThat(table.get(1L).getStudentId()).isEqualTo(10L);
+        assertThat(bedClaimService.getStats().getClaimed()).isZero();
+        assertThat(bedClaimService.getStats().getConflicts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("批量占用：床位已被其他学生占用时不成功")
+    void testClaimAll_BedHeldByOtherStudent_NotClaimed() {
+        addBed(1L, 99L);
+        addBed(2L, null);
+
+        Set<Long> claimed = bedClaimService.claimAll(List.of(
+                new BedClaimDTO(1L, 10L, "张三"),
+                new BedClaimDTO(2L, 11L, "李四")));
+
+        assertThat(claimed).containsExactly(2L);
+        assertThat(table.get(1L).getStudentId()).isEqualTo(99L);
+        assertThat(table.get(2L).getStudentId()).isEqualTo(11L);
+    }
+
+    // ==================== 冲突回退 ====================
+
+    @Test
+    @DisplayName("冲突回退：改占同房间的空闲床位")
+    void testClaimOrAlternative_FallsBackToSameRoomBed() {
+        addBed(1L, 99L);
+        addBed(2L, null);
+        lenient().when(bedMapper.selectById(1L)).thenReturn(copy(table.get(1L)));
+
+        Long bedId = bedClaimService.claimOrAlternative(1L, 10L, "张三");
+
+        assertThat(bedId).isEqualTo(2L);
+        assertThat(table.get(2L).getStudentId()).isEqualTo(10L);
+        assertThat(bedClaimService.getStats().getFallbackClaimed()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("冲突回退：候选床位全部被抢占时尝试 MAX_ALTERNATIVES 个后放弃")
+    void testClaimOrAlternative_GivesUpAfterMaxAlternatives() {
+        addBed(1L, 99L);
+        List<Bed> candidates = new ArrayList<>();
+        for (long id = 2; id < 2 + MAX_ALTERNATIVES; id++) {
+            // 查询时空闲，占用前已被其他学生抢占
+            Bed candidate = new Bed();
+            candidate.setId(id);
+            candidates.add(candidate);
+            addBed(id, 200L + id);
+        }
+        lenient().when(bedMapper.selectById(1L)).thenReturn(copy(table.get(1L)));
+        lenient().when(bedMapper.selectList(any())).thenReturn(candidates);
+
+        Long bedId = bedClaimService.claimOrAlternative(1L, 10L, "张三");
+
+        assertThat(bedId).isNull();
+        verify(bedMapper, times(1 + MAX_ALTERNATIVES)).claim(anyLong(), anyLong(), anyString(), any(LocalDate.class));
+        assertThat(bedClaimService.getStats().getFallbackExhausted()).isEqualTo(1);
+        assertThat(bedClaimService.getStats().getFallbackClaimed()).isZero();
+    }
+
+    @Test
+    @DisplayName("冲突回退：首选床位不存在时直接放弃")
+    void testClaimOrAlternative_PreferredMissing_GivesUp() {
+        assertThat(bedClaimService.claimOrAlternative(1L, 10L, "张三")).isNull();
+        assertThat(bedClaimService.getStats().getFallbackExhausted()).isEqualTo(1);
+    }
+
+    // ==================== 模拟床位表 ====================
+
+    private void addBed(Long id, Long studentId) {
+        Bed bed = new Bed();
+        bed.setId(id);
+        bed.setRoomId(ROOM_ID);
+        bed.setStatus(1);
+        bed.setStudentId(studentId);
+        bed.setBedStatus(studentId == null ? 1 : 2);
+        table.put(id, bed);
+    }
+
+    /**
+     * 条件占用一行：WHERE bed_status = 1 AND student_id IS NULL AND status = 1
+     */
+    private boolean claimRow(Long bedId, Long studentId, String studentName) {
+        Bed bed = table.get(bedId);
+        if (bed == null || !Integer.valueOf(1).equals(bed.getBedStatus()) || bed.getStudentId() != null
+                || !Integer.valueOf(1).equals(bed.getStatus())) {
+            return false;
+        }
+        bed.setStudentId(studentId);
+        bed.setStudentName(studentName);
+        bed.setBedStatus(2);
+        return true;
+    }
+
+    private Bed copy(Bed source) {
+        Bed bed = new Bed();
+        bed.setId(source.getId());
+        bed.setRoomId(source.getRoomId());
+        bed.setStatus(source.getStatus());
+        bed.setBedStatus(source.getBedStatus());
+        bed.setStudentId(source.getStudentId());
+        bed.setStudentName(source.getStudentName());
+        return bed;
+    }
+}